@@ -46,9 +46,11 @@ import javafx.scene.text.Font;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.stage.WindowEvent;
+import particlesystem.DenseOutput;
 import particlesystem.Particle;
 import solarsystem.SolarSystem;
 import solarsystem.SolarSystemBody;
+import solarsystem.SolarSystemCheckpoints;
 import util.Vector3D;
 import util.VectorUtil;
 import visualization.SolarSystemViewMode;
@@ -95,6 +97,10 @@ public class SolarSystemApplication extends Application {
     // Flag to indicate whether simulation is running in step mode
     private boolean simulationIsRunningStepMode = false;
 
+    // Epoch shown in step mode in between time steps of the simulation,
+    // null when the simulation epoch is shown
+    private Epoch stepModeEpoch = null;
+
     // Flag to indicate whether simulation is running fast
     private boolean simulationIsRunningFast = false;
 
@@ -179,6 +185,9 @@ public class SolarSystemApplication extends Application {
     // The Solar System
     private SolarSystem solarSystem;
 
+    // Checkpoints of simulation state to move simulation to another date/time
+    private SolarSystemCheckpoints checkpoints = null;
+
     // Circles representing the bodies of the Solar System.
     // Functions as storage for position, radius, and color of circles
     // representing the bodies of the Solar System.
@@ -199,6 +208,12 @@ public class SolarSystemApplication extends Application {
     // Start dates for trajectories of spacecraft
     private Map<String, Calendar> trajectoryStartDate;
 
+    // Maximum number of samples per time step of dense output to update trajectories of spacecraft
+    private static final int MAXNRSAMPLESTRAJECTORY = 32;
+
+    // Elapsed time at end of dense output used to update trajectories of spacecraft
+    private double trajectoryDenseOutputEndTime = Double.NaN;
+
     // Information panels
     private Map<String, InformationPanel> informationPanels;
 
@@ -762,7 +777,17 @@ public class SolarSystemApplication extends Application {
 
 
         // Create the Solar System
+        // Dense output is stored to update trajectories of spacecraft in between time steps
         solarSystem = new SolarSystem();
+        solarSystem.setDenseOutputFlag(true);
+
+        // Create storage for checkpoints of simulation state
+        try {
+            checkpoints = new SolarSystemCheckpoints();
+        }
+        catch (IOException ex) {
+            System.err.println("Cannot create checkpoints of simulation state");
+        }
 
         // Start dates for trajectories of spacecraft
         trajectoryStartDate = new HashMap<>();
@@ -793,7 +818,12 @@ public class SolarSystemApplication extends Application {
             @Override
             public void handle(Event event) {
                 if (!simulationIsRunning()) {
-                    initializeSimulation();
+                    if (showSimulation && !showEphemeris) {
+                        seekSimulation();
+                    }
+                    else {
+                        initializeSimulation();
+                    }
                 }
             }
         });
@@ -974,6 +1004,7 @@ public class SolarSystemApplication extends Application {
             public void changed(ObservableValue<? extends Boolean> observable, Boolean oldValue, Boolean newValue) {
                 solarSystem.setGeneralRelativityFlag(!newValue);
                 solarSystem.setCurvatureWavePropagationFlag(!newValue);
+                clearCheckpoints();
             }
         });
         radioGeneralRelativity =
@@ -986,6 +1017,7 @@ public class SolarSystemApplication extends Application {
             public void changed(ObservableValue<? extends Boolean> observable, Boolean oldValue, Boolean newValue) {
                 solarSystem.setGeneralRelativityFlag(newValue);
                 solarSystem.setCurvatureWavePropagationFlag(!newValue);
+                clearCheckpoints();
             }
         });
         radioCurvatureWavePropagation =
@@ -998,6 +1030,7 @@ public class SolarSystemApplication extends Application {
             public void changed(ObservableValue<? extends Boolean> observable, Boolean oldValue, Boolean newValue) {
                 solarSystem.setGeneralRelativityFlag(newValue);
                 solarSystem.setCurvatureWavePropagationFlag(newValue);
+                clearCheckpoints();
             }
         });
         ToggleGroup simulationMethod = new ToggleGroup();
@@ -1615,7 +1648,7 @@ public class SolarSystemApplication extends Application {
      * @return simulation date/time corrected [GC]
      */
     private GregorianCalendar currentSimulationDateTimeCorrected() {
-        GregorianCalendar currentSimulationDateTime = solarSystem.getSimulationDateTime();
+        GregorianCalendar currentSimulationDateTime = shownEpoch().toCalendar();
         if (observationFromEarth) {
             // Correction for speed of light
             double correction = this.correctionSpeedOfLight();
@@ -1664,6 +1697,7 @@ public class SolarSystemApplication extends Application {
         simulationIsRunningForward = true;
 
         // Initialize simulation
+        stepModeEpoch = null;
         try {
             GregorianCalendar dateTime = dateTimeSelector.getDateTime();
             if (observationFromEarth) {
@@ -1671,6 +1705,7 @@ public class SolarSystemApplication extends Application {
                 dateTime.add(Calendar.SECOND,(int) Math.round(-correction));
             }
             solarSystem.initializeSimulation(dateTime);
+            clearCheckpoints();
             updateDateTimeSelector();
         }
         catch (SolarSystemException ex) {
@@ -1678,6 +1713,63 @@ public class SolarSystemApplication extends Application {
         }
     }
 
+    /**
+     * Move simulation to the current date/time in the time selector without
+     * initializing the simulation state. The nearest checkpoint of the simulation
+     * state is restored and the simulation is advanced from there. The simulation
+     * is initialized when no checkpoint is available within the interval between
+     * checkpoints, such that the user interface is not blocked while advancing.
+     */
+    private synchronized void seekSimulation() {
+        stepModeEpoch = null;
+        try {
+            GregorianCalendar dateTime = dateTimeSelector.getDateTime();
+            if (observationFromEarth) {
+                double correction = correctionSpeedOfLight();
+                dateTime.add(Calendar.SECOND,(int) Math.round(-correction));
+            }
+            if (checkpoints == null || !checkpoints.seek(solarSystem, new Epoch(dateTime))) {
+                initializeSimulation();
+                return;
+            }
+            solarSystem.moveBodies();
+            updateDateTimeSelector();
+        }
+        catch (IOException | SolarSystemException ex) {
+            showMessage("Error",ex.getMessage());
+        }
+    }
+
+    /**
+     * Store checkpoint of current simulation state.
+     */
+    private void recordCheckpoint() {
+        if (checkpoints != null) {
+            try {
+                checkpoints.record(solarSystem);
+            }
+            catch (IOException ex) {
+                System.err.println("Cannot store checkpoint of simulation state");
+            }
+        }
+    }
+
+    /**
+     * Remove all checkpoints of simulation state and store checkpoint of
+     * current simulation state.
+     */
+    private void clearCheckpoints() {
+        if (checkpoints != null) {
+            try {
+                checkpoints.clear();
+            }
+            catch (IOException ex) {
+                System.err.println("Cannot remove checkpoints of simulation state");
+            }
+            recordCheckpoint();
+        }
+    }
+
     /**
      * Start simulation in fast backward mode.
      */
@@ -1798,6 +1890,16 @@ public class SolarSystemApplication extends Application {
         simulationIsRunningFast = false;
         simulationIsRunningForward = true;
         taskSimulate.pause();
+        try {
+            monitor.startSimulating();
+            synchronizeStepMode();
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            monitor.stopSimulating();
+        }
         updateDateTimeAndPanels();
     }
 
@@ -1821,15 +1923,26 @@ public class SolarSystemApplication extends Application {
         if (file != null) {
             try {
                 monitor.startSimulating();
-                try {
+                stepModeEpoch = null;
+                if (SolarSystem.isSnapshot(file)) {
+                    // Positions and orbits of the bodies are computed when drawn
+                    solarSystem.loadSnapshot(file);
+                }
+                else {
+                    // Simulation state saved by former versions of the Solar System Simulator
                     FileInputStream fileIn = new FileInputStream(file);
                     try (ObjectInputStream objectIn = new ObjectInputStream(fileIn)) {
                         solarSystem = (SolarSystem) objectIn.readObject();
                     }
+                    solarSystem.setDenseOutputFlag(true);
                 }
-                catch (IOException | ClassNotFoundException | ClassCastException ex) {
-                    showMessage("Error","Cannot load simulation state from file " + file.getName());
-                }
+                clearCheckpoints();
+            }
+            catch (SolarSystemException ex) {
+                showMessage("Error", ex.getMessage());
+            }
+            catch (IOException | ClassNotFoundException | ClassCastException ex) {
+                showMessage("Error","Cannot load simulation state from file " + file.getName());
             }
             catch (InterruptedException ex) {
                 Thread.currentThread().interrupt();
@@ -1860,15 +1973,8 @@ public class SolarSystemApplication extends Application {
             fileChooser.setInitialFileName(dateTimeString + ".sol");
             File file = fileChooser.showSaveDialog(primaryStage);
             if (file != null) {
-                FileOutputStream fileOut = null;
                 try {
-                    fileOut = new FileOutputStream(file);
-                }
-                catch (FileNotFoundException ex) {
-                    showMessage("Error","File not found");
-                }
-                try (ObjectOutputStream objectOut = new ObjectOutputStream(fileOut)) {
-                    objectOut.writeObject(solarSystem);
+                    solarSystem.saveSnapshot(file);
                 }
                 catch (IOException ex) {
                     showMessage("Error","Cannot save simulation state to file");
@@ -1936,6 +2042,7 @@ public class SolarSystemApplication extends Application {
                             }
                         }
                         showMoons.put(planetName, isSelected);
+                        clearCheckpoints();
                         updateBodiesShown();
                     }
                     else {
@@ -2006,7 +2113,7 @@ public class SolarSystemApplication extends Application {
         if (showSimulation) {
             Particle particle = solarSystem.getParticle(name);
             if (particle != null) {
-                return particle.getPosition();
+                return positionVelocityParticle(name, particle)[0];
             }
         }
         else {
@@ -2018,6 +2125,23 @@ public class SolarSystemApplication extends Application {
         return new Vector3D();
     }
 
+    /**
+     * Determine position and velocity of particle with given name. In step mode,
+     * position and velocity are interpolated in between time steps of the simulation.
+     * @param name     name of the particle
+     * @param particle the particle
+     * @return position [m] and velocity [m/s] of the particle
+     */
+    private Vector3D[] positionVelocityParticle(String name, Particle particle) {
+        if (stepModeEpoch != null) {
+            Vector3D[] positionVelocity = solarSystem.getInterpolatedPositionVelocity(name, stepModeEpoch);
+            if (positionVelocity != null) {
+                return positionVelocity;
+            }
+        }
+        return new Vector3D[]{particle.getPosition(), particle.getVelocity()};
+    }
+
     /**
      * Determine the position of the selected body.
      * Return zero vector when no body is selected.
@@ -2321,12 +2445,12 @@ public class SolarSystemApplication extends Application {
                 if (particle != null) {
                     if (!spacecraftNames.contains(bodyName)) {
                         // Not a spacecraft
-                        drawCircle(circle, body, particle.getPosition());
+                        drawCircle(circle, body, positionVelocityParticle(bodyName, particle)[0]);
                     }
                     else {
                         if (solarSystem.getSimulationDateTime().after(trajectoryStartDate.get(bodyName))) {
                             // Spacecraft - do not draw before trajectory start date
-                            drawCircle(circle, body, particle.getPosition());
+                            drawCircle(circle, body, positionVelocityParticle(bodyName, particle)[0]);
                         }
                     }
                 }
@@ -2436,16 +2560,20 @@ public class SolarSystemApplication extends Application {
      * Draw orbit corresponding to current position and velocity of particle.
      * Orbit is drawn as a dark cyan line.
      * @param centerBodyName name of the center body
+     * @param name     name of the particle
      * @param particle the particle
      */
-    private void drawOrbitCorrespondingToPositionVelocity(String centerBodyName, Particle particle) {
+    private void drawOrbitCorrespondingToPositionVelocity(String centerBodyName, String name, Particle particle) {
         // Position and velocity of center body
-        Vector3D positionCenterBody = solarSystem.getParticle(centerBodyName).getPosition();
-        Vector3D velocityCenterBody = solarSystem.getParticle(centerBodyName).getVelocity();
+        Vector3D[] positionVelocityCenterBody =
+                positionVelocityParticle(centerBodyName, solarSystem.getParticle(centerBodyName));
+        Vector3D positionCenterBody = positionVelocityCenterBody[0];
+        Vector3D velocityCenterBody = positionVelocityCenterBody[1];
 
         // Position and velocity of particle
-        Vector3D positionParticle = particle.getPosition();
-        Vector3D velocityParticle = particle.getVelocity();
+        Vector3D[] positionVelocity = positionVelocityParticle(name, particle);
+        Vector3D positionParticle = positionVelocity[0];
+        Vector3D velocityParticle = positionVelocity[1];
 
         // Compute orbit of particle relative to center body
         Vector3D positionRelativeToCenterBody = positionParticle.minus(positionCenterBody);
@@ -2529,6 +2657,60 @@ public class SolarSystemApplication extends Application {
         }
     }
 
+    /**
+     * Update trajectory of spacecraft with positions interpolated in between
+     * time steps, such that the trajectory is smooth during close encounters.
+     * Positions are only added for time steps in which the direction of motion
+     * relative to the center body changes more than the angle between segments
+     * of the trajectory. The positions are interpolated from dense output of the
+     * Solar System; no additional simulation is needed.
+     * @param body        spacecraft
+     * @param denseOutput dense output of time steps since the last drawing
+     */
+    private void updateTrajectoryDenseOutput(SolarSystemBody body, DenseOutput denseOutput) {
+        String bodyName = body.getName();
+        SolarSystemBody centerBody = body.getCenterBody();
+        String centerBodyName = centerBody != null ? centerBody.getName() : null;
+        if (!denseOutput.contains(bodyName) || (centerBodyName != null && !denseOutput.contains(centerBodyName))) {
+            return;
+        }
+        for (int knot = 0; knot < denseOutput.getNrKnots() - 1; knot++) {
+            double startTime = denseOutput.getTime(knot);
+            double endTime = denseOutput.getTime(knot + 1);
+            double deltaT = endTime - startTime;
+            if (deltaT == 0.0) {
+                continue;
+            }
+            // Number of samples depends on change of direction during the time step
+            Vector3D velocityStart = denseOutput.getVelocity(bodyName, startTime);
+            Vector3D velocityEnd = denseOutput.getVelocity(bodyName, endTime);
+            if (centerBodyName != null) {
+                velocityStart = velocityStart.minus(denseOutput.getVelocity(centerBodyName, startTime));
+                velocityEnd = velocityEnd.minus(denseOutput.getVelocity(centerBodyName, endTime));
+            }
+            double angle = velocityStart.angleDeg(velocityEnd);
+            int nrSamples = (int) Math.min(MAXNRSAMPLESTRAJECTORY,
+                    Math.ceil(angle/SolarSystemBody.MAXANGLETRAJECTORY));
+            if (nrSamples < 2) {
+                continue;
+            }
+            // Position at the end of the last time step is the current position
+            int lastSample = knot < denseOutput.getNrKnots() - 2 ? nrSamples : nrSamples - 1;
+            for (int sample = 1; sample <= lastSample; sample++) {
+                double time = startTime + sample*deltaT/nrSamples;
+                Vector3D position = denseOutput.getPosition(bodyName, time);
+                Vector3D velocity = denseOutput.getVelocity(bodyName, time);
+                if (centerBodyName != null) {
+                    body.updateTrajectory(position, velocity, denseOutput.getPosition(centerBodyName, time),
+                            denseOutput.getVelocity(centerBodyName, time));
+                }
+                else {
+                    body.updateTrajectory(position, velocity, new Vector3D(), new Vector3D());
+                }
+            }
+        }
+    }
+
     /**
      * Draw orbits or trajectories corresponding to current positions and velocities
      * of particles. Orbits are drawn as cyan lines. Spacecraft trajectories as red lines.
@@ -2536,6 +2718,15 @@ public class SolarSystemApplication extends Application {
      */
     private void drawOrbitsCorrespondingToPositionVelocity(List<SolarSystemBody> bodiesToShow) {
         if (showSimulation) {
+            // Dense output of time steps since the last drawing is used only once
+            DenseOutput denseOutput = solarSystem.getDenseOutput();
+            if (denseOutput == null || denseOutput.getNrKnots() < 2 ||
+                    denseOutput.getEndTime() == trajectoryDenseOutputEndTime) {
+                denseOutput = null;
+            }
+            else {
+                trajectoryDenseOutputEndTime = denseOutput.getEndTime();
+            }
             for (SolarSystemBody body : bodiesToShow) {
                 String bodyName = body.getName();
                 Particle particle = solarSystem.getParticle(bodyName);
@@ -2545,14 +2736,18 @@ public class SolarSystemApplication extends Application {
                         SolarSystemBody centerBody = body.getCenterBody();
                         if (centerBody != null) {
                             String centerBodyName = body.getCenterBody().getName();
-                            drawOrbitCorrespondingToPositionVelocity(centerBodyName, particle);
+                            drawOrbitCorrespondingToPositionVelocity(centerBodyName, bodyName, particle);
                         } else {
-                            drawOrbitCorrespondingToPositionVelocity("Sun", particle);
+                            drawOrbitCorrespondingToPositionVelocity("Sun", bodyName, particle);
                         }
                     } else {
                         // Draw trajectory
                         if (solarSystem.getSimulationDateTime().after(trajectoryStartDate.get(bodyName))) {
-                            body.updateTrajectory(particle.getPosition(), particle.getVelocity());
+                            if (denseOutput != null && stepModeEpoch == null) {
+                                updateTrajectoryDenseOutput(body, denseOutput);
+                            }
+                            Vector3D[] positionVelocity = positionVelocityParticle(bodyName, particle);
+                            body.updateTrajectory(positionVelocity[0], positionVelocity[1]);
                             if (!body.getTrajectory().isEmpty()) {
                                 SolarSystemBody centerBody = body.getCenterBody();
                                 if (centerBody != null) {
@@ -2892,6 +3087,11 @@ public class SolarSystemApplication extends Application {
      * Draw simulation state of Solar System on screen.
      */
     private void drawSimulationState() {
+        // Compute positions and orbits of the bodies after loading a snapshot
+        if (solarSystem.isMoveBodiesRequired()) {
+            solarSystem.moveBodies();
+        }
+
         // Update current simulation date/time and information panels
         if (simulationIsRunning()) {
             updateDateTimeSelector();
@@ -2979,6 +3179,18 @@ public class SolarSystemApplication extends Application {
      * Number of time steps depends on simulation mode.
      */
     private void advanceSimulation() {
+        if (simulationIsRunningStepMode) {
+            updateStepModeTimeStep();
+            if (simulationIsRunningForward) {
+                advanceSimulationStepMode(stepModeTimeStep);
+            }
+            else {
+                advanceSimulationStepMode(-stepModeTimeStep);
+            }
+            recordCheckpoint();
+            return;
+        }
+        synchronizeStepMode();
         int nrTimeSteps;
         if (simulationIsRunningFast) {
             nrTimeSteps = 24;
@@ -2987,24 +3199,67 @@ public class SolarSystemApplication extends Application {
             nrTimeSteps = 1;
         }
         if (simulationIsRunningForward) {
-            if (simulationIsRunningStepMode) {
-                updateStepModeTimeStep();
-                solarSystem.advanceSimulationSingleStep(stepModeTimeStep);
-            }
-            else {
-                solarSystem.advanceSimulationForward(nrTimeSteps);
-            }
+            solarSystem.advanceSimulationForward(nrTimeSteps);
         }
         else {
-            if (simulationIsRunningStepMode) {
-                updateStepModeTimeStep();
-                solarSystem.advanceSimulationSingleStep(-stepModeTimeStep);
+            solarSystem.advanceSimulationBackward(nrTimeSteps);
+        }
+        solarSystem.moveBodies();
+        recordCheckpoint();
+    }
+
+    /**
+     * Advance epoch shown in step mode. The simulation is advanced with whole
+     * time steps when the epoch shown is not within the last time step. Positions
+     * of particles in between time steps are interpolated from dense output.
+     * @param timeStep time step in seconds, negative when backward
+     */
+    private void advanceSimulationStepMode(double timeStep) {
+        if (!solarSystem.getDenseOutputFlag()) {
+            // Positions cannot be interpolated
+            solarSystem.advanceSimulationSingleStep(timeStep);
+            solarSystem.moveBodies();
+            return;
+        }
+        Epoch epoch = shownEpoch().plusSeconds(timeStep);
+        while (!epoch.equals(solarSystem.getSimulationEpoch()) && !solarSystem.denseOutputContains(epoch)) {
+            if (epoch.after(solarSystem.getSimulationEpoch())) {
+                solarSystem.advanceSimulationForward(1);
             }
             else {
-                solarSystem.advanceSimulationBackward(nrTimeSteps);
+                solarSystem.advanceSimulationBackward(1);
             }
         }
-        solarSystem.moveBodies();
+        stepModeEpoch = epoch;
+        solarSystem.moveBodies(epoch);
+    }
+
+    /**
+     * Advance simulation to the epoch shown in step mode, such that the state
+     * of the particles corresponds to the epoch shown.
+     */
+    private void synchronizeStepMode() {
+        if (stepModeEpoch != null) {
+            double timeStep = stepModeEpoch.secondsSince(solarSystem.getSimulationEpoch());
+            stepModeEpoch = null;
+            if (timeStep != 0.0) {
+                solarSystem.advanceSimulationSingleStep(timeStep);
+                // Trajectories are not updated for this time step
+                solarSystem.resetDenseOutput();
+            }
+            solarSystem.moveBodies();
+        }
+    }
+
+    /**
+     * Epoch shown, which is in between time steps of the simulation in step mode.
+     * @return epoch shown
+     */
+    private Epoch shownEpoch() {
+        if (stepModeEpoch != null) {
+            return stepModeEpoch;
+        }
+        return solarSystem.getSimulationEpoch();
     }
 
     /**
@@ -3607,6 +3862,7 @@ public class SolarSystemApplication extends Application {
                             System.out.println("stopCurrentFlybyCassini = " + CalendarUtil.calendarToString(stopCurrentFlybyCassini));
                             try {
                                 solarSystem.initializeSimulation(startFlybysCassiniIterator.next());
+                                clearCheckpoints();
                             } catch (SolarSystemException e) {
                                 e.printStackTrace();
                             }
@@ -3786,6 +4042,7 @@ public class SolarSystemApplication extends Application {
         dateTimeSelector.setDateTime(eventDateTime);
         try {
             solarSystem.initializeSimulation(eventDateTime);
+            clearCheckpoints();
         } catch (SolarSystemException ex) {
             showMessage("Error",ex.getMessage());
         }
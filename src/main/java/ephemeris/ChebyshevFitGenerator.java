@@ -0,0 +1,332 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package ephemeris;
+
+import java.io.*;
+import java.nio.DoubleBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Program to fit piecewise Chebyshev polynomials to the analytic theories
+ * of the moons of Jupiter, Saturn, Uranus, and Neptune. Position and velocity
+ * of each body are sampled at the Chebyshev nodes of each record. When the fit
+ * deviates more than the tolerance from the analytic theory, both halves of
+ * the interval are fitted separately. The fits are written to a
+ * file that is served by EphemerisChebyshev. The analytic theories remain the
+ * reference for the fitted files.
+ * @author Nico Kuijpers
+ */
+public class ChebyshevFitGenerator {
+
+    // Location of files with Chebyshev fits
+    private static final String locationChebyshevFiles = "EphemerisFilesChebyshev/";
+
+    // Default number of Chebyshev coefficients per coordinate
+    private static final int DEFAULTNRCOEFFICIENTS = 13;
+
+    // Default tolerance for position [m] and velocity [m/s]
+    private static final double DEFAULTTOLERANCEPOSITION = 10.0;
+    private static final double DEFAULTTOLERANCEVELOCITY = 1.0E-3;
+
+    // Default initial interval length [days]
+    private static final double DEFAULTINTERVALLENGTH = 8.0;
+
+    // Minimum interval length [days]
+    private static final double MININTERVALLENGTH = 1.0E-3;
+
+    // Default first and last year of fitted files
+    private static final int DEFAULTFIRSTYEAR = 1950;
+    private static final int DEFAULTLASTYEAR = 2050;
+
+    // Analytic theory to be fitted
+    private final IEphemeris ephemeris;
+
+    // Number of Chebyshev coefficients per coordinate
+    private final int nrCoefficients;
+
+    // Tolerance for position [m] and velocity [m/s]
+    private final double tolerancePosition;
+    private final double toleranceVelocity;
+
+    // Chebyshev nodes in [-1,1] and points between nodes to check the fit
+    private final double[] nodes;
+    private final double[] checkPoints;
+
+    // Offset of next record in coefficients
+    private int offset;
+
+    // Number of records for which the tolerance was exceeded
+    private int nrRecordsToleranceExceeded;
+
+    // AUXILIARY CLASS
+    // Segment of records of equal interval length for one body
+    private static class Segment {
+        private final double begin;
+        private final double intervalLength;
+        private final int offset;
+        private int nrRecords = 0;
+
+        private Segment(double begin, double intervalLength, int offset) {
+            this.begin = begin;
+            this.intervalLength = intervalLength;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Constructor.
+     * Position and velocity of the analytic theory are sampled using
+     * getBodiesPositionVelocity for a Julian date/time.
+     * @param ephemeris         analytic theory to be fitted
+     * @param nrCoefficients    number of Chebyshev coefficients per coordinate
+     * @param tolerancePosition tolerance for position [m]
+     * @param toleranceVelocity tolerance for velocity [m/s]
+     */
+    public ChebyshevFitGenerator(IEphemeris ephemeris, int nrCoefficients,
+                                 double tolerancePosition, double toleranceVelocity) {
+        this.ephemeris = ephemeris;
+        this.nrCoefficients = nrCoefficients;
+        this.tolerancePosition = tolerancePosition;
+        this.toleranceVelocity = toleranceVelocity;
+
+        // Chebyshev nodes of the first kind in decreasing order
+        nodes = new double[nrCoefficients];
+        for (int k = 0; k < nrCoefficients; k++) {
+            nodes[k] = Math.cos(Math.PI*(k + 0.5)/nrCoefficients);
+        }
+
+        // End points of the interval and points halfway between nodes
+        checkPoints = new double[nrCoefficients + 1];
+        checkPoints[0] = 1.0;
+        checkPoints[nrCoefficients] = -1.0;
+        for (int k = 1; k < nrCoefficients; k++) {
+            checkPoints[k] = Math.cos(Math.PI*k/nrCoefficients);
+        }
+    }
+
+    /**
+     * Fit all bodies of the analytic theory between first and last Julian
+     * date/time and write the fits to file.
+     * @param file                  file to be created
+     * @param firstJulianDateTime   first Julian date/time
+     * @param lastJulianDateTime    last Julian date/time
+     * @param initialIntervalLength initial interval length [days]
+     * @throws IOException when the file cannot be written
+     */
+    public void writeFile(File file, double firstJulianDateTime, double lastJulianDateTime,
+                          double initialIntervalLength) throws IOException {
+        List<String> bodies = ephemeris.getBodies();
+        List<List<Segment>> segments = new ArrayList<>();
+        nrRecordsToleranceExceeded = 0;
+
+        // Write coefficients to temporary file, since the header is written first
+        File coefficientFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(coefficientFile)))) {
+            offset = 0;
+            for (String name : bodies) {
+                List<Segment> segmentsBody = new ArrayList<>();
+                int nrIntervals = (int) Math.ceil((lastJulianDateTime - firstJulianDateTime)/initialIntervalLength);
+                for (int i = 0; i < nrIntervals; i++) {
+                    fitInterval(name, firstJulianDateTime + i*initialIntervalLength,
+                            initialIntervalLength, segmentsBody, output);
+                }
+                segments.add(segmentsBody);
+            }
+        }
+
+        // Header with number of coefficients, valid dates, and segments of each body
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+             DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(coefficientFile)))) {
+            output.writeInt(EphemerisChebyshev.FILEMAGIC);
+            output.writeInt(nrCoefficients);
+            output.writeDouble(firstJulianDateTime);
+            output.writeDouble(lastJulianDateTime);
+            output.writeInt(bodies.size());
+            for (int b = 0; b < bodies.size(); b++) {
+                byte[] name = bodies.get(b).getBytes(StandardCharsets.UTF_8);
+                output.writeShort(name.length);
+                output.write(name);
+                output.writeInt(segments.get(b).size());
+                for (Segment segment : segments.get(b)) {
+                    output.writeDouble(segment.begin);
+                    output.writeDouble(segment.intervalLength);
+                    output.writeInt(segment.nrRecords);
+                    output.writeInt(segment.offset);
+                }
+            }
+            for (int i = 0; i < offset; i++) {
+                output.writeDouble(input.readDouble());
+            }
+        }
+        if (!coefficientFile.delete()) {
+            throw new IOException("Cannot delete " + coefficientFile.getPath());
+        }
+    }
+
+    /**
+     * Get number of records of the last file written for which the tolerance
+     * was exceeded at minimum interval length. This happens where the analytic
+     * theory itself is not smooth.
+     * @return number of records
+     */
+    public int getNrRecordsToleranceExceeded() {
+        return nrRecordsToleranceExceeded;
+    }
+
+    /**
+     * Fit body for one interval. When the tolerance is exceeded, both halves
+     * of the interval are fitted separately. Records of equal interval length
+     * that follow each other are stored in the same segment.
+     * @param name           body name
+     * @param begin          Julian date/time at begin of interval
+     * @param intervalLength interval length [days]
+     * @param segmentsBody   segments of body
+     * @param output         output for coefficients
+     * @throws IOException when coefficients cannot be written
+     */
+    private void fitInterval(String name, double begin, double intervalLength,
+                             List<Segment> segmentsBody, DataOutputStream output) throws IOException {
+        double[] record = fitRecord(name, begin, intervalLength);
+        if (record == null) {
+            if (intervalLength/2.0 >= MININTERVALLENGTH) {
+                // Tolerance exceeded; fit both halves
+                fitInterval(name, begin, intervalLength/2.0, segmentsBody, output);
+                fitInterval(name, begin + intervalLength/2.0, intervalLength/2.0, segmentsBody, output);
+                return;
+            }
+
+            // Keep fit with minimum interval length anyway
+            nrRecordsToleranceExceeded++;
+            record = fitRecord(name, begin, intervalLength, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+        }
+        Segment segment = segmentsBody.isEmpty() ? null : segmentsBody.get(segmentsBody.size() - 1);
+        if (segment == null || segment.intervalLength != intervalLength) {
+            segment = new Segment(begin, intervalLength, offset);
+            segmentsBody.add(segment);
+        }
+        for (double coefficient : record) {
+            output.writeDouble(coefficient);
+        }
+        offset += record.length;
+        segment.nrRecords++;
+    }
+
+    /**
+     * Fit Chebyshev polynomials to position and velocity of body for one record.
+     * @param name           body name
+     * @param begin          Julian date/time at begin of record
+     * @param intervalLength interval length [days]
+     * @return coefficients for x, y, z, vx, vy, vz or null when tolerance is exceeded
+     */
+    private double[] fitRecord(String name, double begin, double intervalLength) {
+        return fitRecord(name, begin, intervalLength, tolerancePosition, toleranceVelocity);
+    }
+
+    /**
+     * Fit Chebyshev polynomials to position and velocity of body for one record.
+     * @param name              body name
+     * @param begin             Julian date/time at begin of record
+     * @param intervalLength    interval length [days]
+     * @param tolerancePosition tolerance for position [m]
+     * @param toleranceVelocity tolerance for velocity [m/s]
+     * @return coefficients for x, y, z, vx, vy, vz or null when tolerance is exceeded
+     */
+    private double[] fitRecord(String name, double begin, double intervalLength,
+                               double tolerancePosition, double toleranceVelocity) {
+        List<String> names = Collections.singletonList(name);
+
+        // Sample position and velocity at Chebyshev nodes
+        double[][] samples = new double[nrCoefficients][6];
+        for (int k = 0; k < nrCoefficients; k++) {
+            double julianDateTime = begin + 0.5*(nodes[k] + 1.0)*intervalLength;
+            ephemeris.getBodiesPositionVelocity(names, julianDateTime, samples[k]);
+        }
+
+        // Coefficients from discrete orthogonality of Chebyshev polynomials
+        double[] record = new double[6*nrCoefficients];
+        for (int c = 0; c < 6; c++) {
+            for (int j = 0; j < nrCoefficients; j++) {
+                double sum = 0.0;
+                for (int k = 0; k < nrCoefficients; k++) {
+                    sum += samples[k][c]*Math.cos(Math.PI*j*(k + 0.5)/nrCoefficients);
+                }
+                record[c*nrCoefficients + j] = (j == 0 ? 1.0 : 2.0)*sum/nrCoefficients;
+            }
+        }
+
+        // Check fit at end points and halfway between nodes
+        DoubleBuffer coefficients = DoubleBuffer.wrap(record);
+        double[] sample = new double[6];
+        for (double x : checkPoints) {
+            double julianDateTime = begin + 0.5*(x + 1.0)*intervalLength;
+            ephemeris.getBodiesPositionVelocity(names, julianDateTime, sample);
+            for (int c = 0; c < 6; c++) {
+                double deviation = Math.abs(EphemerisChebyshev.chebyshev(coefficients, c*nrCoefficients, nrCoefficients, x) - sample[c]);
+                if (deviation > (c < 3 ? tolerancePosition : toleranceVelocity)) {
+                    return null;
+                }
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Main method.
+     * Create files with Chebyshev fits of the analytic theories for the moons
+     * of Jupiter, Saturn, Uranus, and Neptune in directory EphemerisFilesChebyshev.
+     * @param args optional first year, default 1950, and optional last year, default 2050
+     * @throws IOException when a file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int firstYear = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULTFIRSTYEAR;
+        int lastYear = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULTLASTYEAR;
+        if (lastYear <= firstYear) {
+            throw new IllegalArgumentException("Last year " + lastYear + " should be after first year " + firstYear);
+        }
+        double firstJulianDateTime = JulianDateConverter.convertCalendarToJulianDate(
+                CalendarUtil.createGregorianCalendar(firstYear, 1, 1, 0, 0, 0));
+        double lastJulianDateTime = JulianDateConverter.convertCalendarToJulianDate(
+                CalendarUtil.createGregorianCalendar(lastYear, 1, 1, 0, 0, 0));
+        IEphemeris[] theories = {EphemerisGalileanMoons.getInstance(), EphemerisSaturnMoons.getInstance(),
+                EphemerisUranusMoons.getInstance(), EphemerisTriton.getInstance()};
+        String[] filenames = {"GalileanMoons.cheb", "SaturnMoons.cheb", "UranusMoons.cheb", "Triton.cheb"};
+        File directory = new File(locationChebyshevFiles);
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory.getPath());
+        }
+        for (int i = 0; i < theories.length; i++) {
+            File file = new File(locationChebyshevFiles, filenames[i]);
+            long startTime = System.currentTimeMillis();
+            ChebyshevFitGenerator generator = new ChebyshevFitGenerator(theories[i],
+                    DEFAULTNRCOEFFICIENTS, DEFAULTTOLERANCEPOSITION, DEFAULTTOLERANCEVELOCITY);
+            generator.writeFile(file, firstJulianDateTime, lastJulianDateTime, DEFAULTINTERVALLENGTH);
+            long stopTime = System.currentTimeMillis();
+            System.out.println("File " + file.getPath() + " created: " +
+                    file.length() + " bytes in " + (stopTime - startTime) + " ms");
+            if (generator.getNrRecordsToleranceExceeded() > 0) {
+                System.out.println("Tolerance exceeded for " + generator.getNrRecordsToleranceExceeded() +
+                        " records of " + filenames[i]);
+            }
+        }
+    }
+}
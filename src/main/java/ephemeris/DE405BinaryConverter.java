@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package ephemeris;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Program to convert the text versions of the JPL DE405 ephemeris files
+ * ascpxxxx.405 into a single binary coefficient file. This conversion is
+ * needed only once. When the binary file is available, EphemerisAccurate
+ * maps it into memory instead of parsing the text versions.
+ * @author Nico Kuijpers
+ */
+public class DE405BinaryConverter {
+
+    /**
+     * Main method.
+     * Create binary coefficient file in directory DE405EphemerisFiles.
+     * @param args input arguments (not used)
+     * @throws IOException when an ephemeris file cannot be read or the binary file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        File binaryFile = EphemerisAccurate.getBinaryFile();
+        if (binaryFile.exists()) {
+            System.out.println("Binary file " + binaryFile.getPath() + " already exists");
+            return;
+        }
+
+        // Write to temporary file first, such that an incomplete binary file is never used
+        File temporaryFile = new File(binaryFile.getPath() + ".tmp");
+        long startTime = System.currentTimeMillis();
+        EphemerisAccurate ephemeris = new EphemerisAccurate(null);
+        ephemeris.writeBinaryFile(temporaryFile);
+        if (!temporaryFile.renameTo(binaryFile)) {
+            throw new IOException("Cannot rename " + temporaryFile.getPath() + " to " + binaryFile.getPath());
+        }
+        long stopTime = System.currentTimeMillis();
+        System.out.println("Binary file " + binaryFile.getPath() + " created: " +
+                binaryFile.length() + " bytes in " + (stopTime - startTime) + " ms");
+    }
+}
@@ -21,16 +21,27 @@ package ephemeris;
 
 import util.Vector3D;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 /**
  * Accurate Ephemeris for Sun, Moon, and major planets including Pluto. 
  * This ephemeris is valid for Julian date/times between 2312752.5 
  * (January 1, 1620) and 2524623.5 (January 31, 2200).
+ * When the binary coefficient file created by DE405BinaryConverter is
+ * available, it is memory-mapped and coefficients for any date are read
+ * directly from the mapped file. Otherwise, the text versions of the
+ * DE405 ephemeris files are parsed for each 20-year block.
  *
  * @author Nico Kuijpers
  */
@@ -96,7 +107,15 @@ public class EphemerisAccurate implements IEphemeris {
     private static IEphemeris instance = null;
 
     // Location of the JPL DE405 ephemeris files (text versions) 
-    private final String locationDE405EphemerisFiles = "DE405EphemerisFiles/";
+    private static final String locationDE405EphemerisFiles = "DE405EphemerisFiles/";
+
+    // Binary file containing the coefficients of all text versions
+    private static final String binaryFileName = "de405coefficients.bin";
+
+    // Identification of binary file ("DE45") and size of header entries in bytes
+    private static final int BINARYFILEMAGIC = 0x44453435;
+    private static final int BINARYHEADERSIZE = 8;
+    private static final int BINARYBLOCKENTRYSIZE = 24;
 
     // Number of records for current ephemeris file
     private int records;
@@ -131,8 +150,24 @@ public class EphemerisAccurate implements IEphemeris {
      */
     private final int[] numberCoefs = {14, 10, 13, 11, 8, 7, 6, 6, 6, 13, 11};
 
-    // Ephemeris coefficients
-    private final double[] ephemerisCoefficients = new double[187681];
+    // Ephemeris coefficients, allocated when text versions are parsed
+    private double[] ephemerisCoefficients;
+
+    // Number of coefficients stored for a 20-year block of 230 records
+    private static final int maxNumberCoefficients = 187681;
+
+    // Memory-mapped coefficients of all 20-year blocks, null when text versions are parsed
+    private DoubleBuffer binaryCoefficients;
+
+    // First and last Julian date of each 20-year block in binary file
+    private double[] binaryDateBegin;
+    private double[] binaryDateEnd;
+
+    // Index of first coefficient of each 20-year block in binary file
+    private int[] binaryBlockOffset;
+
+    // Index of first coefficient of current 20-year block in binary file
+    private int binaryOffset;
     
     // Julian dates for which current coefficients are valid
     private double ephemerisDateBegin;
@@ -151,6 +186,14 @@ public class EphemerisAccurate implements IEphemeris {
      * Constructor. Singleton pattern.
      */
     private EphemerisAccurate() {
+        this(getBinaryFile());
+    }
+
+    /**
+     * Constructor. Use coefficients from given binary file when it exists.
+     * @param binaryFile binary coefficient file or null to parse text versions
+     */
+    EphemerisAccurate(File binaryFile) {
         // Indices for planets, moon, and sun for DE405 ephemeris
         indexMap = new HashMap<>();
         indexMap.put("Mercury", 0);
@@ -177,6 +220,16 @@ public class EphemerisAccurate implements IEphemeris {
 
         // Last valid date: January 31, 2200
         lastValidDate = JulianDateConverter.convertJulianDateToCalendar(2524623.5);
+
+        // Map binary coefficient file when available
+        if (binaryFile != null && binaryFile.exists()) {
+            try {
+                mapBinaryFile(binaryFile);
+            } catch (IOException e) {
+                System.out.println("Error = " + e.toString());
+                binaryCoefficients = null;
+            }
+        }
         
         // Initialize current Julian date/time, positions, and velocities
         GregorianCalendar today = new GregorianCalendar();
@@ -197,6 +250,14 @@ public class EphemerisAccurate implements IEphemeris {
         return instance;
     }
 
+    /**
+     * Get location of binary coefficient file.
+     * @return binary coefficient file
+     */
+    static File getBinaryFile() {
+        return new File(locationDE405EphemerisFiles, binaryFileName);
+    }
+
     @Override
     public GregorianCalendar getFirstValidDate() {
         return firstValidDate;
@@ -599,7 +660,12 @@ public class EphemerisAccurate implements IEphemeris {
          * for given Julian date/time. If not, a new set is loaded.  
          */
         if ((julianDateTime < ephemerisDateBegin) || (julianDateTime > ephemerisDateEnd)) {
-            getEphemerisCoefficients(julianDateTime);
+            if (binaryCoefficients != null) {
+                selectBinaryBlock(julianDateTime);
+            }
+            else {
+                getEphemerisCoefficients(julianDateTime);
+            }
         }
 
         int interval = (int) (Math.floor((julianDateTime - ephemerisDateBegin) / intervalDuration) + 1);
@@ -628,7 +694,7 @@ public class EphemerisAccurate implements IEphemeris {
         for (int j = 0; j < 3; j++) {
             for (int k = 0; k < numberCoefs[index]; k++) {
                 // Read the coefficient at the pointer as the array entry coef[j][k]
-                coef[j][k] = ephemerisCoefficients[pointer];
+                coef[j][k] = getCoefficient(pointer);
                 pointer = pointer + 1;
             }
         }
@@ -698,6 +764,18 @@ public class EphemerisAccurate implements IEphemeris {
         return new Vector3D[]{position, velocity};
     }
 
+    /**
+     * Get coefficient with given index for the current 20-year block.
+     * @param index index of coefficient
+     * @return coefficient
+     */
+    private double getCoefficient(int index) {
+        if (binaryCoefficients != null) {
+            return binaryCoefficients.get(binaryOffset + index);
+        }
+        return ephemerisCoefficients[index];
+    }
+
     /**
      * Read the DE405 ephemeris file corresponding to given Julian date/time.
      * The start and end dates of the ephemeris file are updated, as are the 
@@ -706,17 +784,33 @@ public class EphemerisAccurate implements IEphemeris {
      * @param julianDateTime Julian date/time
      */
     private void getEphemerisCoefficients(double julianDateTime) {
+        String filename = selectFileForJulianDate(julianDateTime);
+        try {
+            readEphemerisFile(new File(locationDE405EphemerisFiles,filename));
+        } catch (IOException e) {
+            System.out.println("Error = " + e.toString());
+        }
+    }
+
+    /**
+     * Parse given DE405 ephemeris file (text version) and store the
+     * Chebyshev coefficients of the current number of records.
+     * @param file ephemeris file
+     * @throws IOException when the file cannot be read
+     */
+    private void readEphemerisFile(File file) throws IOException {
 
         /*
             Tested and verified 7-16-99.
          */
+        if (ephemerisCoefficients == null) {
+            ephemerisCoefficients = new double[maxNumberCoefficients];
+        }
         int mantissa1 = 0;
         int mantissa2 = 0;
         int exponent = 0;
         int lineNr = 0;
 
-        String filename = selectFileForJulianDate(julianDateTime);
-        File file = new File(locationDE405EphemerisFiles,filename);
         try (BufferedReader buff = Files.newBufferedReader(file.toPath())) {
 
             // Read each record in the file
@@ -793,10 +887,117 @@ public class EphemerisAccurate implements IEphemeris {
                 }
             }
 
-        } catch (IOException e) {
-            System.out.println("Error = " + e.toString());
         } catch (StringIndexOutOfBoundsException e) {
             System.out.println("String index out of bounds at line number " + lineNr);
         }
     }
+
+    /**
+     * Map binary coefficient file into memory. The file consists of a header
+     * with the number of 20-year blocks, an entry for each block with first and
+     * last Julian date, number of records, and index of the first coefficient,
+     * followed by the coefficients of all blocks.
+     * @param binaryFile binary coefficient file
+     * @throws IOException when the file cannot be read or has a wrong format
+     */
+    private void mapBinaryFile(File binaryFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(binaryFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != BINARYFILEMAGIC) {
+                throw new IOException("Wrong format of binary file " + binaryFile.getName());
+            }
+            int nrBlocks = buffer.getInt(4);
+            binaryDateBegin = new double[nrBlocks];
+            binaryDateEnd = new double[nrBlocks];
+            binaryBlockOffset = new int[nrBlocks];
+            for (int i = 0; i < nrBlocks; i++) {
+                int entry = BINARYHEADERSIZE + i*BINARYBLOCKENTRYSIZE;
+                binaryDateBegin[i] = buffer.getDouble(entry);
+                binaryDateEnd[i] = buffer.getDouble(entry + 8);
+                binaryBlockOffset[i] = buffer.getInt(entry + 20);
+            }
+
+            // The mapping remains valid after the channel is closed
+            buffer.position(BINARYHEADERSIZE + nrBlocks*BINARYBLOCKENTRYSIZE);
+            binaryCoefficients = buffer.slice().asDoubleBuffer();
+        }
+    }
+
+    /**
+     * Select the 20-year block of the binary coefficient file for given Julian date.
+     * Blocks are stored in order of date.
+     * @param julianDateTime Julian date/time
+     */
+    private void selectBinaryBlock(double julianDateTime) {
+        int low = 0;
+        int high = binaryDateBegin.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (julianDateTime < binaryDateBegin[mid]) {
+                high = mid - 1;
+            }
+            else if (julianDateTime >= binaryDateEnd[mid]) {
+                low = mid + 1;
+            }
+            else {
+                ephemerisDateBegin = binaryDateBegin[mid];
+                ephemerisDateEnd = binaryDateEnd[mid];
+                binaryOffset = binaryBlockOffset[mid];
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Date not valid for Ephemeris DE405");
+    }
+
+    /**
+     * Parse all DE405 ephemeris files (text versions) and write the coefficients
+     * to a binary file that can be memory-mapped.
+     * @param binaryFile binary coefficient file to be created
+     * @throws IOException when an ephemeris file cannot be read or the binary file cannot be written
+     */
+    void writeBinaryFile(File binaryFile) throws IOException {
+        // Determine 20-year blocks in order of date
+        List<double[]> blocks = new ArrayList<>();
+        List<String> filenames = new ArrayList<>();
+        double julianDateTime = 2312752.5;
+        String filename = selectFileForJulianDate(julianDateTime);
+        while (!filename.isEmpty()) {
+            blocks.add(new double[]{ephemerisDateBegin, ephemerisDateEnd, records});
+            filenames.add(filename);
+            julianDateTime = ephemerisDateEnd;
+            filename = selectFileForJulianDate(julianDateTime);
+        }
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(binaryFile)))) {
+            // Header and entry for each block
+            output.writeInt(BINARYFILEMAGIC);
+            output.writeInt(blocks.size());
+            int offset = 0;
+            for (double[] block : blocks) {
+                int nrRecords = (int) block[2];
+                output.writeDouble(block[0]);
+                output.writeDouble(block[1]);
+                output.writeInt(nrRecords);
+                output.writeInt(offset);
+                offset += nrRecords*numbersPerInterval + 1;
+            }
+
+            // Coefficients of each block as stored after parsing
+            for (int i = 0; i < blocks.size(); i++) {
+                File file = new File(locationDE405EphemerisFiles, filenames.get(i));
+                if (!file.exists()) {
+                    throw new IOException("Ephemeris file " + file.getPath() + " not found");
+                }
+                records = (int) blocks.get(i)[2];
+                readEphemerisFile(file);
+                for (int k = 0; k < records*numbersPerInterval + 1; k++) {
+                    output.writeDouble(ephemerisCoefficients[k]);
+                }
+            }
+        }
+
+        // Coefficients of the current block have been overwritten
+        ephemerisDateBegin = 0.0;
+        ephemerisDateEnd = 0.0;
+    }
 }
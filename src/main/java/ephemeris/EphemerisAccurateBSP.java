@@ -44,6 +44,10 @@ public class EphemerisAccurateBSP implements IEphemeris {
     // Last valid date
     private final GregorianCalendar lastValidDate;
 
+    // First and last valid Julian date/time
+    private final double firstValidJulianDateTime;
+    private final double lastValidJulianDateTime;
+
     // First valid julian date for de405_1900_2200.bsp is Jan 1, 1900
     // Julian date for January 1, 1990, 00:00 UTC is 2415020.5
     private final double firstValidJulianDateTimeB = 2415020.5;
@@ -171,13 +175,14 @@ public class EphemerisAccurateBSP implements IEphemeris {
         // Last valid date Jan 1, 2201
         lastValidDate = new GregorianCalendar(2201,0,1,0,0);
         lastValidDate.setTimeZone(TimeZone.getTimeZone("UTC"));
+        firstValidJulianDateTime = JulianDateConverter.convertCalendarToJulianDate(firstValidDate);
+        lastValidJulianDateTime = JulianDateConverter.convertCalendarToJulianDate(lastValidDate);
 
         // Open ephemeris file to read ephemeris from Jan 1, 1600 through Dec 31, 1899 file when needed
         spk[0] = null;
 
         // Open ephemeris file to read ephemeris from Jan 1, 1900 through Dec 31, 2200
-        spk[1] = new SPK();
-        spk[1].initWithBSPFile(BSPfilenameB);
+        spk[1] = new SPK(BSPfilenameB);
 
         // Initialize current Julian date/time, positions, and velocities
         GregorianCalendar today = new GregorianCalendar();
@@ -247,6 +252,103 @@ public class EphemerisAccurateBSP implements IEphemeris {
         return new Vector3D[]{positionInvTrans,velocityInvTrans};
     }
 
+    @Override
+    public Vector3D getBodyPosition(String name, Epoch epoch) {
+        return getBodyPositionVelocity(name,epoch)[0];
+    }
+
+    @Override
+    public Vector3D getBodyVelocity(String name, Epoch epoch) {
+        return getBodyPositionVelocity(name,epoch)[1];
+    }
+
+    @Override
+    public Vector3D[] getBodyPositionVelocity(String name, Epoch epoch) {
+
+        // Check whether body name is valid
+        if (!bodies.contains(name)) {
+            throw new IllegalArgumentException("Unknown body " + name + " for Ephemeris of Solar System");
+        }
+
+        // Check whether epoch is valid
+        double julianDateTime = epoch.getJulianDateTime();
+        if (julianDateTime < firstValidJulianDateTime || julianDateTime > lastValidJulianDateTime) {
+            throw new IllegalArgumentException("Date not valid for Ephemeris of Solar System");
+        }
+
+        // Determine position and velocity at given epoch for body with given name
+        updateEphemeris(julianDateTime);
+        int index = indexMap.get(name);
+
+        // Position and velocity are computed for J2000 frame
+        Vector3D positionInvTrans = EphemerisUtil.inverseTransformJ2000(currentPositions[index]);
+        Vector3D velocityInvTrans = EphemerisUtil.inverseTransformJ2000(currentVelocities[index]);
+        return new Vector3D[]{positionInvTrans,velocityInvTrans};
+    }
+
+    @Override
+    public void getBodiesPositionVelocity(List<String> names, GregorianCalendar date, double[] positionVelocity) {
+
+        // Check whether date is valid
+        if (date.before(firstValidDate) || date.after(lastValidDate)) {
+            throw new IllegalArgumentException("Date not valid for Ephemeris of Solar System");
+        }
+
+        // Determine positions and velocities at given date for all bodies at once
+        storeBodiesPositionVelocity(names, JulianDateConverter.convertCalendarToJulianDate(date), positionVelocity);
+    }
+
+    @Override
+    public void getBodiesPositionVelocity(List<String> names, double julianDateTime, double[] positionVelocity) {
+
+        // Check whether Julian date/time is valid
+        if (julianDateTime < firstValidJulianDateTime || julianDateTime > lastValidJulianDateTime) {
+            throw new IllegalArgumentException("Date not valid for Ephemeris of Solar System");
+        }
+
+        // Determine positions and velocities at given Julian date/time for all bodies at once
+        storeBodiesPositionVelocity(names, julianDateTime, positionVelocity);
+    }
+
+    @Override
+    public void getBodiesPositionVelocity(List<String> names, Epoch epoch, double[] positionVelocity) {
+        getBodiesPositionVelocity(names, epoch.getJulianDateTime(), positionVelocity);
+    }
+
+    /**
+     * Store positions and velocities of bodies at given Julian date/time.
+     * @param names body names
+     * @param julianDateTime Julian date/time
+     * @param positionVelocity array to store x, y, z, vx, vy, vz of each body
+     */
+    private void storeBodiesPositionVelocity(List<String> names, double julianDateTime, double[] positionVelocity) {
+        updateEphemeris(julianDateTime);
+        for (int i = 0; i < names.size(); i++) {
+            Integer index = indexMap.get(names.get(i));
+            if (index == null) {
+                throw new IllegalArgumentException("Unknown body " + names.get(i) + " for Ephemeris of Solar System");
+            }
+
+            // Position and velocity are computed for J2000 frame
+            Vector3D position = EphemerisUtil.inverseTransformJ2000(currentPositions[index]);
+            Vector3D velocity = EphemerisUtil.inverseTransformJ2000(currentVelocities[index]);
+            positionVelocity[6*i] = position.getX();
+            positionVelocity[6*i+1] = position.getY();
+            positionVelocity[6*i+2] = position.getZ();
+            positionVelocity[6*i+3] = velocity.getX();
+            positionVelocity[6*i+4] = velocity.getY();
+            positionVelocity[6*i+5] = velocity.getZ();
+        }
+    }
+
+    @Override
+    public void prefetch(double julianDateTime) {
+        // Load BSP file de405_1600_1899.bsp in the background when it is not yet opened
+        if (spk[0] == null && julianDateTime >= firstValidJulianDateTime && julianDateTime < firstValidJulianDateTimeB) {
+            SPKLoader.prefetch(BSPfilenameA, EphemerisUtil.computeNrSecondsPastJ2000(julianDateTime));
+        }
+    }
+
     @Override
     public Vector3D getBodyPositionBarycenter(String name, GregorianCalendar date) {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -272,6 +374,15 @@ public class EphemerisAccurateBSP implements IEphemeris {
         double julianDateTime = JulianDateConverter.convertCalendarToJulianDate(date);
 
         // Ensure that positions and velocities are available for given Julian date/time
+        updateEphemeris(julianDateTime);
+    }
+
+    /**
+     * Update current positions and velocities of the major planes, the Moon,
+     * and the Sun.
+     * @param julianDateTime current Julian date/time for ephemeris
+     */
+    private void updateEphemeris(double julianDateTime) {
         if (julianDateTime != currentJulianDateTime) {
             currentJulianDateTime = julianDateTime;
             planetaryEphemeris(julianDateTime);
@@ -303,8 +414,7 @@ public class EphemerisAccurateBSP implements IEphemeris {
         if (julianDateTime < firstValidJulianDateTimeB) {
             if (spk[0] == null) {
                 // Open ephemeris file de405_1600_1899.bsp to read ephemeris from Jan 1, 1600 through Dec 31, 1899
-                spk[0] = new SPK();
-                spk[0].initWithBSPFile(BSPfilenameA);
+                spk[0] = SPKLoader.load(BSPfilenameA);
             }
             index = 0;
         }
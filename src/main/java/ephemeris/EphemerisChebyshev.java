@@ -0,0 +1,265 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package ephemeris;
+
+import util.Vector3D;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Ephemeris from a file with piecewise Chebyshev fits of an analytic theory.
+ * The file is created by ChebyshevFitGenerator. Similar to SPK segments of
+ * Type III, each body has segments of records of equal length and each record
+ * contains Chebyshev coefficients for position and velocity. Position and
+ * velocity are relative to the same center and in the same frame as the
+ * analytic theory from which the file was generated.
+ * @author Nico Kuijpers
+ */
+public class EphemerisChebyshev implements IEphemeris {
+
+    // Identification of file with Chebyshev fits
+    static final int FILEMAGIC = 0x43484542;
+
+    // Number of Chebyshev coefficients per coordinate
+    private final int nrCoefficients;
+
+    // Bodies for which ephemeris can be computed
+    private final List<String> bodies;
+
+    // Index of each body
+    private final Map<String, Integer> indexMap;
+
+    // First and last valid date
+    private final GregorianCalendar firstValidDate;
+    private final GregorianCalendar lastValidDate;
+
+    // First and last valid Julian date/time
+    private final double firstValidJulianDateTime;
+    private final double lastValidJulianDateTime;
+
+    // Begin, interval length [days], number of records, and offset of
+    // first coefficient of each segment of each body in order of date
+    private final double[][] segmentBegin;
+    private final double[][] segmentIntervalLength;
+    private final int[][] segmentNrRecords;
+    private final int[][] segmentOffset;
+
+    // Chebyshev coefficients of all records
+    private final DoubleBuffer coefficients;
+
+    /**
+     * Constructor. Map file with Chebyshev fits into memory.
+     * @param file file created by ChebyshevFitGenerator
+     * @throws IOException when the file cannot be read or has a wrong format
+     */
+    public EphemerisChebyshev(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != FILEMAGIC) {
+                throw new IOException("Wrong format of file " + file.getName());
+            }
+            nrCoefficients = buffer.getInt();
+            firstValidJulianDateTime = buffer.getDouble();
+            lastValidJulianDateTime = buffer.getDouble();
+            int nrBodies = buffer.getInt();
+            bodies = new ArrayList<>();
+            indexMap = new HashMap<>();
+            segmentBegin = new double[nrBodies][];
+            segmentIntervalLength = new double[nrBodies][];
+            segmentNrRecords = new int[nrBodies][];
+            segmentOffset = new int[nrBodies][];
+            for (int b = 0; b < nrBodies; b++) {
+                byte[] name = new byte[buffer.getShort()];
+                buffer.get(name);
+                bodies.add(new String(name, StandardCharsets.UTF_8));
+                indexMap.put(bodies.get(b), b);
+                int nrSegments = buffer.getInt();
+                segmentBegin[b] = new double[nrSegments];
+                segmentIntervalLength[b] = new double[nrSegments];
+                segmentNrRecords[b] = new int[nrSegments];
+                segmentOffset[b] = new int[nrSegments];
+                for (int s = 0; s < nrSegments; s++) {
+                    segmentBegin[b][s] = buffer.getDouble();
+                    segmentIntervalLength[b][s] = buffer.getDouble();
+                    segmentNrRecords[b][s] = buffer.getInt();
+                    segmentOffset[b][s] = buffer.getInt();
+                }
+            }
+
+            // The mapping remains valid after the channel is closed
+            coefficients = buffer.slice().asDoubleBuffer();
+        }
+        firstValidDate = JulianDateConverter.convertJulianDateToEpoch(firstValidJulianDateTime).toCalendar();
+        lastValidDate = JulianDateConverter.convertJulianDateToEpoch(lastValidJulianDateTime).toCalendar();
+    }
+
+    @Override
+    public GregorianCalendar getFirstValidDate() {
+        return firstValidDate;
+    }
+
+    @Override
+    public GregorianCalendar getLastValidDate() {
+        return lastValidDate;
+    }
+
+    @Override
+    public List<String> getBodies() {
+        return Collections.unmodifiableList(bodies);
+    }
+
+    @Override
+    public Vector3D getBodyPosition(String name, GregorianCalendar date) {
+        return getBodyPositionVelocity(name,date)[0];
+    }
+
+    @Override
+    public Vector3D getBodyVelocity(String name, GregorianCalendar date) {
+        return getBodyPositionVelocity(name,date)[1];
+    }
+
+    @Override
+    public Vector3D[] getBodyPositionVelocity(String name, GregorianCalendar date) {
+        return getBodyPositionVelocity(name, JulianDateConverter.convertCalendarToJulianDate(date));
+    }
+
+    @Override
+    public Vector3D getBodyPosition(String name, Epoch epoch) {
+        return getBodyPositionVelocity(name,epoch)[0];
+    }
+
+    @Override
+    public Vector3D getBodyVelocity(String name, Epoch epoch) {
+        return getBodyPositionVelocity(name,epoch)[1];
+    }
+
+    @Override
+    public Vector3D[] getBodyPositionVelocity(String name, Epoch epoch) {
+        return getBodyPositionVelocity(name, epoch.getJulianDateTime());
+    }
+
+    @Override
+    public void getBodiesPositionVelocity(List<String> names, double julianDateTime, double[] positionVelocity) {
+        for (int i = 0; i < names.size(); i++) {
+            computePositionVelocity(names.get(i), julianDateTime, positionVelocity, 6*i);
+        }
+    }
+
+    @Override
+    public void getBodiesPositionVelocity(List<String> names, Epoch epoch, double[] positionVelocity) {
+        getBodiesPositionVelocity(names, epoch.getJulianDateTime(), positionVelocity);
+    }
+
+    @Override
+    public Vector3D getBodyPositionBarycenter(String name, GregorianCalendar date) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public Vector3D getBodyVelocityBarycenter(String name, GregorianCalendar date) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public Vector3D[] getBodyPositionVelocityBarycenter(String name, GregorianCalendar date) {
+        throw new UnsupportedOperationException("Not supported yet.");
+    }
+
+    @Override
+    public Vector3D[] getBodyPositionVelocity(String name, double julianDateTime) {
+        double[] positionVelocity = new double[6];
+        computePositionVelocity(name, julianDateTime, positionVelocity, 0);
+        return new Vector3D[]{new Vector3D(positionVelocity[0], positionVelocity[1], positionVelocity[2]),
+                new Vector3D(positionVelocity[3], positionVelocity[4], positionVelocity[5])};
+    }
+
+    /**
+     * Compute position and velocity of body at given Julian date/time
+     * from the Chebyshev coefficients of the record covering that date/time.
+     * @param name             body name
+     * @param julianDateTime   Julian date/time
+     * @param positionVelocity array to store x, y, z, vx, vy, vz
+     * @param index            index of x in array
+     */
+    private void computePositionVelocity(String name, double julianDateTime, double[] positionVelocity, int index) {
+
+        // Check whether body name is valid
+        Integer body = indexMap.get(name);
+        if (body == null) {
+            throw new IllegalArgumentException("Unknown body " + name + " for Chebyshev Ephemeris");
+        }
+
+        // Check whether date is valid
+        if (julianDateTime < firstValidJulianDateTime || julianDateTime > lastValidJulianDateTime) {
+            throw new IllegalArgumentException("Date not valid for Chebyshev Ephemeris");
+        }
+
+        // Find last segment starting at or before given date/time
+        double[] begin = segmentBegin[body];
+        int low = 0;
+        int high = begin.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (begin[mid] <= julianDateTime) {
+                low = mid;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+
+        // Find record and normalize date/time to [-1,1]
+        double intervalLength = segmentIntervalLength[body][low];
+        int record = (int) ((julianDateTime - begin[low]) / intervalLength);
+        record = Math.min(record, segmentNrRecords[body][low] - 1);
+        double recordBegin = begin[low] + record*intervalLength;
+        double x = 2.0*(julianDateTime - recordBegin)/intervalLength - 1.0;
+        int offset = segmentOffset[body][low] + 6*nrCoefficients*record;
+        for (int k = 0; k < 6; k++) {
+            positionVelocity[index + k] = chebyshev(coefficients, offset + k*nrCoefficients, nrCoefficients, x);
+        }
+    }
+
+    /**
+     * Evaluate Chebyshev polynomial using Clenshaw's recurrence.
+     * @param coefficients   Chebyshev coefficients
+     * @param offset         index of first coefficient
+     * @param nrCoefficients number of coefficients
+     * @param x              normalized argument in [-1,1]
+     * @return value of Chebyshev polynomial
+     */
+    static double chebyshev(DoubleBuffer coefficients, int offset, int nrCoefficients, double x) {
+        double b1 = 0.0;
+        double b2 = 0.0;
+        for (int j = nrCoefficients - 1; j >= 1; j--) {
+            double b0 = 2.0*x*b1 - b2 + coefficients.get(offset + j);
+            b2 = b1;
+            b1 = b0;
+        }
+        return x*b1 - b2 + coefficients.get(offset);
+    }
+}
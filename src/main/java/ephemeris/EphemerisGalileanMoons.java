@@ -934,6 +934,14 @@ public class EphemerisGalileanMoons implements IEphemeris {
     // Last valid date for accurate computation
     private final GregorianCalendar lastValidDateAccurate;
 
+    // First and last valid Julian date/time
+    private final double firstValidJulianDateTime;
+    private final double lastValidJulianDateTime;
+
+    // First and last valid Julian date/time for accurate computation
+    private final double firstValidJulianDateTimeAccurate;
+    private final double lastValidJulianDateTimeAccurate;
+
     // Bodies for which ephemeris can be computed or approximated
     private static List<String> bodies;
 
@@ -967,6 +975,12 @@ public class EphemerisGalileanMoons implements IEphemeris {
         // Last valid date for accurate computation 2750 AD
         lastValidDateAccurate = new GregorianCalendar(2750,0,1);
         lastValidDateAccurate .setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        // Valid Julian date/time range
+        firstValidJulianDateTime = JulianDateConverter.convertCalendarToJulianDate(firstValidDate);
+        lastValidJulianDateTime = JulianDateConverter.convertCalendarToJulianDate(lastValidDate);
+        firstValidJulianDateTimeAccurate = JulianDateConverter.convertCalendarToJulianDate(firstValidDateAccurate);
+        lastValidJulianDateTimeAccurate = JulianDateConverter.convertCalendarToJulianDate(lastValidDateAccurate);
     }
 
     /**
@@ -1032,6 +1046,28 @@ public class EphemerisGalileanMoons implements IEphemeris {
         }
     }
 
+    @Override
+    public Vector3D[] getBodyPositionVelocity(String name, double julianDateTime) {
+        // Check whether body name is valid
+        if (!bodies.contains(name)) {
+            throw new IllegalArgumentException("Unknown body " + name + " for Galilean Moons Ephemeris");
+        }
+
+        // Check whether Julian date/time is valid
+        if (julianDateTime < firstValidJulianDateTime || julianDateTime > lastValidJulianDateTime) {
+            throw new IllegalArgumentException("Date not valid for Galilean Moons Ephemeris");
+        }
+
+        // Check whether Accurate Ephemeris can be used
+        int is = 0;
+        if (julianDateTime >= firstValidJulianDateTimeAccurate && julianDateTime <= lastValidJulianDateTimeAccurate) {
+            is = 1;
+        }
+
+        // Compute position and velocity
+        return getPositionVelocity(julianDateTime, bodies.indexOf(name) + 1, is);
+    }
+
     @Override
     public Vector3D getBodyPositionBarycenter(String name, GregorianCalendar date) {
         throw new UnsupportedOperationException("Not supported yet.");
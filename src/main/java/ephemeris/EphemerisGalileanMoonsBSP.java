@@ -140,8 +140,7 @@ public class EphemerisGalileanMoonsBSP implements IEphemeris {
 
         // Initialize SPK and open file to read when needed for the first time
         if (spk == null) {
-            spk = new SPK();
-            spk.initWithBSPFile(BSPfilename);
+            spk = SPKLoader.load(BSPfilename);
         }
 
         // Number of seconds past J2000
@@ -162,6 +161,16 @@ public class EphemerisGalileanMoonsBSP implements IEphemeris {
         return new Vector3D[]{positionInvTrans,velocityInvTrans};
     }
 
+    @Override
+    public void prefetch(double julianDateTime) {
+        // Load BSP file in the background when it is not yet opened
+        if (spk == null &&
+                julianDateTime >= JulianDateConverter.convertCalendarToJulianDate(firstValidDate) &&
+                julianDateTime <= JulianDateConverter.convertCalendarToJulianDate(lastValidDate)) {
+            SPKLoader.prefetch(BSPfilename, EphemerisUtil.computeNrSecondsPastJ2000(julianDateTime));
+        }
+    }
+
     @Override
     public Vector3D getBodyPositionBarycenter(String name, GregorianCalendar date) {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -50,7 +50,7 @@ public class EphemerisGalileoCruiseBSP implements IEphemeris {
     private static IEphemeris instance = null;
 
     // Read ephemeris from BSP file
-    private SPK spk;
+    private EphemerisKernelPoolBSP kernelPool;
 
     // Compute position and velocity in case no record is found
     private Vector3D positionStored = new Vector3D();
@@ -326,82 +326,28 @@ public class EphemerisGalileoCruiseBSP implements IEphemeris {
         Vector3D positionJ2000 = new Vector3D();
         Vector3D velocityJ2000 = new Vector3D();
 
-        // Initialize SPK and open file to read when needed for the first time
-        if (spk == null) {
+        // Initialize kernel pool and open file to read when needed for the first time
+        if (kernelPool == null) {
             // Open ephemeris file s970311a.bsp to read ephemeris
-            spk = new SPK();
-            spk.initWithBSPFile(BSPfilename);
+            kernelPool = new EphemerisKernelPoolBSP(Collections.singletonList(BSPfilename),
+                    targets, 10, firstValidDate, lastValidDate);
         }
 
         // Determine position and velocity
+        // The observer of Galileo (-77) is the Sun (10), except during the
+        // encounters with Venus (2), the Earth (399), Gaspra (9511010), and
+        // Ida (2431010). The kernel pool follows the segments of the observers
+        // to the Solar System Barycenter (0), e.g., for the encounters with the Earth:
+        //  4 DE-0125LE-0125 -321964226.739609 -291988742.8176524 3 0 11 2 14567 15651
+        //  8 DE-0125LE-0125 -321964226.739609 -291988742.8176524 399 3 11 2 19920 23267
         Vector3D positionB1950 = new Vector3D();
         Vector3D velocityB1950 = new Vector3D();
-        if ((et >= -321964226.73959994 && et <= -321357871.7154367) ||
-                (et >= -286315898.4529269 && et <= -285762917.6804335) ||
-                (et >= -223300740.81683433 && et <= -222609540.81662688)) {
-            // Earth (399) is observer for Galileo (-77)
-            // Earth-Moon barycenter (3) is observer for Earth (399)
-            // Launch phase:
-            //  1 dpfil-longarc-19oct89-15feb90.nio -321964226.73959994 -321357871.7154367 -77 399 11 1 5249 7481
-            //  4 DE-0125LE-0125 -321964226.739609 -291988742.8176524 3 0 11 2 14567 15651
-            //  8 DE-0125LE-0125 -321964226.739609 -291988742.8176524 399 3 11 2 19920 23267
-            // First encounter with Earth:
-            // 23 dpfil-901208-od37a-e1.nio -286315898.4529269 -285762917.6804335 -77 399 11 1 50477 54437
-            //  9 DE-0125LE-0125 -291988742.8176524 -260452741.81765184 3 0 11 2 23268 24399
-            // 13 DE-0125LE-0125 -291988742.8176524 -260452741.81765184 399 3 11 2 28896 32395
-            // Second encounter with Earth:
-            // 49 dpfil-921211-od68-gopex2-e2.nio -223300740.81683433 -222609540.81662688 -77 399 11 1 126644 130100
-            // 38 DE-0125LE-0125 -255182341.8169259 -204983939.81597695 3 0 11 2 84779 86568
-            // 42 DE-0125LE-0125 -255182341.8169259 -204983939.81597695 399 3 11 2 93687 99276
-            Vector3D[] bodyPosVel = spk.getPositionVelocity(et, target, 399);
-            Vector3D[] earthPosVel = spk.getPositionVelocity(et, 399, 3);
-            Vector3D[] earthMoonBaryPosVel = spk.getPositionVelocity(et, 3, 0);
-            Vector3D[] sunPosVel = spk.getPositionVelocity(et, 10, 0);
-            positionB1950 = earthMoonBaryPosVel[0].minus(sunPosVel[0]).plus(earthPosVel[0]).plus(bodyPosVel[0]);
-            velocityB1950 = earthMoonBaryPosVel[1].minus(sunPosVel[1]).plus(earthPosVel[1]).plus(bodyPosVel[1]);
-        }
-        if ((et >= -312496734.7348492 && et <= -311817542.81490993) ||
-               (et >= -311817542.81491035 && et <= -311698974.47912645)) {
-            // Venus is observer (2)
-            // 15 dpfil-venus-od14a.nio -312496734.7348492 -312379142.81505847 -77 2 11 1 32469 33045
-            // 16 dpfil-venus-od33.nio -312379142.81505847 -311817542.81490993 -77 2 11 1 33046 36214
-            // 17 dpfil-900521-od22-post4b.nio -311817542.81491035 -311698974.47912645 -77 2 11 1 36215 36359
-            Vector3D[] bodyPosVel = spk.getPositionVelocity(et, target, 2);
-            Vector3D[] venusPosVel = spk.getPositionVelocity(et, 2, 0);
-            Vector3D[] sunPosVel = spk.getPositionVelocity(et, 10, 0);
-            positionB1950 = venusPosVel[0].minus(sunPosVel[0]).plus(bodyPosVel[0]);
-            velocityB1950 = venusPosVel[1].minus(sunPosVel[1]).plus(bodyPosVel[1]);
-        }
-        if ((et >= -258211672.55327797 && et <= -257692598.70979333)) {
-            // Gaspra is observer (9511010)
-            // 31 Body 9 = Gaspra, DE-0125LE-0125 -260452741.81765184 -255182341.8169259 9511010 0 11 2 78498 78629
-            // 32 Body 9 = Gaspra, DE-0125LE-0125 -260452741.81765184 -255182341.8169259 10 0 11 2 78630 78727
-            // 36 dpfil-920514-od54-gaspra.nio -258211672.55327797 -257692598.70979333 -77 9511010 11 1 80601 81537
-            Vector3D[] bodyPosVel = spk.getPositionVelocity(et, target, 9511010);
-            Vector3D[] gaspraPosVel = spk.getPositionVelocity(et, 9511010, 0);
-            Vector3D[] sunPosVel = spk.getPositionVelocity(et, 10, 0);
-            positionB1950 = gaspraPosVel[0].minus(sunPosVel[0]).plus(bodyPosVel[0]);
-            velocityB1950 = gaspraPosVel[1].minus(sunPosVel[1]).plus(bodyPosVel[1]);
-        }
-        if ((et >= -204958794.54265428 && et <= -195364755.3121488)) {
-            // Ida is observer (2431010)
-            // 55 Body 9 = Ida, DE-0125 -204983939.81597695 -195307139.81756976 2431010 0 11 2 142023 142282
-            // 56 Body 9 = Ida, DE-0125 -204983939.81597695 -195307139.81756976 10 0 11 2 142283 142474
-            // 60 dpfil-940114-od79-prel-tcm22a-orbiter.ni -204958794.54265428 -204897539.816005 -77 2431010 11 1 146056 146344
-            // 61 dpfil-940520-od82-final-ida-recon.nio -204897539.816005 -197294400.0 -77 2431010 11 1 146345 152105
-            // 62 dpfil-940204-od80-mvf.nio -197294400.0 -195364755.3121488 -77 2431010 11 1 152106 154410
-            Vector3D[] bodyPosVel = spk.getPositionVelocity(et, target, 2431010);
-            Vector3D[] idaPosVel = spk.getPositionVelocity(et, 2431010, 0);
-            Vector3D[] sunPosVel = spk.getPositionVelocity(et, 10, 0);
-            positionB1950 = idaPosVel[0].minus(sunPosVel[0]).plus(bodyPosVel[0]);
-            velocityB1950 = idaPosVel[1].minus(sunPosVel[1]).plus(bodyPosVel[1]);
-        }
-        // Sun is observer (10)
-        if (positionB1950.magnitude() < 1000.0) {
-            // Sun is observer (10)
-            Vector3D[] bodyPosVel = spk.getPositionVelocity(et, target, 10);
+        try {
+            Vector3D[] bodyPosVel = kernelPool.getPositionVelocity(et, target, 10);
             positionB1950 = bodyPosVel[0];
             velocityB1950 = bodyPosVel[1];
+        } catch (IllegalArgumentException ex) {
+            // No segment found for Galileo at this epoch
         }
 
         // Position of Galileo wrt the Sun in B1950 reference frame
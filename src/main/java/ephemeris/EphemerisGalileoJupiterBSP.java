@@ -336,8 +336,7 @@ public class EphemerisGalileoJupiterBSP implements IEphemeris {
             index = 0;
             if (spk[index] == null) {
                 // Open ephemeris s980326a.bsp file to read ephemeris
-                spk[index] = new SPK();
-                spk[index].initWithBSPFile(BSPfilenameA);
+                spk[index] = new SPK(BSPfilenameA);
             }
         }
         else {
@@ -345,16 +344,14 @@ public class EphemerisGalileoJupiterBSP implements IEphemeris {
                 index = 1;
                 if (spk[index] == null) {
                     // Open ephemeris file s000131a.bsp to read ephemeris
-                    spk[index] = new SPK();
-                    spk[index].initWithBSPFile(BSPfilenameB);
+                    spk[index] = new SPK(BSPfilenameB);
                 }
             }
             else {
                 index = 2;
                 if (spk[index] == null) {
                     // Open ephemeris file s030916a.bsp to read ephemeris
-                    spk[index] = new SPK();
-                    spk[index].initWithBSPFile(BSPfilenameC);
+                    spk[index] = new SPK(BSPfilenameC);
                 }
             }
         }
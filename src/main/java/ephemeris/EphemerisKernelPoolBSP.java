@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2022 Nico Kuijpers and Marco Brassé
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package ephemeris;
+
+import util.Vector3D;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ephemeris from a pool of BSP files, e.g., planetary ephemeris DE430 or DE440
+ * together with kernels of satellites and spacecraft.
+ * Segments of all BSP files are indexed by target and time span. Position and
+ * velocity of a target relative to a center are obtained by following the
+ * observers of the segments from target and from center until a common body
+ * is found. Segments of BSP files earlier in the list take precedence, and
+ * within a BSP file segments earlier in the file take precedence.
+ * The resolved chain of segments is stored for each pair of target and center
+ * and is reused as long as the same segments apply.
+ * @author Nico Kuijpers
+ */
+public class EphemerisKernelPoolBSP implements IEphemeris {
+
+    // Code for Solar System Barycenter
+    private static final int SOLARSYSTEMBARYCENTER = 0;
+
+    // AUXILIARY CLASS
+    // Segments to add and to subtract to obtain position and velocity of
+    // target relative to center, valid between begin and end (exclusive)
+    private static final class Chain {
+        private final int[] added;
+        private final int[] subtracted;
+        private final double begin;
+        private final double end;
+
+        private Chain(int[] added, int[] subtracted, double begin, double end) {
+            this.added = added;
+            this.subtracted = subtracted;
+            this.begin = begin;
+            this.end = end;
+        }
+    }
+
+    // Kernels in order of precedence
+    private final SPK[] kernels;
+
+    // Kernel, segment number, and observer of all segments in order of precedence
+    private final int[] segmentKernel;
+    private final int[] segmentNumber;
+    private final int[] segmentObserver;
+
+    // Segments for each target, indexed by time span
+    private final Map<Integer, SPK.SegmentIndex> targetIndex;
+
+    // Target codes for bodies
+    private final Map<String, Integer> targets;
+
+    // Bodies for which ephemeris can be computed
+    private final List<String> bodies;
+
+    // Code of center for position and velocity of bodies
+    private final int center;
+
+    // First valid date
+    private final GregorianCalendar firstValidDate;
+
+    // Last valid date
+    private final GregorianCalendar lastValidDate;
+
+    // First and last valid Julian date/time
+    private final double firstValidJulianDateTime;
+    private final double lastValidJulianDateTime;
+
+    // Most recently resolved chain for each pair of target and center
+    private final Map<Long, Chain> chains = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor.
+     * @param BSPfilenames   file names of BSP files in order of precedence
+     * @param targets        target codes for body names
+     * @param center         code of center for position and velocity of bodies
+     * @param firstValidDate first valid date
+     * @param lastValidDate  last valid date
+     */
+    public EphemerisKernelPoolBSP(List<String> BSPfilenames, Map<String, Integer> targets, int center,
+                                  GregorianCalendar firstValidDate, GregorianCalendar lastValidDate) {
+        this.targets = new HashMap<>(targets);
+        this.bodies = new ArrayList<>(targets.keySet());
+        this.center = center;
+        this.firstValidDate = firstValidDate;
+        this.lastValidDate = lastValidDate;
+        this.firstValidJulianDateTime = JulianDateConverter.convertCalendarToJulianDate(firstValidDate);
+        this.lastValidJulianDateTime = JulianDateConverter.convertCalendarToJulianDate(lastValidDate);
+
+        // Open all BSP files
+        kernels = new SPK[BSPfilenames.size()];
+        int nrSegments = 0;
+        for (int k = 0; k < kernels.length; k++) {
+            kernels[k] = new SPK(BSPfilenames.get(k));
+            nrSegments += kernels[k].getNrSegments();
+        }
+
+        // Index segments of all kernels by target
+        segmentKernel = new int[nrSegments];
+        segmentNumber = new int[nrSegments];
+        segmentObserver = new int[nrSegments];
+        double[] segmentBegin = new double[nrSegments];
+        double[] segmentEnd = new double[nrSegments];
+        Map<Integer, List<Integer>> segmentsTarget = new HashMap<>();
+        int g = 0;
+        for (int k = 0; k < kernels.length; k++) {
+            for (int s = 0; s < kernels[k].getNrSegments(); s++) {
+                segmentKernel[g] = k;
+                segmentNumber[g] = s;
+                segmentObserver[g] = kernels[k].getSegmentObserver(s);
+                segmentBegin[g] = kernels[k].getSegmentBegin(s);
+                segmentEnd[g] = kernels[k].getSegmentEnd(s);
+                segmentsTarget.computeIfAbsent(kernels[k].getSegmentTarget(s), t -> new ArrayList<>()).add(g);
+                g++;
+            }
+        }
+        targetIndex = new HashMap<>();
+        for (Map.Entry<Integer, List<Integer>> entry : segmentsTarget.entrySet()) {
+            targetIndex.put(entry.getKey(), new SPK.SegmentIndex(segmentBegin, segmentEnd, entry.getValue()));
+        }
+    }
+
+    /**
+     * Get number of segments of all BSP files.
+     * @return number of segments
+     */
+    public int getNrSegments() {
+        return segmentKernel.length;
+    }
+
+    @Override
+    public GregorianCalendar getFirstValidDate() {
+        return firstValidDate;
+    }
+
+    @Override
+    public GregorianCalendar getLastValidDate() {
+        return lastValidDate;
+    }
+
+    @Override
+    public List<String> getBodies() {
+        return Collections.unmodifiableList(bodies);
+    }
+
+    @Override
+    public Vector3D getBodyPosition(String name, GregorianCalendar date) {
+        return getBodyPositionVelocity(name, date)[0];
+    }
+
+    @Override
+    public Vector3D getBodyVelocity(String name, GregorianCalendar date) {
+        return getBodyPositionVelocity(name, date)[1];
+    }
+
+    @Override
+    public Vector3D[] getBodyPositionVelocity(String name, GregorianCalendar date) {
+        return getBodyPositionVelocity(name, date, center);
+    }
+
+    @Override
+    public Vector3D getBodyPositionBarycenter(String name, GregorianCalendar date) {
+        return getBodyPositionVelocityBarycenter(name, date)[0];
+    }
+
+    @Override
+    public Vector3D getBodyVelocityBarycenter(String name, GregorianCalendar date) {
+        return getBodyPositionVelocityBarycenter(name, date)[1];
+    }
+
+    @Override
+    public Vector3D[] getBodyPositionVelocityBarycenter(String name, GregorianCalendar date) {
+        return getBodyPositionVelocity(name, date, SOLARSYSTEMBARYCENTER);
+    }
+
+    /**
+     * Get position [m] and velocity [m/s] of body relative to given center.
+     * @param name     body name
+     * @param date     date/time
+     * @param observer code of center
+     * @return array containing position [m] and velocity [m/s]
+     */
+    private Vector3D[] getBodyPositionVelocity(String name, GregorianCalendar date, int observer) {
+
+        // Check whether body name is valid
+        if (!targets.containsKey(name)) {
+            throw new IllegalArgumentException("Unknown body " + name + " for Ephemeris from BSP files");
+        }
+
+        // Check whether date is valid
+        if (date.before(firstValidDate) || date.after(lastValidDate)) {
+            throw new IllegalArgumentException("Date not valid for Ephemeris from BSP files");
+        }
+
+        // Number of seconds past J2000
+        double et = EphemerisUtil.computeNrSecondsPastJ2000(date);
+        Vector3D[] positionVelocity = getPositionVelocity(et, targets.get(name), observer);
+
+        // Position and velocity are computed for J2000 frame
+        Vector3D positionInvTrans = EphemerisUtil.inverseTransformJ2000(positionVelocity[0]);
+        Vector3D velocityInvTrans = EphemerisUtil.inverseTransformJ2000(positionVelocity[1]);
+        return new Vector3D[]{positionInvTrans, velocityInvTrans};
+    }
+
+    @Override
+    public void getBodiesPositionVelocity(List<String> names, GregorianCalendar date, double[] positionVelocity) {
+
+        // Check whether date is valid
+        if (date.before(firstValidDate) || date.after(lastValidDate)) {
+            throw new IllegalArgumentException("Date not valid for Ephemeris from BSP files");
+        }
+        storeBodiesPositionVelocity(names, EphemerisUtil.computeNrSecondsPastJ2000(date), positionVelocity);
+    }
+
+    @Override
+    public void getBodiesPositionVelocity(List<String> names, double julianDateTime, double[] positionVelocity) {
+
+        // Check whether Julian date/time is valid
+        if (julianDateTime < firstValidJulianDateTime || julianDateTime > lastValidJulianDateTime) {
+            throw new IllegalArgumentException("Date not valid for Ephemeris from BSP files");
+        }
+        storeBodiesPositionVelocity(names, EphemerisUtil.computeNrSecondsPastJ2000(julianDateTime), positionVelocity);
+    }
+
+    @Override
+    public Vector3D getBodyPosition(String name, Epoch epoch) {
+        return getBodyPositionVelocity(name, epoch)[0];
+    }
+
+    @Override
+    public Vector3D getBodyVelocity(String name, Epoch epoch) {
+        return getBodyPositionVelocity(name, epoch)[1];
+    }
+
+    @Override
+    public Vector3D[] getBodyPositionVelocity(String name, Epoch epoch) {
+        double[] positionVelocity = new double[6];
+        getBodiesPositionVelocity(Collections.singletonList(name), epoch, positionVelocity);
+        return new Vector3D[]{new Vector3D(positionVelocity[0], positionVelocity[1], positionVelocity[2]),
+                new Vector3D(positionVelocity[3], positionVelocity[4], positionVelocity[5])};
+    }
+
+    @Override
+    public void getBodiesPositionVelocity(List<String> names, Epoch epoch, double[] positionVelocity) {
+        getBodiesPositionVelocity(names, epoch.getJulianDateTime(), positionVelocity);
+    }
+
+    /**
+     * Store positions and velocities of bodies relative to the center.
+     * @param names            body names
+     * @param et               Number of seconds since J2000
+     * @param positionVelocity array to store x, y, z, vx, vy, vz of each body
+     */
+    private void storeBodiesPositionVelocity(List<String> names, double et, double[] positionVelocity) {
+        for (int i = 0; i < names.size(); i++) {
+            Integer target = targets.get(names.get(i));
+            if (target == null) {
+                throw new IllegalArgumentException("Unknown body " + names.get(i) + " for Ephemeris from BSP files");
+            }
+
+            // Position and velocity are computed for J2000 frame
+            Vector3D[] result = getPositionVelocity(et, target, center);
+            Vector3D position = EphemerisUtil.inverseTransformJ2000(result[0]);
+            Vector3D velocity = EphemerisUtil.inverseTransformJ2000(result[1]);
+            positionVelocity[6*i] = position.getX();
+            positionVelocity[6*i+1] = position.getY();
+            positionVelocity[6*i+2] = position.getZ();
+            positionVelocity[6*i+3] = velocity.getX();
+            positionVelocity[6*i+4] = velocity.getY();
+            positionVelocity[6*i+5] = velocity.getZ();
+        }
+    }
+
+    /**
+     * Compute position and velocity for target object relative to observer
+     * in J2000 frame.
+     * @param et       Number of seconds since J2000 (can be negative)
+     * @param target   Code for target object
+     * @param observer Code for observer object
+     * @return position [m] and velocity [m/s]
+     * @throws IllegalArgumentException when target and observer are not connected by segments
+     */
+    public Vector3D[] getPositionVelocity(double et, int target, int observer) {
+        long key = ((long) target << 32) | (observer & 0xffffffffL);
+        Chain chain = chains.get(key);
+        if (chain == null || !(chain.begin < et && et < chain.end)) {
+            chain = resolveChain(et, target, observer);
+            chains.put(key, chain);
+        }
+        Vector3D position = new Vector3D();
+        Vector3D velocity = new Vector3D();
+        for (int i = 0; i < chain.added.length; i++) {
+            Vector3D[] positionVelocity = computePositionVelocity(chain.added[i], et);
+            position = i == 0 ? positionVelocity[0] : position.plus(positionVelocity[0]);
+            velocity = i == 0 ? positionVelocity[1] : velocity.plus(positionVelocity[1]);
+        }
+        for (int segment : chain.subtracted) {
+            Vector3D[] positionVelocity = computePositionVelocity(segment, et);
+            position = position.minus(positionVelocity[0]);
+            velocity = velocity.minus(positionVelocity[1]);
+        }
+        return new Vector3D[]{position, velocity};
+    }
+
+    /**
+     * Compute position and velocity of target relative to observer of segment.
+     * @param segment segment in order of precedence
+     * @param et      Number of seconds since J2000
+     * @return position [m] and velocity [m/s]
+     */
+    private Vector3D[] computePositionVelocity(int segment, double et) {
+        return kernels[segmentKernel[segment]].computePositionVelocity(segmentNumber[segment], et);
+    }
+
+    /**
+     * Resolve chain of segments from target and from observer to a common body.
+     * @param et       Number of seconds since J2000
+     * @param target   Code for target object
+     * @param observer Code for observer object
+     * @return chain of segments
+     */
+    private Chain resolveChain(double et, int target, int observer) {
+        double[] interval = {Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY};
+        List<Integer> targetBodies = new ArrayList<>();
+        List<Integer> targetSegments = followSegments(et, target, targetBodies, interval);
+        List<Integer> observerBodies = new ArrayList<>();
+        List<Integer> observerSegments = followSegments(et, observer, observerBodies, interval);
+        for (int i = 0; i < targetBodies.size(); i++) {
+            int j = observerBodies.indexOf(targetBodies.get(i));
+            if (j >= 0) {
+                return new Chain(toArray(targetSegments.subList(0, i)), toArray(observerSegments.subList(0, j)),
+                        interval[0], interval[1]);
+            }
+        }
+        throw new IllegalArgumentException("No segments from target " + target + " to observer " + observer +
+                " at " + et + " s past J2000");
+    }
+
+    /**
+     * Follow segments from body to the observer of the segment covering the
+     * epoch until no segment is found.
+     * @param et       Number of seconds since J2000
+     * @param body     Code for first body
+     * @param visited  bodies visited, starting with first body
+     * @param interval interval for which the same segments are found, narrowed
+     * @return segments followed
+     */
+    private List<Integer> followSegments(double et, int body, List<Integer> visited, double[] interval) {
+        List<Integer> segments = new ArrayList<>();
+        visited.add(body);
+        SPK.SegmentIndex index = targetIndex.get(body);
+        while (index != null) {
+            int segment = index.search(et);
+            double[] searchInterval = index.searchInterval(et);
+            interval[0] = Math.max(interval[0], searchInterval[0]);
+            interval[1] = Math.min(interval[1], searchInterval[1]);
+            if (segment < 0) {
+                break;
+            }
+            body = segmentObserver[segment];
+            if (visited.contains(body)) {
+                throw new IllegalArgumentException("Segments from body " + visited.get(0) + " form a cycle");
+            }
+            segments.add(segment);
+            visited.add(body);
+            index = targetIndex.get(body);
+        }
+        return segments;
+    }
+
+    /**
+     * Convert list of segments to array.
+     * @param segments list of segments
+     * @return array of segments
+     */
+    private static int[] toArray(List<Integer> segments) {
+        int[] result = new int[segments.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = segments.get(i);
+        }
+        return result;
+    }
+}
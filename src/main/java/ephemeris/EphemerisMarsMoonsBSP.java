@@ -191,8 +191,7 @@ public class EphemerisMarsMoonsBSP implements IEphemeris {
         if (date.before(firstValidDateB)) {
             if (spk[0] == null) {
                 // Open ephemeris file to read ephemeris from Jan 1, 1970 through Dec 31, 1989
-                spk[0] = new SPK();
-                spk[0].initWithBSPFile(BSPfilenameA);
+                spk[0] = SPKLoader.load(BSPfilenameA);
             }
             index = 0;
         }
@@ -200,16 +199,14 @@ public class EphemerisMarsMoonsBSP implements IEphemeris {
             if (date.before(firstValidDateC)) {
                 if (spk[1] == null) {
                     // Open ephemeris file to read ephemeris from Jan 1, 1990 through Dec 31, 2009
-                    spk[1] = new SPK();
-                    spk[1].initWithBSPFile(BSPfilenameB);
+                    spk[1] = SPKLoader.load(BSPfilenameB);
                 }
                 index = 1;
             }
             else {
                 if (spk[2] == null) {
                     // Open ephemeris file to read ephemeris from Jan 1, 2010 through Dec 31, 2029
-                    spk[2] = new SPK();
-                    spk[2].initWithBSPFile(BSPfilenameC);
+                    spk[2] = SPKLoader.load(BSPfilenameC);
                 }
                 index = 2;
             }
@@ -233,6 +230,30 @@ public class EphemerisMarsMoonsBSP implements IEphemeris {
         return new Vector3D[]{positionInvTrans,velocityInvTrans};
     }
 
+    @Override
+    public void prefetch(double julianDateTime) {
+        // Load BSP file in the background when it is not yet opened
+        if ((spk[0] != null && spk[1] != null && spk[2] != null) ||
+                julianDateTime < JulianDateConverter.convertCalendarToJulianDate(firstValidDateA) ||
+                julianDateTime > JulianDateConverter.convertCalendarToJulianDate(lastValidDateC)) {
+            return;
+        }
+        double et = EphemerisUtil.computeNrSecondsPastJ2000(julianDateTime);
+        if (julianDateTime < JulianDateConverter.convertCalendarToJulianDate(firstValidDateB)) {
+            if (spk[0] == null) {
+                SPKLoader.prefetch(BSPfilenameA, et);
+            }
+        }
+        else if (julianDateTime < JulianDateConverter.convertCalendarToJulianDate(firstValidDateC)) {
+            if (spk[1] == null) {
+                SPKLoader.prefetch(BSPfilenameB, et);
+            }
+        }
+        else if (spk[2] == null) {
+            SPKLoader.prefetch(BSPfilenameC, et);
+        }
+    }
+
     @Override
     public Vector3D getBodyPositionBarycenter(String name, GregorianCalendar date) {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -226,6 +226,10 @@ public class EphemerisSaturnMoons implements IEphemeris {
     // Last valid date for accurate computation
     private final GregorianCalendar lastValidDateAccurate;
 
+    // First and last valid Julian date/time
+    private final double firstValidJulianDateTime;
+    private final double lastValidJulianDateTime;
+
     // Bodies for which ephemeris can be computed or approximated
     private static List<String> bodies;
 
@@ -406,6 +410,10 @@ public class EphemerisSaturnMoons implements IEphemeris {
         lastValidDateAccurate = new GregorianCalendar(2750,0,1);
         lastValidDateAccurate .setTimeZone(TimeZone.getTimeZone("UTC"));
 
+        // Valid Julian date/time range
+        firstValidJulianDateTime = JulianDateConverter.convertCalendarToJulianDate(firstValidDate);
+        lastValidJulianDateTime = JulianDateConverter.convertCalendarToJulianDate(lastValidDate);
+
         // Standard gravitional parameters
         double au = SolarSystemParameters.ASTRONOMICALUNIT;
         double nrSecsDay = 86400.0;
@@ -475,6 +483,39 @@ public class EphemerisSaturnMoons implements IEphemeris {
         double ET = JulianDateConverter.convertCalendarToJulianDate(date);
 
         // Determine satellite number
+        int nsat = satelliteNumber(name);
+
+        // Check whether Accurate Ephemeris can be used
+        if (!date.before(firstValidDateAccurate) && !date.after(lastValidDateAccurate)) {
+            return getPositionVelocity(ET, nsat, 0);
+        }
+        else {
+            return getPositionVelocity(ET, nsat, 0);
+        }
+    }
+
+    @Override
+    public Vector3D[] getBodyPositionVelocity(String name, double julianDateTime) {
+        // Check whether body name is valid
+        if (!bodies.contains(name)) {
+            throw new IllegalArgumentException("Unknown body " + name + " for Saturn Moons Ephemeris");
+        }
+
+        // Check whether Julian date/time is valid
+        if (julianDateTime < firstValidJulianDateTime || julianDateTime > lastValidJulianDateTime) {
+            throw new IllegalArgumentException("Date not valid for Saturn Moons Ephemeris");
+        }
+
+        // Compute position and velocity
+        return getPositionVelocity(julianDateTime, satelliteNumber(name), 0);
+    }
+
+    /**
+     * Determine satellite number for moon with given name.
+     * @param name name of moon
+     * @return satellite number
+     */
+    private int satelliteNumber(String name) {
         int nsat;
         if ("Mimas".equals(name)) nsat = 1;
         else if ("Enceladus".equals(name)) nsat = 2;
@@ -485,14 +526,7 @@ public class EphemerisSaturnMoons implements IEphemeris {
             //else if ("Hyperion".equals(name)) nsat = 7; // not supported yet
         else if ("Iapetus".equals(name)) nsat = 8;
         else /* choose Titan as default */ nsat = 6;
-
-        // Check whether Accurate Ephemeris can be used
-        if (!date.before(firstValidDateAccurate) && !date.after(lastValidDateAccurate)) {
-            return getPositionVelocity(ET, nsat, 0);
-        }
-        else {
-            return getPositionVelocity(ET, nsat, 0);
-        }
+        return nsat;
     }
 
     @Override
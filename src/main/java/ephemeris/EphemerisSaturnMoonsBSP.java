@@ -193,16 +193,14 @@ public class EphemerisSaturnMoonsBSP implements IEphemeris {
         if (date.before(firstValidDateB)) {
             if (spk[0] == null) {
                 // Open ephemeris file to read ephemeris from Jan 1, 1970 through Dec 31, 1999
-                spk[0] = new SPK();
-                spk[0].initWithBSPFile(BSPfilenameA);
+                spk[0] = SPKLoader.load(BSPfilenameA);
             }
             index = 0;
         }
         else {
             if (spk[1] == null) {
                 // Open ephemeris file to read ephemeris from Jan 1, 2000 through Dec 31, 2029
-                spk[1] = new SPK();
-                spk[1].initWithBSPFile(BSPfilenameB);
+                spk[1] = SPKLoader.load(BSPfilenameB);
             }
             index = 1;
         }
@@ -225,6 +223,25 @@ public class EphemerisSaturnMoonsBSP implements IEphemeris {
         return new Vector3D[]{positionInvTrans,velocityInvTrans};
     }
 
+    @Override
+    public void prefetch(double julianDateTime) {
+        // Load BSP file in the background when it is not yet opened
+        if ((spk[0] != null && spk[1] != null) ||
+                julianDateTime < JulianDateConverter.convertCalendarToJulianDate(firstValidDateA) ||
+                julianDateTime > JulianDateConverter.convertCalendarToJulianDate(lastValidDateB)) {
+            return;
+        }
+        double et = EphemerisUtil.computeNrSecondsPastJ2000(julianDateTime);
+        if (julianDateTime < JulianDateConverter.convertCalendarToJulianDate(firstValidDateB)) {
+            if (spk[0] == null) {
+                SPKLoader.prefetch(BSPfilenameA, et);
+            }
+        }
+        else if (spk[1] == null) {
+            SPKLoader.prefetch(BSPfilenameB, et);
+        }
+    }
+
     @Override
     public Vector3D getBodyPositionBarycenter(String name, GregorianCalendar date) {
         throw new UnsupportedOperationException("Not supported yet.");
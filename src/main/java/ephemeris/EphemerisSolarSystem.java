@@ -71,6 +71,13 @@ public class EphemerisSolarSystem implements IEphemeris {
     // Last valid date
     private final GregorianCalendar lastValidDate;
 
+    // First and last valid Julian date/time
+    private final double firstValidJulianDateTime;
+    private final double lastValidJulianDateTime;
+
+    // First and last valid Julian date/time of each ephemeris
+    private final Map<IEphemeris, double[]> validJulianDateTimes;
+
     // First valid date for Ephemeris of moons using BSP files
     private final GregorianCalendar firstValidDateMoonsBSP;
 
@@ -89,9 +96,34 @@ public class EphemerisSolarSystem implements IEphemeris {
     private Vector3D currentPositionMoon = new Vector3D();
     private Vector3D currentVelocityMoon = new Vector3D();
 
+    // Index of each body in list of bodies
+    private final Map<String, Integer> indexMap;
+
+    // Position and velocity of all bodies for current and previous Julian date/time
+    private EpochStateVectors currentStateVectors;
+    private EpochStateVectors previousStateVectors;
+
     // Singleton instance
     private static IEphemeris instance = null;
 
+    // AUXILIARY CLASS
+    // Position and velocity of bodies that have been computed for one Julian date/time
+    private static class EpochStateVectors {
+        private double julianDateTime = Double.NaN;
+        private final double[] positionVelocity;
+        private final boolean[] available;
+
+        private EpochStateVectors(int nrBodies) {
+            positionVelocity = new double[6*nrBodies];
+            available = new boolean[nrBodies];
+        }
+
+        private void reset(double julianDateTime) {
+            this.julianDateTime = julianDateTime;
+            Arrays.fill(available, false);
+        }
+    }
+
     /**
      * Constructor. Singleton pattern.
      */
@@ -143,6 +175,12 @@ public class EphemerisSolarSystem implements IEphemeris {
         bodies.add("EarthMoonBarycenter");
         bodies.addAll(solarSystemParameters.getPlanets());
         bodies.addAll(solarSystemParameters.getMoons());
+        indexMap = new HashMap<>();
+        for (int i = 0; i < bodies.size(); i++) {
+            indexMap.put(bodies.get(i), i);
+        }
+        currentStateVectors = new EpochStateVectors(bodies.size());
+        previousStateVectors = new EpochStateVectors(bodies.size());
 
         // First valid date 3000 BC
         firstValidDate = new GregorianCalendar(3000,0,1);
@@ -153,6 +191,22 @@ public class EphemerisSolarSystem implements IEphemeris {
         lastValidDate = new GregorianCalendar(3000,0,1);
         lastValidDate.setTimeZone(TimeZone.getTimeZone("UTC"));
 
+        // First and last valid Julian date/time
+        firstValidJulianDateTime = JulianDateConverter.convertCalendarToJulianDate(firstValidDate);
+        lastValidJulianDateTime = JulianDateConverter.convertCalendarToJulianDate(lastValidDate);
+
+        // First and last valid Julian date/time of each ephemeris
+        validJulianDateTimes = new HashMap<>();
+        for (IEphemeris ephemeris : Arrays.asList(ephemerisAccurate, ephemerisApproximate,
+                ephemerisMarsMoons, ephemerisGalileanMoonsAccurate, ephemerisGalileanMoonsApproximate,
+                ephemerisSaturnMoonsAccurate, ephemerisSaturnMoonsApproximate,
+                ephemerisUranusMoonsAccurate, ephemerisUranusMoonsApproximate,
+                ephemerisNeptuneMoons, ephemerisTriton, ephemerisPlutoSystem)) {
+            validJulianDateTimes.put(ephemeris, new double[]{
+                    JulianDateConverter.convertCalendarToJulianDate(ephemeris.getFirstValidDate()),
+                    JulianDateConverter.convertCalendarToJulianDate(ephemeris.getLastValidDate())});
+        }
+
         // First valid date for Ephemeris of moons using BSP file is Jan 2, 1970
         firstValidDateMoonsBSP = new GregorianCalendar(1970,0,2);
         firstValidDateMoonsBSP.setTimeZone(TimeZone.getTimeZone("UTC"));
@@ -181,91 +235,67 @@ public class EphemerisSolarSystem implements IEphemeris {
     /**
      * Select suitable ephemeris based on name, first valid date, and last valid date.
      * @param name body name
-     * @param date date/time
+     * @param julianDateTime Julian date/time
      * @return reference to ephemeris if a suitable ephemeris exists, otherwise null
      */
-    private IEphemeris selectSuitableEphemeris(String name, GregorianCalendar date) {
+    private IEphemeris selectSuitableEphemeris(String name, double julianDateTime) {
         // Check whether Accurate Ephemeris can be used
-        if (ephemerisAccurate.getBodies().contains(name) &&
-                date.after(ephemerisAccurate.getFirstValidDate()) &&
-                date.before(ephemerisAccurate.getLastValidDate())) {
+        if (isSuitableEphemeris(ephemerisAccurate, name, julianDateTime)) {
             return ephemerisAccurate;
         }
 
         // Check whether Approximate Ephemeris can be used
-        if (ephemerisApproximate.getBodies().contains(name) &&
-                date.after(ephemerisApproximate.getFirstValidDate()) &&
-                date.before(ephemerisApproximate.getLastValidDate())) {
+        if (isSuitableEphemeris(ephemerisApproximate, name, julianDateTime)) {
             return ephemerisApproximate;
         }
 
         // Check whether ephemeris for Mars moons can be used
-        if (ephemerisMarsMoons.getBodies().contains(name) &&
-                date.after(ephemerisMarsMoons.getFirstValidDate()) &&
-                date.before(ephemerisMarsMoons.getLastValidDate())) {
+        if (isSuitableEphemeris(ephemerisMarsMoons, name, julianDateTime)) {
             return ephemerisMarsMoons;
         }
 
         // Check whether accurate ephemeris for Galilean moons can be used
-        if (ephemerisGalileanMoonsAccurate.getBodies().contains(name) &&
-                date.after(ephemerisGalileanMoonsAccurate.getFirstValidDate()) &&
-                date.before(ephemerisGalileanMoonsAccurate.getLastValidDate())) {
+        if (isSuitableEphemeris(ephemerisGalileanMoonsAccurate, name, julianDateTime)) {
             return ephemerisGalileanMoonsAccurate;
         }
 
         // Check whether approximate ephemeris for Galilean moons can be used
-        if (ephemerisGalileanMoonsApproximate.getBodies().contains(name) &&
-                date.after(ephemerisGalileanMoonsApproximate.getFirstValidDate()) &&
-                date.before(ephemerisGalileanMoonsApproximate.getLastValidDate())) {
+        if (isSuitableEphemeris(ephemerisGalileanMoonsApproximate, name, julianDateTime)) {
             return ephemerisGalileanMoonsApproximate;
         }
 
         // Check whether accurate ephemeris for Saturn moons can be used
-        if (ephemerisSaturnMoonsAccurate.getBodies().contains(name) &&
-                date.after(ephemerisSaturnMoonsAccurate.getFirstValidDate()) &&
-                date.before(ephemerisSaturnMoonsAccurate.getLastValidDate())) {
+        if (isSuitableEphemeris(ephemerisSaturnMoonsAccurate, name, julianDateTime)) {
             return ephemerisSaturnMoonsAccurate;
         }
 
         // Check whether approximate ephemeris for Saturn moons can be used
-        if (ephemerisSaturnMoonsApproximate.getBodies().contains(name) &&
-                date.after(ephemerisSaturnMoonsApproximate.getFirstValidDate()) &&
-                date.before(ephemerisSaturnMoonsApproximate.getLastValidDate())) {
+        if (isSuitableEphemeris(ephemerisSaturnMoonsApproximate, name, julianDateTime)) {
             return ephemerisSaturnMoonsApproximate;
         }
 
         // Check whether accurate ephemeris for Uranus moons can be used
-        if (ephemerisUranusMoonsAccurate.getBodies().contains(name) &&
-                date.after(ephemerisUranusMoonsAccurate.getFirstValidDate()) &&
-                date.before(ephemerisUranusMoonsAccurate.getLastValidDate())) {
+        if (isSuitableEphemeris(ephemerisUranusMoonsAccurate, name, julianDateTime)) {
             return ephemerisUranusMoonsAccurate;
         }
 
         // Check whether approximate ephemeris for Uranus moons can be used
-        if (ephemerisUranusMoonsApproximate.getBodies().contains(name) &&
-                date.after(ephemerisUranusMoonsApproximate.getFirstValidDate()) &&
-                date.before(ephemerisUranusMoonsApproximate.getLastValidDate())) {
+        if (isSuitableEphemeris(ephemerisUranusMoonsApproximate, name, julianDateTime)) {
             return ephemerisUranusMoonsApproximate;
         }
 
         // Check whether ephemeris for moons of Neptune can be used
-        if (ephemerisNeptuneMoons.getBodies().contains(name) &&
-                date.after(ephemerisNeptuneMoons.getFirstValidDate()) &&
-                date.before(ephemerisNeptuneMoons.getLastValidDate())) {
+        if (isSuitableEphemeris(ephemerisNeptuneMoons, name, julianDateTime)) {
             return ephemerisNeptuneMoons;
         }
 
         // Check whether approximate ephemeris for Neptune moon Triton can be used
-        if (ephemerisTriton.getBodies().contains(name) &&
-                date.after(ephemerisTriton.getFirstValidDate()) &&
-                date.before(ephemerisTriton.getLastValidDate())) {
+        if (isSuitableEphemeris(ephemerisTriton, name, julianDateTime)) {
             return ephemerisTriton;
         }
 
         // Check whether ephemeris for Pluto System can be used
-        if (ephemerisPlutoSystem.getBodies().contains(name) &&
-                date.after(ephemerisPlutoSystem.getFirstValidDate()) &&
-                date.before(ephemerisPlutoSystem.getLastValidDate())) {
+        if (isSuitableEphemeris(ephemerisPlutoSystem, name, julianDateTime)) {
             return ephemerisPlutoSystem;
         }
 
@@ -273,6 +303,18 @@ public class EphemerisSolarSystem implements IEphemeris {
         return null;
     }
 
+    /**
+     * Check whether ephemeris contains body and is valid for Julian date/time.
+     * @param ephemeris ephemeris
+     * @param name body name
+     * @param julianDateTime Julian date/time
+     * @return true when ephemeris can be used
+     */
+    private boolean isSuitableEphemeris(IEphemeris ephemeris, String name, double julianDateTime) {
+        double[] valid = validJulianDateTimes.get(ephemeris);
+        return ephemeris.getBodies().contains(name) && julianDateTime > valid[0] && julianDateTime < valid[1];
+    }
+
     /**
      * Select accurate ephemeris for a moon of the Solar System, regardless of
      * the date/time.
@@ -336,61 +378,16 @@ public class EphemerisSolarSystem implements IEphemeris {
 
     @Override
     public Vector3D getBodyPosition(String name, GregorianCalendar date) {
-        // Check whether body name is valid
-        if (!bodies.contains(name)) {
-            throw new IllegalArgumentException("Unknown body " + name + " for Solar System Ephemeris");
-        }
-
-        // Check whether date is valid
-        if (date.before(firstValidDate) || date.after(lastValidDate)) {
-            throw new IllegalArgumentException("Date not valid for Solar System Ephemeris");
-        }
-
-        // Check whether a suitable ephemeris can be used
-        IEphemeris ephemeris = selectSuitableEphemeris(name, date);
-        if (ephemeris != null) {
-            return ephemeris.getBodyPosition(name, date);
-        }
-
-        // Approximate position of the Earth
-        if ("Earth".equals(name)) {
-            approximatePositionVelocityEarthMoon(date);
-            Vector3D positionEarth = new Vector3D(currentPositionEarth);
-            return positionEarth;
-        }
-
-        // Approximate position of the Moon
-        if ("Moon".equals(name)) {
-            approximatePositionVelocityEarthMoon(date);
-            Vector3D positionMoon = new Vector3D(currentPositionMoon);
-            return positionMoon;
-        }
-
-        // Approximate position of other moons of the Solar System
-        if (solarSystemParameters.getMoons().contains(name)) {
-            // Index 0 is position
-            return approximatePositionVelocityForMoon(name, date)[0];
-        }
-
-        // Compute position from Solar System parameters
-        if (solarSystemParameters.getPlanets().contains(name)) {
-
-            // Obtain orbit parameters
-            double[] orbitPars = solarSystemParameters.getOrbitParameters(name);
-
-            // Compute orbital elements for given date
-            double[] orbitElements = EphemerisUtil.computeOrbitalElements(orbitPars,date);
-
-            // Compute (x,y,z) position [m] from orbital elements
-            return EphemerisUtil.computePosition(orbitElements);
-        }
-
-        // Position can not be computed from ephemeris
-        return new Vector3D();
+        return getBodyPositionVelocity(name,date)[0];
     }
 
     @Override
     public Vector3D getBodyVelocity(String name, GregorianCalendar date) {
+        return getBodyPositionVelocity(name,date)[1];
+    }
+
+    @Override
+    public Vector3D[] getBodyPositionVelocity(String name, GregorianCalendar date) {
         // Check whether body name is valid
         if (!bodies.contains(name)) {
             throw new IllegalArgumentException("Unknown body " + name + " for Solar System Ephemeris");
@@ -401,33 +398,50 @@ public class EphemerisSolarSystem implements IEphemeris {
             throw new IllegalArgumentException("Date not valid for Solar System Ephemeris");
         }
 
+        // Position and velocity are computed only once for each Julian date/time
+        double julianDateTime = JulianDateConverter.convertCalendarToJulianDate(date);
+        int index = indexMap.get(name);
+        double[] positionVelocity = new double[6];
+        if (!lookupStateVector(index, julianDateTime, positionVelocity, 0)) {
+            Vector3D[] result = computeBodyPositionVelocity(name, date, julianDateTime);
+            storeStateVector(index, julianDateTime, result, positionVelocity, 0);
+        }
+        return new Vector3D[]{new Vector3D(positionVelocity[0], positionVelocity[1], positionVelocity[2]),
+                new Vector3D(positionVelocity[3], positionVelocity[4], positionVelocity[5])};
+    }
+
+    /**
+     * Compute position and velocity of body for given date/time.
+     * @param name body name
+     * @param date date/time
+     * @param julianDateTime Julian date/time corresponding to date/time
+     * @return array containing position [m] and velocity [m/s]
+     */
+    private Vector3D[] computeBodyPositionVelocity(String name, GregorianCalendar date, double julianDateTime) {
         // Check whether a suitable ephemeris can be used
-        IEphemeris ephemeris = selectSuitableEphemeris(name, date);
+        IEphemeris ephemeris = selectSuitableEphemeris(name, julianDateTime);
         if (ephemeris != null) {
-            return ephemeris.getBodyVelocity(name, date);
+            return ephemeris.getBodyPositionVelocity(name, date);
         }
 
-        // Approximate velocity of the Earth
+        // Approximate position and velocity of the Earth
         if ("Earth".equals(name)) {
-            approximatePositionVelocityEarthMoon(date);
-            Vector3D velocityEarth = new Vector3D(currentVelocityEarth);
-            return velocityEarth;
+            Vector3D[] positionVelocityEarthMoon = approximatePositionVelocityEarthMoon(date);
+            return new Vector3D[]{positionVelocityEarthMoon[0], positionVelocityEarthMoon[1]};
         }
 
-        // Approximate velocity of the Moon
+        // Approximate position and velocity of the Moon
         if ("Moon".equals(name)) {
-            approximatePositionVelocityEarthMoon(date);
-            Vector3D velocityMoon = new Vector3D(currentVelocityMoon);
-            return velocityMoon;
+            Vector3D[] positionVelocityEarthMoon = approximatePositionVelocityEarthMoon(date);
+            return new Vector3D[]{positionVelocityEarthMoon[2], positionVelocityEarthMoon[3]};
         }
 
-        // Approximate velocity of other moons of the Solar System
+        // Approximate position and velocity of other moons of the Solar System
         if (solarSystemParameters.getMoons().contains(name)) {
-            // Index 1 is velocity
-            return approximatePositionVelocityForMoon(name, date)[1];
+            return approximatePositionVelocityForMoon(name, date);
         }
 
-        // Compute velocity from Solar System parameters
+        // Compute position and velocity from Solar System parameters
         if (solarSystemParameters.getPlanets().contains(name)) {
 
             // Obtain orbit parameters
@@ -436,6 +450,9 @@ public class EphemerisSolarSystem implements IEphemeris {
             // Compute orbital elements for given date
             double[] orbitElements = EphemerisUtil.computeOrbitalElements(orbitPars,date);
 
+            // Compute (x,y,z) position [m] from orbital elements
+            Vector3D position = EphemerisUtil.computePosition(orbitElements);
+
             // Compute (x,y,z) velocity [m/s] from orbital elements
             String centerBody;
             if (solarSystemParameters.getMoons().contains(name)) {
@@ -445,80 +462,208 @@ public class EphemerisSolarSystem implements IEphemeris {
                 centerBody = "Sun";
             }
             double mu = solarSystemParameters.getMu(centerBody);
-            return EphemerisUtil.computeVelocity(mu, orbitElements);
+            Vector3D velocity = EphemerisUtil.computeVelocity(mu, orbitElements);
+
+            return new Vector3D[]{position,velocity};
         }
 
-        // Velocity can not be computed from ephemeris
-        return new Vector3D();
+        // Position and velocity can not be computed from ephemeris
+        return new Vector3D[]{new Vector3D(), new Vector3D()};
     }
 
     @Override
-    public Vector3D[] getBodyPositionVelocity(String name, GregorianCalendar date) {
-        // Check whether body name is valid
-        if (!bodies.contains(name)) {
-            throw new IllegalArgumentException("Unknown body " + name + " for Solar System Ephemeris");
-        }
-
+    public void getBodiesPositionVelocity(List<String> names, GregorianCalendar date, double[] positionVelocity) {
         // Check whether date is valid
         if (date.before(firstValidDate) || date.after(lastValidDate)) {
             throw new IllegalArgumentException("Date not valid for Solar System Ephemeris");
         }
+        double julianDateTime = JulianDateConverter.convertCalendarToJulianDate(date);
+        storeBodiesPositionVelocity(names, date, julianDateTime, positionVelocity);
+    }
 
-        // Check whether a suitable ephemeris can be used
-        IEphemeris ephemeris = selectSuitableEphemeris(name, date);
-        if (ephemeris != null) {
-            return ephemeris.getBodyPositionVelocity(name, date);
-        }
-
-        // Approximate position and velocity of the Earth
-        if ("Earth".equals(name)) {
-            approximatePositionVelocityEarthMoon(date);
-            Vector3D positionEarth = new Vector3D(currentPositionEarth);
-            Vector3D velocityEarth = new Vector3D(currentVelocityEarth);
-            return new Vector3D[]{positionEarth, velocityEarth};
+    @Override
+    public void getBodiesPositionVelocity(List<String> names, double julianDateTime, double[] positionVelocity) {
+        // Check whether Julian date/time is valid
+        if (julianDateTime < firstValidJulianDateTime || julianDateTime > lastValidJulianDateTime) {
+            throw new IllegalArgumentException("Date not valid for Solar System Ephemeris");
         }
+        storeBodiesPositionVelocity(names, null, julianDateTime, positionVelocity);
+    }
 
-        // Approximate position and velocity of the Moon
-        if ("Moon".equals(name)) {
-            approximatePositionVelocityEarthMoon(date);
-            Vector3D positionMoon = new Vector3D(currentPositionMoon);
-            Vector3D velocityMoon = new Vector3D(currentVelocityMoon);
-            return new Vector3D[]{positionMoon, velocityMoon};
-        }
+    @Override
+    public Vector3D getBodyPosition(String name, Epoch epoch) {
+        return getBodyPositionVelocity(name, epoch)[0];
+    }
 
-        // Approximate position and velocity of other moons of the Solar System
-        if (solarSystemParameters.getMoons().contains(name)) {
-            return approximatePositionVelocityForMoon(name, date);
-        }
+    @Override
+    public Vector3D getBodyVelocity(String name, Epoch epoch) {
+        return getBodyPositionVelocity(name, epoch)[1];
+    }
 
-        // Compute position and velocity from Solar System parameters
-        if (solarSystemParameters.getPlanets().contains(name)) {
+    @Override
+    public Vector3D[] getBodyPositionVelocity(String name, Epoch epoch) {
+        double[] positionVelocity = new double[6];
+        getBodiesPositionVelocity(Collections.singletonList(name), epoch, positionVelocity);
+        return new Vector3D[]{new Vector3D(positionVelocity[0], positionVelocity[1], positionVelocity[2]),
+                new Vector3D(positionVelocity[3], positionVelocity[4], positionVelocity[5])};
+    }
 
-            // Obtain orbit parameters
-            double[] orbitPars = solarSystemParameters.getOrbitParameters(name);
+    @Override
+    public void getBodiesPositionVelocity(List<String> names, Epoch epoch, double[] positionVelocity) {
+        getBodiesPositionVelocity(names, epoch.getJulianDateTime(), positionVelocity);
+    }
 
-            // Compute orbital elements for given date
-            double[] orbitElements = EphemerisUtil.computeOrbitalElements(orbitPars,date);
+    /**
+     * Store positions and velocities of bodies for given Julian date/time.
+     * Bodies for which the accurate ephemeris is suitable are obtained from
+     * the accurate ephemeris at once. The date/time is only needed for
+     * other ephemerides and is converted from the Julian date/time when not
+     * given.
+     * @param names body names
+     * @param date date/time or null
+     * @param julianDateTime Julian date/time
+     * @param positionVelocity array to store x, y, z, vx, vy, vz of each body
+     */
+    private void storeBodiesPositionVelocity(List<String> names, GregorianCalendar date,
+                                             double julianDateTime, double[] positionVelocity) {
+        List<String> namesAccurate = new ArrayList<>();
+        int[] indicesAccurate = new int[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            String name = names.get(i);
+
+            // Check whether body name is valid
+            Integer index = indexMap.get(name);
+            if (index == null) {
+                throw new IllegalArgumentException("Unknown body " + name + " for Solar System Ephemeris");
+            }
 
-            // Compute (x,y,z) position [m] from orbital elements
-            Vector3D position = EphemerisUtil.computePosition(orbitElements);
+            // Check whether position and velocity have been computed before
+            if (lookupStateVector(index, julianDateTime, positionVelocity, 6*i)) {
+                continue;
+            }
 
-            // Compute (x,y,z) velocity [m/s] from orbital elements
-            String centerBody;
-            if (solarSystemParameters.getMoons().contains(name)) {
-                centerBody = solarSystemParameters.getPlanetOfMoon(name);
+            // Check whether a suitable ephemeris can be used
+            IEphemeris ephemeris = selectSuitableEphemeris(name, julianDateTime);
+            if (ephemeris == ephemerisAccurate) {
+                indicesAccurate[namesAccurate.size()] = i;
+                namesAccurate.add(name);
+                continue;
+            }
+            if (date == null) {
+                date = JulianDateConverter.convertJulianDateToCalendar(julianDateTime);
+            }
+            Vector3D[] result;
+            if (ephemeris != null) {
+                result = ephemeris.getBodyPositionVelocity(name, date);
             }
             else {
-                centerBody = "Sun";
+                result = computeBodyPositionVelocity(name, date, julianDateTime);
             }
-            double mu = solarSystemParameters.getMu(centerBody);
-            Vector3D velocity = EphemerisUtil.computeVelocity(mu, orbitElements);
+            storeStateVector(index, julianDateTime, result, positionVelocity, 6*i);
+        }
 
-            return new Vector3D[]{position,velocity};
+        // Accurate ephemeris computes all bodies for the same date/time
+        if (!namesAccurate.isEmpty()) {
+            double[] positionVelocityAccurate = new double[6*namesAccurate.size()];
+            ephemerisAccurate.getBodiesPositionVelocity(namesAccurate, julianDateTime, positionVelocityAccurate);
+            for (int k = 0; k < namesAccurate.size(); k++) {
+                System.arraycopy(positionVelocityAccurate, 6*k, positionVelocity, 6*indicesAccurate[k], 6);
+                storeStateVector(indexMap.get(namesAccurate.get(k)), julianDateTime, positionVelocity, 6*indicesAccurate[k]);
+            }
         }
+    }
 
-        // Position and velocity can not be computed from ephemeris
-        return new Vector3D[]{new Vector3D(), new Vector3D()};
+    /**
+     * Get state vectors for given Julian date/time. State vectors are kept
+     * for the current and the previous Julian date/time. When another
+     * Julian date/time is requested, state vectors of the previous
+     * Julian date/time are discarded.
+     * @param julianDateTime Julian date/time
+     * @return state vectors for Julian date/time
+     */
+    private EpochStateVectors stateVectorsForJulianDateTime(double julianDateTime) {
+        if (currentStateVectors.julianDateTime != julianDateTime) {
+            EpochStateVectors stateVectors = previousStateVectors;
+            previousStateVectors = currentStateVectors;
+            currentStateVectors = stateVectors;
+            if (currentStateVectors.julianDateTime != julianDateTime) {
+                currentStateVectors.reset(julianDateTime);
+            }
+        }
+        return currentStateVectors;
+    }
+
+    /**
+     * Look up position and velocity of body computed before for given Julian date/time.
+     * @param index            index of body
+     * @param julianDateTime   Julian date/time
+     * @param positionVelocity array to store x, y, z, vx, vy, vz
+     * @param offset           index of x in array
+     * @return true when position and velocity are available
+     */
+    private synchronized boolean lookupStateVector(int index, double julianDateTime,
+                                                   double[] positionVelocity, int offset) {
+        EpochStateVectors stateVectors;
+        if (currentStateVectors.julianDateTime == julianDateTime) {
+            stateVectors = currentStateVectors;
+        }
+        else if (previousStateVectors.julianDateTime == julianDateTime) {
+            stateVectors = previousStateVectors;
+        }
+        else {
+            return false;
+        }
+        if (!stateVectors.available[index]) {
+            return false;
+        }
+        System.arraycopy(stateVectors.positionVelocity, 6*index, positionVelocity, offset, 6);
+        return true;
+    }
+
+    /**
+     * Store position and velocity of body for given Julian date/time.
+     * @param index            index of body
+     * @param julianDateTime   Julian date/time
+     * @param positionVelocity array containing x, y, z, vx, vy, vz
+     * @param offset           index of x in array
+     */
+    private synchronized void storeStateVector(int index, double julianDateTime,
+                                               double[] positionVelocity, int offset) {
+        EpochStateVectors stateVectors = stateVectorsForJulianDateTime(julianDateTime);
+        System.arraycopy(positionVelocity, offset, stateVectors.positionVelocity, 6*index, 6);
+        stateVectors.available[index] = true;
+    }
+
+    /**
+     * Store position and velocity of body for given Julian date/time and
+     * copy them to array.
+     * @param index            index of body
+     * @param julianDateTime   Julian date/time
+     * @param result           array containing position and velocity
+     * @param positionVelocity array to store x, y, z, vx, vy, vz
+     * @param offset           index of x in array
+     */
+    private void storeStateVector(int index, double julianDateTime, Vector3D[] result,
+                                  double[] positionVelocity, int offset) {
+        positionVelocity[offset] = result[0].getX();
+        positionVelocity[offset+1] = result[0].getY();
+        positionVelocity[offset+2] = result[0].getZ();
+        positionVelocity[offset+3] = result[1].getX();
+        positionVelocity[offset+4] = result[1].getY();
+        positionVelocity[offset+5] = result[1].getZ();
+        storeStateVector(index, julianDateTime, positionVelocity, offset);
+    }
+
+    @Override
+    public void prefetch(double julianDateTime) {
+        // Ephemerides using BSP files that are opened when needed
+        ephemerisAccurate.prefetch(julianDateTime);
+        ephemerisMarsMoons.prefetch(julianDateTime);
+        ephemerisGalileanMoonsAccurate.prefetch(julianDateTime);
+        ephemerisSaturnMoonsAccurate.prefetch(julianDateTime);
+        ephemerisUranusMoonsAccurate.prefetch(julianDateTime);
+        ephemerisNeptuneMoons.prefetch(julianDateTime);
+        ephemerisPlutoSystem.prefetch(julianDateTime);
     }
 
     @Override
@@ -540,16 +685,19 @@ public class EphemerisSolarSystem implements IEphemeris {
      * Approximate position [m] and velocity [m/s] of the Earth and the Moon.
      * It is assumed that position and velocity of the Earth and the Moon relative
      * to the Earth-Moon barycenter are the same each orbit of the Moon around the Earth.
+     * Synchronized, since the result for the current Julian date/time is stored and
+     * simulations on different threads share this ephemeris.
      * @param date date/time
+     * @return copies of position and velocity of the Earth and position and velocity of the Moon
      */
-    private void approximatePositionVelocityEarthMoon(GregorianCalendar date) {
+    private synchronized Vector3D[] approximatePositionVelocityEarthMoon(GregorianCalendar date) {
         // It is assumed that position and velocity of the Earth and the Moon relative
         // to the Earth-Moon barycenter are the same each orbit of the Moon around the Earth.
         // Find a date for which accurate position and velocity of both
         // the Earth and the Moon are known.
         double julianDateTime = JulianDateConverter.convertCalendarToJulianDate(date);
         if (julianDateTime == currentJulianDateTime) {
-            return;
+            return copyPositionVelocityEarthMoon();
         }
         currentJulianDateTime = julianDateTime;
         double orbitPeriodMoon = solarSystemParameters.getOrbitalPeriod("Moon");
@@ -596,6 +744,16 @@ public class EphemerisSolarSystem implements IEphemeris {
         // Approximate position and velocity of the Moon for given date
         currentPositionMoon = positionMoonValid.minus(positionEMBaryValid).plus(positionEMBary);
         currentVelocityMoon = velocityMoonValid.minus(velocityEMBaryValid).plus(velocityEMBary);
+        return copyPositionVelocityEarthMoon();
+    }
+
+    /**
+     * Copy approximate position and velocity of the Earth and the Moon for current Julian date/time.
+     * @return position and velocity of the Earth and position and velocity of the Moon
+     */
+    private Vector3D[] copyPositionVelocityEarthMoon() {
+        return new Vector3D[]{new Vector3D(currentPositionEarth), new Vector3D(currentVelocityEarth),
+                new Vector3D(currentPositionMoon), new Vector3D(currentVelocityMoon)};
     }
 
     /**
@@ -631,6 +789,6 @@ public class EphemerisSolarSystem implements IEphemeris {
         GregorianCalendar dateValid = JulianDateConverter.convertJulianDateToCalendar(julianDateTimeValid);
 
         // Accurate position and velocity of the moon for valid date
-        return getBodyPositionVelocity(name, dateValid);
+        return computeBodyPositionVelocity(name, dateValid, JulianDateConverter.convertCalendarToJulianDate(dateValid));
     }
 }
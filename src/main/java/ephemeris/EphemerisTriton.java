@@ -52,6 +52,10 @@ public class EphemerisTriton implements IEphemeris {
     // Last valid date for accurate computation
     private final GregorianCalendar lastValidDateAccurate;
 
+    // First and last valid Julian date/time
+    private final double firstValidJulianDateTime;
+    private final double lastValidJulianDateTime;
+
     // Bodies for which ephemeris can be computed or approximated
     private static List<String> bodies;
 
@@ -119,6 +123,10 @@ public class EphemerisTriton implements IEphemeris {
         // Last valid date for accurate computation 2200 AD
         lastValidDateAccurate = new GregorianCalendar(2200,0,1);
         lastValidDateAccurate .setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        // Valid Julian date/time range
+        firstValidJulianDateTime = JulianDateConverter.convertCalendarToJulianDate(firstValidDate);
+        lastValidJulianDateTime = JulianDateConverter.convertCalendarToJulianDate(lastValidDate);
     }
 
     /**
@@ -176,6 +184,22 @@ public class EphemerisTriton implements IEphemeris {
         return getPositionVelocityTriton(ET);
     }
 
+    @Override
+    public Vector3D[] getBodyPositionVelocity(String name, double julianDateTime) {
+        // Check whether body name is valid
+        if (!bodies.contains(name)) {
+            throw new IllegalArgumentException("Unknown body " + name + " for Neptune Moons Ephemeris");
+        }
+
+        // Check whether Julian date/time is valid
+        if (julianDateTime < firstValidJulianDateTime || julianDateTime > lastValidJulianDateTime) {
+            throw new IllegalArgumentException("Date not valid for Neptune Moons Ephemeris");
+        }
+
+        // Compute position and velocity
+        return getPositionVelocityTriton(julianDateTime);
+    }
+
     @Override
     public Vector3D getBodyPositionBarycenter(String name, GregorianCalendar date) {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -67,7 +67,9 @@ public class EphemerisUranusMoons implements IEphemeris {
         double EPS=1.0E-16;
         double F0=RL;
         double E=0.0;
-        double E0=Math.abs(RL);
+        // Initial bound on step size should not depend on RL, otherwise the
+        // iteration does not converge when RL is close to zero
+        double E0=Math.PI;
         for (int IT=1; IT<=ITMAX; IT++)
         {
 
@@ -674,6 +676,10 @@ public class EphemerisUranusMoons implements IEphemeris {
     // Last valid date for accurate computation
     private final GregorianCalendar lastValidDateAccurate;
 
+    // First and last valid Julian date/time
+    private final double firstValidJulianDateTime;
+    private final double lastValidJulianDateTime;
+
     // Bodies for which ephemeris can be computed or approximated
     private static List<String> bodies;
 
@@ -711,6 +717,10 @@ public class EphemerisUranusMoons implements IEphemeris {
         lastValidDateAccurate = new GregorianCalendar(2750,0,1);
         lastValidDateAccurate .setTimeZone(TimeZone.getTimeZone("UTC"));
 
+        // Valid Julian date/time range
+        firstValidJulianDateTime = JulianDateConverter.convertCalendarToJulianDate(firstValidDate);
+        lastValidJulianDateTime = JulianDateConverter.convertCalendarToJulianDate(lastValidDate);
+
         // Standard gravitional parameters
         double au = SolarSystemParameters.ASTRONOMICALUNIT;
         double nrSecsDay = 86400.0;
@@ -783,13 +793,7 @@ public class EphemerisUranusMoons implements IEphemeris {
         double ET = JulianDateConverter.convertCalendarToJulianDate(date);
 
         // Determine satellite number
-        int nsat;
-        if ("Miranda".equals(name)) nsat = 1;
-        else if ("Ariel".equals(name)) nsat = 2;
-        else if ("Umbriel".equals(name)) nsat = 3;
-        else if ("Titania".equals(name)) nsat = 4;
-        else if ("Oberon".equals(name)) nsat = 5;
-        else /* choose Miranda as default */ nsat = 1;
+        int nsat = satelliteNumber(name);
 
         // Check whether Accurate Ephemeris can be used
         if (!date.before(firstValidDateAccurate) && !date.after(lastValidDateAccurate)) {
@@ -800,6 +804,38 @@ public class EphemerisUranusMoons implements IEphemeris {
         }
     }
 
+    @Override
+    public Vector3D[] getBodyPositionVelocity(String name, double julianDateTime) {
+        // Check whether body name is valid
+        if (!bodies.contains(name)) {
+            throw new IllegalArgumentException("Unknown body " + name + " for Uranus Moons Ephemeris");
+        }
+
+        // Check whether Julian date/time is valid
+        if (julianDateTime < firstValidJulianDateTime || julianDateTime > lastValidJulianDateTime) {
+            throw new IllegalArgumentException("Date not valid for Uranus Moons Ephemeris");
+        }
+
+        // Compute position and velocity
+        return getPositionVelocity(julianDateTime, satelliteNumber(name), 0);
+    }
+
+    /**
+     * Determine satellite number for moon with given name.
+     * @param name name of moon
+     * @return satellite number
+     */
+    private int satelliteNumber(String name) {
+        int nsat;
+        if ("Miranda".equals(name)) nsat = 1;
+        else if ("Ariel".equals(name)) nsat = 2;
+        else if ("Umbriel".equals(name)) nsat = 3;
+        else if ("Titania".equals(name)) nsat = 4;
+        else if ("Oberon".equals(name)) nsat = 5;
+        else /* choose Miranda as default */ nsat = 1;
+        return nsat;
+    }
+
     @Override
     public Vector3D getBodyPositionBarycenter(String name, GregorianCalendar date) {
         throw new UnsupportedOperationException("Not supported yet.");
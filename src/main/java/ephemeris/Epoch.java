@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package ephemeris;
+
+import java.io.Serializable;
+import java.util.GregorianCalendar;
+
+/**
+ * Immutable epoch in UTC, stored as Julian date at 0h and seconds past 0h.
+ * Advancing an epoch by a whole number of seconds is exact and the Julian
+ * date/time of an epoch equals the Julian date/time of the corresponding
+ * Gregorian calendar date. Use this class instead of GregorianCalendar
+ * for date/time computations during simulation.
+ * @author Nico Kuijpers
+ */
+public final class Epoch implements Comparable<Epoch>, Serializable {
+
+    // Default serialVersion id
+    private static final long serialVersionUID = 1L;
+
+    // Number of seconds per day
+    private static final double NRSECONDSPERDAY = 86400.0;
+
+    // Julian date at 0h
+    private final double julianDayNumber;
+
+    // Number of seconds past 0h, at least 0 and less than one day
+    private final double secondsOfDay;
+
+    /**
+     * Constructor.
+     * Seconds past 0h may be negative or exceed one day.
+     * @param julianDayNumber Julian date at 0h
+     * @param secondsOfDay    seconds past 0h
+     */
+    public Epoch(double julianDayNumber, double secondsOfDay) {
+        double nrDays = Math.floor(secondsOfDay/NRSECONDSPERDAY);
+        double seconds = secondsOfDay - nrDays*NRSECONDSPERDAY;
+        if (seconds >= NRSECONDSPERDAY) {
+            nrDays += 1.0;
+            seconds = 0.0;
+        }
+        this.julianDayNumber = julianDayNumber + nrDays;
+        this.secondsOfDay = seconds;
+    }
+
+    /**
+     * Constructor.
+     * @param dateTime date/time
+     */
+    public Epoch(GregorianCalendar dateTime) {
+        this(JulianDateConverter.convertCalendarToJulianDayNumber(dateTime),
+                JulianDateConverter.convertCalendarToSecondsOfDay(dateTime));
+    }
+
+    /**
+     * Get Julian date at 0h.
+     * @return Julian date at 0h
+     */
+    public double getJulianDayNumber() {
+        return julianDayNumber;
+    }
+
+    /**
+     * Get number of seconds past 0h.
+     * @return seconds past 0h
+     */
+    public double getSecondsOfDay() {
+        return secondsOfDay;
+    }
+
+    /**
+     * Get Julian date/time.
+     * @return Julian date/time
+     */
+    public double getJulianDateTime() {
+        int hour = (int) (secondsOfDay/3600.0);
+        int minute = (int) ((secondsOfDay - 3600.0*hour)/60.0);
+        int second = (int) (secondsOfDay - 3600.0*hour - 60.0*minute);
+        double millisecond = 1000.0*(secondsOfDay - 3600.0*hour - 60.0*minute - second);
+
+        // Avoid rounding errors for whole milliseconds
+        if (Math.abs(millisecond - Math.rint(millisecond)) < 1.0E-6) {
+            millisecond = Math.rint(millisecond);
+        }
+        return julianDayNumber + ((hour + (minute / 60.0) + (second / 3600.0) + (millisecond / 3.6E6)) / 24.0);
+    }
+
+    /**
+     * Get epoch advanced by given number of seconds.
+     * @param seconds number of seconds, may be negative
+     * @return advanced epoch
+     */
+    public Epoch plusSeconds(double seconds) {
+        return new Epoch(julianDayNumber, secondsOfDay + seconds);
+    }
+
+    /**
+     * Get number of seconds elapsed since other epoch.
+     * @param other other epoch
+     * @return number of seconds, negative when other epoch is later
+     */
+    public double secondsSince(Epoch other) {
+        return (julianDayNumber - other.julianDayNumber)*NRSECONDSPERDAY + (secondsOfDay - other.secondsOfDay);
+    }
+
+    /**
+     * Check whether this epoch is before other epoch.
+     * @param other other epoch
+     * @return true when this epoch is before other epoch
+     */
+    public boolean before(Epoch other) {
+        return compareTo(other) < 0;
+    }
+
+    /**
+     * Check whether this epoch is after other epoch.
+     * @param other other epoch
+     * @return true when this epoch is after other epoch
+     */
+    public boolean after(Epoch other) {
+        return compareTo(other) > 0;
+    }
+
+    /**
+     * Convert to Gregorian calendar date in UTC rounded to milliseconds.
+     * @return date/time
+     */
+    public GregorianCalendar toCalendar() {
+        return JulianDateConverter.convertEpochToCalendar(this);
+    }
+
+    @Override
+    public int compareTo(Epoch other) {
+        int result = Double.compare(julianDayNumber, other.julianDayNumber);
+        return result != 0 ? result : Double.compare(secondsOfDay, other.secondsOfDay);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof Epoch)) {
+            return false;
+        }
+        return compareTo((Epoch) object) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31*Double.hashCode(julianDayNumber) + Double.hashCode(secondsOfDay);
+    }
+}
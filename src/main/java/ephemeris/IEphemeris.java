@@ -106,4 +106,114 @@ public interface IEphemeris {
      * @return array containing position [m] and velocity [m/s]
      */
     public Vector3D[] getBodyPositionVelocityBarycenter(String name, GregorianCalendar date);
+
+    /**
+     * Get position [m] and velocity [m/s] of bodies from Ephemeris for one date/time.
+     * Position and velocity are computed relative to the position and
+     * velocity of the sun. For the i-th body, position and velocity are
+     * stored as x, y, z, vx, vy, vz at index 6i .. 6i+5.
+     * @param names body names
+     * @param date date/time
+     * @param positionVelocity array of length at least six times the number of bodies
+     */
+    public default void getBodiesPositionVelocity(List<String> names, GregorianCalendar date, double[] positionVelocity) {
+        for (int i = 0; i < names.size(); i++) {
+            Vector3D[] result = getBodyPositionVelocity(names.get(i), date);
+            positionVelocity[6*i] = result[0].getX();
+            positionVelocity[6*i+1] = result[0].getY();
+            positionVelocity[6*i+2] = result[0].getZ();
+            positionVelocity[6*i+3] = result[1].getX();
+            positionVelocity[6*i+4] = result[1].getY();
+            positionVelocity[6*i+5] = result[1].getZ();
+        }
+    }
+
+    /**
+     * Get position [m] and velocity [m/s] of body from Ephemeris for Julian date/time.
+     * Position and velocity are computed relative to the position and
+     * velocity of the sun.
+     * @param name body name
+     * @param julianDateTime Julian date/time
+     * @return array containing position [m] and velocity [m/s]
+     */
+    public default Vector3D[] getBodyPositionVelocity(String name, double julianDateTime) {
+        return getBodyPositionVelocity(name, JulianDateConverter.convertJulianDateToCalendar(julianDateTime));
+    }
+
+    /**
+     * Get position [m] and velocity [m/s] of bodies from Ephemeris for one Julian date/time.
+     * Position and velocity are computed relative to the position and
+     * velocity of the sun. For the i-th body, position and velocity are
+     * stored as x, y, z, vx, vy, vz at index 6i .. 6i+5.
+     * @param names body names
+     * @param julianDateTime Julian date/time
+     * @param positionVelocity array of length at least six times the number of bodies
+     */
+    public default void getBodiesPositionVelocity(List<String> names, double julianDateTime, double[] positionVelocity) {
+        for (int i = 0; i < names.size(); i++) {
+            Vector3D[] result = getBodyPositionVelocity(names.get(i), julianDateTime);
+            positionVelocity[6*i] = result[0].getX();
+            positionVelocity[6*i+1] = result[0].getY();
+            positionVelocity[6*i+2] = result[0].getZ();
+            positionVelocity[6*i+3] = result[1].getX();
+            positionVelocity[6*i+4] = result[1].getY();
+            positionVelocity[6*i+5] = result[1].getZ();
+        }
+    }
+
+    /**
+     * Get position [m] of body from Ephemeris for epoch.
+     * Position is computed relative to the position of the sun.
+     * @param name body name
+     * @param epoch epoch
+     * @return position of body [m]
+     */
+    public default Vector3D getBodyPosition(String name, Epoch epoch) {
+        return getBodyPosition(name, epoch.toCalendar());
+    }
+
+    /**
+     * Get velocity [m/s] of body from Ephemeris for epoch.
+     * Velocity is computed relative to the velocity of the sun.
+     * @param name body name
+     * @param epoch epoch
+     * @return velocity of body [m/s]
+     */
+    public default Vector3D getBodyVelocity(String name, Epoch epoch) {
+        return getBodyVelocity(name, epoch.toCalendar());
+    }
+
+    /**
+     * Get position [m] and velocity [m/s] of body from Ephemeris for epoch.
+     * Position and velocity are computed relative to the position and
+     * velocity of the sun.
+     * @param name body name
+     * @param epoch epoch
+     * @return array containing position [m] and velocity [m/s]
+     */
+    public default Vector3D[] getBodyPositionVelocity(String name, Epoch epoch) {
+        return getBodyPositionVelocity(name, epoch.toCalendar());
+    }
+
+    /**
+     * Get position [m] and velocity [m/s] of bodies from Ephemeris for one epoch.
+     * Position and velocity are computed relative to the position and
+     * velocity of the sun. For the i-th body, position and velocity are
+     * stored as x, y, z, vx, vy, vz at index 6i .. 6i+5.
+     * @param names body names
+     * @param epoch epoch
+     * @param positionVelocity array of length at least six times the number of bodies
+     */
+    public default void getBodiesPositionVelocity(List<String> names, Epoch epoch, double[] positionVelocity) {
+        getBodiesPositionVelocity(names, epoch.toCalendar(), positionVelocity);
+    }
+
+    /**
+     * Prepare Ephemeris for given Julian date/time, which is expected to be needed soon.
+     * Ephemeris files that are not yet opened are loaded in the background.
+     * By default, nothing is prepared.
+     * @param julianDateTime Julian date/time
+     */
+    public default void prefetch(double julianDateTime) {
+    }
 }
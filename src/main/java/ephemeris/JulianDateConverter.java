@@ -54,7 +54,75 @@ public class JulianDateConverter {
         int minute = date.get(Calendar.MINUTE);
         int second = date.get(Calendar.SECOND);
         int millisecond = date.get(Calendar.MILLISECOND);
-        
+        double fractionOfDay = (hour + (minute / 60.0) + (second / 3600.0) + (millisecond / 3.6E6)) / 24.0;
+        return convertDateToJulianDate(era, year, month, day, fractionOfDay);
+    }
+
+    /**
+     * Convert Gregorian calendar date to Julian date at 0h.
+     * @param date date (Julian of Gregorian Calendar)
+     * @return Julian date at 0h
+     * @throws InvalidParameterException
+     */
+    public static double convertCalendarToJulianDayNumber(GregorianCalendar date)
+        throws InvalidParameterException {
+        int era = date.get(Calendar.ERA);
+        int year = date.get(Calendar.YEAR);
+        int month = date.get(Calendar.MONTH) + 1; // Month is zero-based
+        int day = date.get(Calendar.DAY_OF_MONTH);
+        return convertDateToJulianDate(era, year, month, day, 0.0);
+    }
+
+    /**
+     * Obtain number of seconds past 0h of Gregorian calendar date.
+     * @param date date (Julian of Gregorian Calendar)
+     * @return seconds past 0h
+     */
+    public static double convertCalendarToSecondsOfDay(GregorianCalendar date) {
+        return 3600.0*date.get(Calendar.HOUR_OF_DAY) + 60.0*date.get(Calendar.MINUTE) +
+                date.get(Calendar.SECOND) + date.get(Calendar.MILLISECOND) / 1000.0;
+    }
+
+    /**
+     * Convert epoch to Gregorian calendar date in UTC.
+     * The time is rounded to milliseconds. Dates before October 15, 1582
+     * are represented in the Julian Calendar.
+     * @param epoch epoch
+     * @return Gregorian calendar date
+     */
+    public static GregorianCalendar convertEpochToCalendar(Epoch epoch) {
+        // Julian date at 0h of January 1, 2000 is 2451544.5
+        GregorianCalendar date = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        date.clear();
+        date.set(2000, 0, 1);
+        date.add(Calendar.DAY_OF_MONTH, (int) Math.round(epoch.getJulianDayNumber() - 2451544.5));
+        date.add(Calendar.MILLISECOND, (int) Math.round(1000.0*epoch.getSecondsOfDay()));
+        return date;
+    }
+
+    /**
+     * Convert Julian date to epoch.
+     * @param julianDate Julian date
+     * @return epoch
+     */
+    public static Epoch convertJulianDateToEpoch(double julianDate) {
+        double julianDayNumber = Math.floor(julianDate - 0.5) + 0.5;
+        return new Epoch(julianDayNumber, (julianDate - julianDayNumber)*86400.0);
+    }
+
+    /**
+     * Convert date to Julian date.
+     * @param era           era (BC or AD)
+     * @param year          year
+     * @param month         month, Jan = 1, Feb = 2, etc.
+     * @param day           day of month
+     * @param fractionOfDay fraction of day past 0h
+     * @return Julian date
+     * @throws InvalidParameterException
+     */
+    private static double convertDateToJulianDate(int era, int year, int month, int day, double fractionOfDay)
+        throws InvalidParameterException {
+
         // Adjust year for era (BC or AD)
         // The sequence of years at the transition from BC to AD is
         // ..., 2 BC, 1 BC, 1 AD, 2 AD,...
@@ -76,8 +144,7 @@ public class JulianDateConverter {
         int c = 2 - a + b;
         double e = Math.floor(365.25 * (year + 4716));
         double f = Math.floor(30.6001 * (month + 1));
-        double julianDate = c + day + e + f - 1524.5 +
-                ((hour + (minute / 60.0) + (second / 3600.0) + (millisecond / 3.6E6)) / 24.0);
+        double julianDate = c + day + e + f - 1524.5 + fractionOfDay;
         if (julianDate < 2299160.5) {
             // Date occurs before Gregorian change on October 15, 1582 (Gregorian)
             julianDate = julianDate - c;
@@ -32,118 +32,402 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 
 public class SPK {
 
-    final int MAX_RECORDS = 1024;
-
     // AUXILIARY CLASS
-    public class SummaryRecords
+    // Summary records are collected while parsing the file and are not
+    // modified once the SPK instance is constructed
+    public static final class SummaryRecords
     {
         private int nRecords;
-        public double[] _etbeg;
-        public double[] _etend;
-        public int[] _t;
-        public int[] _o;
-        public int[] _frame;
-        public int[] _type;
-        public int[] _rbeg;
-        public int[] _rend;
-        public SummaryRecords()
+        private double[] _etbeg;
+        private double[] _etend;
+        private int[] _t;
+        private int[] _o;
+        private int[] _frame;
+        private int[] _type;
+        private int[] _rbeg;
+        private int[] _rend;
+
+        // Index of records, sorted by key of (target, observer) pair
+        private long[] pairKeys;
+        private SegmentIndex[] pairIndex;
+
+        private SummaryRecords()
         {
             nRecords=0;
-            _etbeg = new double[MAX_RECORDS];
-            _etend = new double[MAX_RECORDS];
-            _t = new int[MAX_RECORDS];
-            _o = new int[MAX_RECORDS];
-            _frame = new int[MAX_RECORDS];
-            _type = new int[MAX_RECORDS];
-            _rbeg = new int[MAX_RECORDS];
-            _rend = new int[MAX_RECORDS];
-        }
-        public void addRecord( double etbeg, double etend, int t, int o, int frame, int type, int rbeg, int rend)
+            _etbeg = new double[64];
+            _etend = new double[64];
+            _t = new int[64];
+            _o = new int[64];
+            _frame = new int[64];
+            _type = new int[64];
+            _rbeg = new int[64];
+            _rend = new int[64];
+            pairKeys = new long[0];
+            pairIndex = new SegmentIndex[0];
+        }
+        private void addRecord( double etbeg, double etend, int t, int o, int frame, int type, int rbeg, int rend)
+        {
+            if (nRecords == _etbeg.length)
+            {
+                int capacity = 2 * nRecords;
+                _etbeg = Arrays.copyOf(_etbeg, capacity);
+                _etend = Arrays.copyOf(_etend, capacity);
+                _t = Arrays.copyOf(_t, capacity);
+                _o = Arrays.copyOf(_o, capacity);
+                _frame = Arrays.copyOf(_frame, capacity);
+                _type = Arrays.copyOf(_type, capacity);
+                _rbeg = Arrays.copyOf(_rbeg, capacity);
+                _rend = Arrays.copyOf(_rend, capacity);
+            }
+            _etbeg[nRecords] = etbeg;
+            _etend[nRecords] = etend;
+            _t[nRecords]= t;
+            _o[nRecords] = o;
+            _frame[nRecords] = frame;
+            _type[nRecords] = type;
+            _rbeg[nRecords] = rbeg;
+            _rend[nRecords] = rend;
+            nRecords = nRecords + 1;
+        }
+        private static long pairKey(int target, int observer)
+        {
+            return ((long) target << 32) | (observer & 0xffffffffL);
+        }
+        private void createIndex()
         {
-            if (nRecords<MAX_RECORDS)
+            TreeMap<Long, List<Integer>> pairs = new TreeMap<>();
+            for (int m = 0; m < nRecords; m++)
+            {
+                pairs.computeIfAbsent(pairKey(_t[m], _o[m]), key -> new ArrayList<>()).add(m);
+            }
+            pairKeys = new long[pairs.size()];
+            pairIndex = new SegmentIndex[pairs.size()];
+            int k = 0;
+            for (Map.Entry<Long, List<Integer>> entry : pairs.entrySet())
             {
-                _etbeg[nRecords] = etbeg;
-                _etend[nRecords] = etend;
-                _t[nRecords]= t;
-                _o[nRecords] = o;
-                _frame[nRecords] = frame;
-                _type[nRecords] = type;
-                _rbeg[nRecords] = rbeg;
-                _rend[nRecords] = rend;
-                nRecords = nRecords + 1;
+                pairKeys[k] = entry.getKey();
+                pairIndex[k] = new SegmentIndex(_etbeg, _etend, entry.getValue());
+                k++;
             }
         }
+        public int getNrRecords()
+        {
+            return nRecords;
+        }
+        public int getNrRecords(int target, int observer)
+        {
+            int k = Arrays.binarySearch(pairKeys, pairKey(target, observer));
+            return k < 0 ? 0 : pairIndex[k].getNrRecords();
+        }
         public int searchRecord(double et, int target, int observer)
         {
-            int res = -1;
-            int m = 0;
-            while ( m != nRecords )
+            int k = Arrays.binarySearch(pairKeys, pairKey(target, observer));
+            if (k < 0)
             {
-                if (((_t[m]==target) && (_o[m]==observer)) && ((_etbeg[m] <= et) && (et <= _etend[m])))
+                return -1;
+            }
+            return pairIndex[k].search(et);
+        }
+    };
+
+    // AUXILIARY CLASS
+    // Records of one (target, observer) pair. The begin and end epochs of the
+    // records divide time into intervals. For each epoch and for each interval
+    // between two subsequent epochs, the first record in given order that
+    // covers it is stored, such that search returns the same record as a
+    // linear search over all records in O(log n).
+    static final class SegmentIndex
+    {
+        private final int nrRecords;
+        private final double[] epochs;
+        private final int[] epochRecord;
+        private final int[] intervalRecord;
+
+        SegmentIndex(double[] etbegRecords, double[] etendRecords, List<Integer> indices)
+        {
+            nrRecords = indices.size();
+            double[] values = new double[2 * nrRecords];
+            for (int i = 0; i < nrRecords; i++)
+            {
+                // Adding 0.0 replaces -0.0 by 0.0
+                values[2 * i] = etbegRecords[indices.get(i)] + 0.0;
+                values[2 * i + 1] = etendRecords[indices.get(i)] + 0.0;
+            }
+            epochs = Arrays.stream(values).filter(value -> !Double.isNaN(value)).sorted().distinct().toArray();
+            epochRecord = new int[epochs.length];
+            intervalRecord = new int[Math.max(epochs.length - 1, 0)];
+            Arrays.fill(epochRecord, -1);
+            Arrays.fill(intervalRecord, -1);
+            for (int m : indices)
+            {
+                double etbeg = etbegRecords[m] + 0.0;
+                double etend = etendRecords[m] + 0.0;
+                if (!(etbeg <= etend))
                 {
-                    res = m;
-                    m = nRecords;
+                    continue;
                 }
-                else
+                int first = Arrays.binarySearch(epochs, etbeg);
+                int last = Arrays.binarySearch(epochs, etend);
+                for (int p = first; p <= last; p++)
                 {
-                    m=m+1;
+                    if (epochRecord[p] == -1)
+                    {
+                        epochRecord[p] = m;
+                    }
+                    if (p < last && intervalRecord[p] == -1)
+                    {
+                        intervalRecord[p] = m;
+                    }
                 }
             }
-            return res;
         }
-    };
 
-    private final int RECLEN = 1024;
-    private double[] data;
-    private byte[] bbuf;
-    private SummaryRecords summary;
-    private MappedByteBuffer buffer;
-    private Boolean isInit;
-    private Boolean isLittleEndian;
-
-    public SPK() {
-        data = new double[128]; // DAF spec
-        summary = new SummaryRecords();
-        isInit = false;
-        isLittleEndian = Boolean.TRUE;
+        int getNrRecords()
+        {
+            return nrRecords;
+        }
+
+        int search(double et)
+        {
+            if (epochs.length == 0 || !(epochs[0] <= et && et <= epochs[epochs.length - 1]))
+            {
+                return -1;
+            }
+            int p = Arrays.binarySearch(epochs, et + 0.0);
+            if (p >= 0)
+            {
+                return epochRecord[p];
+            }
+            return intervalRecord[-p - 2];
+        }
+
+        // Open interval around et in which search returns the same record.
+        // The interval is empty when et is a begin or end epoch of a record.
+        double[] searchInterval(double et)
+        {
+            if (epochs.length == 0 || !(epochs[0] < et && et < epochs[epochs.length - 1]))
+            {
+                return new double[]{et, et};
+            }
+            int p = Arrays.binarySearch(epochs, et + 0.0);
+            if (p >= 0)
+            {
+                return new double[]{et, et};
+            }
+            return new double[]{epochs[-p - 2], epochs[-p - 1]};
+        }
     }
 
-    private Boolean isEqualByteArray(byte[] a, byte[] b, int n)
+    // AUXILIARY CLASS
+    // Directory and recently used records of a Type II or III segment.
+    // Consecutive queries nearly always fall in the same record, which is
+    // then evaluated without reading the file.
+    private static final class ChebyshevSegment
     {
-        return ByteBuffer.wrap(a, 0, n).equals(ByteBuffer.wrap(b, 0, n));
+        private static final int MAX_CACHED_RECORDS = 8;
+        private final ByteBuffer buffer;
+        private final int rbeg;
+        private final double init;
+        private final double intlen;
+        private final double rsize;
+        private final LinkedHashMap<Integer, double[]> cache;
+        private int lastOffset;
+        private double[] lastRecord;
+
+        private ChebyshevSegment(ByteBuffer buffer, int rbeg, int rend)
+        {
+            int offset = (rend - 4) * 8;
+            this.buffer = buffer;
+            this.rbeg = rbeg;
+            this.init = buffer.getDouble(offset);
+            this.intlen = buffer.getDouble(offset + 8);
+            this.rsize = buffer.getDouble(offset + 16);
+            this.cache = new LinkedHashMap<Integer, double[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, double[]> eldest) {
+                    return size() > MAX_CACHED_RECORDS;
+                }
+            };
+        }
+
+        private synchronized double[] getRecord(double et)
+        {
+            int internal_offset = (int) (Math.floor((et - init) / intlen) * rsize);
+            if (lastRecord != null && internal_offset == lastOffset) {
+                return lastRecord;
+            }
+            double[] data = cache.get(internal_offset);
+            if (data == null) {
+                // Bulk read of coefficients; the shared buffer is not repositioned
+                int record = 8 * (rbeg + internal_offset);
+                ByteBuffer view = buffer.duplicate().order(buffer.order());
+                view.position(record - 8);
+                data = new double[(int) rsize];
+                view.asDoubleBuffer().get(data);
+                cache.put(internal_offset, data);
+            }
+            lastOffset = internal_offset;
+            lastRecord = data;
+            return data;
+        }
+
+        // Read record from the file one coefficient at a time without using the cache
+        private double[] readRecord(double et)
+        {
+            int internal_offset = (int) (Math.floor((et - init) / intlen) * rsize);
+            int record = 8 * (rbeg + internal_offset);
+            double[] data = new double[(int) rsize];
+            for (int i = 0; i < (int) rsize; i++) {
+                data[i] = buffer.getDouble((record - 8) + i * 8);
+            }
+            return data;
+        }
     }
 
-    private long getUnsignedInt(byte[] data)
+    private static final int RECLEN = 1024;
+
+    // State is assigned once in the constructor and only read afterwards.
+    // The buffer is accessed by absolute index only, such that one instance
+    // can be shared by multiple threads.
+    private final SummaryRecords summary;
+    private final ByteBuffer buffer;
+    private final boolean isInit;
+
+    // Type II and III segments, created when needed for the first time
+    private final AtomicReferenceArray<ChebyshevSegment> chebyshevSegments;
+
+    /**
+     * Constructor. Initialize with BSP file.
+     * @param path filepath to .bsp file
+     */
+    public SPK(String path)
     {
-        ByteBuffer bb = ByteBuffer.wrap(data);
+        String DAFstr  = "DAF/SPK";
+        String NAIFstr = "NAIF/DA";
+        String LEstr = "LTL-IEEE";
 
-        if (isLittleEndian == Boolean.TRUE) {
-            bb.order(ByteOrder.LITTLE_ENDIAN);
+        SummaryRecords records = new SummaryRecords();
+        ByteBuffer view = null;
+        boolean valid = false;
+        int nd;
+        int ni;
+        int bward;
+        int fward;
+
+        try (RandomAccessFile file = new RandomAccessFile(new File(path), "r"))
+        {
+            //Get file channel in read-only mode
+            FileChannel fileChannel = file.getChannel();
+
+            //Get direct byte buffer access using channel.map() operation
+            view = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+
+            //You can read the file from this buffer the way you like.
+            if ((!isEqualByteArray(view, 0, DAFstr, 7)) && ((!isEqualByteArray(view, 0, NAIFstr, 7))))
+            {
+                System.out.println("File is not correct");
+                view = null;
+            }
+            else
+            {
+                // Byte order of the buffer is set before it is shared
+                if (isEqualByteArray(view, 88, LEstr, 8))
+                {
+                    //System.out.println("[DEBUG] Little endianness");
+                    view.order(ByteOrder.LITTLE_ENDIAN);
+                }
+                else
+                {
+                    //System.out.println("[DEBUG] Big endianness");
+                    view.order(ByteOrder.BIG_ENDIAN);
+                }
+                valid = true;
+                nd = (int) getUnsignedInt(view, 8);
+                ni = (int) getUnsignedInt(view, 12);
+                fward = (int) getUnsignedInt(view, 76);
+                bward = (int) getUnsignedInt(view, 80);
+                //
+                //assert(nd==2);
+                //assert(ni==6);
+                //
+                int summary_offset = (fward - 1) * RECLEN;
+                int summary_size = nd + (ni + 1) / 2; // integer division
+                int nxt=1;
+                int prv=0;
+                int nsum=0;
+                while (nxt !=0 )
+                {
+                    nxt = (int) view.getDouble(summary_offset);
+                    prv = (int) view.getDouble(summary_offset+8); // not used
+                    nsum = (int) view.getDouble(summary_offset+16);
+                    summary_offset = summary_offset + 24;
+                    for (int i = 0; i<nsum; i++)
+                    {
+                        double[] drec = new double[nd];
+                        int[] irec = new int[ni];
+                        // read nd==2 doubles
+                        for (int j = 0; j<nd; j++)
+                        {
+                            drec[j] = view.getDouble(summary_offset + 8*j);
+                        }
+                        // read ni==6 unsigned int
+                        for (int j = 0; j<ni; j++)
+                        {
+                            irec[j] = (int) getUnsignedInt(view, summary_offset + 8*nd + 4*j);
+                        }
+                        summary_offset = summary_offset + summary_size * 8; // bytes
+                        records.addRecord(drec[0],drec[1],irec[0],irec[1],irec[2],irec[3],irec[4],irec[5]);
+                    }
+                    if (nxt != 0)
+                    {
+                        summary_offset = (nxt - 1) * RECLEN;
+                    }
+                }
+            }
         }
-        else {
-            bb.order(ByteOrder.BIG_ENDIAN);
+        catch (Exception e)
+        {
+            System.out.println("Error (e.g. opening file, wrong detection of endianness)");
+            valid = true;
         }
-        return bb.getInt() & 0xffffffffl;
+        records.createIndex();
+        summary = records;
+        chebyshevSegments = new AtomicReferenceArray<>(records.getNrRecords());
+        buffer = view;
+        isInit = valid;
     }
 
-    private double getDouble(byte[] data)
+    private static boolean isEqualByteArray(ByteBuffer buffer, int offset, String str, int n)
     {
-        ByteBuffer bb = ByteBuffer.wrap(data);
-
-        if (isLittleEndian == Boolean.TRUE) {
-            bb.order(ByteOrder.LITTLE_ENDIAN);
+        byte[] bytes = str.getBytes();
+        if (buffer.limit() < offset + n) {
+            return false;
         }
-        else {
-            bb.order(ByteOrder.BIG_ENDIAN);
+        for (int i = 0; i < n; i++) {
+            if (buffer.get(offset + i) != bytes[i]) {
+                return false;
+            }
         }
-        return bb.getDouble();
+        return true;
+    }
+
+    private static long getUnsignedInt(ByteBuffer buffer, int offset)
+    {
+        return buffer.getInt(offset) & 0xffffffffl;
     }
 
-    private double chebyshev(int order, double x, int offset)
+    private static double chebyshev(double[] data, int order, double x, int offset)
     {
         double two_x = 2 * x;
         double bkp2 = data[offset+order];
@@ -156,7 +440,7 @@ public class SPK {
         return data[offset] + x * bkp1 - bkp2;
     }
 
-    private double der_chebyshev(int order, double x, int offset) {
+    private static double der_chebyshev(double[] data, int order, double x, int offset) {
         double two_x = 2 * x;
         double bkp2 = order * data[offset+order];
         double bkp1 = two_x * bkp2 + (order - 1) * data[offset+order - 1];
@@ -168,7 +452,7 @@ public class SPK {
         return data[offset+1] + two_x * bkp1 - bkp2;
     }
 
-    private double[] spke01(double ET, double[] RECORD)
+    private static double[] spke01(double ET, double[] RECORD)
     {
         //     Based on original FORTRAN code by Fred T. Krogh
         //     Unpack the contents of the MDA array.
@@ -271,121 +555,23 @@ public class SPK {
     }
 
     /**
-     * Initialize with BSP file
-     * @param path filepath to .bsp file
+     * Number of segments found in the BSP file.
+     * @return number of segments
      */
-    public void initWithBSPFile(String path)
+    public int getNrSegments()
     {
-        String DAFstr  = "DAF/SPK";
-        String NAIFstr = "NAIF/DA";
-        String LEstr = "LTL-IEEE";
-
-        bbuf = new byte[1024];
-        int nd;
-        int ni;
-        int bward;
-        int fward;
-
-        try (RandomAccessFile file = new RandomAccessFile(new File(path), "r"))
-        {
-            // default endianness
-            isLittleEndian = Boolean.TRUE;
-
-            //Get file channel in read-only mode
-            FileChannel fileChannel = file.getChannel();
-
-            //Get direct byte buffer access using channel.map() operation
-            buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, fileChannel.size());
+        return summary.getNrRecords();
+    }
 
-            //You can read the file from this buffer the way you like.
-            buffer.get(bbuf,0,7);
-            if ((!isEqualByteArray(bbuf, DAFstr.getBytes(), 7)) && ((!isEqualByteArray(bbuf, NAIFstr.getBytes(), 7))))
-            {
-                System.out.println("File is not correct");
-                return;
-            }
-            buffer.position(88);
-            buffer.get(bbuf,0,8);
-            if (isEqualByteArray(bbuf, LEstr.getBytes(), 8))
-            {
-                //System.out.println("[DEBUG] Little endianness");
-                isLittleEndian = Boolean.TRUE;
-            }
-            else
-            {
-                //System.out.println("[DEBUG] Big endianness");
-                isLittleEndian = Boolean.FALSE;
-            }
-            buffer.position(8);
-            buffer.get(bbuf, 0, 4);
-            nd = (int) getUnsignedInt(bbuf);
-            //
-            buffer.position(12);
-            buffer.get(bbuf, 0, 4);
-            ni = (int) getUnsignedInt(bbuf);
-            //
-            buffer.position(76);
-            buffer.get(bbuf, 0, 4);
-            fward = (int) getUnsignedInt(bbuf);
-            //
-            buffer.position(80);
-            buffer.get(bbuf, 0, 4);
-            bward = (int) getUnsignedInt(bbuf);
-            //
-            //assert(nd==2);
-            //assert(ni==6);
-            //
-            int summary_offset = (fward - 1) * RECLEN;
-            int summary_size = nd + (ni + 1) / 2; // integer division
-            int nxt=1;
-            int prv=0;
-            int nsum=0;
-            while (nxt !=0 )
-            {
-                int n;
-                buffer.position(summary_offset);
-                buffer.get(bbuf, 0, 8);
-                nxt = (int) ((double) getDouble(bbuf));
-                buffer.position(summary_offset+8);
-                buffer.get(bbuf, 0, 8);
-                prv = (int) ((double) getDouble(bbuf)); // not used
-                buffer.position(summary_offset+16);
-                buffer.get(bbuf, 0, 8);
-                nsum = (int) ((double) getDouble(bbuf));
-                summary_offset = summary_offset + 24;
-                for (int i = 0; i<nsum; i++)
-                {
-                    double[] drec = new double[nd];
-                    int[] irec = new int[ni];
-                    // read nd==2 doubles
-                    buffer.position(summary_offset);
-                    for (int j = 0; j<(int) nd; j++)
-                    {
-                        double rec;
-                        buffer.get(bbuf, 0, 8);
-                        drec[j] = (double) getDouble(bbuf);
-                    }
-                    // read ni==6 unsigned int
-                    for (int j = 0; j<(int) ni; j++)
-                    {
-                        buffer.get(bbuf, 0, 4);
-                        irec[j] = (int) getUnsignedInt(bbuf);
-                    }
-                    summary_offset = summary_offset + summary_size * 8; // bytes
-                    summary.addRecord(drec[0],drec[1],irec[0],irec[1],irec[2],irec[3],irec[4],irec[5]);
-                }
-                if (nxt != 0)
-                {
-                    summary_offset = (nxt - 1) * RECLEN;
-                }
-            }
-        }
-        catch (Exception e)
-        {
-            System.out.println("Error (e.g. opening file, wrong detection of endianness)");
-        }
-        isInit = true;
-        return;
+    /**
+     * Number of segments found in the BSP file for target object relative to observer.
+     * @param target     Code for target object
+     * @param observer   Code for observer object
+     * @return number of segments
+     */
+    public int getNrSegments(int target, int observer)
+    {
+        return summary.getNrRecords(target, observer);
     }
 
     /**
@@ -400,7 +586,6 @@ public class SPK {
         Vector3D[] result = new Vector3D[2];
         result[0] = new Vector3D();
         result[1] = new Vector3D();
-        int order;
         if (!isInit) {
             System.out.println("SPK::getPositionVelocity, class instance not initialized");
             return result;
@@ -413,6 +598,112 @@ public class SPK {
             System.out.println(" observer = " + observer);
             return result;
         }
+        return computePositionVelocity(idx, et);
+    }
+
+    /**
+     * Read file into memory and decode the records covering given epoch,
+     * such that subsequent computations for that epoch do not read the file.
+     * @param et         Number of seconds since J2000 (can be negative)
+     */
+    void preload(double et)
+    {
+        if (!isInit) {
+            return;
+        }
+        if (buffer instanceof MappedByteBuffer) {
+            ((MappedByteBuffer) buffer).load();
+        }
+        for (int idx = 0; idx < summary.getNrRecords(); idx++) {
+            int type = summary._type[idx];
+            if ((type == 2 || type == 3) && et >= summary._etbeg[idx] && et <= summary._etend[idx]) {
+                ChebyshevSegment segment = chebyshevSegments.get(idx);
+                if (segment == null) {
+                    chebyshevSegments.compareAndSet(idx, null, new ChebyshevSegment(buffer, summary._rbeg[idx], summary._rend[idx]));
+                    segment = chebyshevSegments.get(idx);
+                }
+                segment.getRecord(et);
+            }
+        }
+    }
+
+    /**
+     * Code for target object of segment.
+     * Segments are numbered 0 .. getNrSegments()-1 in file order.
+     * @param segment    Segment number
+     * @return code for target object of segment
+     */
+    int getSegmentTarget(int segment)
+    {
+        return summary._t[segment];
+    }
+
+    /**
+     * Code for observer object of segment.
+     * @param segment    Segment number
+     * @return code for observer object
+     */
+    int getSegmentObserver(int segment)
+    {
+        return summary._o[segment];
+    }
+
+    /**
+     * First epoch covered by segment.
+     * @param segment    Segment number
+     * @return number of seconds since J2000
+     */
+    double getSegmentBegin(int segment)
+    {
+        return summary._etbeg[segment];
+    }
+
+    /**
+     * Last epoch covered by segment.
+     * @param segment    Segment number
+     * @return number of seconds since J2000
+     */
+    double getSegmentEnd(int segment)
+    {
+        return summary._etend[segment];
+    }
+
+    /**
+     * Compute position and velocity from given segment.
+     * The epoch should be covered by the segment.
+     * @param idx        Segment number
+     * @param et         Number of seconds since J2000 (can be negative)
+     * @return position [m] and velocity [m/s] of target relative to observer of segment
+     */
+    Vector3D[] computePositionVelocity(int idx, double et)
+    {
+        return computePositionVelocity(idx, et, true);
+    }
+
+    /**
+     * Compute position and velocity from given segment, reading the record
+     * from the file instead of using cached records of Type II and III segments.
+     * The epoch should be covered by the segment.
+     * @param idx        Segment number
+     * @param et         Number of seconds since J2000 (can be negative)
+     * @return position [m] and velocity [m/s] of target relative to observer of segment
+     */
+    Vector3D[] computePositionVelocityWithoutCache(int idx, double et)
+    {
+        return computePositionVelocity(idx, et, false);
+    }
+
+    /**
+     * Compute position and velocity from given segment.
+     * @param idx        Segment number
+     * @param et         Number of seconds since J2000 (can be negative)
+     * @param useCache   Use cached records of Type II and III segments
+     * @return position [m] and velocity [m/s] of target relative to observer of segment
+     */
+    private Vector3D[] computePositionVelocity(int idx, double et, boolean useCache)
+    {
+        Vector3D[] result = new Vector3D[2];
+        int order;
         int type = summary._type[idx];
         int rbeg = summary._rbeg[idx];
         int rend = summary._rend[idx];
@@ -423,9 +714,7 @@ public class SPK {
             // original code by Marco Brasse' based on original DAF/SPK specification
             int M = 71; // specified value for Type-1 interpolation
             int offset = (rend - 1) * 8;
-            buffer.position(offset);
-            buffer.get(bbuf, 0, 8);
-            int n = (int) (getDouble(bbuf));
+            int n = (int) (buffer.getDouble(offset));
             int dir_size = n + n / 100;
             assert (n >= 1);
             int s0 = -1; // on purpose, a negative number due to how data is structured in file
@@ -436,9 +725,7 @@ public class SPK {
             while (s1 != s0 + 1) {
                 m = (s0 + s1) / 2; // m>=0
                 offset = (rend - (dir_size + 1 - m)) * 8;
-                buffer.position(offset);
-                buffer.get(bbuf, 0, 8);
-                t = getDouble(bbuf);
+                t = buffer.getDouble(offset);
                 if (et > t) s0 = m;
                 else s1 = m;
             }
@@ -448,9 +735,7 @@ public class SPK {
             double[] p = new double[M];
             for (int i = 0; i < M; i++) {
                 offset = (rbeg - 1) * 8 + idx * M * 8 + i * 8;
-                buffer.position(offset);
-                buffer.get(bbuf, 0, 8);
-                p[i] = getDouble(bbuf);
+                p[i] = buffer.getDouble(offset);
             }
             // compute position and velocity from MDA record
             double[] state = spke01(et, p);
@@ -463,24 +748,13 @@ public class SPK {
         }
         else if ((type == 2) || (type==3)) // Type II or III interpolation
         {
-            int offset = (rend - 4) * 8;
-            buffer.position(offset);
-            buffer.get(bbuf, 0, 8);
-            double init = (double) getDouble(bbuf);
-            buffer.get(bbuf, 0, 8);
-            double intlen = (double) getDouble(bbuf);
-            buffer.get(bbuf, 0, 8);
-            double rsize = (double) getDouble(bbuf);
-            buffer.get(bbuf, 0, 8);
-            double _n = (double) getDouble(bbuf);
-            int internal_offset = (int) (Math.floor((et - init) / intlen) * rsize);
-            int record = 8 * (int) (rbeg + internal_offset);
-
-            for (int i = 0; i < (int) rsize; i++) {
-                buffer.position(((record - 8) + i * 8));
-                buffer.get(bbuf, 0, 8);
-                data[i] = (double) getDouble(bbuf);
+            ChebyshevSegment segment = chebyshevSegments.get(idx);
+            if (segment == null) {
+                chebyshevSegments.compareAndSet(idx, null, new ChebyshevSegment(buffer, rbeg, rend));
+                segment = chebyshevSegments.get(idx);
             }
+            double[] data = useCache ? segment.getRecord(et) : segment.readRecord(et);
+            double rsize = segment.rsize;
 
             if (type==2) { // Type II specific interpolation
                 order = (int) (((int) (rsize) - 2) / 3 - 1);
@@ -488,23 +762,23 @@ public class SPK {
                 int deg = (int) (order + 1);
                 double factor = 1.0 / data[1];
 
-                px = chebyshev(order, tau, 2 + 0 * deg);
-                py = chebyshev(order, tau, 2 + 1 * deg);
-                pz = chebyshev(order, tau, 2 + 2 * deg);
-                vx = der_chebyshev(order, tau, 2 + 0 * deg) * factor;
-                vy = der_chebyshev(order, tau, 2 + 1 * deg) * factor;
-                vz = der_chebyshev(order, tau, 2 + 2 * deg) * factor;
+                px = chebyshev(data, order, tau, 2 + 0 * deg);
+                py = chebyshev(data, order, tau, 2 + 1 * deg);
+                pz = chebyshev(data, order, tau, 2 + 2 * deg);
+                vx = der_chebyshev(data, order, tau, 2 + 0 * deg) * factor;
+                vy = der_chebyshev(data, order, tau, 2 + 1 * deg) * factor;
+                vz = der_chebyshev(data, order, tau, 2 + 2 * deg) * factor;
             }
             else { // Type III specific interpolation
                 order = (int) (((int) (rsize) - 2) / 6 - 1);
                 double tau = (et - data[0]) / data[1];
                 int deg = (int) (order + 1);
-                px = chebyshev(order, tau, 2 + 0 * deg);
-                py = chebyshev(order, tau, 2 + 1 * deg);
-                pz = chebyshev(order, tau, 2 + 2 * deg);
-                vx = chebyshev(order, tau, 2 + 3 * deg);
-                vy = chebyshev(order, tau, 2 + 4 * deg);
-                vz = chebyshev(order, tau, 2 + 5 * deg);
+                px = chebyshev(data, order, tau, 2 + 0 * deg);
+                py = chebyshev(data, order, tau, 2 + 1 * deg);
+                pz = chebyshev(data, order, tau, 2 + 2 * deg);
+                vx = chebyshev(data, order, tau, 2 + 3 * deg);
+                vy = chebyshev(data, order, tau, 2 + 4 * deg);
+                vz = chebyshev(data, order, tau, 2 + 5 * deg);
             }
         } else {
             System.out.println("SPK::getPositionVelocity, interpolation type in BSP file not recognized");
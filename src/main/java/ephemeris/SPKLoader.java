@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2021 Nico Kuijpers and Marco Brassé
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package ephemeris;
+
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Loader for BSP files that are opened when needed for the first time.
+ * A file can be requested in advance, in which case it is opened and read
+ * on a background thread. Each file is opened only once and the SPK instance
+ * is handed over to the thread that needs it when it is completely loaded.
+ * @author Nico Kuijpers
+ */
+public class SPKLoader {
+
+    // Background thread to open and read BSP files
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SPKLoader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // SPK instances that are loaded or being loaded by path
+    private static final Map<String, Future<SPK>> loaded = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor. Not used, since all methods are static.
+     */
+    private SPKLoader() {
+    }
+
+    /**
+     * Get SPK instance for BSP file. When the file was requested in advance,
+     * wait until loading is complete, otherwise open the file.
+     * @param path filepath to .bsp file
+     * @return SPK instance
+     */
+    public static SPK load(String path) {
+        Future<SPK> future = loaded.get(path);
+        if (future == null) {
+            FutureTask<SPK> task = new FutureTask<>(() -> new SPK(path));
+            future = loaded.putIfAbsent(path, task);
+            if (future == null) {
+                // Open file in this thread
+                task.run();
+                future = task;
+            }
+        }
+        // Keep waiting when interrupted, such that the file is opened only once,
+        // and restore the interrupt status afterwards
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cannot load " + path, e.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Request BSP file in advance. The file is opened and read on a background
+     * thread, unless it is loaded or being loaded already.
+     * @param path filepath to .bsp file
+     * @param et   number of seconds since J2000 for which the file will be needed
+     */
+    public static void prefetch(String path, double et) {
+        loaded.computeIfAbsent(path, p -> executor.submit(() -> {
+            SPK spk = new SPK(p);
+            spk.preload(et);
+            return spk;
+        }));
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package experiments;
+
+import ephemeris.SolarSystemParameters;
+import particlesystem.Particle;
+import particlesystem.ParticleSystem;
+import util.Vector3D;
+
+/**
+ * Accuracy and computation time of Runge-Kutta with fixed time step and
+ * Dormand-Prince with adaptive step size. A spacecraft performs a flyby of
+ * the Earth at about 10000 km from the center during a cruise of 40 days.
+ * Reference is Runge-Kutta with a time step of 10 s.
+ * @author Nico Kuijpers
+ */
+public class AdaptiveStepSizeExperiment {
+
+    // Duration of simulation [s]
+    private static final double duration = 40 * 86400.0;
+
+    /**
+     * Create particle system with the Sun, the Earth, the Moon, Jupiter,
+     * and a spacecraft approaching the Earth.
+     * @return particle system
+     */
+    private ParticleSystem createParticleSystem() {
+        SolarSystemParameters parameters = SolarSystemParameters.getInstance();
+        ParticleSystem particleSystem = new ParticleSystem();
+        particleSystem.addParticle("Sun", parameters.getMass("Sun"), parameters.getMu("Sun"),
+                new Vector3D(), new Vector3D());
+        particleSystem.addParticle("Earth", parameters.getMass("Earth"), parameters.getMu("Earth"),
+                new Vector3D(1.496E11, 0.0, 0.0), new Vector3D(0.0, 29780.0, 0.0));
+        particleSystem.addParticle("Moon", parameters.getMass("Moon"), parameters.getMu("Moon"),
+                new Vector3D(1.496E11, 3.844E08, 0.0), new Vector3D(-1022.0, 29780.0, 0.0));
+        particleSystem.addParticle("Jupiter", parameters.getMass("Jupiter"), parameters.getMu("Jupiter"),
+                new Vector3D(0.0, 7.785E11, 0.0), new Vector3D(-13070.0, 0.0, 0.0));
+
+        // Spacecraft approaches the Earth with 5 km/s relative velocity
+        // and reaches the Earth after about 10 days
+        particleSystem.addParticleWithoutMass("Spacecraft", new Particle(1.0,
+                new Vector3D(1.496E11 - 2.0E07, -4.32E09, 0.0), new Vector3D(0.0, 29780.0 + 5000.0, 0.0)));
+        return particleSystem;
+    }
+
+    /**
+     * Simulate using Runge-Kutta with fixed time step.
+     * @param timeStep time step [s]
+     * @return particle system after simulation
+     */
+    private ParticleSystem simulateRungeKutta(double timeStep) {
+        ParticleSystem particleSystem = createParticleSystem();
+        long nrSteps = Math.round(duration / timeStep);
+        for (long i = 0; i < nrSteps; i++) {
+            particleSystem.advanceRungeKutta(timeStep);
+        }
+        return particleSystem;
+    }
+
+    /**
+     * Simulate using Dormand-Prince with adaptive step size.
+     * @param timeStep time step of each call to advanceDormandPrince [s]
+     * @param tolerance relative tolerance of the local error
+     * @return particle system after simulation
+     */
+    private ParticleSystem simulateDormandPrince(double timeStep, double tolerance) {
+        ParticleSystem particleSystem = createParticleSystem();
+        particleSystem.setToleranceDormandPrince(tolerance);
+        long nrSteps = Math.round(duration / timeStep);
+        for (long i = 0; i < nrSteps; i++) {
+            particleSystem.advanceDormandPrince(timeStep);
+        }
+        return particleSystem;
+    }
+
+    /**
+     * Print computation time and deviation of the spacecraft from the reference.
+     * @param label description of the method
+     * @param reference particle system of reference simulation
+     * @param particleSystem particle system after simulation
+     * @param startTime start time of simulation [ns]
+     */
+    private void report(String label, ParticleSystem reference, ParticleSystem particleSystem, long startTime) {
+        double computationTime = (System.nanoTime() - startTime) / 1.0E06;
+        Vector3D positionReference = reference.getParticle("Spacecraft").getPosition();
+        Vector3D position = particleSystem.getParticle("Spacecraft").getPosition();
+        System.out.println(String.format("%-36s time: %8.1f ms deviation spacecraft: %10.3f km",
+                label, computationTime, positionReference.euclideanDistance(position) / 1000.0));
+    }
+
+    /**
+     * Main method.
+     * Compare Runge-Kutta and Dormand-Prince.
+     * @param args input arguments (not used)
+     */
+    public static void main(String[] args) {
+        AdaptiveStepSizeExperiment experiment = new AdaptiveStepSizeExperiment();
+        ParticleSystem reference = experiment.simulateRungeKutta(10.0);
+
+        // Warm up
+        experiment.simulateRungeKutta(600.0);
+        experiment.simulateDormandPrince(3600.0, 1.0E-12);
+
+        for (double timeStep : new double[]{3600.0, 600.0, 60.0}) {
+            long startTime = System.nanoTime();
+            ParticleSystem particleSystem = experiment.simulateRungeKutta(timeStep);
+            experiment.report("Runge-Kutta time step " + timeStep + " s", reference, particleSystem, startTime);
+        }
+        for (double tolerance : new double[]{1.0E-10, 1.0E-12, 1.0E-14}) {
+            for (double timeStep : new double[]{3600.0, 86400.0}) {
+                long startTime = System.nanoTime();
+                ParticleSystem particleSystem = experiment.simulateDormandPrince(timeStep, tolerance);
+                experiment.report("Dormand-Prince " + timeStep + " s tol " + tolerance,
+                        reference, particleSystem, startTime);
+            }
+        }
+    }
+
+    /*
+        Results
+        Note that the reference itself deviates a few meters from the exact solution
+        Errors are scaled per component of position and velocity of each particle
+        Runge-Kutta time step 3600.0 s       time:     51.7 ms deviation spacecraft: 16389869.525 km
+        Runge-Kutta time step 600.0 s        time:     31.3 ms deviation spacecraft: 113003.501 km
+        Runge-Kutta time step 60.0 s         time:    289.2 ms deviation spacecraft:      5.061 km
+        Dormand-Prince 3600.0 s tol 1.0E-10  time:     42.7 ms deviation spacecraft:      0.006 km
+        Dormand-Prince 86400.0 s tol 1.0E-10 time:     11.8 ms deviation spacecraft:      0.005 km
+        Dormand-Prince 3600.0 s tol 1.0E-12  time:     25.8 ms deviation spacecraft:      0.007 km
+        Dormand-Prince 86400.0 s tol 1.0E-12 time:      8.4 ms deviation spacecraft:      0.008 km
+        Dormand-Prince 3600.0 s tol 1.0E-14  time:     19.9 ms deviation spacecraft:      0.007 km
+        Dormand-Prince 86400.0 s tol 1.0E-14 time:     22.1 ms deviation spacecraft:      0.007 km
+     */
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package experiments;
+
+import ephemeris.EphemerisUtil;
+import ephemeris.SolarSystemParameters;
+import particlesystem.ParticleSystem;
+import solarsystem.OblatePlanet;
+import util.Vector3D;
+
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * Accuracy and computation time of Runge-Kutta with a time step of 5 minutes,
+ * as used for the planet systems of the Solar System, and the Hermite scheme
+ * with block time steps. Planet systems consist of the Sun, the planet, and its
+ * moons. Reference is Runge-Kutta with a time step of 10 s.
+ * @author Nico Kuijpers
+ */
+public class BlockTimeStepsExperiment {
+
+    // Planet systems
+    // Neptune System is not included as the orbital parameters of Proteus and Nereid are the same
+    private static final String[] planetNames = {"Mars", "Jupiter", "Saturn", "Uranus"};
+
+    // Duration of simulation [s]
+    private static final double duration = 10 * 86400.0;
+
+    // Time step of the Solar System [s]
+    private static final double deltaT = 3600.0;
+
+    // Solar System parameters
+    private final SolarSystemParameters parameters = SolarSystemParameters.getInstance();
+
+    // Date/time of orbital elements
+    private final GregorianCalendar dateTime;
+
+    /**
+     * Constructor.
+     */
+    public BlockTimeStepsExperiment() {
+        dateTime = new GregorianCalendar(2000,0,1);
+        dateTime.setTimeZone(TimeZone.getTimeZone("UTC"));
+    }
+
+    /**
+     * Create particle system with the Sun, the planet, and its moons.
+     * @param planetName name of the planet
+     * @return particle system
+     */
+    private ParticleSystem createPlanetSystem(String planetName) {
+        ParticleSystem particleSystem = new ParticleSystem();
+        double muSun = parameters.getMu("Sun");
+        particleSystem.addParticle("Sun", parameters.getMass("Sun"), muSun, new Vector3D(), new Vector3D());
+        double[] orbitElementsPlanet = EphemerisUtil.computeOrbitalElements(parameters.getOrbitParameters(planetName), dateTime);
+        Vector3D positionPlanet = EphemerisUtil.computePosition(orbitElementsPlanet);
+        Vector3D velocityPlanet = EphemerisUtil.computeVelocity(muSun, orbitElementsPlanet);
+        double muPlanet = parameters.getMu(planetName);
+        particleSystem.addParticle(planetName, new OblatePlanet(planetName, dateTime,
+                parameters.getMass(planetName), muPlanet, positionPlanet, velocityPlanet));
+        for (String moonName : parameters.getMoonsOfPlanet(planetName)) {
+            double[] orbitElementsMoon = EphemerisUtil.computeOrbitalElements(parameters.getOrbitParameters(moonName), dateTime);
+            Vector3D position = positionPlanet.plus(EphemerisUtil.computePosition(orbitElementsMoon));
+            Vector3D velocity = velocityPlanet.plus(EphemerisUtil.computeVelocity(muPlanet, orbitElementsMoon));
+            particleSystem.addParticle(moonName, parameters.getMass(moonName), parameters.getMu(moonName), position, velocity);
+        }
+        return particleSystem;
+    }
+
+    /**
+     * Largest deviation in position of the moons from the reference.
+     * @param planetName name of the planet
+     * @param reference particle system of reference simulation
+     * @param particleSystem particle system after simulation
+     * @return largest deviation [km]
+     */
+    private double maximumDeviation(String planetName, ParticleSystem reference, ParticleSystem particleSystem) {
+        double maximum = 0.0;
+        for (String moonName : parameters.getMoonsOfPlanet(planetName)) {
+            Vector3D positionReference = reference.getParticle(moonName).getPosition();
+            Vector3D position = particleSystem.getParticle(moonName).getPosition();
+            maximum = Math.max(maximum, positionReference.euclideanDistance(position) / 1000.0);
+        }
+        return maximum;
+    }
+
+    /**
+     * Simulate planet system using Runge-Kutta.
+     * @param planetName name of the planet
+     * @param timeStep time step [s]
+     * @return particle system after simulation
+     */
+    private ParticleSystem simulateRungeKutta(String planetName, double timeStep) {
+        ParticleSystem particleSystem = createPlanetSystem(planetName);
+        long nrSteps = Math.round(duration / timeStep);
+        for (long i = 0; i < nrSteps; i++) {
+            particleSystem.advanceRungeKutta(timeStep);
+        }
+        return particleSystem;
+    }
+
+    /**
+     * Simulate planet system using Hermite scheme with block time steps.
+     * @param planetName name of the planet
+     * @param accuracy ratio between time step and |a|/|j|
+     * @return particle system after simulation
+     */
+    private ParticleSystem simulateBlockTimeSteps(String planetName, double accuracy) {
+        ParticleSystem particleSystem = createPlanetSystem(planetName);
+        particleSystem.setAccuracyBlockTimeSteps(accuracy);
+        long nrSteps = Math.round(duration / deltaT);
+        for (long i = 0; i < nrSteps; i++) {
+            particleSystem.advanceBlockTimeSteps(deltaT);
+        }
+        return particleSystem;
+    }
+
+    /**
+     * Main method.
+     * Compare Runge-Kutta and Hermite scheme with block time steps.
+     * @param args input arguments (not used)
+     */
+    public static void main(String[] args) {
+        BlockTimeStepsExperiment experiment = new BlockTimeStepsExperiment();
+
+        // Warm up
+        experiment.simulateRungeKutta("Saturn", 300.0);
+        experiment.simulateBlockTimeSteps("Saturn", 0.01);
+
+        for (String planetName : planetNames) {
+            ParticleSystem reference = experiment.simulateRungeKutta(planetName, 10.0);
+            int nrParticles = 2 + experiment.parameters.getMoonsOfPlanet(planetName).size();
+
+            long startTime = System.nanoTime();
+            ParticleSystem particleSystem = experiment.simulateRungeKutta(planetName, 300.0);
+            double computationTime = (System.nanoTime() - startTime) / 1.0E06;
+            long nrEvaluations = 4L * nrParticles * Math.round(duration / 300.0);
+            System.out.println(String.format("%-8s Runge-Kutta 300 s    time: %8.1f ms evaluations: %8d deviation: %9.4f km",
+                    planetName, computationTime, nrEvaluations,
+                    experiment.maximumDeviation(planetName, reference, particleSystem)));
+
+            for (double accuracy : new double[]{0.02, 0.01, 0.005}) {
+                startTime = System.nanoTime();
+                particleSystem = experiment.simulateBlockTimeSteps(planetName, accuracy);
+                computationTime = (System.nanoTime() - startTime) / 1.0E06;
+                System.out.println(String.format("%-8s Block steps %5.3f    time: %8.1f ms evaluations: %8d deviation: %9.4f km",
+                        planetName, accuracy, computationTime, particleSystem.getNrEvaluationsBlockTimeSteps(),
+                        experiment.maximumDeviation(planetName, reference, particleSystem)));
+            }
+        }
+    }
+
+    /*
+        Results
+        Evaluations is the number of times the acceleration of a single particle is computed.
+        Mars     Runge-Kutta 300 s    time:     20.9 ms evaluations:    46080 deviation:   12.3754 km
+        Mars     Block steps 0.020    time:     41.4 ms evaluations:    20640 deviation:    0.0794 km
+        Mars     Block steps 0.010    time:     92.6 ms evaluations:    39840 deviation:    0.0243 km
+        Mars     Block steps 0.005    time:    150.4 ms evaluations:    78240 deviation:    0.0197 km
+        Jupiter  Runge-Kutta 300 s    time:     56.3 ms evaluations:    69120 deviation:    0.0113 km
+        Jupiter  Block steps 0.020    time:      4.0 ms evaluations:     5626 deviation:    0.2672 km
+        Jupiter  Block steps 0.010    time:      9.3 ms evaluations:     9572 deviation:    0.0265 km
+        Jupiter  Block steps 0.005    time:     12.7 ms evaluations:    17464 deviation:    0.0155 km
+        Saturn   Runge-Kutta 300 s    time:     57.9 ms evaluations:   126720 deviation:    0.1874 km
+        Saturn   Block steps 0.020    time:     10.1 ms evaluations:    16560 deviation:    1.4814 km
+        Saturn   Block steps 0.010    time:     30.2 ms evaluations:    29520 deviation:    0.0461 km
+        Saturn   Block steps 0.005    time:     36.2 ms evaluations:    55440 deviation:    0.0320 km
+        Uranus   Runge-Kutta 300 s    time:     29.2 ms evaluations:    80640 deviation:    0.0103 km
+        Uranus   Block steps 0.020    time:      5.9 ms evaluations:     9639 deviation:    0.0387 km
+        Uranus   Block steps 0.010    time:      8.6 ms evaluations:    17334 deviation:    0.0075 km
+        Uranus   Block steps 0.005    time:     16.3 ms evaluations:    32748 deviation:    0.0026 km
+     */
+}
@@ -134,15 +134,8 @@ public class CreateSolarSystemStateFiles {
         String fileName = calendarToString(dateTime) + EXTENSION;
         File file = new File(filePath,fileName);
         System.out.println("Save simulation state to file " + file);
-        FileOutputStream fileOut = null;
         try {
-            fileOut = new FileOutputStream(file);
-        }
-        catch (FileNotFoundException ex) {
-            System.err.println("Error: file not found");
-        }
-        try (ObjectOutputStream objectOut = new ObjectOutputStream(fileOut)) {
-            objectOut.writeObject(solarSystem);
+            solarSystem.saveSnapshot(file);
         }
         catch (IOException ex) {
             System.err.println("Cannot save simulation state to file " + fileName);
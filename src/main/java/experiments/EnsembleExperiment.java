@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package experiments;
+
+import application.SolarSystemException;
+import solarsystem.SolarSystem;
+import solarsystem.SolarSystemEnsemble;
+
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+/**
+ * Ensemble of Solar System simulations.
+ * Scenarios with Newton Mechanics, General Relativity, Curvature of Wave
+ * Propagation Method (CWPM), and adjusted mass of Jupiter are advanced
+ * together. Computation time is compared to simulations of the scenarios one by one.
+ * SolarSystemEnsembleTest checks that results do not depend on the number of threads.
+ * @author Nico Kuijpers
+ */
+public class EnsembleExperiment {
+
+    // Start date
+    private static final GregorianCalendar startDate = new GregorianCalendar(2000,0,1);
+
+    // Observed bodies
+    private static final String[] observedBodies = {"Mercury", "Earth"};
+
+    // Number of scenarios with adjusted mass of Jupiter
+    private static final int nrMassVariants = 13;
+
+    // Number of time steps of one hour and number of time steps between observations
+    private static final int nrTimeSteps = 30*24;
+    private static final int nrTimeStepsObservation = 24;
+
+    // Numbers of threads
+    private static final int[] nrThreads = {1, 2, 4};
+
+    /**
+     * Create scenarios.
+     * @return scenarios
+     */
+    private List<SolarSystemEnsemble.Scenario> createScenarios() {
+        List<SolarSystemEnsemble.Scenario> scenarios = new ArrayList<>();
+        scenarios.add(solarSystem -> {});
+        scenarios.add(solarSystem -> solarSystem.setGeneralRelativityFlag(true));
+        scenarios.add(solarSystem -> {
+            solarSystem.setGeneralRelativityFlag(true);
+            solarSystem.setCurvatureWavePropagationFlag(true);
+        });
+        for (int k = 1; k <= nrMassVariants; k++) {
+            double factor = 1.0 + 1.0E-3*k;
+            scenarios.add(solarSystem -> solarSystem.setMass("Jupiter", factor*solarSystem.getMass("Jupiter")));
+        }
+        return scenarios;
+    }
+
+    /**
+     * Simulate each scenario one by one.
+     * @param scenarios scenarios
+     * @throws SolarSystemException when a scenario cannot be configured
+     */
+    private void simulateOneByOne(List<SolarSystemEnsemble.Scenario> scenarios) throws SolarSystemException {
+        for (int i = 0; i < scenarios.size(); i++) {
+            SolarSystemEnsemble single = new SolarSystemEnsemble(startDate, scenarios.subList(i, i + 1), observedBodies, 1);
+            single.advanceSimulationForward(nrTimeSteps, nrTimeSteps, null);
+        }
+    }
+
+    /**
+     * Simulate all scenarios as ensemble and stream observables to a sink.
+     * @param scenarios scenarios
+     * @param threads number of threads
+     * @throws SolarSystemException when a scenario cannot be configured
+     */
+    private void simulateEnsemble(List<SolarSystemEnsemble.Scenario> scenarios, int threads)
+            throws SolarSystemException {
+        SolarSystemEnsemble ensemble = new SolarSystemEnsemble(startDate, scenarios, observedBodies, threads);
+        double[][] last = new double[scenarios.size()][];
+        long[] nrObservations = new long[1];
+        long startTime = System.nanoTime();
+        ensemble.advanceSimulationForward(nrTimeSteps, nrTimeStepsObservation, (scenario, dateTime, values) -> {
+            last[scenario] = values.clone();
+            nrObservations[0]++;
+        });
+        long stopTime = System.nanoTime();
+        ensemble.shutdown();
+        System.out.println(String.format("Scenarios: %d threads: %d observations: %d time: %6d ms",
+                scenarios.size(), threads, nrObservations[0], (stopTime - startTime)/1000000));
+        if (threads == 1) {
+            // Deviation of Earth position [km] with respect to Newton Mechanics
+            for (int i = 1; i < 4; i++) {
+                double dx = last[i][6] - last[0][6];
+                double dy = last[i][7] - last[0][7];
+                double dz = last[i][8] - last[0][8];
+                System.out.println(String.format("Scenario %d deviation Earth after 30 days: %10.3f km",
+                        i, Math.sqrt(dx*dx + dy*dy + dz*dz)/1000.0));
+            }
+        }
+    }
+
+    /**
+     * Main method.
+     * Simulate scenarios one by one and as ensemble with different numbers of threads.
+     * @param args input arguments (not used)
+     * @throws SolarSystemException when a scenario cannot be configured
+     */
+    public static void main(String[] args) throws SolarSystemException {
+        EnsembleExperiment experiment = new EnsembleExperiment();
+        List<SolarSystemEnsemble.Scenario> scenarios = experiment.createScenarios();
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+        long startTime = System.nanoTime();
+        experiment.simulateOneByOne(scenarios);
+        long stopTime = System.nanoTime();
+        System.out.println(String.format("Scenarios: %d one by one (including creation) time: %6d ms",
+                scenarios.size(), (stopTime - startTime)/1000000));
+        for (int threads : nrThreads) {
+            experiment.simulateEnsemble(scenarios, threads);
+        }
+    }
+
+    /*
+        Results on a machine with a single available processor
+        Available processors: 1
+        Scenarios: 16 one by one (including creation) time:   2461 ms
+        Scenarios: 16 threads: 1 observations: 480 time:    582 ms
+        Scenario 1 deviation Earth after 30 days:      0.643 km
+        Scenario 2 deviation Earth after 30 days:      0.641 km
+        Scenario 3 deviation Earth after 30 days:      0.170 km
+        Scenarios: 16 threads: 2 observations: 480 time:    459 ms
+        Scenarios: 16 threads: 4 observations: 480 time:    544 ms
+     */
+}
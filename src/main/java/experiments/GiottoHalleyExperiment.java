@@ -24,6 +24,7 @@ import ephemeris.CalendarUtil;
 import ephemeris.EphemerisSolarSystem;
 import ephemeris.IEphemeris;
 import ephemeris.SolarSystemParameters;
+import particlesystem.EventDetector;
 import particlesystem.Particle;
 import solarsystem.SolarSystem;
 import util.Vector3D;
@@ -224,6 +225,65 @@ public class GiottoHalleyExperiment {
                 + CalendarUtil.calendarToString(minimumDistanceDateTimeGS));
     }
 
+    /**
+     * Simulate passage of Halley's Comet, the Earth, and 26P/Grigg-Skjellerup
+     * using event detection. Closest approaches are detected during time steps
+     * of 1 hour and refined by interpolation within the time step.
+     */
+    public void simulateHalleyEarthGSPassageEventDetection() {
+
+        // Detect closest approaches of Giotto
+        EventDetector detectorHalley = EventDetector.closestApproach("Giotto", "Halley");
+        EventDetector detectorEarth = EventDetector.closestApproach("Giotto", "Earth");
+        EventDetector detectorGS = EventDetector.closestApproach("Giotto", "26P/Grigg-Skjellerup");
+        solarSystem.addEventDetector(detectorHalley);
+        solarSystem.addEventDetector(detectorEarth);
+        solarSystem.addEventDetector(detectorGS);
+
+        // Run simulation with time steps of 1 hour
+        while(solarSystem.getSimulationDateTime().before(simulationEndDateTime)) {
+            solarSystem.advanceSimulationForward(24);
+            System.out.println("Simulation date/time : " +
+                    CalendarUtil.calendarToString(solarSystem.getSimulationDateTime()));
+        }
+        solarSystem.removeEventDetector(detectorHalley);
+        solarSystem.removeEventDetector(detectorEarth);
+        solarSystem.removeEventDetector(detectorGS);
+
+        // Show results on screen
+        System.out.println("Results from simulation with event detection:");
+        showClosestApproach("Halley's Comet", detectorHalley, 1985);
+        showClosestApproach("Earth", detectorEarth, 1986);
+        showClosestApproach("Comet 26P/Grigg-Skjellerup", detectorGS, 1985);
+    }
+
+    /**
+     * Show minimum distance and date/time of closest approach of Giotto.
+     * @param name     name of the body
+     * @param detector event detector for closest approach
+     * @param year     only closest approaches after this year are considered
+     */
+    private void showClosestApproach(String name, EventDetector detector, int year) {
+        double minimumDistance = Double.MAX_VALUE;
+        GregorianCalendar minimumDistanceDateTime = null;
+        for (EventDetector.Event event : detector.getEvents()) {
+            GregorianCalendar dateTime = solarSystem.getEventEpoch(event).toCalendar();
+            double distance = event.getPosition(0).euclideanDistance(event.getPosition(1));
+            if (dateTime.get(Calendar.YEAR) > year && distance < minimumDistance) {
+                minimumDistance = distance;
+                minimumDistanceDateTime = dateTime;
+            }
+        }
+        if (minimumDistanceDateTime == null) {
+            System.out.println("No closest approach between Giotto and " + name);
+            return;
+        }
+        System.out.println("Minimum distance between Giotto and " + name + ": "
+                + minimumDistance/1000 + " km");
+        System.out.println("Date/time of minimum distance: "
+                + CalendarUtil.calendarToString(minimumDistanceDateTime));
+    }
+
     /**
      * Main method.
      * Simulate and compute passage of Florence.
@@ -234,7 +294,8 @@ public class GiottoHalleyExperiment {
         GiottoHalleyExperiment experiment = new GiottoHalleyExperiment();
 
         // Run simulation to find shortest distances
-        experiment.simulateHalleyEarthGSPassage();
+        //experiment.simulateHalleyEarthGSPassage();
+        experiment.simulateHalleyEarthGSPassageEventDetection();
     }
 
     /*
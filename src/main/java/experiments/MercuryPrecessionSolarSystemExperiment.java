@@ -116,22 +116,28 @@ public class MercuryPrecessionSolarSystemExperiment {
         double factor = (double) 3600/nrCenturies;
 
         // Run experiment with Newton Mechanics
+        Long startNM = System.currentTimeMillis();
         double precessionNewtonMechanics = experiment.computePrecession(false, false, nrCenturies);
+        Long stopNM = System.currentTimeMillis();
 
         // Print results
         // https://en.wikipedia.org/wiki/Tests_of_general_relativity#Perihelion_precession_of_Mercury
         System.out.println("Newton Mechanics:");
         System.out.println("Expected precession: " + (574.10 - 42.98) + " arc seconds / century");
         System.out.println("Simulated precession: " + (precessionNewtonMechanics * factor) + " arc seconds / century");
+        System.out.println("Computation time Newton Mechanics : " + (stopNM - startNM)/1000 + " s");
 
         // Run experiment with General Relativity
+        Long startGR = System.currentTimeMillis();
         double precessionGeneralRelativity = experiment.computePrecession(true, false, nrCenturies);
+        Long stopGR = System.currentTimeMillis();
 
         // Print results
         // https://en.wikipedia.org/wiki/Tests_of_general_relativity#Perihelion_precession_of_Mercury
         System.out.println("General Relativity:");
         System.out.println("Observed precession: 574.10 +/- 0.65 arc seconds / century");
         System.out.println("Simulated precession: " + (precessionGeneralRelativity * factor) + " arc seconds / century");
+        System.out.println("Computation time General Relativity : " + (stopGR - startGR)/1000 + " s");
 
         // Difference
         double differencePrecessionGR = precessionGeneralRelativity - precessionNewtonMechanics;
@@ -140,13 +146,16 @@ public class MercuryPrecessionSolarSystemExperiment {
         System.out.println("Simulated : " + (differencePrecessionGR * factor) + " arc seconds / century");
 
         // Run experiment with Curvature of Wave Propagation Method (CWPM)
+        Long startCWPM = System.currentTimeMillis();
         double precessionCurvatureWavePropagation = experiment.computePrecession(true, true, nrCenturies);
+        Long stopCWPM = System.currentTimeMillis();
 
         // Print results
         // https://en.wikipedia.org/wiki/Tests_of_general_relativity#Perihelion_precession_of_Mercury
         System.out.println("Curvature of Wave Propagation Method:");
         System.out.println("Observed precession: 574.10 +/- 0.65 arc seconds / century");
         System.out.println("Simulated precession: " + (precessionCurvatureWavePropagation * factor) + " arc seconds / century");
+        System.out.println("Computation time Curvature of Wave Propagation Method : " + (stopCWPM - startCWPM)/1000 + " s");
 
         // Difference
         double differencePrecessionCWPM = precessionCurvatureWavePropagation - precessionNewtonMechanics;
@@ -189,5 +198,11 @@ public class MercuryPrecessionSolarSystemExperiment {
         Difference in precession between Newton Mechanics and Curvature of Wave Propagation Method:
         Expected  : 42.98 arc seconds / century
         Simulated : 42.850032706932026 arc seconds / century
+
+        Computation time for one year of simulation of the Solar System
+        General Relativity, Sum (GM_C / r_BC) computed for every pair of particles : 4.9 s
+        General Relativity, Sum (GM_C / r_BC) computed once per evaluation        : 1.7 s
+        Newton Mechanics                                                           : 0.6 s
+        Simulated positions are identical
      */
 }
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package experiments;
+
+import ephemeris.SolarSystemParameters;
+import particlesystem.Particle;
+import particlesystem.ParticleSystem;
+import util.Vector3D;
+
+import java.util.Random;
+
+/**
+ * Speedup of parallel force evaluation in ParticleSystem.
+ * The Sun and a number of asteroids with mass in circular orbits
+ * are simulated using Runge-Kutta with different numbers of threads.
+ * @author Nico Kuijpers
+ */
+public class ParallelForceExperiment {
+
+    // Numbers of asteroids
+    private static final int[] nrAsteroids = {100, 400, 1000};
+
+    // Numbers of threads
+    private static final int[] nrThreads = {1, 2, 4, 8, 16};
+
+    // Time step [s]
+    private static final double deltaT = 3600.0;
+
+    /**
+     * Create particle system with the Sun and a number of asteroids.
+     * @param nrAsteroids number of asteroids
+     * @return particle system
+     */
+    private ParticleSystem createParticleSystem(int nrAsteroids) {
+        SolarSystemParameters parameters = SolarSystemParameters.getInstance();
+        ParticleSystem particleSystem = new ParticleSystem();
+        double muSun = parameters.getMu("Sun");
+        particleSystem.addParticle("Sun",parameters.getMass("Sun"),muSun,new Vector3D(),new Vector3D());
+
+        // Asteroids in circular orbits between 2.1 and 3.3 AU
+        Random random = new Random(1L);
+        double massAsteroid = 1.0E18;
+        double muAsteroid = massAsteroid * Particle.GRAVITATIONALCONSTANT;
+        for (int i = 0; i < nrAsteroids; i++) {
+            double radius = (2.1 + 1.2*random.nextDouble()) * SolarSystemParameters.ASTRONOMICALUNIT;
+            double angle = 2.0 * Math.PI * random.nextDouble();
+            double speed = Math.sqrt(muSun/radius);
+            Vector3D position = new Vector3D(radius*Math.cos(angle), radius*Math.sin(angle), 0.0);
+            Vector3D velocity = new Vector3D(-speed*Math.sin(angle), speed*Math.cos(angle), 0.0);
+            particleSystem.addParticle("Asteroid " + i,massAsteroid,muAsteroid,position,velocity);
+        }
+        return particleSystem;
+    }
+
+    /**
+     * Measure computation time per time step for a given number of threads.
+     * @param nrAsteroids number of asteroids
+     * @param nrThreads number of threads
+     * @param nrSteps number of time steps
+     * @return position of first asteroid after simulation and computation time [ms] per time step
+     */
+    private Object[] measure(int nrAsteroids, int nrThreads, int nrSteps) {
+        ParticleSystem particleSystem = createParticleSystem(nrAsteroids);
+        particleSystem.setNrThreads(nrThreads);
+
+        // Warm up
+        for (int i = 0; i < nrSteps/4; i++) {
+            particleSystem.advanceRungeKutta(deltaT);
+        }
+        long startTime = System.nanoTime();
+        for (int i = 0; i < nrSteps; i++) {
+            particleSystem.advanceRungeKutta(deltaT);
+        }
+        long stopTime = System.nanoTime();
+        particleSystem.setNrThreads(1);
+        Vector3D position = particleSystem.getParticle("Asteroid 0").getPosition();
+        return new Object[]{position, (stopTime - startTime)/(1.0E06*nrSteps)};
+    }
+
+    /**
+     * Main method.
+     * Measure speedup for different numbers of asteroids and threads.
+     * @param args input arguments (not used)
+     */
+    public static void main(String[] args) {
+        ParallelForceExperiment experiment = new ParallelForceExperiment();
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+        for (int n : nrAsteroids) {
+            int nrSteps = Math.max(10, 20000000/(n*n));
+            Object[] reference = null;
+            for (int threads : nrThreads) {
+                Object[] result = experiment.measure(n, threads, nrSteps);
+                if (reference == null) {
+                    reference = result;
+                }
+                double speedup = (double) reference[1] / (double) result[1];
+                Vector3D referencePosition = (Vector3D) reference[0];
+                Vector3D position = (Vector3D) result[0];
+                boolean identical = referencePosition.getX() == position.getX() &&
+                        referencePosition.getY() == position.getY() &&
+                        referencePosition.getZ() == position.getZ();
+                System.out.println(String.format("Asteroids: %5d threads: %2d time: %9.3f ms/step speedup: %5.2f identical: %s",
+                        n, threads, (double) result[1], speedup, identical));
+            }
+        }
+    }
+
+    /*
+        Results on a machine with a single available processor
+        Each pair of particles is visited once for any number of threads. The pairs are
+        divided into 4 blocks of rows and columns per thread and blocks on the same
+        anti-diagonal are processed in parallel. On a single processor, the difference
+        with one thread is the cost of synchronization between the anti-diagonals.
+        Counting the pairs per block, speedup with P processors is expected to be
+        at most 1.9, 3.1, 6.0, and 11.6 for P = 2, 4, 8, and 16, respectively.
+        These results have not been measured on a machine with more processors.
+        Available processors: 1
+        Asteroids:   100 threads:  1 time:     0.437 ms/step speedup:  1.00 identical: true
+        Asteroids:   100 threads:  2 time:     0.701 ms/step speedup:  0.62 identical: true
+        Asteroids:   100 threads:  4 time:     0.630 ms/step speedup:  0.69 identical: true
+        Asteroids:   100 threads:  8 time:     0.615 ms/step speedup:  0.71 identical: true
+        Asteroids:   100 threads: 16 time:     0.885 ms/step speedup:  0.49 identical: true
+        Asteroids:   400 threads:  1 time:     7.114 ms/step speedup:  1.00 identical: true
+        Asteroids:   400 threads:  2 time:     7.194 ms/step speedup:  0.99 identical: true
+        Asteroids:   400 threads:  4 time:     8.203 ms/step speedup:  0.87 identical: true
+        Asteroids:   400 threads:  8 time:     8.458 ms/step speedup:  0.84 identical: true
+        Asteroids:   400 threads: 16 time:     8.699 ms/step speedup:  0.82 identical: true
+        Asteroids:  1000 threads:  1 time:    42.160 ms/step speedup:  1.00 identical: true
+        Asteroids:  1000 threads:  2 time:    44.200 ms/step speedup:  0.95 identical: true
+        Asteroids:  1000 threads:  4 time:    41.806 ms/step speedup:  1.01 identical: true
+        Asteroids:  1000 threads:  8 time:    41.493 ms/step speedup:  1.02 identical: true
+        Asteroids:  1000 threads: 16 time:    44.292 ms/step speedup:  0.95 identical: true
+     */
+}
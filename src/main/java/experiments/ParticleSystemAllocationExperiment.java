@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package experiments;
+
+import ephemeris.EphemerisUtil;
+import ephemeris.SolarSystemParameters;
+import particlesystem.ParticleSystem;
+import util.Vector3D;
+
+import java.lang.management.ManagementFactory;
+import java.util.GregorianCalendar;
+
+/**
+ * Allocation rate of the integration methods of ParticleSystem.
+ * Memory allocated by the current thread is measured for a particle system
+ * consisting of the Sun and the eight planets.
+ * @author Nico Kuijpers
+ */
+public class ParticleSystemAllocationExperiment {
+
+    // Planets of the particle system
+    private static final String[] planets =
+            {"Mercury", "Venus", "Earth", "Mars", "Jupiter", "Saturn", "Uranus", "Neptune"};
+
+    // Number of time steps to warm up
+    private static final int nrStepsWarmUp = 20000;
+
+    // Number of time steps to measure
+    private static final int nrSteps = 100000;
+
+    // Time step [s]
+    private static final double deltaT = 3600.0;
+
+    // Bean to measure memory allocated by the current thread
+    private final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Create particle system with the Sun and the eight planets.
+     * @param arrayEngineFlag flag to select array engine
+     * @return particle system
+     */
+    private ParticleSystem createParticleSystem(boolean arrayEngineFlag) {
+        GregorianCalendar startDate = new GregorianCalendar(2000,0,1);
+        SolarSystemParameters parameters = SolarSystemParameters.getInstance();
+        ParticleSystem particleSystem = new ParticleSystem();
+        particleSystem.setArrayEngineFlag(arrayEngineFlag);
+        double muSun = parameters.getMu("Sun");
+        particleSystem.addParticle("Sun",parameters.getMass("Sun"),muSun,new Vector3D(),new Vector3D());
+        for (String name : planets) {
+            double[] orbitElements = EphemerisUtil.computeOrbitalElements(parameters.getOrbitParameters(name),startDate);
+            Vector3D position = EphemerisUtil.computePosition(orbitElements);
+            Vector3D velocity = EphemerisUtil.computeVelocity(muSun,orbitElements);
+            particleSystem.addParticle(name,parameters.getMass(name),parameters.getMu(name),position,velocity);
+        }
+        return particleSystem;
+    }
+
+    /**
+     * Advance particle system a number of time steps.
+     * @param particleSystem particle system
+     * @param abm4Flag flag to select Adams-Bashforth-Moulton (true) or Runge-Kutta (false)
+     * @param nrSteps number of time steps
+     */
+    private void advance(ParticleSystem particleSystem, boolean abm4Flag, int nrSteps) {
+        for (int i = 0; i < nrSteps; i++) {
+            if (abm4Flag) {
+                particleSystem.advanceABM4(deltaT);
+            }
+            else {
+                particleSystem.advanceRungeKutta(deltaT);
+            }
+            particleSystem.correctDrift();
+        }
+    }
+
+    /**
+     * Measure number of bytes allocated per time step.
+     * @param arrayEngineFlag flag to select array engine
+     * @param abm4Flag flag to select Adams-Bashforth-Moulton (true) or Runge-Kutta (false)
+     */
+    private void measure(boolean arrayEngineFlag, boolean abm4Flag) {
+        ParticleSystem particleSystem = createParticleSystem(arrayEngineFlag);
+        advance(particleSystem, abm4Flag, nrStepsWarmUp);
+        long threadId = Thread.currentThread().getId();
+        long bytesStart = threadBean.getThreadAllocatedBytes(threadId);
+        long timeStart = System.nanoTime();
+        advance(particleSystem, abm4Flag, nrSteps);
+        long timeEnd = System.nanoTime();
+        long bytesEnd = threadBean.getThreadAllocatedBytes(threadId);
+        double bytesPerStep = (double) (bytesEnd - bytesStart) / nrSteps;
+        double microsecondsPerStep = (timeEnd - timeStart) / (1000.0 * nrSteps);
+        System.out.println((abm4Flag ? "ABM4        " : "Runge-Kutta ") +
+                (arrayEngineFlag ? "array engine   " : "particles      ") +
+                String.format("%10.1f bytes/step %8.2f us/step", bytesPerStep, microsecondsPerStep));
+    }
+
+    /**
+     * Main method.
+     * Measure memory allocation for Runge-Kutta and Adams-Bashforth-Moulton.
+     * @param args input arguments (not used)
+     */
+    public static void main(String[] args) {
+        ParticleSystemAllocationExperiment experiment = new ParticleSystemAllocationExperiment();
+        experiment.measure(false, false);
+        experiment.measure(false, true);
+        experiment.measure(true, false);
+        experiment.measure(true, true);
+    }
+
+    /*
+        Results before in-place integration (Vector3D objects created in each stage)
+        Runge-Kutta particles         10420.7 bytes/step     9.38 us/step
+        ABM4        particles          9520.0 bytes/step     8.51 us/step
+
+        Results after in-place integration
+        Runge-Kutta particles             0.0 bytes/step     4.21 us/step
+        ABM4        particles            75.9 bytes/step     3.93 us/step
+        Runge-Kutta array engine          0.0 bytes/step     8.33 us/step
+        ABM4        array engine          0.0 bytes/step     3.27 us/step
+
+        Results after visiting particles in arrays instead of iterators
+        Runge-Kutta particles             0.0 bytes/step     7.08 us/step
+        ABM4        particles             0.0 bytes/step     3.68 us/step
+        Runge-Kutta array engine          0.0 bytes/step     9.11 us/step
+        ABM4        array engine          0.0 bytes/step     3.24 us/step
+        Zero allocation is asserted by ParticleSystemTest.testAdvanceWithoutAllocation,
+        also without JIT compilation (-Xint).
+     */
+}
@@ -21,13 +21,17 @@ package experiments;
 
 import ephemeris.EphemerisAccurate;
 import ephemeris.EphemerisAccurateBSP;
+import ephemeris.Epoch;
 import ephemeris.IEphemeris;
 import ephemeris.SolarSystemParameters;
 import particlesystem.Particle;
 import particlesystem.ParticleSystem;
 import solarsystem.OblatePlanet;
+import solarsystem.TrajectoryRecorder;
 import util.Vector3D;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -127,10 +131,24 @@ public class SimulationAccuracyExperiment {
     /**
      * Run simulation for given number of years.
      * Simulation time step is 1 hour. Position of Solar System bodies is
-     * checked against ephemeris data each day.
-     * @param nrYears number of years
+     * checked against ephemeris data each day. Position and velocity of
+     * Solar System bodies are recorded each day in trajectory file.
+     * @param nrYears  number of years
+     * @param fileName name of trajectory file
      */
-    private void runSimulation(int nrYears) {
+    private void runSimulation(int nrYears, String fileName) {
+        // Record trajectories each day
+        List<String> recordedBodies = new ArrayList<>();
+        recordedBodies.add("Sun");
+        recordedBodies.addAll(bodyNames);
+        TrajectoryRecorder recorder;
+        try {
+            recorder = new TrajectoryRecorder(new File(fileName), recordedBodies, 24*deltaT);
+        } catch (IOException ex) {
+            System.err.println("Cannot create trajectory file " + fileName);
+            recorder = null;
+        }
+
         // End date/time of the simulation
         GregorianCalendar simulationEndDateTime = (GregorianCalendar) simulationDateTime.clone();
         simulationEndDateTime.setTimeZone(TimeZone.getTimeZone("UTC"));
@@ -140,6 +158,9 @@ public class SimulationAccuracyExperiment {
         int hour = 0;
         int day = 0;
         checkPosition(simulationDateTime,day);
+        if (recorder != null) {
+            recorder.record(new Epoch(simulationDateTime), particleSystem);
+        }
         
         // Run simulation
         while (simulationDateTime.before(simulationEndDateTime)) {
@@ -165,6 +186,18 @@ public class SimulationAccuracyExperiment {
                 hour = 0;
                 day++;
                 checkPosition(simulationDateTime,day);
+                if (recorder != null) {
+                    recorder.record(new Epoch(simulationDateTime), particleSystem);
+                }
+            }
+        }
+
+        // Write remaining samples to trajectory file
+        if (recorder != null) {
+            try {
+                recorder.close();
+            } catch (IOException ex) {
+                System.err.println("Cannot write trajectory file " + fileName);
             }
         }
     }
@@ -184,7 +217,7 @@ public class SimulationAccuracyExperiment {
         System.out.println("Running simulation using Newton Mechanics for " + nrYears + " years");
         
         // Run simulation
-        runSimulation(nrYears);
+        runSimulation(nrYears, "SimulationAccuracyNewtonMechanics.traj");
     }
 
     /**
@@ -205,7 +238,7 @@ public class SimulationAccuracyExperiment {
         System.out.println("Running simulation using General Relativity for " + nrYears + " years");
         
         // Run simulation
-        runSimulation(nrYears);
+        runSimulation(nrYears, "SimulationAccuracyGeneralRelativity.traj");
     }
 
     /**
@@ -226,7 +259,7 @@ public class SimulationAccuracyExperiment {
         System.out.println("Running simulation using Curvature of Wave Propagation Method (CWPM) for " + nrYears + " years");
 
         // Run simulation
-        runSimulation(nrYears);
+        runSimulation(nrYears, "SimulationAccuracyCWPM.traj");
     }
     
     /**
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package experiments;
+
+import ephemeris.EphemerisUtil;
+import ephemeris.SolarSystemParameters;
+import particlesystem.Particle;
+import particlesystem.ParticleSystem;
+import util.Vector3D;
+
+import java.util.GregorianCalendar;
+
+/**
+ * Energy drift of the Wisdom-Holman map over 1000 years.
+ * The Sun and the eight planets are simulated using the Wisdom-Holman map
+ * with time steps of several days. Deviation in position after 368 days
+ * is determined with respect to Runge-Kutta with a time step of 60 s.
+ * Computation time is compared to Adams-Bashforth-Moulton with a time step
+ * of 30 minutes as used by the simulator.
+ * @author Nico Kuijpers
+ */
+public class WisdomHolmanExperiment {
+
+    // Planets of the particle system
+    private static final String[] planets =
+            {"Mercury", "Venus", "Earth", "Mars", "Jupiter", "Saturn", "Uranus", "Neptune"};
+
+    // Time steps of Wisdom-Holman map [days]
+    private static final double[] deltaTDays = {1.0, 2.0, 4.0, 8.0};
+
+    // Number of simulated years
+    private static final int nrYears = 1000;
+
+    // Number of time steps between two energy samples
+    private static final int nrStepsSample = 100;
+
+    /**
+     * Create particle system with the Sun and the eight planets.
+     * Mass is derived from the standard gravitational parameter, such that
+     * the total energy is conserved by the equations of motion.
+     * @return particle system
+     */
+    private ParticleSystem createParticleSystem() {
+        GregorianCalendar startDate = new GregorianCalendar(2000,0,1);
+        SolarSystemParameters parameters = SolarSystemParameters.getInstance();
+        ParticleSystem particleSystem = new ParticleSystem();
+        double muSun = parameters.getMu("Sun");
+        particleSystem.addParticle("Sun",muSun/Particle.GRAVITATIONALCONSTANT,muSun,new Vector3D(),new Vector3D());
+        for (String name : planets) {
+            double[] orbitElements = EphemerisUtil.computeOrbitalElements(parameters.getOrbitParameters(name),startDate);
+            Vector3D position = EphemerisUtil.computePosition(orbitElements);
+            Vector3D velocity = EphemerisUtil.computeVelocity(muSun,orbitElements);
+            double mu = parameters.getMu(name);
+            particleSystem.addParticle(name,mu/Particle.GRAVITATIONALCONSTANT,mu,position,velocity);
+        }
+        return particleSystem;
+    }
+
+    /**
+     * Total energy of the particle system.
+     * @param particleSystem particle system
+     * @return total energy in J
+     */
+    private double totalEnergy(ParticleSystem particleSystem) {
+        return particleSystem.computeKineticEnergy() + particleSystem.computePotentialEnergy();
+    }
+
+    /**
+     * Deviation in position after 368 days with respect to Runge-Kutta.
+     * @param reference particle system simulated using Runge-Kutta
+     * @param deltaT time step [s]
+     */
+    private void measureDeviation(ParticleSystem reference, double deltaT) {
+        ParticleSystem particleSystem = createParticleSystem();
+        int nrSteps = (int) Math.round(368.0*86400.0/deltaT);
+        for (int i = 0; i < nrSteps; i++) {
+            particleSystem.advanceWisdomHolman(deltaT);
+        }
+        StringBuilder result = new StringBuilder(String.format("Time step %4.1f days deviation after 368 days:", deltaT/86400.0));
+        for (String name : new String[]{"Mercury", "Earth", "Jupiter", "Neptune"}) {
+            Vector3D expected = reference.getParticle(name).getPosition();
+            Vector3D actual = particleSystem.getParticle(name).getPosition();
+            result.append(String.format(" %s %.3e", name, actual.euclideanDistance(expected)/expected.magnitude()));
+        }
+        System.out.println(result);
+    }
+
+    /**
+     * Relative energy error over 1000 years.
+     * @param deltaT time step [s]
+     */
+    private void measureEnergy(double deltaT) {
+        ParticleSystem particleSystem = createParticleSystem();
+
+        // Potential energy is computed together with acceleration
+        particleSystem.advanceWisdomHolman(0.0);
+        double initialEnergy = totalEnergy(particleSystem);
+        int nrSteps = (int) Math.round(nrYears*365.25*86400.0/deltaT);
+        double maxError = 0.0;
+        long startTime = System.nanoTime();
+        for (int i = 1; i <= nrSteps; i++) {
+            particleSystem.advanceWisdomHolman(deltaT);
+            if (i % nrStepsSample == 0) {
+                double error = Math.abs((totalEnergy(particleSystem) - initialEnergy)/initialEnergy);
+                maxError = Math.max(maxError, error);
+            }
+        }
+        long stopTime = System.nanoTime();
+        double finalError = (totalEnergy(particleSystem) - initialEnergy)/initialEnergy;
+        System.out.println(String.format("Time step %4.1f days steps: %7d max energy error: %.3e final energy error: %10.3e time: %6d ms",
+                deltaT/86400.0, nrSteps, maxError, finalError, (stopTime - startTime)/1000000));
+    }
+
+    /**
+     * Computation time of Adams-Bashforth-Moulton with a time step of 30 minutes
+     * for 10 years, extrapolated to 1000 years.
+     */
+    private void measureABM4() {
+        ParticleSystem particleSystem = createParticleSystem();
+        int nrSteps = 10*365*48;
+        long startTime = System.nanoTime();
+        for (int i = 0; i < nrSteps; i++) {
+            particleSystem.advanceABM4(1800.0);
+        }
+        long stopTime = System.nanoTime();
+        System.out.println(String.format("ABM4 time step 30 minutes estimated time for %d years: %d ms",
+                nrYears, (nrYears/10)*(stopTime - startTime)/1000000));
+    }
+
+    /**
+     * Main method.
+     * Measure deviation, energy drift, and computation time.
+     * @param args input arguments (not used)
+     */
+    public static void main(String[] args) {
+        WisdomHolmanExperiment experiment = new WisdomHolmanExperiment();
+        ParticleSystem reference = experiment.createParticleSystem();
+        for (int i = 0; i < 368*1440; i++) {
+            reference.advanceRungeKutta(60.0);
+        }
+        for (double days : deltaTDays) {
+            experiment.measureDeviation(reference, days*86400.0);
+        }
+        for (double days : deltaTDays) {
+            experiment.measureEnergy(days*86400.0);
+        }
+        experiment.measureABM4();
+    }
+
+    /*
+        Results
+        Energy error is bounded and scales with the square of the time step;
+        no secular drift is observed over 1000 years.
+        Time step  1.0 days deviation after 368 days: Mercury 2.646e-06 Earth 1.105e-07 Jupiter 1.961e-10 Neptune 1.539e-11
+        Time step  2.0 days deviation after 368 days: Mercury 1.058e-05 Earth 4.419e-07 Jupiter 7.844e-10 Neptune 6.163e-11
+        Time step  4.0 days deviation after 368 days: Mercury 4.229e-05 Earth 1.768e-06 Jupiter 3.138e-09 Neptune 2.466e-10
+        Time step  8.0 days deviation after 368 days: Mercury 1.702e-04 Earth 7.074e-06 Jupiter 1.255e-08 Neptune 9.865e-10
+        Time step  1.0 days steps:  365250 max energy error: 2.745e-09 final energy error: -1.770e-10 time:   1793 ms
+        Time step  2.0 days steps:  182625 max energy error: 1.095e-08 final energy error: -7.111e-10 time:    693 ms
+        Time step  4.0 days steps:   91313 max energy error: 4.121e-08 final energy error: -2.866e-09 time:    366 ms
+        Time step  8.0 days steps:   45656 max energy error: 1.738e-07 final energy error: -1.249e-08 time:    195 ms
+        ABM4 time step 30 minutes estimated time for 1000 years: 34156 ms
+     */
+}
@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package particlesystem;
+
+import util.Vector3D;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense output of a particle system. Position and velocity of each particle are
+ * stored at the start and at the end of each time step (knots). In between knots,
+ * position and velocity are obtained by cubic Hermite interpolation. Since position
+ * and velocity at the knots are known from the integration, position and velocity
+ * at any time within the time steps are obtained without force evaluations.
+ * Time is expressed in elapsed time of the particle system.
+ * @author Nico Kuijpers
+ */
+public class DenseOutput {
+
+    // Initial capacity for number of knots
+    private static final int INITIALCAPACITY = 16;
+
+    // Names of the particles in order of storage
+    private final List<String> names = new ArrayList<>();
+
+    // Index of each particle
+    private final Map<String, Integer> indexMap = new HashMap<>();
+
+    // Elapsed time at each knot [s]
+    private double[] times = new double[INITIALCAPACITY];
+
+    // Position and velocity x, y, z, vx, vy, vz of each particle at each knot
+    private double[][] states = new double[INITIALCAPACITY][];
+
+    // Number of drift corrections applied to each knot
+    private int[] nrCorrectionsApplied = new int[INITIALCAPACITY];
+
+    // Number of knots stored
+    private int nrKnots = 0;
+
+    // Drift corrections dx, dy, dz, dvx, dvy, dvz and elapsed time of correction
+    private final List<double[]> corrections = new ArrayList<>();
+
+    /**
+     * Remove all knots.
+     */
+    void reset() {
+        nrKnots = 0;
+        corrections.clear();
+    }
+
+    /**
+     * Store state of the particles at the start of a time step. The state is not
+     * stored when it equals the state at the end of the previous time step. When
+     * the state was changed in between time steps, e.g., by a course correction,
+     * the knot is stored at the same time and position or velocity are discontinuous.
+     * @param time      elapsed time of the particle system [s]
+     * @param particles particles of the particle system
+     */
+    void startTimeStep(double time, Map<String, Particle> particles) {
+        if (!sameParticles(particles)) {
+            reset();
+            names.clear();
+            indexMap.clear();
+            names.addAll(particles.keySet());
+            for (int i = 0; i < names.size(); i++) {
+                indexMap.put(names.get(i), i);
+            }
+        }
+        if (nrKnots > 0 && times[nrKnots - 1] == time && sameState(states[nrKnots - 1], particles)) {
+            return;
+        }
+        addKnot(time, particles);
+    }
+
+    /**
+     * Store state of the particles at the end of a time step.
+     * @param time      elapsed time of the particle system [s]
+     * @param particles particles of the particle system
+     */
+    void finishTimeStep(double time, Map<String, Particle> particles) {
+        if (nrKnots > 0) {
+            addKnot(time, particles);
+        }
+    }
+
+    /**
+     * Correct knots for drift of the particle system. Position and velocity at
+     * each knot are transformed to the frame in which the particle system is
+     * corrected at the given time. The last knot is corrected in the same way
+     * as the particles; other knots are corrected when they are interpolated.
+     * @param driftPosition drift in position to correct for
+     * @param driftVelocity drift in velocity to correct for
+     * @param time          elapsed time of the correction [s]
+     */
+    void correctDrift(Vector3D driftPosition, Vector3D driftVelocity, double time) {
+        if (nrKnots == 0) {
+            return;
+        }
+        corrections.add(new double[]{driftPosition.getX(), driftPosition.getY(), driftPosition.getZ(),
+                driftVelocity.getX(), driftVelocity.getY(), driftVelocity.getZ(), time});
+        int last = nrKnots - 1;
+        double[] state = states[last];
+        for (int i = 0; i < names.size(); i++) {
+            applyCorrections(state, 6*i, times[last], nrCorrectionsApplied[last]);
+        }
+        nrCorrectionsApplied[last] = corrections.size();
+    }
+
+    /**
+     * Get number of knots stored.
+     * @return number of knots
+     */
+    public int getNrKnots() {
+        return nrKnots;
+    }
+
+    /**
+     * Get elapsed time at knot.
+     * @param knot index of knot
+     * @return elapsed time [s]
+     */
+    public double getTime(int knot) {
+        return times[knot];
+    }
+
+    /**
+     * Get elapsed time at first knot.
+     * @return elapsed time [s]
+     */
+    public double getStartTime() {
+        return times[0];
+    }
+
+    /**
+     * Get elapsed time at last knot.
+     * @return elapsed time [s]
+     */
+    public double getEndTime() {
+        return times[nrKnots - 1];
+    }
+
+    /**
+     * Check whether elapsed time is within the time steps stored.
+     * @param time elapsed time [s]
+     * @return true when position and velocity can be interpolated
+     */
+    public boolean contains(double time) {
+        return nrKnots > 1 && findInterval(time) >= 0;
+    }
+
+    /**
+     * Check whether particle is stored.
+     * @param name name of the particle
+     * @return true when particle is stored
+     */
+    public boolean contains(String name) {
+        return indexMap.containsKey(name);
+    }
+
+    /**
+     * Get interpolated position of particle.
+     * @param name name of the particle
+     * @param time elapsed time [s]
+     * @return position [m]
+     */
+    public Vector3D getPosition(String name, double time) {
+        int index = 6*getIndex(name);
+        int knot = getInterval(time);
+        double deltaT = times[knot + 1] - times[knot];
+        return HermiteInterpolation.interpolatePosition(getVector(knot, index), getVector(knot, index + 3),
+                getVector(knot + 1, index), getVector(knot + 1, index + 3), deltaT, (time - times[knot])/deltaT);
+    }
+
+    /**
+     * Get interpolated velocity of particle.
+     * @param name name of the particle
+     * @param time elapsed time [s]
+     * @return velocity [m/s]
+     */
+    public Vector3D getVelocity(String name, double time) {
+        int index = 6*getIndex(name);
+        int knot = getInterval(time);
+        double deltaT = times[knot + 1] - times[knot];
+        return HermiteInterpolation.interpolateVelocity(getVector(knot, index), getVector(knot, index + 3),
+                getVector(knot + 1, index), getVector(knot + 1, index + 3), deltaT, (time - times[knot])/deltaT);
+    }
+
+    /**
+     * Find time step containing given elapsed time. Time steps of length zero,
+     * which indicate a discontinuity, are skipped. When the elapsed time is at
+     * a knot, the latest time step is taken.
+     * @param time elapsed time [s]
+     * @return index of knot at start of time step or -1 when not found
+     */
+    private int findInterval(double time) {
+        for (int k = nrKnots - 2; k >= 0; k--) {
+            double timeA = times[k];
+            double timeB = times[k + 1];
+            if (timeA != timeB && time >= Math.min(timeA, timeB) && time <= Math.max(timeA, timeB)) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get time step containing given elapsed time.
+     * @param time elapsed time [s]
+     * @return index of knot at start of time step
+     */
+    private int getInterval(double time) {
+        int knot = findInterval(time);
+        if (knot < 0) {
+            throw new IllegalArgumentException("Time " + time + " outside dense output");
+        }
+        return knot;
+    }
+
+    /**
+     * Get index of particle.
+     * @param name name of the particle
+     * @return index of particle
+     */
+    private int getIndex(String name) {
+        Integer index = indexMap.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown particle " + name + " for dense output");
+        }
+        return index;
+    }
+
+    /**
+     * Get position or velocity stored at knot.
+     * @param knot  index of knot
+     * @param index index of x-coordinate in state
+     * @return vector
+     */
+    private Vector3D getVector(int knot, int index) {
+        double[] state = states[knot];
+        if (nrCorrectionsApplied[knot] == corrections.size()) {
+            return new Vector3D(state[index], state[index + 1], state[index + 2]);
+        }
+        double[] corrected = new double[6];
+        int indexPosition = index - index % 6;
+        System.arraycopy(state, indexPosition, corrected, 0, 6);
+        applyCorrections(corrected, 0, times[knot], nrCorrectionsApplied[knot]);
+        int offset = index - indexPosition;
+        return new Vector3D(corrected[offset], corrected[offset + 1], corrected[offset + 2]);
+    }
+
+    /**
+     * Apply drift corrections to position and velocity of a particle at a knot.
+     * @param state  position and velocity of particles
+     * @param index  index of x-coordinate of position of the particle in state
+     * @param time   elapsed time of the knot [s]
+     * @param first  index of first correction to be applied
+     */
+    private void applyCorrections(double[] state, int index, double time, int first) {
+        for (int j = first; j < corrections.size(); j++) {
+            double[] correction = corrections.get(j);
+            double dt = time - correction[6];
+            state[index] -= correction[0] + correction[3]*dt;
+            state[index + 1] -= correction[1] + correction[4]*dt;
+            state[index + 2] -= correction[2] + correction[5]*dt;
+            state[index + 3] -= correction[3];
+            state[index + 4] -= correction[4];
+            state[index + 5] -= correction[5];
+        }
+    }
+
+    /**
+     * Check whether particles are the particles stored.
+     * @param particles particles of the particle system
+     * @return true when the same particles are stored
+     */
+    private boolean sameParticles(Map<String, Particle> particles) {
+        if (particles.size() != names.size()) {
+            return false;
+        }
+        for (String name : particles.keySet()) {
+            if (!indexMap.containsKey(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check whether state of the particles equals stored state.
+     * @param state     stored state
+     * @param particles particles of the particle system
+     * @return true when position and velocity of all particles are equal
+     */
+    private boolean sameState(double[] state, Map<String, Particle> particles) {
+        for (int i = 0; i < names.size(); i++) {
+            Particle particle = particles.get(names.get(i));
+            Vector3D position = particle.getPosition();
+            Vector3D velocity = particle.getVelocity();
+            if (state[6*i] != position.getX() || state[6*i + 1] != position.getY() ||
+                    state[6*i + 2] != position.getZ() || state[6*i + 3] != velocity.getX() ||
+                    state[6*i + 4] != velocity.getY() || state[6*i + 5] != velocity.getZ()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Store position and velocity of the particles as new knot.
+     * Arrays of knots that were removed are reused.
+     * @param time      elapsed time of the particle system [s]
+     * @param particles particles of the particle system
+     */
+    private void addKnot(double time, Map<String, Particle> particles) {
+        if (nrKnots == times.length) {
+            double[] newTimes = new double[2*times.length];
+            double[][] newStates = new double[2*times.length][];
+            int[] newNrCorrectionsApplied = new int[2*times.length];
+            System.arraycopy(times, 0, newTimes, 0, nrKnots);
+            System.arraycopy(states, 0, newStates, 0, nrKnots);
+            System.arraycopy(nrCorrectionsApplied, 0, newNrCorrectionsApplied, 0, nrKnots);
+            times = newTimes;
+            states = newStates;
+            nrCorrectionsApplied = newNrCorrectionsApplied;
+        }
+        if (states[nrKnots] == null || states[nrKnots].length != 6*names.size()) {
+            states[nrKnots] = new double[6*names.size()];
+        }
+        double[] state = states[nrKnots];
+        for (int i = 0; i < names.size(); i++) {
+            Particle particle = particles.get(names.get(i));
+            Vector3D position = particle.getPosition();
+            Vector3D velocity = particle.getVelocity();
+            state[6*i] = position.getX();
+            state[6*i + 1] = position.getY();
+            state[6*i + 2] = position.getZ();
+            state[6*i + 3] = velocity.getX();
+            state[6*i + 4] = velocity.getY();
+            state[6*i + 5] = velocity.getZ();
+        }
+        times[nrKnots] = time;
+        nrCorrectionsApplied[nrKnots] = corrections.size();
+        nrKnots++;
+    }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package particlesystem;
+
+import util.Vector3D;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Detector of events during simulation. An event occurs when the value of an
+ * event function of the state of one or more particles crosses zero. The event
+ * function is evaluated at the start and at the end of each time step of the
+ * particle system. When the sign changes, the time of the event is found by
+ * root finding on the dense output of the time step. In this way, events are
+ * found to sub-second accuracy using large time steps. Events are not detected
+ * for time steps of the leapfrog algorithm, as its velocity is half a time step
+ * behind its position.
+ * @author Nico Kuijpers
+ */
+public class EventDetector {
+
+    /**
+     * Direction of zero crossing in time to be detected.
+     */
+    public enum Direction {INCREASING, DECREASING, BOTH}
+
+    /**
+     * Event found by event detector.
+     */
+    public static class Event {
+
+        // Elapsed time of the particle system at the event [s]
+        private final double time;
+
+        // Interpolated positions and velocities of the particles at the event
+        private final Vector3D[] positions;
+        private final Vector3D[] velocities;
+
+        /**
+         * Constructor.
+         * @param time       elapsed time of the particle system [s]
+         * @param positions  positions of the particles [m]
+         * @param velocities velocities of the particles [m/s]
+         */
+        Event(double time, Vector3D[] positions, Vector3D[] velocities) {
+            this.time = time;
+            this.positions = positions;
+            this.velocities = velocities;
+        }
+
+        /**
+         * Get time of the event as elapsed time of the particle system.
+         * @return elapsed time [s]
+         */
+        public double getTime() {
+            return time;
+        }
+
+        /**
+         * Get position of particle at the event.
+         * @param index index of the particle in the names of the event detector
+         * @return position [m]
+         */
+        public Vector3D getPosition(int index) {
+            return positions[index];
+        }
+
+        /**
+         * Get velocity of particle at the event.
+         * @param index index of the particle in the names of the event detector
+         * @return velocity [m/s]
+         */
+        public Vector3D getVelocity(int index) {
+            return velocities[index];
+        }
+    }
+
+    // Default accuracy of the time of events [s]
+    private static final double DEFAULTTOLERANCE = 1.0E-3;
+
+    // Number of intervals in which a time step is divided to detect zero crossings
+    private static final int NRINTERVALS = 4;
+
+    // Maximum number of iterations for root finding
+    private static final int MAXITERATIONS = 100;
+
+    // Names of the particles
+    private final String[] names;
+
+    // Event function
+    private final EventFunction function;
+
+    // Direction of zero crossings
+    private final Direction direction;
+
+    // Accuracy of the time of events [s]
+    private final double tolerance;
+
+    // Dense output of the particle system during detection of events
+    private DenseOutput denseOutput;
+
+    // Events found
+    private final List<Event> events = new ArrayList<>();
+
+    /**
+     * Constructor.
+     * @param names     names of the particles of which the state is passed to the event function
+     * @param function  event function
+     * @param direction direction of zero crossings to be detected
+     */
+    public EventDetector(String[] names, EventFunction function, Direction direction) {
+        this(names, function, direction, DEFAULTTOLERANCE);
+    }
+
+    /**
+     * Constructor.
+     * @param names     names of the particles of which the state is passed to the event function
+     * @param function  event function
+     * @param direction direction of zero crossings to be detected
+     * @param tolerance accuracy of the time of events [s]
+     */
+    public EventDetector(String[] names, EventFunction function, Direction direction, double tolerance) {
+        this.names = names.clone();
+        this.function = function;
+        this.direction = direction;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Create event detector for closest approach between two particles.
+     * Closest approach occurs when the range rate, i.e., the inner product of
+     * relative position and relative velocity, changes from negative to positive.
+     * @param nameA name of first particle
+     * @param nameB name of second particle
+     * @return event detector
+     */
+    public static EventDetector closestApproach(String nameA, String nameB) {
+        return new EventDetector(new String[]{nameA, nameB},
+                (positions, velocities) -> positions[0].minus(positions[1]).dotProduct(velocities[0].minus(velocities[1])),
+                Direction.INCREASING);
+    }
+
+    /**
+     * Create event detector for crossing of a plane by a particle. The plane
+     * moves along with the second particle, e.g., the equatorial plane of a planet.
+     * @param nameA  name of particle crossing the plane
+     * @param nameB  name of particle in the plane
+     * @param normal normal vector of the plane
+     * @return event detector
+     */
+    public static EventDetector planeCrossing(String nameA, String nameB, Vector3D normal) {
+        return new EventDetector(new String[]{nameA, nameB},
+                (positions, velocities) -> positions[0].minus(positions[1]).dotProduct(normal),
+                Direction.BOTH);
+    }
+
+    /**
+     * Create event detector for crossing of a distance between two particles,
+     * e.g., entering or leaving the sphere of influence of a planet.
+     * @param nameA     name of first particle
+     * @param nameB     name of second particle
+     * @param distance  distance [m]
+     * @param direction INCREASING for leaving, DECREASING for entering, or BOTH
+     * @return event detector
+     */
+    public static EventDetector distanceCrossing(String nameA, String nameB, double distance, Direction direction) {
+        return new EventDetector(new String[]{nameA, nameB},
+                (positions, velocities) -> positions[0].euclideanDistance(positions[1]) - distance,
+                direction);
+    }
+
+    /**
+     * Get names of the particles of which the state is passed to the event function.
+     * @return names of the particles
+     */
+    public String[] getNames() {
+        return names.clone();
+    }
+
+    /**
+     * Get events found since creation or since events were cleared.
+     * @return events in order of detection
+     */
+    public List<Event> getEvents() {
+        return Collections.unmodifiableList(events);
+    }
+
+    /**
+     * Remove all events found.
+     */
+    public void clearEvents() {
+        events.clear();
+    }
+
+    /**
+     * Find events during the last time step of the dense output.
+     * @param denseOutput dense output of the particle system
+     */
+    void detectEvents(DenseOutput denseOutput) {
+        int nrKnots = denseOutput.getNrKnots();
+        if (nrKnots < 2) {
+            return;
+        }
+        for (String name : names) {
+            if (!denseOutput.contains(name)) {
+                return;
+            }
+        }
+        this.denseOutput = denseOutput;
+        double startTime = denseOutput.getTime(nrKnots - 2);
+        double endTime = denseOutput.getTime(nrKnots - 1);
+        double deltaT = endTime - startTime;
+        if (deltaT != 0.0) {
+            detectEvents(startTime, endTime);
+        }
+        this.denseOutput = null;
+    }
+
+    /**
+     * Find events during the time step from start time to end time.
+     * @param startTime elapsed time at the start of the time step [s]
+     * @param endTime   elapsed time at the end of the time step [s]
+     */
+    private void detectEvents(double startTime, double endTime) {
+        // The time step is divided into intervals to detect zero crossings
+        // when the function crosses zero twice during the time step
+        double deltaT = endTime - startTime;
+        double timeA = startTime;
+        double valueA = value(timeA);
+        for (int i = 1; i <= NRINTERVALS; i++) {
+            double timeB = i == NRINTERVALS ? endTime : startTime + i*deltaT/NRINTERVALS;
+            double valueB = value(timeB);
+            if (isZeroCrossing(valueA, valueB, deltaT)) {
+                double time = findZeroCrossing(timeA, valueA, timeB, valueB);
+                events.add(new Event(time, interpolatePositions(time), interpolateVelocities(time)));
+            }
+            timeA = timeB;
+            valueA = valueB;
+        }
+    }
+
+    /**
+     * Check whether function crosses zero in the direction to be detected.
+     * Zero at the start of an interval is not a crossing, as it is detected
+     * as crossing at the end of the preceding interval.
+     * @param valueA value at start of interval
+     * @param valueB value at end of interval
+     * @param deltaT time step [s], negative when simulating backward in time
+     * @return true when function crosses zero
+     */
+    private boolean isZeroCrossing(double valueA, double valueB, double deltaT) {
+        boolean upward = valueA < 0.0 && valueB >= 0.0;
+        boolean downward = valueA > 0.0 && valueB <= 0.0;
+        if (!upward && !downward) {
+            return false;
+        }
+        boolean increasing = upward == (deltaT > 0.0);
+        switch (direction) {
+            case INCREASING:
+                return increasing;
+            case DECREASING:
+                return !increasing;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Find zero crossing within an interval using the Illinois variant of
+     * the regula falsi method.
+     * https://en.wikipedia.org/wiki/Regula_falsi#The_Illinois_algorithm
+     * @param timeA  start of interval [s]
+     * @param valueA value at start of interval
+     * @param timeB  end of interval [s]
+     * @param valueB value at end of interval
+     * @return elapsed time of zero crossing [s]
+     */
+    private double findZeroCrossing(double timeA, double valueA, double timeB, double valueB) {
+        if (valueB == 0.0) {
+            return timeB;
+        }
+        int side = 0;
+        for (int iteration = 0; iteration < MAXITERATIONS; iteration++) {
+            if (Math.abs(timeB - timeA) <= tolerance) {
+                break;
+            }
+            double time = (timeA*valueB - timeB*valueA)/(valueB - valueA);
+            if (!(time > Math.min(timeA, timeB) && time < Math.max(timeA, timeB))) {
+                time = 0.5*(timeA + timeB);
+            }
+            double value = value(time);
+            if (value == 0.0) {
+                return time;
+            }
+            if ((value < 0.0) == (valueA < 0.0)) {
+                timeA = time;
+                valueA = value;
+                if (side == -1) {
+                    valueB *= 0.5;
+                }
+                side = -1;
+            }
+            else {
+                timeB = time;
+                valueB = value;
+                if (side == 1) {
+                    valueA *= 0.5;
+                }
+                side = 1;
+            }
+        }
+        return 0.5*(timeA + timeB);
+    }
+
+    /**
+     * Evaluate event function on interpolated state.
+     * @param time elapsed time [s]
+     * @return value of event function
+     */
+    private double value(double time) {
+        return function.value(interpolatePositions(time), interpolateVelocities(time));
+    }
+
+    /**
+     * Interpolate positions of the particles.
+     * @param time elapsed time [s]
+     * @return positions [m]
+     */
+    private Vector3D[] interpolatePositions(double time) {
+        Vector3D[] positions = new Vector3D[names.length];
+        for (int i = 0; i < names.length; i++) {
+            positions[i] = denseOutput.getPosition(names[i], time);
+        }
+        return positions;
+    }
+
+    /**
+     * Interpolate velocities of the particles.
+     * @param time elapsed time [s]
+     * @return velocities [m/s]
+     */
+    private Vector3D[] interpolateVelocities(double time) {
+        Vector3D[] velocities = new Vector3D[names.length];
+        for (int i = 0; i < names.length; i++) {
+            velocities[i] = denseOutput.getVelocity(names[i], time);
+        }
+        return velocities;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package particlesystem;
+
+import util.Vector3D;
+
+/**
+ * Cubic Hermite interpolation of the motion of a particle during a time step.
+ * Position and velocity at any time within the time step are interpolated from
+ * position and velocity at the start and at the end of the time step. Since
+ * these are known after the time step, no force evaluations are needed.
+ * https://en.wikipedia.org/wiki/Cubic_Hermite_spline
+ * @author Nico Kuijpers
+ */
+public class HermiteInterpolation {
+
+    /**
+     * Interpolate position.
+     * @param startPosition position at start of time step
+     * @param startVelocity velocity at start of time step
+     * @param endPosition   position at end of time step
+     * @param endVelocity   velocity at end of time step
+     * @param deltaT        time step [s]
+     * @param fraction      fraction of time step, 0 at the start and 1 at the end
+     * @return interpolated position
+     */
+    public static Vector3D interpolatePosition(Vector3D startPosition, Vector3D startVelocity,
+                                               Vector3D endPosition, Vector3D endVelocity,
+                                               double deltaT, double fraction) {
+        double s = fraction;
+        double s2 = s*s;
+        double s3 = s2*s;
+        double h00 = 2.0*s3 - 3.0*s2 + 1.0;
+        double h10 = (s3 - 2.0*s2 + s)*deltaT;
+        double h01 = 3.0*s2 - 2.0*s3;
+        double h11 = (s3 - s2)*deltaT;
+        Vector3D position = new Vector3D();
+        position.setScaled(startPosition, h00);
+        position.addScaled(startVelocity, h10);
+        position.addScaled(endPosition, h01);
+        position.addScaled(endVelocity, h11);
+        return position;
+    }
+
+    /**
+     * Interpolate velocity, i.e., the time derivative of the interpolated position.
+     * @param startPosition position at start of time step
+     * @param startVelocity velocity at start of time step
+     * @param endPosition   position at end of time step
+     * @param endVelocity   velocity at end of time step
+     * @param deltaT        time step [s]
+     * @param fraction      fraction of time step, 0 at the start and 1 at the end
+     * @return interpolated velocity
+     */
+    public static Vector3D interpolateVelocity(Vector3D startPosition, Vector3D startVelocity,
+                                               Vector3D endPosition, Vector3D endVelocity,
+                                               double deltaT, double fraction) {
+        double s = fraction;
+        double s2 = s*s;
+        double d00 = (6.0*s2 - 6.0*s)/deltaT;
+        double d10 = 3.0*s2 - 4.0*s + 1.0;
+        double d11 = 3.0*s2 - 2.0*s;
+        Vector3D velocity = new Vector3D();
+        velocity.setScaled(endPosition.minus(startPosition), -d00);
+        velocity.addScaled(startVelocity, d10);
+        velocity.addScaled(endVelocity, d11);
+        return velocity;
+    }
+}
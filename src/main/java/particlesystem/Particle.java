@@ -22,6 +22,7 @@ package particlesystem;
 import util.Vector3D;
 
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.Collection;
 
 /**
@@ -48,6 +49,11 @@ public class Particle implements Serializable {
     public static final double LIGHTSPEED = 299792458.0;
     public static final double LIGHTSPEEDSQUARE = LIGHTSPEED * LIGHTSPEED;
 
+    /**
+     * Number of bytes written by writeState: mass, mu, and 12 vectors.
+     */
+    static final int STATESIZE = 38*Double.BYTES;
+
     private double mass;
     private double mu;
     private Vector3D position;
@@ -70,6 +76,27 @@ public class Particle implements Serializable {
     private Vector3D[] velocityABM4 = new Vector3D[4];
     private Vector3D[] accelerationABM4 = new Vector3D[4];
 
+    // Velocity and acceleration of the seven stages of the Dormand-Prince method
+    private transient Vector3D[] velocityDP;
+    private transient Vector3D[] accelerationDP;
+
+    // Coefficients of the Dormand-Prince method
+    // https://en.wikipedia.org/wiki/Dormand%E2%80%93Prince_method
+    // Row s contains the coefficients to compute the state of stage s;
+    // the last row contains the coefficients of the fifth-order solution
+    private static final double[][] dormandPrinceA = {
+            {},
+            {1.0/5.0},
+            {3.0/40.0, 9.0/40.0},
+            {44.0/45.0, -56.0/15.0, 32.0/9.0},
+            {19372.0/6561.0, -25360.0/2187.0, 64448.0/6561.0, -212.0/729.0},
+            {9017.0/3168.0, -355.0/33.0, 46732.0/5247.0, 49.0/176.0, -5103.0/18656.0},
+            {35.0/384.0, 0.0, 500.0/1113.0, 125.0/192.0, -2187.0/6784.0, 11.0/84.0}};
+
+    // Difference between coefficients of the fifth-order and fourth-order solution
+    private static final double[] dormandPrinceE =
+            {71.0/57600.0, 0.0, -71.0/16695.0, 71.0/1920.0, -17253.0/339200.0, 22.0/525.0, -1.0/40.0};
+
     /**
      * Default constructor.
      */
@@ -80,6 +107,11 @@ public class Particle implements Serializable {
         this.velocity = new Vector3D();
     }
 
+    /*
+     * Note that a particle owns its position and velocity vectors. Given vectors
+     * are copied and the state is updated in place during each time step.
+     */
+
     /**
      * Constructor when standard gravitational parameter is not known.
      * @param mass      mass in kg
@@ -89,8 +121,8 @@ public class Particle implements Serializable {
     public Particle(double mass, Vector3D position, Vector3D velocity) {
         this.mass = mass;
         this.mu = GRAVITATIONALCONSTANT * mass;
-        this.position = position;
-        this.velocity = velocity;
+        this.position = new Vector3D(position);
+        this.velocity = new Vector3D(velocity);
     }
 
     /**
@@ -103,8 +135,8 @@ public class Particle implements Serializable {
     public Particle(double mass, double mu, Vector3D position, Vector3D velocity) {
         this.mass = mass;
         this.mu = mu;
-        this.position = position;
-        this.velocity = velocity;
+        this.position = new Vector3D(position);
+        this.velocity = new Vector3D(velocity);
     }
 
     /**
@@ -153,10 +185,11 @@ public class Particle implements Serializable {
 
     /**
      * Set position of particle in m.
+     * The position is copied.
      * @param position in m
      */
     public void setPosition(Vector3D position) {
-        this.position = position;
+        this.position.set(position);
     }
 
     /**
@@ -169,10 +202,20 @@ public class Particle implements Serializable {
 
     /**
      * Set velocity of particle in m/s.
+     * The velocity is copied.
      * @param velocity in m/s
      */
     public void setVelocity(Vector3D velocity) {
-        this.velocity = velocity;
+        this.velocity.set(velocity);
+    }
+
+    /**
+     * Get acceleration of particle in m/s2 as computed
+     * by the last evaluation of the acceleration.
+     * @return acceleration
+     */
+    public Vector3D getAcceleration() {
+        return acceleration;
     }
 
     /**
@@ -184,6 +227,46 @@ public class Particle implements Serializable {
         this.acceleration.addVector(acc);
     }
 
+    /**
+     * Set position, velocity, acceleration, and potential energy of particle.
+     * Used by ParticleStateArrays to write back the state.
+     * @param position        interleaved positions in m
+     * @param velocity        interleaved velocities in m/s
+     * @param acceleration    interleaved accelerations in m/s2
+     * @param potentialEnergy potential energy in J
+     * @param id              id of this particle in the arrays
+     */
+    void setState(double[] position, double[] velocity, double[] acceleration,
+                  double potentialEnergy, int id) {
+        this.position.set(position[3*id], position[3*id+1], position[3*id+2]);
+        this.velocity.set(velocity[3*id], velocity[3*id+1], velocity[3*id+2]);
+        this.acceleration.set(acceleration[3*id], acceleration[3*id+1], acceleration[3*id+2]);
+        this.potentialEnergy = potentialEnergy;
+    }
+
+    /**
+     * Set acceleration computed by Newton Mechanics and potential energy of particle.
+     * Used by ParticleStateArrays to write back the result of the force evaluation.
+     * @param acceleration    interleaved accelerations in m/s2
+     * @param potentialEnergy potential energy in J
+     * @param id              id of this particle in the arrays
+     */
+    void setAccelerationNewtonMechanics(double[] acceleration, double potentialEnergy, int id) {
+        this.acceleration.set(acceleration[3*id], acceleration[3*id+1], acceleration[3*id+2]);
+        this.accelerationNewtonMechanics.set(this.acceleration);
+        this.potentialEnergy = potentialEnergy;
+    }
+
+    /**
+     * Indicates whether the particle applies force as a point mass.
+     * Particles that are not point masses compute the acceleration applied to
+     * another particle by accelerationNewtonMechanics(Vector3D,Vector3D).
+     * @return true when particle is a point mass, false otherwise
+     */
+    protected boolean isPointMass() {
+        return true;
+    }
+
     /**
      * Get momentum of particle in kg m/s.
      * Momentum p is defined by p = m * v, where m is mass
@@ -220,8 +303,8 @@ public class Particle implements Serializable {
      * @param driftVelocity  drift in velocity to correct for
      */
     public void correctDrift(Vector3D driftPosition, Vector3D driftVelocity) {
-        position = position.minus(driftPosition);
-        velocity = velocity.minus(driftVelocity);
+        position.subtractVector(driftPosition);
+        velocity.subtractVector(driftVelocity);
     }
 
     /**
@@ -230,7 +313,7 @@ public class Particle implements Serializable {
      */
     public void adjustKineticEnergy(double factor) {
         // Ekin = 0.5 * mass * v*v
-        velocity = velocity.scalarProduct(Math.sqrt(factor));
+        velocity.setScaled(velocity, Math.sqrt(factor));
     }
 
     /**
@@ -240,18 +323,47 @@ public class Particle implements Serializable {
      * @param particles all particles
      */
     public void computeAccelerationNewtonMechanics(Collection<Particle> particles) {
-        acceleration = new Vector3D();
+        double ax = 0.0;
+        double ay = 0.0;
+        double az = 0.0;
         potentialEnergy = 0.0;
         for (Particle p : particles) {
             if (p != this) {
-                // Add acceleration from other particle
-                Vector3D accelerationFromParticle = p.accelerationNewtonMechanics(this);
-                acceleration.addVector(accelerationFromParticle);
+                if (p.isPointMass()) {
+                    // Add acceleration from other particle without creating new vectors
+                    // Same result as p.accelerationNewtonMechanics(this)
+                    double dx = p.position.getX() - position.getX();
+                    double dy = p.position.getY() - position.getY();
+                    double dz = p.position.getZ() - position.getZ();
+                    double distanceSquare = dx*dx + dy*dy + dz*dz;
+                    double distance = Math.sqrt(distanceSquare);
+                    // Zero vector when particles coincide, as by Vector3D.normalize()
+                    double ux = 0.0;
+                    double uy = 0.0;
+                    double uz = 0.0;
+                    if (distance > 0.0) {
+                        ux = dx/distance;
+                        uy = dy/distance;
+                        uz = dz/distance;
+                    }
+                    double accelerationMagnitude = p.mu/distanceSquare;
+                    ax += ux*accelerationMagnitude;
+                    ay += uy*accelerationMagnitude;
+                    az += uz*accelerationMagnitude;
+                }
+                else {
+                    // Add acceleration from other particle
+                    Vector3D accelerationFromParticle = p.accelerationNewtonMechanics(this);
+                    ax += accelerationFromParticle.getX();
+                    ay += accelerationFromParticle.getY();
+                    az += accelerationFromParticle.getZ();
+                }
 
                 // Add contribution to potential energy
                 potentialEnergy += potentialEngergy(p);
             }
         }
+        acceleration.set(ax, ay, az);
 
         // Every pair of particles is counted twice, so divide by 2
         potentialEnergy = 0.5 * potentialEnergy;
@@ -259,7 +371,7 @@ public class Particle implements Serializable {
         // Set acceleration computed by Newton Mechanics
         // such that it can be used to compute acceleration by
         // General Relativity or Curvature of Wave Propagation Method
-        accelerationNewtonMechanics = new Vector3D(acceleration);
+        accelerationNewtonMechanics.set(acceleration);
     }
 
     /**
@@ -348,6 +460,88 @@ public class Particle implements Serializable {
      * @param particles all particles
      */
     public void computeAccelerationGeneralRelativity(Collection<Particle> particles) {
+        Particle[] particleArray = particles.toArray(new Particle[0]);
+        double[] distances = new double[particleArray.length];
+        for (int j = 0; j < particleArray.length; j++) {
+            distances[j] = this.position.euclideanDistance(particleArray[j].position);
+        }
+        double[] sumMuDivDistance = computeSumMuDivDistance(particleArray, computeDistances(particleArray));
+        computeAccelerationGeneralRelativity(particleArray, distances, sumMuDivDistance);
+    }
+
+    /**
+     * Compute Euclidean distance between each pair of particles.
+     * Distance between each pair is computed only once.
+     * @param particles particles
+     * @return matrix of distances, distances[i][j] = r_ij
+     */
+    public static double[][] computeDistances(Particle[] particles) {
+        double[][] distances = new double[particles.length][particles.length];
+        computeDistances(particles, distances);
+        return distances;
+    }
+
+    /**
+     * Compute Euclidean distance between each pair of particles.
+     * Distance between each pair is computed only once.
+     * @param particles particles
+     * @param distances matrix to store distances, distances[i][j] = r_ij
+     */
+    public static void computeDistances(Particle[] particles, double[][] distances) {
+        for (int i = 0; i < particles.length; i++) {
+            distances[i][i] = 0.0;
+            for (int j = i + 1; j < particles.length; j++) {
+                // Note that r_ij and r_ji are equal
+                double distance = particles[i].position.euclideanDistance(particles[j].position);
+                distances[i][j] = distance;
+                distances[j][i] = distance;
+            }
+        }
+    }
+
+    /**
+     * Compute (Sum C : C != B : GM_C / r_BC) for each particle B.
+     * @param particles particles
+     * @param distances matrix of distances, distances[i][j] = r_ij
+     * @return sum for each particle
+     */
+    public static double[] computeSumMuDivDistance(Particle[] particles, double[][] distances) {
+        double[] sumMuDivDistance = new double[particles.length];
+        computeSumMuDivDistance(particles, distances, sumMuDivDistance);
+        return sumMuDivDistance;
+    }
+
+    /**
+     * Compute (Sum C : C != B : GM_C / r_BC) for each particle B.
+     * @param particles particles
+     * @param distances matrix of distances, distances[i][j] = r_ij
+     * @param sumMuDivDistance array to store sum for each particle
+     */
+    public static void computeSumMuDivDistance(Particle[] particles, double[][] distances, double[] sumMuDivDistance) {
+        for (int b = 0; b < particles.length; b++) {
+            double sum = 0.0;
+            for (int c = 0; c < particles.length; c++) {
+                if (particles[c] != particles[b]) {
+                    sum = sum + particles[c].mu/distances[b][c];
+                }
+            }
+            sumMuDivDistance[b] = sum;
+        }
+    }
+
+    /**
+     * Compute total acceleration applied to this particle using
+     * General Relativity.
+     * Distances and potential sums are computed once per time step
+     * by the caller, such that computational cost is O(N) per particle.
+     * Note that the acceleration computed using Newton Mechanics
+     * is used to compute acceleration using General Relativity.
+     * @param particles        all particles
+     * @param distances        distance between this particle and each particle
+     * @param sumMuDivDistance (Sum C : C != B : GM_C / r_BC) for each particle B
+     */
+    public void computeAccelerationGeneralRelativity(Particle[] particles, double[] distances,
+                                                     double[] sumMuDivDistance) {
         /*
          * The gravitational acceleration of each body due to external
          * point masses is derived from the isotropic, parameterized
@@ -385,37 +579,37 @@ public class Particle implements Serializable {
         // diffPositionAB = vec_r_A - vec_r_B = difference between (x,y,z) position A and (x,y,z) position B
         // diffVelocityAB = vec_v_A - vec_v_B = difference between (x,y,z) velocity A and (x,y,z) velocity B
 
-        // Compute first term of Equation (27)
+        // sumCnotA = (Sum C : C != A : GM_C / r_AC)
+        double sumCnotA = 0.0;
+        for (int c = 0; c < particles.length; c++) {
+            if (particles[c] != this) {
+                sumCnotA = sumCnotA + particles[c].mu/distances[c];
+            }
+        }
+
+        // vAdivc = v_A/c
+        double vAdivc = this.velocity.magnitude()/LIGHTSPEED;
+
+        // Compute first, second, and third term of Equation (27)
         Vector3D firstTermVector = new Vector3D();
-        for (Particle p : particles) {
+        Vector3D secondTermVector = new Vector3D();
+        Vector3D thirdTermVector = new Vector3D();
+        for (int b = 0; b < particles.length; b++) {
+            Particle p = particles[b];
             if (p != this) {
                 // distAB = r_AB = Euclidean distance between A and B
-                double distAB = this.position.euclideanDistance(p.position);
+                double distAB = distances[b];
 
+                // diffPositionAB = vec_r_A - vec_r_B
+                Vector3D diffPositionAB = this.position.minus(p.position);
+
+                // First term
                 // accelerationFromParticle = GM_B (vec_r_B - vec_r_A) / r_AB^3
                 // Use perturbation forces from zonal coefficients for oblate planet
                 Vector3D accelerationFromParticle = new Vector3D(p.accelerationNewtonMechanics(this));
 
-                // sumCnotA = (Sum C : C != A : GM_C / r_AC)
-                double sumCnotA = 0.0;
-                for (Particle q : particles) {
-                    if (q != this) {
-                        double distAC = this.position.euclideanDistance(q.position);
-                        sumCnotA = sumCnotA + q.mu/distAC;
-                    }
-                }
-
                 // sumCnotB = (Sum C : C != B : GM_C / r_BC)
-                double sumCnotB = 0.0;
-                for (Particle q : particles) {
-                    if (q != p) {
-                        double distBC = p.position.euclideanDistance(q.position);
-                        sumCnotB = sumCnotB + q.mu/distBC;
-                    }
-                }
-
-                // vAdivc = v_A/c
-                double vAdivc = this.velocity.magnitude()/LIGHTSPEED;
+                double sumCnotB = sumMuDivDistance[b];
 
                 // vBdivc = v_B/c
                 double vBdivc = p.velocity.magnitude()/LIGHTSPEED;
@@ -423,9 +617,6 @@ public class Particle implements Serializable {
                 // vAdotvB = vec_v_A . vec_v_B (= vector dot product of v_A and v_B)
                 double vAdotvB = this.velocity.dotProduct(p.velocity);
 
-                // diffPositionAB = vec_r_A - vec_r_B
-                Vector3D diffPositionAB = this.position.minus(p.position);
-
                 // diffPositionBA = vec_r_B - vec_r_A
                 Vector3D diffPositionBA = p.position.minus(this.position);
 
@@ -449,22 +640,11 @@ public class Particle implements Serializable {
 
                 // Add accelerationFromParticle * factorCurlyBraces to the first term
                 firstTermVector.addVector(accelerationFromParticle.scalarProduct(factorCurlyBraces));
-            }
-        }
-
-        // Compute second term of Equation (27)
-        Vector3D secondTermVector = new Vector3D();
-        for (Particle p : particles) {
-            if (p != this) {
-                // distAB = r_AB = Euclidean distance between A and B
-                double distAB = this.position.euclideanDistance(p.position);
 
+                // Second term
                 // factor = GM_B / r_AB^3
                 double factor = p.mu/(distAB*distAB*distAB);
 
-                // diffPositionAB = vec_r_A - vec_r_B
-                Vector3D diffPositionAB = this.position.minus(p.position);
-
                 // vAgamma = (2 + 2*gamma)*vec_v_A
                 Vector3D vAgamma = this.velocity.scalarProduct(2.0 + 2.0*gamma);
 
@@ -482,6 +662,11 @@ public class Particle implements Serializable {
 
                 // Add factor * dotProduct * (vec_v_A - vec_v_B) to the second term
                 secondTermVector.addVector(diffVelocityAB.scalarProduct(factor*dotProduct));
+
+                // Third term
+                // Add (GM_B / r_AB) * vec_a_B to the third term
+                // Use acceleration computed using Newton Mechanics
+                thirdTermVector.addVector(p.accelerationNewtonMechanics.scalarProduct(p.mu/distAB));
             }
         }
 
@@ -489,22 +674,6 @@ public class Particle implements Serializable {
         double secondTermFactor = 1.0/(LIGHTSPEED*LIGHTSPEED);
         secondTermVector = secondTermVector.scalarProduct(secondTermFactor);
 
-        // Compute third term of Equation (27)
-        Vector3D thirdTermVector = new Vector3D();
-        for (Particle p : particles) {
-            if (p != this) {
-                // distAB = r_AB = Euclidean distance between A and B
-                double distAB = this.position.euclideanDistance(p.position);
-
-                // factor = GM_B / r_AB
-                double factor = p.mu/distAB;
-
-                // Add (GM_B / r_AB) * vec_a_B to the third term
-                // Use acceleration computed using Newton Mechanics
-                thirdTermVector.addVector(p.accelerationNewtonMechanics.scalarProduct(factor));
-            }
-        }
-
         // Multiply third term vector with (3 + 4*gamma)/(2*c^2)
         double thirdTermFactor = (3.0 + 4.0*gamma) / (2*LIGHTSPEED*LIGHTSPEED);
         thirdTermVector = thirdTermVector.scalarProduct(thirdTermFactor);
@@ -524,7 +693,7 @@ public class Particle implements Serializable {
         // http://physics.bu.edu/py502/lectures3/cmotion.pdf
         // Compute velocity v(-1/2) at time -0.5 * deltaT
         // v(-1/2) = v(0) - 0.5 * deltaT * a(0)
-        velocity = velocity.minus(acceleration.scalarProduct(0.5*deltaT));
+        velocity.addScaled(acceleration, -0.5*deltaT);
     }
 
     /**
@@ -535,10 +704,103 @@ public class Particle implements Serializable {
         // http://physics.bu.edu/py502/lectures3/cmotion.pdf
         // Compute velocity v(n+1/2)
         // v(n+1/2) = v(n-1/2) + deltaT * a(n)
-        velocity.addVector(acceleration.scalarProduct(deltaT));
+        velocity.addScaled(acceleration, deltaT);
         // Compute position p(n+1)
         // p(n+1) = p(n) + deltaT * v(n+1/2)
-        position.addVector(velocity.scalarProduct(deltaT));
+        position.addScaled(velocity, deltaT);
+    }
+
+    /**
+     * Write mass, standard gravitational parameter, position, velocity, and the
+     * state of the four-step Adams-Bashforth-Moulton method to buffer.
+     * Vectors that have not been allocated yet are written as zero vectors.
+     * @param buffer buffer with at least STATESIZE bytes remaining
+     */
+    void writeState(ByteBuffer buffer) {
+        buffer.putDouble(mass);
+        buffer.putDouble(mu);
+        putVector(buffer, position);
+        putVector(buffer, velocity);
+        putVector(buffer, formerPosition);
+        putVector(buffer, formerVelocity);
+        for (int i = 0; i < 4; i++) {
+            putVector(buffer, velocityABM4[i]);
+            putVector(buffer, accelerationABM4[i]);
+        }
+    }
+
+    /**
+     * Read state written by writeState from buffer.
+     * @param buffer buffer with at least STATESIZE bytes remaining
+     */
+    void readState(ByteBuffer buffer) {
+        initIntegrationBuffers();
+        mass = buffer.getDouble();
+        mu = buffer.getDouble();
+        getVector(buffer, position);
+        getVector(buffer, velocity);
+        getVector(buffer, formerPosition);
+        getVector(buffer, formerVelocity);
+        for (int i = 0; i < 4; i++) {
+            getVector(buffer, velocityABM4[i]);
+            getVector(buffer, accelerationABM4[i]);
+        }
+    }
+
+    /**
+     * Write x, y, and z of vector to buffer.
+     * @param buffer buffer
+     * @param vector vector or null for zero vector
+     */
+    private static void putVector(ByteBuffer buffer, Vector3D vector) {
+        if (vector == null) {
+            vector = new Vector3D();
+        }
+        buffer.putDouble(vector.getX());
+        buffer.putDouble(vector.getY());
+        buffer.putDouble(vector.getZ());
+    }
+
+    /**
+     * Read x, y, and z from buffer into vector.
+     * @param buffer buffer
+     * @param vector vector to be set
+     */
+    private static void getVector(ByteBuffer buffer, Vector3D vector) {
+        double x = buffer.getDouble();
+        double y = buffer.getDouble();
+        double z = buffer.getDouble();
+        vector.set(x, y, z);
+    }
+
+    /**
+     * Allocate buffers for Runge-Kutta method, four-step Adams-Bashforth-Moulton method,
+     * and Dormand-Prince method.
+     * Buffers are allocated once and reused for every time step.
+     */
+    private void initIntegrationBuffers() {
+        if (formerPosition == null) {
+            formerPosition = new Vector3D();
+            formerVelocity = new Vector3D();
+        }
+        if (k1 == null) {
+            k1 = new Vector3D(); k2 = new Vector3D(); k3 = new Vector3D(); k4 = new Vector3D();
+            l1 = new Vector3D(); l2 = new Vector3D(); l3 = new Vector3D(); l4 = new Vector3D();
+        }
+        for (int i = 0; i < 4; i++) {
+            if (velocityABM4[i] == null) {
+                velocityABM4[i] = new Vector3D();
+                accelerationABM4[i] = new Vector3D();
+            }
+        }
+        if (velocityDP == null) {
+            velocityDP = new Vector3D[7];
+            accelerationDP = new Vector3D[7];
+            for (int i = 0; i < 7; i++) {
+                velocityDP[i] = new Vector3D();
+                accelerationDP[i] = new Vector3D();
+            }
+        }
     }
 
     /**
@@ -549,15 +811,16 @@ public class Particle implements Serializable {
     public void updateStateRungeKuttaA(double deltaT) {
         // http://physics.bu.edu/py502/lectures3/cmotion.pdf
         // Store position and velocity of current simulation time
-        formerPosition = new Vector3D(position);
-        formerVelocity = new Vector3D(velocity);
+        initIntegrationBuffers();
+        formerPosition.set(position);
+        formerVelocity.set(velocity);
         // Compute k1 and l1 for Runge-Kutta method
-        k1 = acceleration.scalarProduct(deltaT);
-        l1 = formerVelocity.scalarProduct(deltaT);
+        k1.setScaled(acceleration, deltaT);
+        l1.setScaled(formerVelocity, deltaT);
         // Set velocity for General Relativity step B
-        velocity = formerVelocity.plus(k1.scalarProduct(0.5));
+        velocity.setAddScaled(formerVelocity, k1, 0.5);
         // Set position to compute forces for RK step B
-        position = formerPosition.plus(l1.scalarProduct(0.5));
+        position.setAddScaled(formerPosition, l1, 0.5);
     }
 
     /**
@@ -568,12 +831,13 @@ public class Particle implements Serializable {
     public void updateStateRungeKuttaB(double deltaT) {
         // http://physics.bu.edu/py502/lectures3/cmotion.pdf
         // Compute k2 and l2 for Runge-Kutta method
-        k2 = acceleration.scalarProduct(deltaT);
-        l2 = (formerVelocity.plus(k1.scalarProduct(0.5))).scalarProduct(deltaT);
+        k2.setScaled(acceleration, deltaT);
+        l2.setAddScaled(formerVelocity, k1, 0.5);
+        l2.setScaled(l2, deltaT);
         // Set velocity for General Relativity step C
-        velocity = formerVelocity.plus(k2.scalarProduct(0.5));
+        velocity.setAddScaled(formerVelocity, k2, 0.5);
         // Set position to compute forces for RK step C
-        position = formerPosition.plus(l2.scalarProduct(0.5));
+        position.setAddScaled(formerPosition, l2, 0.5);
     }
 
     /**
@@ -584,12 +848,15 @@ public class Particle implements Serializable {
     public void updateStateRungeKuttaC(double deltaT) {
         // http://physics.bu.edu/py502/lectures3/cmotion.pdf
         // Compute k3 and l3 for Runge-Kutta method
-        k3 = acceleration.scalarProduct(deltaT);
-        l3 = (formerVelocity.plus(k2.scalarProduct(0.5))).scalarProduct(deltaT);
+        k3.setScaled(acceleration, deltaT);
+        l3.setAddScaled(formerVelocity, k2, 0.5);
+        l3.setScaled(l3, deltaT);
         // Set velocity for General Relativity step D
-        velocity = formerVelocity.plus(k3);
+        velocity.set(formerVelocity);
+        velocity.addVector(k3);
         // Set position to compute forces for RK step D
-        position = formerPosition.plus(l3);
+        position.set(formerPosition);
+        position.addVector(l3);
     }
 
     /**
@@ -600,24 +867,137 @@ public class Particle implements Serializable {
     public void updateStateRungeKuttaD(double deltaT) {
         // http://physics.bu.edu/py502/lectures3/cmotion.pdf
         // Compute k4 and l4 for Runge-Kutta method
-        k4 = acceleration.scalarProduct(deltaT);
-        l4 = (formerVelocity.plus(k3)).scalarProduct(deltaT);
+        k4.setScaled(acceleration, deltaT);
+        l4.set(formerVelocity);
+        l4.addVector(k3);
+        l4.setScaled(l4, deltaT);
         // Compute new velocity using k1, k2, k3, k4
-        velocity = new Vector3D(formerVelocity);
-        Vector3D velocityTerm = new Vector3D();
-        velocityTerm.addVector(k1);
-        velocityTerm.addVector(k2.scalarProduct(2.0));
-        velocityTerm.addVector(k3.scalarProduct(2.0));
-        velocityTerm.addVector(k4);
-        velocity.addVector(velocityTerm.scalarProduct(1.0/6.0));
+        // velocity = formerVelocity + (k1 + 2*k2 + 2*k3 + k4)/6
+        velocity.set(k1);
+        velocity.addScaled(k2, 2.0);
+        velocity.addScaled(k3, 2.0);
+        velocity.addVector(k4);
+        velocity.setAddScaled(formerVelocity, velocity, 1.0/6.0);
         // Compute new position using l1, l2, l3, l4
-        position = new Vector3D(formerPosition);
-        Vector3D positionTerm = new Vector3D();
-        positionTerm.addVector(l1);
-        positionTerm.addVector(l2.scalarProduct(2.0));
-        positionTerm.addVector(l3.scalarProduct(2.0));
-        positionTerm.addVector(l4);
-        position.addVector(positionTerm.scalarProduct(1.0/6.0));
+        // position = formerPosition + (l1 + 2*l2 + 2*l3 + l4)/6
+        position.set(l1);
+        position.addScaled(l2, 2.0);
+        position.addScaled(l3, 2.0);
+        position.addVector(l4);
+        position.setAddScaled(formerPosition, position, 1.0/6.0);
+    }
+
+    /**
+     * Dormand-Prince method. Store position and velocity of current simulation
+     * time and store velocity and acceleration of the first stage.
+     * Acceleration should be computed for the current state.
+     */
+    public void initStateDormandPrince() {
+        initIntegrationBuffers();
+        formerPosition.set(position);
+        formerVelocity.set(velocity);
+        storeStateDormandPrince(0);
+    }
+
+    /**
+     * Dormand-Prince method. Set velocity and position to compute
+     * acceleration for given stage. Stage 6 sets the fifth-order solution.
+     * @param deltaT time step in s
+     * @param stage  stage, 1 <= stage < 7
+     */
+    public void updateStateDormandPrince(double deltaT, int stage) {
+        double[] a = dormandPrinceA[stage];
+        velocity.set(formerVelocity);
+        position.set(formerPosition);
+        for (int j = 0; j < stage; j++) {
+            velocity.addScaled(accelerationDP[j], deltaT*a[j]);
+            position.addScaled(velocityDP[j], deltaT*a[j]);
+        }
+    }
+
+    /**
+     * Dormand-Prince method. Store velocity and acceleration of given stage.
+     * @param stage stage, 0 <= stage < 7
+     */
+    public void storeStateDormandPrince(int stage) {
+        velocityDP[stage].set(velocity);
+        accelerationDP[stage].set(acceleration);
+    }
+
+    /**
+     * Dormand-Prince method. Estimate the error of the fifth-order solution.
+     * The error of each component of position and velocity is scaled by
+     * absoluteTolerance + relativeTolerance * |component|, where the largest
+     * magnitude of the component at start and end of the step is used.
+     * @param deltaT                    time step in s
+     * @param relativeTolerance         relative tolerance
+     * @param absoluteTolerancePosition absolute tolerance of position in m
+     * @param absoluteToleranceVelocity absolute tolerance of velocity in m/s
+     * @return largest scaled error; at most 1 when the error is within tolerance
+     */
+    public double errorDormandPrince(double deltaT, double relativeTolerance,
+                                     double absoluteTolerancePosition, double absoluteToleranceVelocity) {
+        double error = 0.0;
+        error = Math.max(error, errorDormandPrince(velocityDP, deltaT, position, formerPosition,
+                relativeTolerance, absoluteTolerancePosition));
+        error = Math.max(error, errorDormandPrince(accelerationDP, deltaT, velocity, formerVelocity,
+                relativeTolerance, absoluteToleranceVelocity));
+        return error;
+    }
+
+    /**
+     * Dormand-Prince method. Estimate error from the derivatives of the stages.
+     * @param derivatives       velocity or acceleration of the stages
+     * @param deltaT            time step in s
+     * @param state             position or velocity at the end of the step
+     * @param formerState       position or velocity at the start of the step
+     * @param relativeTolerance relative tolerance
+     * @param absoluteTolerance absolute tolerance
+     * @return largest scaled error of the components
+     */
+    private static double errorDormandPrince(Vector3D[] derivatives, double deltaT, Vector3D state,
+                                             Vector3D formerState, double relativeTolerance,
+                                             double absoluteTolerance) {
+        double errorX = 0.0;
+        double errorY = 0.0;
+        double errorZ = 0.0;
+        for (int j = 0; j < 7; j++) {
+            errorX += dormandPrinceE[j] * derivatives[j].getX();
+            errorY += dormandPrinceE[j] * derivatives[j].getY();
+            errorZ += dormandPrinceE[j] * derivatives[j].getZ();
+        }
+        double scaleX = absoluteTolerance + relativeTolerance *
+                Math.max(Math.abs(state.getX()), Math.abs(formerState.getX()));
+        double scaleY = absoluteTolerance + relativeTolerance *
+                Math.max(Math.abs(state.getY()), Math.abs(formerState.getY()));
+        double scaleZ = absoluteTolerance + relativeTolerance *
+                Math.max(Math.abs(state.getZ()), Math.abs(formerState.getZ()));
+        double error = Math.max(Math.abs(errorX) / scaleX, Math.abs(errorY) / scaleY);
+        return Math.abs(deltaT) * Math.max(error, Math.abs(errorZ) / scaleZ);
+    }
+
+    /**
+     * Dormand-Prince method. Accept the fifth-order solution. The last stage is
+     * evaluated at the new state and is used as first stage of the next step.
+     */
+    public void acceptStepDormandPrince() {
+        formerPosition.set(position);
+        formerVelocity.set(velocity);
+        Vector3D velocityFirstStage = velocityDP[0];
+        Vector3D accelerationFirstStage = accelerationDP[0];
+        velocityDP[0] = velocityDP[6];
+        accelerationDP[0] = accelerationDP[6];
+        velocityDP[6] = velocityFirstStage;
+        accelerationDP[6] = accelerationFirstStage;
+    }
+
+    /**
+     * Dormand-Prince method. Reject the step and restore position
+     * and velocity of the start of the step.
+     */
+    public void rejectStepDormandPrince() {
+        position.set(formerPosition);
+        velocity.set(formerVelocity);
     }
 
     /**
@@ -626,8 +1006,9 @@ public class Particle implements Serializable {
      * @param index index in cyclic arrays, 0 <= index < 4
      */
     public void storeVelocityAccelerationABM4(int index) {
-        velocityABM4[index] = new Vector3D(velocity);
-        accelerationABM4[index] = new Vector3D(acceleration);
+        initIntegrationBuffers();
+        velocityABM4[index].set(velocity);
+        accelerationABM4[index].set(acceleration);
     }
 
     /**
@@ -637,8 +1018,9 @@ public class Particle implements Serializable {
      */
     public void updateStateABM4Predictor(double deltaT, int index) {
         // Store position and velocity of current simulation time
-        formerPosition = new Vector3D(position);
-        formerVelocity = new Vector3D(velocity);
+        initIntegrationBuffers();
+        formerPosition.set(position);
+        formerVelocity.set(velocity);
 
         /*
          * Predictor step of four-step Adams-Bashforth-Moulton method
@@ -648,21 +1030,21 @@ public class Particle implements Serializable {
          * where h is time step and f(t_n,y_n) is velocity/acceleration at time step n
          */
         int i = index;
-        position.addVector(velocityABM4[i].scalarProduct(55.0*deltaT/24.0));
+        position.addScaled(velocityABM4[i], 55.0*deltaT/24.0);
         i = (i + 3) % 4;
-        position.addVector(velocityABM4[i].scalarProduct(-59.0*deltaT/24.0));
+        position.addScaled(velocityABM4[i], -59.0*deltaT/24.0);
         i = (i + 3) % 4;
-        position.addVector(velocityABM4[i].scalarProduct(37.0*deltaT/24.0));
+        position.addScaled(velocityABM4[i], 37.0*deltaT/24.0);
         i = (i + 3) % 4;
-        position.addVector(velocityABM4[i].scalarProduct(-9.0*deltaT/24.0));
+        position.addScaled(velocityABM4[i], -9.0*deltaT/24.0);
         i = index;
-        velocity.addVector(accelerationABM4[i].scalarProduct(55.0*deltaT/24.0));
+        velocity.addScaled(accelerationABM4[i], 55.0*deltaT/24.0);
         i = (i + 3) % 4;
-        velocity.addVector(accelerationABM4[i].scalarProduct(-59.0*deltaT/24.0));
+        velocity.addScaled(accelerationABM4[i], -59.0*deltaT/24.0);
         i = (i + 3) % 4;
-        velocity.addVector(accelerationABM4[i].scalarProduct(37.0*deltaT/24.0));
+        velocity.addScaled(accelerationABM4[i], 37.0*deltaT/24.0);
         i = (i + 3) % 4;
-        velocity.addVector(accelerationABM4[i].scalarProduct(-9.0*deltaT/24.0));
+        velocity.addScaled(accelerationABM4[i], -9.0*deltaT/24.0);
     }
 
     /**
@@ -679,23 +1061,23 @@ public class Particle implements Serializable {
          * where h is time step and f(t_n,y_n) is velocity/acceleration at time step n
          */
         int i = index;
-        position = new Vector3D(formerPosition);
-        position.addVector(velocityABM4[i].scalarProduct(9.0*deltaT/24.0));
+        position.set(formerPosition);
+        position.addScaled(velocityABM4[i], 9.0*deltaT/24.0);
         i = (i + 3) % 4;
-        position.addVector(velocityABM4[i].scalarProduct(19.0*deltaT/24.0));
+        position.addScaled(velocityABM4[i], 19.0*deltaT/24.0);
         i = (i + 3) % 4;
-        position.addVector(velocityABM4[i].scalarProduct(-5.0*deltaT/24.0));
+        position.addScaled(velocityABM4[i], -5.0*deltaT/24.0);
         i = (i + 3) % 4;
-        position.addVector(velocityABM4[i].scalarProduct(deltaT/24.0));
+        position.addScaled(velocityABM4[i], deltaT/24.0);
         i = index;
-        velocity = new Vector3D(formerVelocity);
-        velocity.addVector(accelerationABM4[i].scalarProduct(9.0*deltaT/24.0));
+        velocity.set(formerVelocity);
+        velocity.addScaled(accelerationABM4[i], 9.0*deltaT/24.0);
         i = (i + 3) % 4;
-        velocity.addVector(accelerationABM4[i].scalarProduct(19.0*deltaT/24.0));
+        velocity.addScaled(accelerationABM4[i], 19.0*deltaT/24.0);
         i = (i + 3) % 4;
-        velocity.addVector(accelerationABM4[i].scalarProduct(-5.0*deltaT/24.0));
+        velocity.addScaled(accelerationABM4[i], -5.0*deltaT/24.0);
         i = (i + 3) % 4;
-        velocity.addVector(accelerationABM4[i].scalarProduct(deltaT/24.0));
+        velocity.addScaled(accelerationABM4[i], deltaT/24.0);
     }
 
     /**
@@ -705,6 +1087,17 @@ public class Particle implements Serializable {
      * @return acceleration in m/s2
      */
     protected Vector3D accelerationNewtonMechanics(Particle p) {
+        return accelerationNewtonMechanics(this.position, p.position);
+    }
+
+    /**
+     * Compute acceleration applied by this particle to another particle
+     * using Newton Mechanics, where both particles are at given positions.
+     * @param positionThis  position of this particle in m
+     * @param positionOther position of other particle in m
+     * @return acceleration in m/s2
+     */
+    protected Vector3D accelerationNewtonMechanics(Vector3D positionThis, Vector3D positionOther) {
 
         /*
          * Gravitational force = (G*M*m)/r2 = (mu*m)/r2, where
@@ -715,13 +1108,13 @@ public class Particle implements Serializable {
          */
 
         // Square of distance r2
-        double distanceSquare = position.euclideanDistanceSquare(p.position);
+        double distanceSquare = positionThis.euclideanDistanceSquare(positionOther);
 
         // Magnitude of acceleration = mu/r2
         double accelerationMagnitude = this.mu/distanceSquare;
 
         // Direction of gravitational force
-        Vector3D direction = (p.position).direction(this.position);
+        Vector3D direction = positionOther.direction(positionThis);
 
         // Acceleration
         return direction.scalarProduct(accelerationMagnitude);
@@ -21,8 +21,16 @@ package particlesystem;
 
 import util.Vector3D;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -40,6 +48,26 @@ public class ParticleSystem implements Serializable {
     private int nrValidABM4 = 0;       // Number of valid values in cyclic arrays
     private int indexABM4 = 0;         // Index in cyclic arrays
 
+    // Dormand-Prince method with adaptive step size
+    private double toleranceDP = 1.0E-12; // Relative tolerance of the local error
+    private double stepSizeDP = 0.0;      // Step size for next step, 0 when unknown
+
+    // Minimum step size for Dormand-Prince method [s]
+    private static final double MINIMUMSTEPSIZEDP = 1.0E-3;
+
+    // Absolute tolerance of the local error in position [m] and velocity [m/s]
+    // for Dormand-Prince method, such that components close to zero do not
+    // require small steps
+    private static final double ABSOLUTETOLERANCEPOSITIONDP = 1.0E-3;
+    private static final double ABSOLUTETOLERANCEVELOCITYDP = 1.0E-9;
+
+    // Hermite scheme with block time steps
+    private double accuracyBlockTimeSteps = 0.01; // Ratio between time step and |a|/|j|
+    private transient long nrEvaluationsBlockTimeSteps = 0L; // Number of force evaluations
+
+    // Maximum level for block time steps; smallest time step is deltaT/2^MAXLEVELBLOCKTIMESTEPS
+    private static final int MAXLEVELBLOCKTIMESTEPS = 12;
+
     /**
      * Flag to indicate whether general relativity
      * should be applied when computing acceleration.
@@ -52,6 +80,98 @@ public class ParticleSystem implements Serializable {
      */
     private boolean curvatureWavePropagationFlag = false;
 
+    /**
+     * Flag to indicate whether the state of the particles should be
+     * integrated in contiguous arrays instead of in the particles.
+     */
+    private boolean arrayEngineFlag = false;
+
+    /**
+     * State of the particles stored in contiguous arrays.
+     * Created when needed; not stored when the particle system is saved.
+     */
+    private transient ParticleStateArrays stateArrays;
+
+    /**
+     * State of the particles stored in contiguous arrays for the Hermite
+     * scheme with block time steps. Created when needed; not stored when
+     * the particle system is saved.
+     */
+    private transient ParticleStateArrays blockArrays;
+
+    /**
+     * State of the particles stored in contiguous arrays for the Wisdom-Holman
+     * map. Created when needed; not stored when the particle system is saved.
+     */
+    private transient ParticleStateArrays wisdomHolmanArrays;
+
+    /**
+     * Positions of the particles stored in contiguous arrays to compute
+     * acceleration using Newton Mechanics when state is integrated in
+     * the particles. Created when needed; not stored when the particle system is saved.
+     */
+    private transient ParticleStateArrays forceArrays;
+
+    /**
+     * Number of threads to compute acceleration and to update the state
+     * of the particles. Default is 1, i.e., no parallel computation.
+     */
+    private int nrThreads = 1;
+
+    /**
+     * Worker threads to compute acceleration and to update the state of the particles.
+     * Created when needed; not stored when the particle system is saved.
+     */
+    private transient ParticleTaskPool taskPool;
+
+    /**
+     * Update of the state of a single particle.
+     */
+    private interface ParticleUpdate {
+        void update(Particle particle, double deltaT, int index);
+    }
+
+    /**
+     * Position and velocity to correct drift for.
+     * Allocated once to avoid creating new vectors for every time step.
+     */
+    private transient Vector3D driftPosition;
+    private transient Vector3D driftVelocity;
+
+    /**
+     * Distances between particles applying force and potential sums
+     * for General Relativity. Computed once for each evaluation of the
+     * acceleration to avoid computing the same sums for every pair of particles.
+     */
+    private transient double[][] distancesGR;
+    private transient double[] distancesParticleGR;
+    private transient double[] sumMuDivDistanceGR;
+
+    /**
+     * Event detectors that are checked after each time step.
+     * Not stored when the particle system is saved.
+     */
+    private transient List<EventDetector> eventDetectors;
+
+    /**
+     * Simulation time elapsed since creation of the particle system [s].
+     * Not stored when the particle system is saved.
+     */
+    private transient double elapsedTime = 0.0;
+
+    /**
+     * Flag to indicate whether dense output is stored for all time steps
+     * since the last reset. When not set, dense output is only stored for
+     * the last time step when event detectors are present.
+     */
+    private transient boolean denseOutputFlag = false;
+
+    /**
+     * Dense output of the time steps.
+     * Created when needed; not stored when the particle system is saved.
+     */
+    private transient DenseOutput denseOutput;
+
     /**
      * List of all particles.
      */
@@ -63,6 +183,21 @@ public class ParticleSystem implements Serializable {
      */
     protected Map<String, Particle> particlesWithMass;
 
+    /**
+     * Number of times particles were added or removed.
+     * Used by subclasses to detect changes of the particles applying force.
+     */
+    private transient int nrChangesParticles = 0;
+
+    /**
+     * Particles and particles applying force stored in arrays, such that
+     * they can be visited without creating iterators. Rebuilt when particles
+     * are added or removed; not stored when the particle system is saved.
+     */
+    private transient Particle[] particleArray;
+    private transient Particle[] particleArrayApplyingForce;
+    private transient int nrChangesParticleArrays;
+
     /**
      * Default constructor.
      */
@@ -107,6 +242,89 @@ public class ParticleSystem implements Serializable {
         return curvatureWavePropagationFlag;
     }
 
+    /**
+     * Set/reset flag to integrate the state of the particles in contiguous
+     * arrays instead of in the particles. The results are the same, but
+     * integration is faster for systems of many particles.
+     * Note that General Relativity is always computed using the particles.
+     * @param flag flag
+     */
+    public void setArrayEngineFlag(boolean flag) {
+        arrayEngineFlag = flag;
+        setValidABM4(false);
+    }
+
+    /**
+     * Get value of flag to integrate the state of the particles in
+     * contiguous arrays.
+     * @return true when flag is set, false otherwise
+     */
+    public boolean getArrayEngineFlag() {
+        return arrayEngineFlag;
+    }
+
+    /**
+     * Set number of threads to compute acceleration and to update
+     * the state of the particles. Particles are partitioned into chunks,
+     * one chunk per thread. Results do not depend on the number of threads.
+     * @param nrThreads number of threads, 1 for no parallel computation
+     */
+    public void setNrThreads(int nrThreads) {
+        this.nrThreads = Math.max(1, nrThreads);
+        if (taskPool != null && taskPool.getNrThreads() != this.nrThreads) {
+            taskPool.shutdown();
+            taskPool = null;
+        }
+    }
+
+    /**
+     * Get number of threads to compute acceleration and to update
+     * the state of the particles.
+     * @return number of threads
+     */
+    public int getNrThreads() {
+        // Particle systems saved before the number of threads was introduced have value 0
+        return Math.max(1, nrThreads);
+    }
+
+    /**
+     * Get worker threads.
+     * @return worker threads or null when no parallel computation is used
+     */
+    private ParticleTaskPool getTaskPool() {
+        if (getNrThreads() < 2) {
+            return null;
+        }
+        if (taskPool == null) {
+            taskPool = new ParticleTaskPool(getNrThreads());
+        }
+        return taskPool;
+    }
+
+    /**
+     * Update the state of all particles. Particles are updated
+     * in parallel when more than one thread is used.
+     * @param update update of the state of a single particle
+     * @param deltaT time step in s
+     * @param index  index in cyclic arrays for Adams-Bashforth-Moulton method
+     */
+    private void updateParticles(ParticleUpdate update, double deltaT, int index) {
+        Particle[] particleArray = getParticleArray();
+        ParticleTaskPool pool = getTaskPool();
+        if (pool == null) {
+            for (Particle p : particleArray) {
+                update.update(p, deltaT, index);
+            }
+        }
+        else {
+            pool.execute(particleArray.length, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    update.update(particleArray[i], deltaT, index);
+                }
+            });
+        }
+    }
+
     /**
      * Add particle to particle system.
      * @param name     Name of particle
@@ -115,6 +333,7 @@ public class ParticleSystem implements Serializable {
     public final void addParticle(String name, Particle particle) {
         particles.put(name,particle);
         particlesWithMass.put(name,particle);
+        nrChangesParticles++;
     }
 
     /**
@@ -126,6 +345,7 @@ public class ParticleSystem implements Serializable {
      */
     public final void addParticleWithoutMass(String name, Particle particle) {
         particles.put(name,particle);
+        nrChangesParticles++;
     }
 
     /**
@@ -142,6 +362,7 @@ public class ParticleSystem implements Serializable {
         Particle particle = new Particle(mass,mu,position,velocity);
         particles.put(name,particle);
         particlesWithMass.put(name,particle);
+        nrChangesParticles++;
     }
 
     /**
@@ -151,6 +372,45 @@ public class ParticleSystem implements Serializable {
     public final void removeParticle(String name) {
         particles.remove(name);
         particlesWithMass.remove(name);
+        nrChangesParticles++;
+    }
+
+    /**
+     * Number of times particles were added or removed since creation
+     * or since the particle system was read from file.
+     * @return number of changes
+     */
+    protected int getNrChangesParticles() {
+        return nrChangesParticles;
+    }
+
+    /**
+     * Get particles of this particle system stored in an array.
+     * @return particles
+     */
+    private Particle[] getParticleArray() {
+        updateParticleArrays();
+        return particleArray;
+    }
+
+    /**
+     * Get particles applying force stored in an array.
+     * @return particles applying force
+     */
+    private Particle[] getParticleArrayApplyingForce() {
+        updateParticleArrays();
+        return particleArrayApplyingForce;
+    }
+
+    /**
+     * Rebuild arrays of particles when particles were added or removed.
+     */
+    private void updateParticleArrays() {
+        if (particleArray == null || nrChangesParticleArrays != nrChangesParticles) {
+            particleArray = particles.values().toArray(new Particle[0]);
+            particleArrayApplyingForce = getParticlesApplyingForce().toArray(new Particle[0]);
+            nrChangesParticleArrays = nrChangesParticles;
+        }
     }
 
     /**
@@ -162,51 +422,581 @@ public class ParticleSystem implements Serializable {
         return particles.get(name);
     }
 
+    /**
+     * Number of bytes needed to write the state of this particle system.
+     * @return number of bytes written by writeState
+     */
+    public int getStateSize() {
+        int size = 1 + 4*Double.BYTES + 3*Integer.BYTES;
+        for (String name : particles.keySet()) {
+            size += getNameSize(name) + Particle.STATESIZE;
+        }
+        return size;
+    }
+
+    /**
+     * Write state of integration methods and state of all particles to buffer.
+     * Only primitive values are written; particles are identified by name.
+     * @param buffer buffer with at least getStateSize() bytes remaining
+     */
+    public void writeState(ByteBuffer buffer) {
+        buffer.put((byte) (validABM4 ? 1 : 0));
+        buffer.putDouble(deltaTABM4);
+        buffer.putInt(nrValidABM4);
+        buffer.putInt(indexABM4);
+        buffer.putDouble(toleranceDP);
+        buffer.putDouble(stepSizeDP);
+        buffer.putDouble(accuracyBlockTimeSteps);
+        buffer.putInt(particles.size());
+        for (Map.Entry<String, Particle> entry : particles.entrySet()) {
+            putName(buffer, entry.getKey());
+            entry.getValue().writeState(buffer);
+        }
+    }
+
+    /**
+     * State of integration methods and state of particles read from buffer.
+     * The state can be checked against a particle system before it is applied,
+     * such that a particle system is not changed when the state does not
+     * correspond.
+     */
+    public static final class State {
+        private boolean validABM4;
+        private double deltaTABM4;
+        private int nrValidABM4;
+        private int indexABM4;
+        private double toleranceDP;
+        private double stepSizeDP;
+        private double accuracyBlockTimeSteps;
+        private final Map<String, ByteBuffer> particleStates = new LinkedHashMap<>();
+
+        private State() {
+        }
+    }
+
+    /**
+     * Read state written by writeState from buffer, without applying it.
+     * @param buffer buffer
+     * @return state
+     * @throws BufferUnderflowException when the buffer ends before the state
+     */
+    public static State parseState(ByteBuffer buffer) {
+        State state = new State();
+        state.validABM4 = buffer.get() != 0;
+        state.deltaTABM4 = buffer.getDouble();
+        state.nrValidABM4 = buffer.getInt();
+        state.indexABM4 = buffer.getInt();
+        state.toleranceDP = buffer.getDouble();
+        state.stepSizeDP = buffer.getDouble();
+        state.accuracyBlockTimeSteps = buffer.getDouble();
+        int nrParticles = buffer.getInt();
+        for (int i = 0; i < nrParticles; i++) {
+            String name = getName(buffer);
+            if (buffer.remaining() < Particle.STATESIZE) {
+                throw new BufferUnderflowException();
+            }
+            ByteBuffer particleState = buffer.slice();
+            particleState.limit(Particle.STATESIZE);
+            buffer.position(buffer.position() + Particle.STATESIZE);
+            state.particleStates.put(name, particleState);
+        }
+        return state;
+    }
+
+    /**
+     * Check that state corresponds to this particle system, i.e., that the
+     * particles of this particle system have the same names as the particles
+     * of the particle system from which the state was written.
+     * @param state state
+     * @throws IOException when particles do not correspond
+     */
+    public void checkState(State state) throws IOException {
+        if (state.particleStates.size() != particles.size()) {
+            throw new IOException("Number of particles does not correspond");
+        }
+        for (String name : state.particleStates.keySet()) {
+            if (!particles.containsKey(name)) {
+                throw new IOException("Particle with name " + name + " does not exist");
+            }
+        }
+    }
+
+    /**
+     * Apply state that has been checked by checkState.
+     * State stored in contiguous arrays is discarded.
+     * @param state state
+     */
+    public void applyState(State state) {
+        stateArrays = null;
+        blockArrays = null;
+        wisdomHolmanArrays = null;
+        validABM4 = state.validABM4;
+        deltaTABM4 = state.deltaTABM4;
+        nrValidABM4 = state.nrValidABM4;
+        indexABM4 = state.indexABM4;
+        toleranceDP = state.toleranceDP;
+        stepSizeDP = state.stepSizeDP;
+        accuracyBlockTimeSteps = state.accuracyBlockTimeSteps;
+        for (Map.Entry<String, ByteBuffer> entry : state.particleStates.entrySet()) {
+            particles.get(entry.getKey()).readState(entry.getValue().duplicate());
+        }
+    }
+
+    /**
+     * Read state written by writeState from buffer. The particles of
+     * this particle system must have the same names as the particles
+     * of the particle system from which the state was written.
+     * State stored in contiguous arrays is discarded.
+     * @param buffer buffer
+     * @throws IOException when particles do not correspond
+     */
+    public void readState(ByteBuffer buffer) throws IOException {
+        State state = parseState(buffer);
+        checkState(state);
+        applyState(state);
+    }
+
+    /**
+     * Number of bytes needed to write name.
+     * @param name name
+     * @return number of bytes written by putName
+     */
+    protected static int getNameSize(String name) {
+        return Short.BYTES + name.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Write name to buffer as length followed by UTF-8 bytes.
+     * @param buffer buffer
+     * @param name   name
+     */
+    protected static void putName(ByteBuffer buffer, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Read name written by putName from buffer.
+     * @param buffer buffer
+     * @return name
+     */
+    protected static String getName(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Add event detector. Events are detected during each time step,
+     * except for time steps of the leapfrog algorithm.
+     * @param detector event detector
+     */
+    public void addEventDetector(EventDetector detector) {
+        if (eventDetectors == null) {
+            eventDetectors = new ArrayList<>();
+        }
+        eventDetectors.add(detector);
+    }
+
+    /**
+     * Remove event detector.
+     * @param detector event detector
+     */
+    public void removeEventDetector(EventDetector detector) {
+        if (eventDetectors != null) {
+            eventDetectors.remove(detector);
+        }
+    }
+
+    /**
+     * Get simulation time elapsed since creation of the particle system.
+     * Time of events is expressed in elapsed time.
+     * @return elapsed time [s], negative when simulated backward in time
+     */
+    public double getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Set/reset flag to store dense output for all time steps since the
+     * last reset of the dense output.
+     * @param flag true when dense output is stored
+     */
+    public void setDenseOutputFlag(boolean flag) {
+        denseOutputFlag = flag;
+        resetDenseOutput();
+    }
+
+    /**
+     * Get value of flag to store dense output.
+     * @return true when dense output is stored
+     */
+    public boolean getDenseOutputFlag() {
+        return denseOutputFlag;
+    }
+
+    /**
+     * Remove dense output of all time steps taken so far.
+     */
+    public void resetDenseOutput() {
+        if (denseOutput != null) {
+            denseOutput.reset();
+        }
+    }
+
+    /**
+     * Get dense output of the time steps taken since the last reset.
+     * @return dense output or null when no dense output is stored
+     */
+    public DenseOutput getDenseOutput() {
+        return denseOutput;
+    }
+
+    /**
+     * Check whether dense output is needed for this time step.
+     * @return true when dense output is stored or events are detected
+     */
+    private boolean denseOutputNeeded() {
+        return denseOutputFlag || (eventDetectors != null && !eventDetectors.isEmpty());
+    }
+
+    /**
+     * Store state of particles at the start of a time step for dense output.
+     */
+    private void startTimeStep() {
+        if (!denseOutputNeeded()) {
+            return;
+        }
+        if (denseOutput == null) {
+            denseOutput = new DenseOutput();
+        }
+        if (!denseOutputFlag) {
+            denseOutput.reset();
+        }
+        denseOutput.startTimeStep(elapsedTime, particles);
+    }
+
+    /**
+     * Update elapsed time at the end of a time step, store state of
+     * particles for dense output, and detect events.
+     * @param deltaT time step in s
+     */
+    private void finishTimeStep(double deltaT) {
+        elapsedTime += deltaT;
+        if (!denseOutputNeeded() || denseOutput == null) {
+            return;
+        }
+        denseOutput.finishTimeStep(elapsedTime, particles);
+        if (eventDetectors != null) {
+            for (EventDetector detector : eventDetectors) {
+                detector.detectEvents(denseOutput);
+            }
+        }
+    }
+
     /**
      * Initialize state for leapfrog algorithm.
      * @param deltaT time step in s
      */
     public void initLeapfrog(double deltaT) {
         // Initialalize state for leapfrog algorithm
-        computeAcceleration();
-        for (Particle p : particles.values()) {
-            p.initStateLeapfrog(deltaT);
+        ParticleStateArrays arrays = prepareStateArrays();
+        if (arrays != null) {
+            arrays.computeAccelerationNewtonMechanics();
+            arrays.initStateLeapfrog(deltaT);
+            arrays.writeState();
+            return;
         }
+        computeAcceleration();
+        updateParticles((p, dt, index) -> p.initStateLeapfrog(dt), deltaT, 0);
     }
 
     /**
      * Advance a time step using leapfrog algorithm.
+     * The velocity of the leapfrog algorithm is half a time step behind the
+     * position. Therefore, events are not detected and dense output is reset
+     * instead of stored for this time step.
      * @param deltaT time step in s
      */
     public void advanceLeapfrog(double deltaT) {
+        resetDenseOutput();
+        advanceLeapfrogWithoutEvents(deltaT);
+        elapsedTime += deltaT;
+    }
+
+    /**
+     * Advance a time step using leapfrog algorithm without detecting events.
+     * @param deltaT time step in s
+     */
+    private void advanceLeapfrogWithoutEvents(double deltaT) {
         // Use leapfrog algorithm
         // http://physics.bu.edu/py502/lectures3/cmotion.pdf
-        computeAcceleration();
-        for (Particle p : particles.values()) {
-            p.updateStateLeapfrog(deltaT);
+        ParticleStateArrays arrays = prepareStateArrays();
+        if (arrays != null) {
+            arrays.computeAccelerationNewtonMechanics();
+            arrays.updateStateLeapfrog(deltaT);
+            arrays.writeState();
+            return;
         }
+        computeAcceleration();
+        updateParticles((p, dt, index) -> p.updateStateLeapfrog(dt), deltaT, 0);
     }
 
+    /**
+     * Advance a time step using Runge-Kutta method.
+     * @param deltaT time step in s
+     */
     public void advanceRungeKutta(double deltaT) {
+        startTimeStep();
+        advanceRungeKuttaWithoutEvents(deltaT);
+        finishTimeStep(deltaT);
+    }
+
+    /**
+     * Advance a time step using Runge-Kutta method without detecting events.
+     * @param deltaT time step in s
+     */
+    private void advanceRungeKuttaWithoutEvents(double deltaT) {
+        ParticleStateArrays arrays = prepareStateArrays();
+        if (arrays != null) {
+            advanceRungeKutta(arrays, deltaT);
+            arrays.writeState();
+            return;
+        }
         // Use Runge-Kutta method
         // http://physics.bu.edu/py502/lectures3/cmotion.pdf
         computeAcceleration();
-        for (Particle p : particles.values()) {
-            p.updateStateRungeKuttaA(deltaT);
-        }
+        updateParticles((p, dt, index) -> p.updateStateRungeKuttaA(dt), deltaT, 0);
         computeAcceleration();
-        for (Particle p : particles.values()) {
-            p.updateStateRungeKuttaB(deltaT);
-        }
+        updateParticles((p, dt, index) -> p.updateStateRungeKuttaB(dt), deltaT, 0);
         computeAcceleration();
-        for (Particle p : particles.values()) {
-            p.updateStateRungeKuttaC(deltaT);
-        }
+        updateParticles((p, dt, index) -> p.updateStateRungeKuttaC(dt), deltaT, 0);
         computeAcceleration();
-        for (Particle p : particles.values()) {
-            p.updateStateRungeKuttaD(deltaT);
+        updateParticles((p, dt, index) -> p.updateStateRungeKuttaD(dt), deltaT, 0);
+    }
+
+    /**
+     * Advance a time step using Runge-Kutta method on state stored in arrays.
+     * @param arrays state of the particles
+     * @param deltaT time step in s
+     */
+    private void advanceRungeKutta(ParticleStateArrays arrays, double deltaT) {
+        arrays.computeAccelerationNewtonMechanics();
+        arrays.updateStateRungeKuttaA(deltaT);
+        arrays.computeAccelerationNewtonMechanics();
+        arrays.updateStateRungeKuttaB(deltaT);
+        arrays.computeAccelerationNewtonMechanics();
+        arrays.updateStateRungeKuttaC(deltaT);
+        arrays.computeAccelerationNewtonMechanics();
+        arrays.updateStateRungeKuttaD(deltaT);
+    }
+    /**
+     * Set relative tolerance of the local error for the Dormand-Prince method.
+     * @param tolerance relative tolerance
+     */
+    public void setToleranceDormandPrince(double tolerance) {
+        this.toleranceDP = tolerance;
+    }
+
+    /**
+     * Get relative tolerance of the local error for the Dormand-Prince method.
+     * @return relative tolerance
+     */
+    public double getToleranceDormandPrince() {
+        // Particle systems saved before the tolerance was introduced have value 0
+        return toleranceDP > 0.0 ? toleranceDP : 1.0E-12;
+    }
+
+    /**
+     * Advance a time step using Dormand-Prince method with adaptive step size.
+     * The time step is divided into steps such that the estimated local error
+     * in each component of position and velocity of each particle does not exceed
+     * an absolute tolerance plus the tolerance relative to that component. Steps become large
+     * when particles move smoothly and small during close encounters.
+     * The step size is kept for the next time step.
+     * https://en.wikipedia.org/wiki/Dormand%E2%80%93Prince_method
+     * @param deltaT time step in s
+     * @throws IllegalStateException when the error is not finite at the minimum step size
+     */
+    public void advanceDormandPrince(double deltaT) {
+        startTimeStep();
+        advanceDormandPrinceWithoutEvents(deltaT);
+        finishTimeStep(deltaT);
+    }
+
+    /**
+     * Advance a time step using Dormand-Prince method without detecting events.
+     * @param deltaT time step in s
+     */
+    private void advanceDormandPrinceWithoutEvents(double deltaT) {
+        // Acceleration at the start of the time step
+        computeAcceleration();
+        updateParticles((p, dt, index) -> p.initStateDormandPrince(), deltaT, 0);
+        double stepSize = Math.abs(deltaT);
+        if (stepSizeDP > 0.0) {
+            stepSize = Math.min(stepSizeDP, stepSize);
+        }
+        double remainingTime = deltaT;
+        while (remainingTime != 0.0) {
+            double step = Math.abs(remainingTime) <= stepSize ? remainingTime : Math.copySign(stepSize, deltaT);
+
+            // Compute stages; the last stage is evaluated at the fifth-order solution
+            for (int stage = 1; stage < 7; stage++) {
+                updateParticles((p, dt, index) -> p.updateStateDormandPrince(dt, index), step, stage);
+                computeAcceleration();
+                updateParticles((p, dt, index) -> p.storeStateDormandPrince(index), step, stage);
+            }
+
+            // Accept or reject step and adjust step size
+            // An error that is not finite, e.g., when particles coincide, rejects the step
+            double error = errorDormandPrince(step);
+            boolean errorFinite = Double.isFinite(error);
+            if (!errorFinite && Math.abs(step) <= MINIMUMSTEPSIZEDP) {
+                updateParticles((p, dt, index) -> p.rejectStepDormandPrince(), step, 0);
+                stepSizeDP = stepSize;
+                throw new IllegalStateException("Dormand-Prince method fails: error not finite at minimum step size");
+            }
+            double factor = !errorFinite ? 0.2 : error > 0.0 ? 0.9 * Math.pow(error, -0.2) : 5.0;
+            factor = Math.max(0.2, Math.min(5.0, factor));
+            if (error <= 1.0 || (errorFinite && Math.abs(step) <= MINIMUMSTEPSIZEDP)) {
+                updateParticles((p, dt, index) -> p.acceptStepDormandPrince(), step, 0);
+                remainingTime = step == remainingTime ? 0.0 : remainingTime - step;
+                if (Math.abs(step) == stepSize) {
+                    stepSize = Math.max(MINIMUMSTEPSIZEDP, stepSize * factor);
+                }
+            }
+            else {
+                updateParticles((p, dt, index) -> p.rejectStepDormandPrince(), step, 0);
+                stepSize = Math.max(MINIMUMSTEPSIZEDP, Math.abs(step) * factor);
+            }
+        }
+        stepSizeDP = stepSize;
+    }
+
+    /**
+     * Estimate local error of the Dormand-Prince method relative to the tolerance.
+     * The error of each component of position and velocity of each particle is
+     * scaled by the absolute tolerance plus the relative tolerance times the
+     * magnitude of that component.
+     * @param deltaT step size in s
+     * @return largest scaled error; step is accepted when at most 1
+     */
+    private double errorDormandPrince(double deltaT) {
+        double tolerance = getToleranceDormandPrince();
+        double error = 0.0;
+        for (Particle p : getParticleArray()) {
+            error = Math.max(error, p.errorDormandPrince(deltaT, tolerance,
+                    ABSOLUTETOLERANCEPOSITIONDP, ABSOLUTETOLERANCEVELOCITYDP));
+        }
+        return error;
+    }
+
+    /**
+     * Set accuracy of block time steps. The time step of a particle does not
+     * exceed accuracy * |a|/|j|, where a is acceleration and j is jerk.
+     * @param accuracy ratio between time step and |a|/|j|
+     */
+    public void setAccuracyBlockTimeSteps(double accuracy) {
+        this.accuracyBlockTimeSteps = accuracy;
+    }
+
+    /**
+     * Get accuracy of block time steps.
+     * @return ratio between time step and |a|/|j|
+     */
+    public double getAccuracyBlockTimeSteps() {
+        // Particle systems saved before the accuracy was introduced have value 0
+        return accuracyBlockTimeSteps > 0.0 ? accuracyBlockTimeSteps : 0.01;
+    }
+
+    /**
+     * Get number of evaluations of acceleration of a single particle
+     * by the Hermite scheme with block time steps.
+     * @return number of evaluations since creation of the particle system
+     */
+    public long getNrEvaluationsBlockTimeSteps() {
+        return nrEvaluationsBlockTimeSteps;
+    }
+
+    /**
+     * Advance a time step using the fourth-order Hermite scheme with individual
+     * (block) time steps. The time step of each particle is deltaT/2^L, where
+     * level L is assigned at the start of the time step such that particles in
+     * tight orbits, e.g. inner moons, use small time steps and particles in wide
+     * orbits use large time steps. Acceleration is only computed for particles
+     * of which the time step ends. Block time steps apply to Newton Mechanics;
+     * when General Relativity is applied, Runge-Kutta method is used instead.
+     * @param deltaT time step in s
+     */
+    public void advanceBlockTimeSteps(double deltaT) {
+        startTimeStep();
+        advanceBlockTimeStepsWithoutEvents(deltaT);
+        finishTimeStep(deltaT);
+    }
+
+    /**
+     * Advance a time step using Hermite scheme with block time steps
+     * without detecting events.
+     * @param deltaT time step in s
+     */
+    private void advanceBlockTimeStepsWithoutEvents(double deltaT) {
+        if (generalRelativityFlag) {
+            advanceRungeKuttaWithoutEvents(deltaT);
+            return;
+        }
+        if (blockArrays == null) {
+            blockArrays = new ParticleStateArrays();
         }
+        blockArrays.updateLayout(getParticleArray(), getParticleArrayApplyingForce());
+        blockArrays.setTaskPool(getTaskPool());
+        blockArrays.readState();
+        nrEvaluationsBlockTimeSteps += blockArrays.advanceBlockTimeSteps(deltaT,
+                getAccuracyBlockTimeSteps(), MAXLEVELBLOCKTIMESTEPS);
+        blockArrays.writeState();
     }
+
+    /**
+     * Advance a time step using the symplectic Wisdom-Holman map. Motion of each
+     * particle is split into a Kepler orbit around the central body, i.e., the
+     * particle with largest mass, and kicks due to the other particles. Since the
+     * Kepler orbits are solved exactly, time steps of days instead of minutes can
+     * be taken for the planets, while the error in total energy remains bounded.
+     * The map applies to Newton Mechanics with point masses; when General Relativity
+     * is applied or a particle applying force is not a point mass or not part of
+     * the particle system, Runge-Kutta method is used instead.
+     * @param deltaT time step in s
+     */
+    public void advanceWisdomHolman(double deltaT) {
+        startTimeStep();
+        advanceWisdomHolmanWithoutEvents(deltaT);
+        finishTimeStep(deltaT);
+    }
+
+    /**
+     * Advance a time step using the Wisdom-Holman map without detecting events.
+     * @param deltaT time step in s
+     */
+    private void advanceWisdomHolmanWithoutEvents(double deltaT) {
+        if (generalRelativityFlag) {
+            advanceRungeKuttaWithoutEvents(deltaT);
+            return;
+        }
+        if (wisdomHolmanArrays == null) {
+            wisdomHolmanArrays = new ParticleStateArrays();
+        }
+        wisdomHolmanArrays.updateLayout(getParticleArray(), getParticleArrayApplyingForce());
+        wisdomHolmanArrays.readState();
+        int central = wisdomHolmanArrays.findCentralBodyWisdomHolman();
+        if (central < 0) {
+            advanceRungeKuttaWithoutEvents(deltaT);
+            return;
+        }
+        wisdomHolmanArrays.setTaskPool(getTaskPool());
+        wisdomHolmanArrays.advanceWisdomHolman(deltaT, central);
+        wisdomHolmanArrays.writeState();
+    }
+
     /**
      * Four-step Adams-Bashforth-Moulton method.
      * Set/reset flag to indicate whether values stored in cyclic arrays are valid.
@@ -220,39 +1010,101 @@ public class ParticleSystem implements Serializable {
      * @param deltaT time step in s
      */
     public void advanceABM4(double deltaT) {
+        startTimeStep();
+        advanceABM4WithoutEvents(deltaT);
+        finishTimeStep(deltaT);
+    }
+
+    /**
+     * Advance a time step using four-step Adams-Bashforth-Moulton method
+     * without detecting events.
+     * @param deltaT time step in s
+     */
+    private void advanceABM4WithoutEvents(double deltaT) {
         // https://en.wikiversity.org/wiki/Adams-Bashforth_and_Adams-Moulton_methods
         // Initialize Adams-Bashforth-Moulton using Runge-Kutta method
         // Note that four initial values are needed to start calculation
+        ParticleStateArrays arrays = prepareStateArrays();
         if (deltaT != deltaTABM4 || !validABM4) {
             deltaTABM4 = deltaT;
             nrValidABM4 = 0;
             indexABM4 = 3;
             setValidABM4(true);
         }
-        if (nrValidABM4 < 4) {
-            advanceRungeKutta(deltaT);
+        if (arrays != null) {
+            advanceABM4(arrays, deltaT);
+            arrays.writeState();
+        }
+        else if (nrValidABM4 < 4) {
+            advanceRungeKuttaWithoutEvents(deltaT);
             computeAcceleration();
             indexABM4 = (indexABM4 + 1) % 4;
-            for (Particle p : particles.values()) {
-                p.storeVelocityAccelerationABM4(indexABM4);
-            }
+            updateParticles((p, dt, index) -> p.storeVelocityAccelerationABM4(index), deltaT, indexABM4);
             nrValidABM4++;
         }
         else {
             // Adams-Bashforth-Moulton predictor step
-            for (Particle p : particles.values()) {
-                p.updateStateABM4Predictor(deltaT,indexABM4);
-            }
+            updateParticles((p, dt, index) -> p.updateStateABM4Predictor(dt,index), deltaT, indexABM4);
             computeAcceleration();
             indexABM4 = (indexABM4 + 1) % 4;
-            for (Particle p : particles.values()) {
-                p.storeVelocityAccelerationABM4(indexABM4);
-            }
+            updateParticles((p, dt, index) -> p.storeVelocityAccelerationABM4(index), deltaT, indexABM4);
             // Adams-Bashforth-Moulton corrector step
-            for (Particle p : particles.values()) {
-                p.updateStateABM4Corrector(deltaT,indexABM4);
-            }
+            updateParticles((p, dt, index) -> p.updateStateABM4Corrector(dt,index), deltaT, indexABM4);
+        }
+    }
+
+    /**
+     * Advance a time step using four-step Adams-Bashforth-Moulton method
+     * on state stored in arrays.
+     * @param arrays state of the particles
+     * @param deltaT time step in s
+     */
+    private void advanceABM4(ParticleStateArrays arrays, double deltaT) {
+        if (nrValidABM4 < 4) {
+            advanceRungeKutta(arrays, deltaT);
+            arrays.computeAccelerationNewtonMechanics();
+            indexABM4 = (indexABM4 + 1) % 4;
+            arrays.storeVelocityAccelerationABM4(indexABM4);
+            nrValidABM4++;
+        }
+        else {
+            arrays.updateStateABM4Predictor(deltaT,indexABM4);
+            arrays.computeAccelerationNewtonMechanics();
+            indexABM4 = (indexABM4 + 1) % 4;
+            arrays.storeVelocityAccelerationABM4(indexABM4);
+            arrays.updateStateABM4Corrector(deltaT,indexABM4);
+        }
+    }
+
+    /**
+     * Prepare state stored in arrays for the next time step.
+     * The four-step Adams-Bashforth-Moulton method is restarted when
+     * particles have been added or removed.
+     * @return state of the particles or null when state is not integrated in arrays
+     */
+    private ParticleStateArrays prepareStateArrays() {
+        if (!arrayEngineFlag || generalRelativityFlag) {
+            stateArrays = null;
+            return null;
         }
+        if (stateArrays == null) {
+            stateArrays = new ParticleStateArrays();
+        }
+        if (stateArrays.updateLayout(getParticleArray(), getParticleArrayApplyingForce())) {
+            setValidABM4(false);
+        }
+        stateArrays.setTaskPool(getTaskPool());
+        stateArrays.readState();
+        return stateArrays;
+    }
+
+    /**
+     * Particles that apply forces to the particles of this particle system.
+     * The particles returned may only change when particles are added or removed.
+     * @return particles with mass
+     */
+    protected Collection<Particle> getParticlesApplyingForce() {
+        return particlesWithMass.values();
     }
 
     /**
@@ -260,17 +1112,13 @@ public class ParticleSystem implements Serializable {
      */
     protected void computeAcceleration() {
         // Compute acceleration using Newton mechanics
-        for (Particle p : particles.values()) {
-            p.computeAccelerationNewtonMechanics(particlesWithMass.values());
-        }
+        computeAccelerationNewtonMechanics();
         // Compute acceleration using General Relativity (PPN) or Curvature of Wave Propagation Method (CWPM)
         if (generalRelativityFlag) {
             if (!curvatureWavePropagationFlag) {
                 // Note that the acceleration computed by Newton mechanics
                 // is used to compute acceleration using General Relativity
-                for (Particle p : particles.values()) {
-                    p.computeAccelerationGeneralRelativity(particlesWithMass.values());
-                }
+                computeAccelerationGeneralRelativity(particlesWithMass.values());
             }
             else {
                 // Note that the acceleration computed by Newton mechanics is used
@@ -284,13 +1132,123 @@ public class ParticleSystem implements Serializable {
                 if (totalMu != 0.0) {
                     velocityCenterMass = velocityCenterMass.scalarProduct(1.0 / totalMu);
                 }
-                for (Particle p : particles.values()) {
-                    p.computeAccelerationCurvatureWavePropagation(particlesWithMass.values(), velocityCenterMass);
+                Vector3D velocityCM = velocityCenterMass;
+                ParticleTaskPool pool = getTaskPool();
+                if (pool == null) {
+                    for (Particle p : particles.values()) {
+                        p.computeAccelerationCurvatureWavePropagation(particlesWithMass.values(), velocityCM);
+                    }
+                }
+                else {
+                    Particle[] particleArray = particles.values().toArray(new Particle[0]);
+                    pool.execute(particleArray.length, (from, to) -> {
+                        for (int i = from; i < to; i++) {
+                            particleArray[i].computeAccelerationCurvatureWavePropagation(
+                                    particlesWithMass.values(), velocityCM);
+                        }
+                    });
                 }
             }
         }
     }
 
+    /**
+     * Compute acceleration and potential energy using Newton Mechanics
+     * for all particles. Each pair of particles applying force is visited
+     * only once. Particles without mass are visited in a separate pass.
+     * See ParticleStateArrays.computeAccelerationNewtonMechanics().
+     * @param particlesApplyingForce particles applying force
+     */
+    protected void computeAccelerationNewtonMechanics(Collection<Particle> particlesApplyingForce) {
+        computeAccelerationNewtonMechanics(particlesApplyingForce.toArray(new Particle[0]));
+    }
+
+    /**
+     * Compute acceleration and potential energy using Newton Mechanics
+     * for all particles due to the particles applying force.
+     */
+    protected void computeAccelerationNewtonMechanics() {
+        computeAccelerationNewtonMechanics(getParticleArrayApplyingForce());
+    }
+
+    /**
+     * Compute acceleration and potential energy using Newton Mechanics
+     * for all particles.
+     * @param particlesApplyingForce particles applying force
+     */
+    private void computeAccelerationNewtonMechanics(Particle[] particlesApplyingForce) {
+        if (forceArrays == null) {
+            forceArrays = new ParticleStateArrays();
+        }
+        forceArrays.updateLayout(getParticleArray(), particlesApplyingForce);
+        forceArrays.setTaskPool(getTaskPool());
+        forceArrays.readPositions();
+        forceArrays.computeAccelerationNewtonMechanics();
+        forceArrays.writeAccelerationNewtonMechanics();
+    }
+
+    /**
+     * Compute acceleration using General Relativity for all particles.
+     * Distances between particles applying force and the sum
+     * (Sum C : C != B : GM_C / r_BC) for each particle B are computed
+     * only once, such that computational cost is O(N^2).
+     * Note that the acceleration computed by Newton mechanics
+     * is used to compute acceleration using General Relativity.
+     * @param particlesApplyingForce particles applying force
+     */
+    protected void computeAccelerationGeneralRelativity(Collection<Particle> particlesApplyingForce) {
+        Particle[] sources = particlesApplyingForce.toArray(new Particle[0]);
+        int nrSources = sources.length;
+        if (distancesGR == null || distancesGR.length != nrSources) {
+            distancesGR = new double[nrSources][nrSources];
+            distancesParticleGR = new double[nrSources];
+            sumMuDivDistanceGR = new double[nrSources];
+        }
+        Particle.computeDistances(sources, distancesGR);
+        Particle.computeSumMuDivDistance(sources, distancesGR, sumMuDivDistanceGR);
+        Particle[] targets = particles.values().toArray(new Particle[0]);
+        ParticleTaskPool pool = getTaskPool();
+        if (pool == null) {
+            computeAccelerationGeneralRelativity(sources, targets, 0, targets.length, distancesParticleGR);
+        }
+        else {
+            pool.execute(targets.length, (from, to) ->
+                    computeAccelerationGeneralRelativity(sources, targets, from, to, new double[nrSources]));
+        }
+    }
+
+    /**
+     * Compute acceleration using General Relativity for a range of particles.
+     * @param sources   particles applying force
+     * @param targets   particles of this particle system
+     * @param from      index of first particle
+     * @param to        index of last particle (exclusive)
+     * @param distances array to store distances for particles that do not apply force
+     */
+    private void computeAccelerationGeneralRelativity(Particle[] sources, Particle[] targets,
+                                                      int from, int to, double[] distances) {
+        for (int t = from; t < to; t++) {
+            Particle p = targets[t];
+
+            // Distances to particles applying force are known when
+            // this particle applies force itself
+            double[] distancesParticle = null;
+            for (int i = 0; i < sources.length; i++) {
+                if (sources[i] == p) {
+                    distancesParticle = distancesGR[i];
+                    break;
+                }
+            }
+            if (distancesParticle == null) {
+                distancesParticle = distances;
+                for (int j = 0; j < sources.length; j++) {
+                    distancesParticle[j] = p.getPosition().euclideanDistance(sources[j].getPosition());
+                }
+            }
+            p.computeAccelerationGeneralRelativity(sources, distancesParticle, sumMuDivDistanceGR);
+        }
+    }
+
     /**
      * Correct for drift of entire particle system by adjusting
      * position and velocity of all particles.
@@ -300,21 +1258,27 @@ public class ParticleSystem implements Serializable {
     public void correctDrift() {
         // Determine position and velocity of the center of mass
         // Use gravitational parameter mu instead of mass for better accuracy
-        Vector3D positionCenterMass = new Vector3D();
-        Vector3D velocityCenterMass = new Vector3D();
+        initDriftBuffers();
+        driftPosition.set(0.0, 0.0, 0.0);
+        driftVelocity.set(0.0, 0.0, 0.0);
         double totalMu = 0.0;
-        for (Particle p : particles.values()) {
-            positionCenterMass.addVector(p.getPosition().scalarProduct(p.getMu()));
-            velocityCenterMass.addVector(p.getVelocity().scalarProduct(p.getMu()));
+        for (Particle p : getParticleArray()) {
+            driftPosition.addScaled(p.getPosition(), p.getMu());
+            driftVelocity.addScaled(p.getVelocity(), p.getMu());
             totalMu += p.getMu();
         }
         if (totalMu != 0.0) {
-            positionCenterMass = positionCenterMass.scalarProduct(1.0 / totalMu);
-            velocityCenterMass = velocityCenterMass.scalarProduct(1.0 / totalMu);
+            driftPosition.setScaled(driftPosition, 1.0 / totalMu);
+            driftVelocity.setScaled(driftVelocity, 1.0 / totalMu);
         }
 
         // Adjust position and velocity of all particles
-        correctDrift(positionCenterMass,velocityCenterMass);
+        for (Particle p : getParticleArray()) {
+            p.correctDrift(driftPosition,driftVelocity);
+        }
+        if (denseOutput != null) {
+            denseOutput.correctDrift(driftPosition, driftVelocity, elapsedTime);
+        }
     }
 
     /**
@@ -324,8 +1288,26 @@ public class ParticleSystem implements Serializable {
      * @param driftVelocity  drift in velocity to correct for
      */
     public void correctDrift(Vector3D driftPosition, Vector3D driftVelocity) {
-        for (Particle p : particles.values()) {
-            p.correctDrift(driftPosition,driftVelocity);
+        // Copy drift first, since it may be position and velocity of one of the
+        // particles, e.g., the Sun, which are adjusted in place
+        initDriftBuffers();
+        this.driftPosition.set(driftPosition);
+        this.driftVelocity.set(driftVelocity);
+        for (Particle p : getParticleArray()) {
+            p.correctDrift(this.driftPosition,this.driftVelocity);
+        }
+        if (denseOutput != null) {
+            denseOutput.correctDrift(this.driftPosition, this.driftVelocity, elapsedTime);
+        }
+    }
+
+    /**
+     * Allocate buffers to store position and velocity to correct drift for.
+     */
+    private void initDriftBuffers() {
+        if (driftPosition == null) {
+            driftPosition = new Vector3D();
+            driftVelocity = new Vector3D();
         }
     }
 
@@ -333,7 +1315,7 @@ public class ParticleSystem implements Serializable {
      * Compute total kinetic energy of the particle system.
      * @return total kinetic energy in J
      */
-    private double computeKineticEnergy() {
+    public double computeKineticEnergy() {
         double kineticEnergy = 0.0;
         for (Particle p : particles.values()) {
             kineticEnergy += p.getKineticEnergy();
@@ -343,9 +1325,12 @@ public class ParticleSystem implements Serializable {
 
     /**
      * Compute total potential energy of the particle system.
+     * Potential energy of each particle is computed together with its acceleration.
+     * After a time step of the Wisdom-Holman map, it corresponds to the
+     * positions at the end of the time step.
      * @return total potential energy in J
      */
-    private double computePotentialEnergy() {
+    public double computePotentialEnergy() {
         double potentialEnergy = 0.0;
         for (Particle p : particles.values()) {
             potentialEnergy += p.getPotentialEnergy();
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package particlesystem;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fixed pool of worker threads to process the particles of a particle system
+ * in parallel. Particles are partitioned into contiguous chunks, one chunk per
+ * thread. The calling thread processes the first chunk and waits until all
+ * other chunks are processed.
+ * Each chunk writes only the state of its own particles, such that results do
+ * not depend on the number of threads.
+ * The pool is also used to advance independent particle systems in parallel.
+ * @author Nico Kuijpers
+ */
+public class ParticleTaskPool {
+
+    /**
+     * Task to process particles with id from (inclusive) to id to (exclusive).
+     */
+    public interface ChunkTask {
+        void run(int from, int to);
+    }
+
+    // Number of threads including the calling thread
+    private final int nrThreads;
+
+    // Worker threads
+    private final ExecutorService executor;
+
+    // Results of submitted chunks
+    private final Future<?>[] futures;
+
+    /**
+     * Constructor.
+     * @param nrThreads number of threads including the calling thread
+     */
+    public ParticleTaskPool(int nrThreads) {
+        this.nrThreads = nrThreads;
+        this.executor = Executors.newFixedThreadPool(nrThreads - 1, runnable -> {
+            // Worker threads do not prevent the application from exiting
+            Thread thread = new Thread(runnable, "ParticleSystem worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.futures = new Future<?>[nrThreads];
+    }
+
+    /**
+     * Get number of threads including the calling thread.
+     * @return number of threads
+     */
+    public int getNrThreads() {
+        return nrThreads;
+    }
+
+    /**
+     * Process particles with id 0 .. size-1 in parallel and wait for completion.
+     * @param size number of particles
+     * @param task task to process a chunk of particles
+     */
+    public void execute(int size, ChunkTask task) {
+        int nrChunks = Math.min(nrThreads, size);
+        if (nrChunks <= 1) {
+            task.run(0, size);
+            return;
+        }
+        for (int chunk = 1; chunk < nrChunks; chunk++) {
+            int from = (int) ((long) chunk * size / nrChunks);
+            int to = (int) ((long) (chunk + 1) * size / nrChunks);
+            futures[chunk] = executor.submit(() -> task.run(from, to));
+        }
+        // Chunk of the calling thread; a failure is rethrown after all
+        // other chunks have completed
+        Throwable failure = null;
+        try {
+            task.run(0, size / nrChunks);
+        } catch (RuntimeException | Error ex) {
+            failure = ex;
+        }
+
+        // Wait for all chunks, also when the calling thread is interrupted,
+        // such that the state of the particle system remains consistent
+        boolean interrupted = false;
+        for (int chunk = 1; chunk < nrChunks; chunk++) {
+            while (futures[chunk] != null) {
+                try {
+                    futures[chunk].get();
+                    futures[chunk] = null;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    if (failure == null) {
+                        failure = ex.getCause();
+                    }
+                    futures[chunk] = null;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+    }
+
+    /**
+     * Stop worker threads.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -109,17 +109,20 @@ public class OblatePlanet extends Particle {
     }
 
     @Override
-    protected Vector3D accelerationNewtonMechanics(Particle p) {
-        double distance = this.getPosition().euclideanDistance(p.getPosition());
+    protected boolean isPointMass() {
+        return false;
+    }
+
+    @Override
+    protected Vector3D accelerationNewtonMechanics(Vector3D positionPlanet, Vector3D positionParticle) {
+        double distance = positionPlanet.euclideanDistance(positionParticle);
         if (distance > MAXDISTANCEOBLATENESS) {
             // Do not use oblateness
-            return super.accelerationNewtonMechanics(p);
+            return super.accelerationNewtonMechanics(positionPlanet, positionParticle);
         }
         else {
             // Compute acceleration applied by oblate planet to other particle using
             // perturbation forces from zonal coefficients with derivatives of Legendre polynomials
-            Vector3D positionPlanet = this.getPosition();
-            Vector3D positionParticle = p.getPosition();
             Vector3D position = positionParticle.minus(positionPlanet);
             Vector3D positionEquatorialPlane = transformFromEclipticPlaneToEquatorialPlane(position);
             Vector3D acceleration = gravitationalPotentialDerivativeFromPerturbationsPlanet(positionEquatorialPlane);
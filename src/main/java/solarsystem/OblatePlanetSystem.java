@@ -26,6 +26,7 @@ import util.Vector3D;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.GregorianCalendar;
 import java.util.List;
 
@@ -48,6 +49,10 @@ public class OblatePlanetSystem extends ParticleSystem implements Serializable {
     // Particles from Solar System
     private List<Particle> solarSystemParticles;
 
+    // Particles applying force; rebuilt when particles are added or removed
+    private transient List<Particle> particlesApplyingForce;
+    private transient int nrChangesApplyingForce;
+
     /**
      * Constructor.
      * Create planet at origin of the particle system.
@@ -78,15 +83,22 @@ public class OblatePlanetSystem extends ParticleSystem implements Serializable {
         this.addParticle(planetName, planet);
     }
 
+    @Override
+    protected Collection<Particle> getParticlesApplyingForce() {
+        // Include the Sun and large planets from the Solar System
+        if (particlesApplyingForce == null || nrChangesApplyingForce != getNrChangesParticles()) {
+            particlesApplyingForce = new ArrayList<>(particles.values());
+            particlesApplyingForce.addAll(solarSystemParticles);
+            nrChangesApplyingForce = getNrChangesParticles();
+        }
+        return particlesApplyingForce;
+    }
+
     @Override
     protected void computeAcceleration() {
         // Compute acceleration using Newton mechanics
         // Include the Sun and large planets from the Solar System
-        List<Particle> tempParticles = new ArrayList<>(particles.values());
-        tempParticles.addAll(solarSystemParticles);
-        for (Particle p : particles.values()) {
-            p.computeAccelerationNewtonMechanics(tempParticles);
-        }
+        computeAccelerationNewtonMechanics();
 
         // TODO CHECK GENERAL RELATIVITY
         // NOTE accelerationNewtonMechanics may be null pointer
@@ -94,9 +106,7 @@ public class OblatePlanetSystem extends ParticleSystem implements Serializable {
         if (getGeneralRelativityFlag()) {
             // Note that the acceleration computed by Newton mechanics
             // is used to compute acceleration using General Relativity
-            for (Particle p : particles.values()) {
-                p.computeAccelerationGeneralRelativity(tempParticles);
-            }
+            computeAccelerationGeneralRelativity(getParticlesApplyingForce());
         }
     }
 
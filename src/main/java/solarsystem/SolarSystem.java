@@ -21,12 +21,21 @@ package solarsystem;
 
 import application.SolarSystemException;
 import ephemeris.*;
+import particlesystem.DenseOutput;
+import particlesystem.EventDetector;
 import particlesystem.Particle;
 import particlesystem.ParticleSystem;
+import particlesystem.ParticleTaskPool;
 import spacecraft.*;
 import util.Vector3D;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
 /**
@@ -43,6 +52,11 @@ public class SolarSystem extends ParticleSystem implements Serializable {
     // Ephemeris for the Solar System
     private static final IEphemeris ephemeris = EphemerisSolarSystem.getInstance();
 
+    // Ephemerides are shared by all Solar Systems. Spacecraft events and prefetching
+    // of ephemeris files are handled by one Solar System at a time, such that
+    // Solar Systems can be advanced on different threads, e.g., in an ensemble
+    private static final Object ephemerisLock = new Object();
+
     // Solar System parameters
     private static final SolarSystemParameters solarSystemParameters = SolarSystemParameters.getInstance();
 
@@ -69,9 +83,21 @@ public class SolarSystem extends ParticleSystem implements Serializable {
 
     // Planet systems
     private Map<String,ParticleSystem> planetSystems;
+
+    // Flag to indicate whether planet systems are advanced concurrently
+    private boolean concurrentPlanetSystemsFlag;
+
+    // Worker threads to advance planet systems concurrently
+    private transient ParticleTaskPool planetSystemsTaskPool;
+
+    // Flag to indicate whether Dormand-Prince method with adaptive step size is used
+    private boolean adaptiveStepSizeFlag;
+
+    // Flag to indicate whether Hermite scheme with block time steps is used
+    private boolean blockTimeStepsFlag;
     
-    // Simulation date/time
-    private GregorianCalendar simulationDateTime;
+    // Simulation epoch
+    private Epoch simulationEpoch;
     
     // Simulation time step 60 min
     // General Relativity: Runge-Kutta scheme with time step 60 min
@@ -79,10 +105,27 @@ public class SolarSystem extends ParticleSystem implements Serializable {
     private final double deltaT = 3600.0;
     private final double deltaTABM4 = deltaT/2;
 
+    // Ephemeris files are requested in advance for this number of calls
+    // to advance the simulation in the same direction
+    private static final int NRCALLSPREFETCHEPHEMERIS = 100;
+
     // Spacecraft events
     private List<SpacecraftEvent> spacecraftEvents;
     private SpacecraftEvent nextEvent;
 
+    // Identification and version of snapshot files
+    private static final int SNAPSHOTMAGIC = 0x534F4C53;
+    private static final int SNAPSHOTVERSION = 1;
+
+    // Size of fixed header of snapshot files: magic, version, epoch, and flags
+    private static final int SNAPSHOTHEADERSIZE = 3*Integer.BYTES + 2*Double.BYTES;
+
+    // Flag to indicate that positions and orbits of the bodies must be computed
+    private boolean moveBodiesRequired = false;
+
+    // Recorder of trajectories, null when trajectories are not recorded
+    private transient TrajectoryRecorder trajectoryRecorder = null;
+
     /**
      * Constructor: create the Solar System and initialize for current date/time.
      */
@@ -98,24 +141,8 @@ public class SolarSystem extends ParticleSystem implements Serializable {
         // Constructor of ParticleSystem
         super();
 
-        // Initialize simulation date/time
-        simulationDateTime = new GregorianCalendar();
-        
-        // https://www.timeanddate.com/time/aboututc.html
-        // Use Coordinated Universal Time (UTC) to avoid 
-        // sudden changes in ephemeris due to changes from 
-        // winter time to summer time and vice versa
-        simulationDateTime.setTimeZone(TimeZone.getTimeZone("UTC"));
-
-        // Set simulation dateTime/time to given dateTime/time
-        simulationDateTime.set(Calendar.ERA, dateTime.get(Calendar.ERA));
-        simulationDateTime.set(Calendar.YEAR, dateTime.get(Calendar.YEAR));
-        simulationDateTime.set(Calendar.MONTH, dateTime.get(Calendar.MONTH));
-        simulationDateTime.set(Calendar.DAY_OF_MONTH, dateTime.get(Calendar.DAY_OF_MONTH));
-        simulationDateTime.set(Calendar.HOUR_OF_DAY, dateTime.get(Calendar.HOUR_OF_DAY));
-        simulationDateTime.set(Calendar.MINUTE, dateTime.get(Calendar.MINUTE));
-        simulationDateTime.set(Calendar.SECOND, dateTime.get(Calendar.SECOND));
-        simulationDateTime.set(Calendar.MILLISECOND, 0);
+        // Initialize simulation epoch to given date/time
+        simulationEpoch = createSimulationEpoch(dateTime);
         
         // Initialize hash maps for planets and moons
         planets = new HashMap<>();
@@ -140,7 +167,7 @@ public class SolarSystem extends ParticleSystem implements Serializable {
             double mass = solarSystemParameters.getMass(name);
             double mu = solarSystemParameters.getMu(name);
             double diameter = solarSystemParameters.getDiameter(name);
-            createPlanet(name, mass, mu, diameter, simulationDateTime);
+            createPlanet(name, mass, mu, diameter, simulationEpoch);
         }
 
         // Create the Moon
@@ -149,14 +176,17 @@ public class SolarSystem extends ParticleSystem implements Serializable {
         double mass = solarSystemParameters.getMass(moonName);
         double mu = solarSystemParameters.getMu(moonName);
         double diameter = solarSystemParameters.getDiameter(moonName);
-        createMoon(planetName, moonName, mass, mu, diameter, simulationDateTime);
+        createMoon(planetName, moonName, mass, mu, diameter, simulationEpoch);
 
         // Create the Earth-Moon Barycenter as particle without mass
-        createPlanet("EarthMoonBarycenter",1.0,1.0,1.0, dateTime);
+        createPlanet("EarthMoonBarycenter",1.0,1.0,1.0, new Epoch(dateTime));
 
         // Create storage for the oblate planet systems
         planetSystems = new HashMap<>();
 
+        // Advance planet systems concurrently
+        concurrentPlanetSystemsFlag = true;
+
         // Spacecraft events
         spacecraftEvents = new LinkedList<>();
         nextEvent = null;
@@ -194,6 +224,88 @@ public class SolarSystem extends ParticleSystem implements Serializable {
         setValidABM4(false);
     }
 
+    /**
+     * Set/reset flag to integrate the state of the particles in contiguous
+     * arrays instead of in the particles.
+     * @param flag flag
+     */
+    @Override
+    public void setArrayEngineFlag(boolean flag) {
+        super.setArrayEngineFlag(flag);
+        for (ParticleSystem planetSystem : planetSystems.values()) {
+            planetSystem.setArrayEngineFlag(flag);
+        }
+    }
+
+    /**
+     * Set/reset flag to advance planet systems concurrently, each
+     * planet system on its own thread.
+     * @param flag flag
+     */
+    public void setConcurrentPlanetSystemsFlag(boolean flag) {
+        concurrentPlanetSystemsFlag = flag;
+        if (!flag && planetSystemsTaskPool != null) {
+            planetSystemsTaskPool.shutdown();
+            planetSystemsTaskPool = null;
+        }
+    }
+
+    /**
+     * Get flag indicating whether planet systems are advanced concurrently.
+     * @return flag
+     */
+    public boolean getConcurrentPlanetSystemsFlag() {
+        return concurrentPlanetSystemsFlag;
+    }
+
+    /**
+     * Set/reset flag to advance the Solar System and the planet systems using
+     * Dormand-Prince method with adaptive step size instead of Runge-Kutta or
+     * Adams-Bashforth-Moulton method with fixed time step.
+     * @param flag flag
+     */
+    public void setAdaptiveStepSizeFlag(boolean flag) {
+        adaptiveStepSizeFlag = flag;
+        setValidABM4(false);
+    }
+
+    /**
+     * Get flag indicating whether Dormand-Prince method with adaptive step size is used.
+     * @return flag
+     */
+    public boolean getAdaptiveStepSizeFlag() {
+        return adaptiveStepSizeFlag;
+    }
+
+    /**
+     * Set/reset flag to advance the Solar System and the planet systems using
+     * Hermite scheme with individual (block) time steps per body instead of
+     * Adams-Bashforth-Moulton and Runge-Kutta method with fixed time step.
+     * Block time steps are not used when General Relativity is applied.
+     * @param flag flag
+     */
+    public void setBlockTimeStepsFlag(boolean flag) {
+        blockTimeStepsFlag = flag;
+        setValidABM4(false);
+    }
+
+    /**
+     * Get flag indicating whether Hermite scheme with block time steps is used.
+     * @return flag
+     */
+    public boolean getBlockTimeStepsFlag() {
+        return blockTimeStepsFlag;
+    }
+
+    /**
+     * Check whether block time steps are used to advance the simulation.
+     * Block time steps apply to Newton Mechanics only.
+     * @return true when block time steps are used
+     */
+    private boolean useBlockTimeSteps() {
+        return blockTimeStepsFlag && !getGeneralRelativityFlag();
+    }
+
     /**
      * Get reference to particle with given name.
      * @param name    Name of particle
@@ -229,9 +341,174 @@ public class SolarSystem extends ParticleSystem implements Serializable {
      * @return current simulation date/time
      */
     public GregorianCalendar getSimulationDateTime() {
-        GregorianCalendar gc = (GregorianCalendar) simulationDateTime.clone();
-        gc.setTimeZone(TimeZone.getTimeZone("UTC"));
-        return gc;
+        return simulationEpoch.toCalendar();
+    }
+
+    /**
+     * Get current simulation epoch.
+     * @return current simulation epoch
+     */
+    public Epoch getSimulationEpoch() {
+        return simulationEpoch;
+    }
+
+    /**
+     * Get time step used by advanceSimulationForward and advanceSimulationBackward.
+     * @return simulation time step [s]
+     */
+    public double getDeltaT() {
+        return deltaT;
+    }
+
+    /**
+     * Set/reset flag to store dense output for all time steps since the
+     * last reset of the dense output. Dense output is also stored for the
+     * planet systems.
+     * @param flag true when dense output is stored
+     */
+    @Override
+    public void setDenseOutputFlag(boolean flag) {
+        super.setDenseOutputFlag(flag);
+        if (planetSystems != null) {
+            for (ParticleSystem planetSystem : planetSystems.values()) {
+                planetSystem.setDenseOutputFlag(flag);
+            }
+        }
+    }
+
+    /**
+     * Remove dense output of all time steps taken so far, including the
+     * dense output of the planet systems.
+     */
+    @Override
+    public void resetDenseOutput() {
+        super.resetDenseOutput();
+        if (planetSystems != null) {
+            for (ParticleSystem planetSystem : planetSystems.values()) {
+                planetSystem.resetDenseOutput();
+            }
+        }
+    }
+
+    /**
+     * Check whether the dense output of the time steps since the last reset
+     * covers given epoch.
+     * @param epoch epoch
+     * @return true when positions and velocities can be interpolated at epoch
+     */
+    public boolean denseOutputContains(Epoch epoch) {
+        DenseOutput denseOutput = getDenseOutput();
+        return denseOutput != null && denseOutput.contains(getElapsedTime(epoch));
+    }
+
+    /**
+     * Get position and velocity of particle with given name at given epoch,
+     * interpolated from the dense output of the time steps since the last reset.
+     * Position and velocity of particles in planet systems are interpolated
+     * relative to their planet.
+     * @param name  name of particle
+     * @param epoch epoch
+     * @return position and velocity or null when dense output does not cover epoch
+     */
+    public Vector3D[] getInterpolatedPositionVelocity(String name, Epoch epoch) {
+        double time = getElapsedTime(epoch);
+        String planetName = centerBodies.get(name);
+        ParticleSystem planetSystem = planetName != null ? planetSystems.get(planetName) : null;
+        if (planetSystem == null) {
+            return interpolatePositionVelocity(getDenseOutput(), name, time);
+        }
+        Vector3D[] planet = interpolatePositionVelocity(getDenseOutput(), planetName, time);
+        Vector3D[] relative = interpolatePositionVelocity(planetSystem.getDenseOutput(), name,
+                planetSystem.getElapsedTime() + epoch.secondsSince(simulationEpoch));
+        if (planet == null || relative == null) {
+            return null;
+        }
+        return new Vector3D[]{planet[0].plus(relative[0]), planet[1].plus(relative[1])};
+    }
+
+    /**
+     * Interpolate position and velocity of particle with given name from dense output.
+     * @param denseOutput dense output, may be null
+     * @param name        name of particle
+     * @param time        elapsed time [s]
+     * @return position and velocity or null when dense output does not cover time
+     */
+    private static Vector3D[] interpolatePositionVelocity(DenseOutput denseOutput, String name, double time) {
+        if (denseOutput == null || !denseOutput.contains(name) || !denseOutput.contains(time)) {
+            return null;
+        }
+        return new Vector3D[]{denseOutput.getPosition(name, time), denseOutput.getVelocity(name, time)};
+    }
+
+    /**
+     * Get epoch of event detected by an event detector of the Solar System.
+     * The event should be detected after the simulation was initialized.
+     * @param event event
+     * @return epoch of event
+     */
+    public Epoch getEventEpoch(EventDetector.Event event) {
+        return getEpoch(event.getTime());
+    }
+
+    /**
+     * Get epoch corresponding to elapsed time of the particle system.
+     * @param elapsedTime elapsed time [s]
+     * @return epoch
+     */
+    public Epoch getEpoch(double elapsedTime) {
+        return simulationEpoch.plusSeconds(elapsedTime - getElapsedTime());
+    }
+
+    /**
+     * Get elapsed time of the particle system corresponding to epoch.
+     * Dense output and events are expressed in elapsed time.
+     * @param epoch epoch
+     * @return elapsed time [s]
+     */
+    public double getElapsedTime(Epoch epoch) {
+        return getElapsedTime() + epoch.secondsSince(simulationEpoch);
+    }
+
+    /**
+     * Create simulation epoch for given date/time in UTC, truncated to seconds.
+     * @param dateTime date/time
+     * @return simulation epoch
+     */
+    private static Epoch createSimulationEpoch(GregorianCalendar dateTime) {
+        GregorianCalendar simulationDateTime = new GregorianCalendar();
+
+        // https://www.timeanddate.com/time/aboututc.html
+        // Use Coordinated Universal Time (UTC) to avoid
+        // sudden changes in ephemeris due to changes from
+        // winter time to summer time and vice versa
+        simulationDateTime.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        // Set simulation date/time to given date/time
+        simulationDateTime.set(Calendar.ERA, dateTime.get(Calendar.ERA));
+        simulationDateTime.set(Calendar.YEAR, dateTime.get(Calendar.YEAR));
+        simulationDateTime.set(Calendar.MONTH, dateTime.get(Calendar.MONTH));
+        simulationDateTime.set(Calendar.DAY_OF_MONTH, dateTime.get(Calendar.DAY_OF_MONTH));
+        simulationDateTime.set(Calendar.HOUR_OF_DAY, dateTime.get(Calendar.HOUR_OF_DAY));
+        simulationDateTime.set(Calendar.MINUTE, dateTime.get(Calendar.MINUTE));
+        simulationDateTime.set(Calendar.SECOND, dateTime.get(Calendar.SECOND));
+        simulationDateTime.set(Calendar.MILLISECOND, 0);
+        return new Epoch(simulationDateTime);
+    }
+
+    /**
+     * Check whether simulation epoch is before first valid date of ephemeris.
+     * @return true when simulation epoch is before first valid date
+     */
+    private boolean simulationEpochBeforeEphemeris() {
+        return simulationEpoch.before(new Epoch(ephemeris.getFirstValidDate()));
+    }
+
+    /**
+     * Check whether simulation epoch is after last valid date of ephemeris.
+     * @return true when simulation epoch is after last valid date
+     */
+    private boolean simulationEpochAfterEphemeris() {
+        return simulationEpoch.after(new Epoch(ephemeris.getLastValidDate()));
     }
 
     /**
@@ -242,13 +519,25 @@ public class SolarSystem extends ParticleSystem implements Serializable {
     public void createPlanetSystem(String planetName) throws SolarSystemException {
 
         // Check whether simulation date/time is valid
-        if (simulationDateTime.before(ephemeris.getFirstValidDate())) {
+        if (simulationEpochBeforeEphemeris()) {
             throw new SolarSystemException("Date not valid before 3000 BC for " + planetName + " System");
         }
-        if (simulationDateTime.after(ephemeris.getLastValidDate())) {
+        if (simulationEpochAfterEphemeris()) {
             throw new SolarSystemException("Date not valid after AD 3000 for " + planetName + " System");
         }
 
+        // Create the planet system and compute positions of the moons
+        addPlanetSystem(planetName, true);
+    }
+
+    /**
+     * Add planet system for planet with given name when it does not exist.
+     * When moons are not obtained from the ephemeris, their position and
+     * velocity are zero and must be set afterwards.
+     * @param planetName         name of the planet
+     * @param moonsFromEphemeris obtain position and velocity of moons from ephemeris
+     */
+    private void addPlanetSystem(String planetName, boolean moonsFromEphemeris) {
         // Check whether planet system already exists
         if (!planetSystems.containsKey(planetName)) {
             // Create the planet system
@@ -264,6 +553,13 @@ public class SolarSystem extends ParticleSystem implements Serializable {
             // should be applied when computing acceleration
             planetSystem.setGeneralRelativityFlag(getGeneralRelativityFlag());
 
+            // Set flag to indicate whether the state of the particles
+            // should be integrated in contiguous arrays
+            planetSystem.setArrayEngineFlag(getArrayEngineFlag());
+
+            // Set flag to indicate whether dense output should be stored
+            planetSystem.setDenseOutputFlag(getDenseOutputFlag());
+
             // Store reference to this planet system
             planetSystems.put(planetName, planetSystem);
 
@@ -272,7 +568,13 @@ public class SolarSystem extends ParticleSystem implements Serializable {
                 double mass = solarSystemParameters.getMass(moonName);
                 double mu = solarSystemParameters.getMu(moonName);
                 double diameter = solarSystemParameters.getDiameter(moonName);
-                createMoon(planetName, moonName, mass, mu, diameter, simulationDateTime);
+                if (moonsFromEphemeris) {
+                    createMoon(planetName, moonName, mass, mu, diameter, simulationEpoch);
+                }
+                else {
+                    addMoon(planetName, moonName, mass, mu, diameter, new Vector3D(), new Vector3D(),
+                            null, new Vector3D(), new Vector3D());
+                }
             }
         }
     }
@@ -306,23 +608,26 @@ public class SolarSystem extends ParticleSystem implements Serializable {
      * @throws SolarSystemException when date before 3000 BC or after AD 3000
      */
     public void initializeSimulation(GregorianCalendar dateTime) throws SolarSystemException {
-        // Check whether simulation date/time is valid
-        if (dateTime.before(ephemeris.getFirstValidDate())) {
+        initializeSimulation(createSimulationEpoch(dateTime));
+    }
+
+    /**
+     * Initialize simulation for given epoch.
+     * @param epoch epoch
+     * @throws SolarSystemException when epoch before 3000 BC or after AD 3000
+     */
+    public void initializeSimulation(Epoch epoch) throws SolarSystemException {
+        // Check whether simulation epoch is valid
+        if (epoch.before(new Epoch(ephemeris.getFirstValidDate()))) {
             throw new SolarSystemException("Date not valid before 3000 BC");
         }
-        if (dateTime.after(ephemeris.getLastValidDate())) {
+        if (epoch.after(new Epoch(ephemeris.getLastValidDate()))) {
             throw new SolarSystemException("Date not valid after AD 3000");
         }
 
-        // Set simulation date/time to given date/time
-        simulationDateTime.set(Calendar.ERA, dateTime.get(Calendar.ERA));
-        simulationDateTime.set(Calendar.YEAR, dateTime.get(Calendar.YEAR));
-        simulationDateTime.set(Calendar.MONTH, dateTime.get(Calendar.MONTH));
-        simulationDateTime.set(Calendar.DAY_OF_MONTH, dateTime.get(Calendar.DAY_OF_MONTH));
-        simulationDateTime.set(Calendar.HOUR_OF_DAY, dateTime.get(Calendar.HOUR_OF_DAY));
-        simulationDateTime.set(Calendar.MINUTE, dateTime.get(Calendar.MINUTE));
-        simulationDateTime.set(Calendar.SECOND, dateTime.get(Calendar.SECOND));
-        simulationDateTime.set(Calendar.MILLISECOND, 0);
+        // Set simulation epoch to given epoch
+        simulationEpoch = epoch;
+        resetDenseOutput();
 
         // Initialize trajectories of spacecraft
         for (String spacecraftName : spacecraft.keySet()) {
@@ -344,7 +649,287 @@ public class SolarSystem extends ParticleSystem implements Serializable {
         // Reset flag to indicate that values stored in cyclic arrays are not valid.
         setValidABM4(false);
     }
-            
+
+    /**
+     * Save simulation state to snapshot file.
+     * @param file snapshot file
+     * @throws IOException when the file cannot be written
+     */
+    public void saveSnapshot(File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(getSnapshotSize());
+        writeSnapshot(buffer);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Load simulation state from snapshot file saved by saveSnapshot.
+     * Positions and orbits of the bodies are not computed; call moveBodies()
+     * when they are needed.
+     * @param file snapshot file
+     * @throws IOException when the file cannot be read or has a wrong format
+     * @throws SolarSystemException when epoch of snapshot is not valid
+     */
+    public void loadSnapshot(File file) throws IOException, SolarSystemException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Read until buffer is full
+            }
+        }
+        buffer.flip();
+        readSnapshot(buffer);
+    }
+
+    /**
+     * Number of bytes needed to write a snapshot of the simulation state.
+     * @return number of bytes written by writeSnapshot
+     */
+    public int getSnapshotSize() {
+        int size = SNAPSHOTHEADERSIZE + 2*Integer.BYTES + getStateSize();
+        for (Map.Entry<String, ParticleSystem> entry : planetSystems.entrySet()) {
+            size += getNameSize(entry.getKey()) + entry.getValue().getStateSize();
+        }
+        for (String spacecraftName : spacecraft.keySet()) {
+            size += getNameSize(spacecraftName) + getNameSize(centerBodies.getOrDefault(spacecraftName, ""));
+        }
+        return size;
+    }
+
+    /**
+     * Write snapshot of the simulation state to buffer. The snapshot contains a
+     * fixed header with simulation epoch and flags, followed by the names of the
+     * planet systems and spacecraft, and the state of the particles of the Solar
+     * System and of each planet system.
+     * @param buffer buffer with at least getSnapshotSize() bytes remaining
+     */
+    public void writeSnapshot(ByteBuffer buffer) {
+        List<String> planetSystemNames = new ArrayList<>(planetSystems.keySet());
+        List<String> spacecraftNames = new ArrayList<>(spacecraft.keySet());
+
+        // Header
+        buffer.putInt(SNAPSHOTMAGIC);
+        buffer.putInt(SNAPSHOTVERSION);
+        buffer.putDouble(simulationEpoch.getJulianDayNumber());
+        buffer.putDouble(simulationEpoch.getSecondsOfDay());
+        int flags = 0;
+        flags |= getGeneralRelativityFlag() ? 1 : 0;
+        flags |= getCurvatureWavePropagationFlag() ? 2 : 0;
+        flags |= getArrayEngineFlag() ? 4 : 0;
+        flags |= concurrentPlanetSystemsFlag ? 8 : 0;
+        flags |= adaptiveStepSizeFlag ? 16 : 0;
+        flags |= blockTimeStepsFlag ? 32 : 0;
+        buffer.putInt(flags);
+
+        // Planet systems and spacecraft with their center body
+        buffer.putInt(planetSystemNames.size());
+        for (String planetName : planetSystemNames) {
+            putName(buffer, planetName);
+        }
+        buffer.putInt(spacecraftNames.size());
+        for (String spacecraftName : spacecraftNames) {
+            putName(buffer, spacecraftName);
+            putName(buffer, centerBodies.getOrDefault(spacecraftName, ""));
+        }
+
+        // State of the particles
+        writeState(buffer);
+        for (String planetName : planetSystemNames) {
+            planetSystems.get(planetName).writeState(buffer);
+        }
+    }
+
+    /**
+     * Contents of a snapshot read from buffer. A snapshot is read completely
+     * before it is applied, such that the simulation state is not changed
+     * when the snapshot has a wrong format.
+     */
+    private static class Snapshot {
+        private Epoch epoch;
+        private int flags;
+        private final List<String> planetSystemNames = new ArrayList<>();
+        private final Map<String, String> spacecraftCenterBodies = new LinkedHashMap<>();
+        private ParticleSystem.State state;
+        private final Map<String, ParticleSystem.State> planetSystemStates = new LinkedHashMap<>();
+    }
+
+    /**
+     * Read snapshot of the simulation state written by writeSnapshot from buffer.
+     * Planet systems and spacecraft are created or removed such that they
+     * correspond to the snapshot. The simulation state is only changed when the
+     * snapshot is valid. Positions and orbits of the bodies are not computed;
+     * call moveBodies() when they are needed.
+     * @param buffer buffer
+     * @throws IOException when the snapshot has a wrong format
+     * @throws SolarSystemException when epoch of snapshot is not valid
+     */
+    public void readSnapshot(ByteBuffer buffer) throws IOException, SolarSystemException {
+        Snapshot snapshot = parseSnapshot(buffer);
+
+        // Check whether epoch of snapshot is valid for planet systems
+        if (!snapshot.planetSystemNames.isEmpty()) {
+            String planetName = snapshot.planetSystemNames.get(0);
+            if (snapshot.epoch.before(new Epoch(ephemeris.getFirstValidDate()))) {
+                throw new SolarSystemException("Date not valid before 3000 BC for " + planetName + " System");
+            }
+            if (snapshot.epoch.after(new Epoch(ephemeris.getLastValidDate()))) {
+                throw new SolarSystemException("Date not valid after AD 3000 for " + planetName + " System");
+            }
+        }
+
+        // Keep current simulation state to restore it when the particles of the
+        // snapshot do not correspond to the particles of the simulation
+        ByteBuffer current = ByteBuffer.allocate(getSnapshotSize());
+        writeSnapshot(current);
+        current.flip();
+        Snapshot previous = parseSnapshot(current);
+        try {
+            applySnapshot(snapshot);
+        }
+        catch (IOException ex) {
+            applySnapshot(previous);
+            throw ex;
+        }
+    }
+
+    /**
+     * Parse snapshot written by writeSnapshot from buffer without changing
+     * the simulation state.
+     * @param buffer buffer
+     * @return contents of the snapshot
+     * @throws IOException when the snapshot has a wrong format
+     */
+    private Snapshot parseSnapshot(ByteBuffer buffer) throws IOException {
+        Snapshot snapshot = new Snapshot();
+        try {
+            // Header
+            if (buffer.getInt() != SNAPSHOTMAGIC) {
+                throw new IOException("Wrong format of snapshot");
+            }
+            if (buffer.getInt() != SNAPSHOTVERSION) {
+                throw new IOException("Wrong version of snapshot");
+            }
+            snapshot.epoch = new Epoch(buffer.getDouble(), buffer.getDouble());
+            snapshot.flags = buffer.getInt();
+
+            // Planet systems and spacecraft with their center body
+            int nrPlanetSystems = buffer.getInt();
+            for (int i = 0; i < nrPlanetSystems; i++) {
+                snapshot.planetSystemNames.add(getName(buffer));
+            }
+            int nrSpacecraft = buffer.getInt();
+            for (int i = 0; i < nrSpacecraft; i++) {
+                String spacecraftName = getName(buffer);
+                snapshot.spacecraftCenterBodies.put(spacecraftName, getName(buffer));
+            }
+
+            // State of the particles
+            snapshot.state = parseState(buffer);
+            for (String planetName : snapshot.planetSystemNames) {
+                snapshot.planetSystemStates.put(planetName, parseState(buffer));
+            }
+        }
+        catch (BufferUnderflowException | NegativeArraySizeException ex) {
+            throw new IOException("Unexpected end of snapshot");
+        }
+        return snapshot;
+    }
+
+    /**
+     * Apply snapshot to the simulation state. Moons of new planet systems are
+     * not obtained from the ephemeris, as their state is read from the snapshot.
+     * @param snapshot contents of the snapshot
+     * @throws IOException when the particles of the snapshot do not correspond
+     */
+    private void applySnapshot(Snapshot snapshot) throws IOException {
+        // Create and remove planet systems and spacecraft
+        simulationEpoch = snapshot.epoch;
+        for (String planetName : new ArrayList<>(planetSystems.keySet())) {
+            if (!snapshot.planetSystemNames.contains(planetName)) {
+                removePlanetSystem(planetName);
+            }
+        }
+        for (String spacecraftName : new ArrayList<>(spacecraft.keySet())) {
+            if (!snapshot.spacecraftCenterBodies.containsKey(spacecraftName)) {
+                removeSpacecraft(spacecraftName);
+            }
+        }
+        for (String planetName : snapshot.planetSystemNames) {
+            addPlanetSystem(planetName, false);
+        }
+        for (Map.Entry<String, String> entry : snapshot.spacecraftCenterBodies.entrySet()) {
+            String spacecraftName = entry.getKey();
+            String centerBody = entry.getValue();
+            if (!spacecraft.containsKey(spacecraftName)) {
+                createSpacecraft(spacecraftName);
+            }
+            if (!centerBody.equals(centerBodies.getOrDefault(spacecraftName, ""))) {
+                transferSpacecraftToSolarSystem(spacecraftName);
+                if (!centerBody.isEmpty()) {
+                    transferSpacecraftToPlanetSystem(spacecraftName, centerBody);
+                }
+            }
+        }
+
+        // Check whether particles correspond before state is changed
+        checkState(snapshot.state);
+        for (Map.Entry<String, ParticleSystem.State> entry : snapshot.planetSystemStates.entrySet()) {
+            planetSystems.get(entry.getKey()).checkState(entry.getValue());
+        }
+
+        // Flags
+        int flags = snapshot.flags;
+        setGeneralRelativityFlag((flags & 1) != 0);
+        setCurvatureWavePropagationFlag((flags & 2) != 0);
+        setArrayEngineFlag((flags & 4) != 0);
+        setConcurrentPlanetSystemsFlag((flags & 8) != 0);
+        setAdaptiveStepSizeFlag((flags & 16) != 0);
+        setBlockTimeStepsFlag((flags & 32) != 0);
+
+        // State of the particles
+        applyState(snapshot.state);
+        for (Map.Entry<String, ParticleSystem.State> entry : snapshot.planetSystemStates.entrySet()) {
+            planetSystems.get(entry.getKey()).applyState(entry.getValue());
+        }
+        updateEarthMoonBarycenter();
+        scheduleNextSpacecraftEvent();
+
+        // Positions and orbits of the bodies are computed when needed
+        moveBodiesRequired = true;
+    }
+
+    /**
+     * Check whether a file is a snapshot file saved by saveSnapshot.
+     * @param file file
+     * @return true when the file starts with the identification of snapshot files
+     * @throws IOException when the file cannot be read
+     */
+    public static boolean isSnapshot(File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Read until buffer is full
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() == Integer.BYTES && buffer.getInt() == SNAPSHOTMAGIC;
+    }
+
+    /**
+     * Check whether positions and orbits of the bodies must be computed by
+     * moveBodies(), because the simulation state was read from a snapshot.
+     * @return true when moveBodies() must be called before bodies are shown
+     */
+    public boolean isMoveBodiesRequired() {
+        return moveBodiesRequired;
+    }
+
     /**
      * Advance simulation of planet systems with time steps
      * of at most 10 minutes.
@@ -369,21 +954,27 @@ public class SolarSystem extends ParticleSystem implements Serializable {
         }
 
         // Advance planet systems using Runge-Kutta method
-        double totalTime = 0.0;
-        if (deltaT < 0.0) {
-            while (totalTime > deltaT) {
-                for (ParticleSystem planetSystem : planetSystems.values()) {
-                    planetSystem.advanceRungeKutta(-timeStep);
+        // During the time step, particles of the Solar System do not move and
+        // planet systems are independent. Each planet system is advanced over
+        // the entire time step on its own thread. The calling thread waits
+        // until all planet systems are advanced.
+        ParticleSystem[] systems = planetSystems.values().toArray(new ParticleSystem[0]);
+        if (concurrentPlanetSystemsFlag && systems.length > 1) {
+            if (planetSystemsTaskPool == null || planetSystemsTaskPool.getNrThreads() != systems.length) {
+                if (planetSystemsTaskPool != null) {
+                    planetSystemsTaskPool.shutdown();
                 }
-                totalTime -= timeStep;
+                planetSystemsTaskPool = new ParticleTaskPool(systems.length);
             }
+            planetSystemsTaskPool.execute(systems.length, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    advancePlanetSystem(systems[i], deltaT, timeStep);
+                }
+            });
         }
         else {
-            while (totalTime < deltaT) {
-                for (ParticleSystem planetSystem : planetSystems.values()) {
-                    planetSystem.advanceRungeKutta(timeStep);
-                }
-                totalTime += timeStep;
+            for (ParticleSystem planetSystem : systems) {
+                advancePlanetSystem(planetSystem, deltaT, timeStep);
             }
         }
 
@@ -393,14 +984,55 @@ public class SolarSystem extends ParticleSystem implements Serializable {
         }
     }
 
+    /**
+     * Advance simulation of a single planet system using Runge-Kutta method,
+     * Dormand-Prince method with adaptive step size, or Hermite scheme
+     * with block time steps.
+     * @param planetSystem planet system
+     * @param deltaT simulation time step [s]
+     * @param timeStep time step for planet system when using Runge-Kutta method [s]
+     */
+    private void advancePlanetSystem(ParticleSystem planetSystem, double deltaT, double timeStep) {
+        if (adaptiveStepSizeFlag) {
+            planetSystem.advanceDormandPrince(deltaT);
+            return;
+        }
+        if (useBlockTimeSteps()) {
+            planetSystem.advanceBlockTimeSteps(deltaT);
+            return;
+        }
+        double totalTime = 0.0;
+        if (deltaT < 0.0) {
+            while (totalTime > deltaT) {
+                planetSystem.advanceRungeKutta(-timeStep);
+                totalTime -= timeStep;
+            }
+        }
+        else {
+            while (totalTime < deltaT) {
+                planetSystem.advanceRungeKutta(timeStep);
+                totalTime += timeStep;
+            }
+        }
+    }
+
     /**
      * Advance forward in time for given number of simulation time steps.
      * @param nrTimeSteps number of time steps
      */
     public void advanceSimulationForward(int nrTimeSteps) {
+        resetDenseOutput();
         for (int i = 0; i < nrTimeSteps; i++) {
             advancePlanetSystems(deltaT);
-            if (getGeneralRelativityFlag()) {
+            if (adaptiveStepSizeFlag) {
+                // Dormand-Prince with adaptive step size
+                advanceDormandPrince(deltaT);
+            }
+            else if (useBlockTimeSteps()) {
+                // Hermite with block time steps for Newton Mechanics
+                advanceBlockTimeSteps(deltaT);
+            }
+            else if (getGeneralRelativityFlag()) {
                 // Runge-Kutta for General Relativity
                 advanceRungeKutta(deltaT);
             }
@@ -411,9 +1043,11 @@ public class SolarSystem extends ParticleSystem implements Serializable {
             }
             correctDrift();
             updateEarthMoonBarycenter();
-            simulationDateTime.add(Calendar.SECOND, (int) deltaT);
+            simulationEpoch = simulationEpoch.plusSeconds(deltaT);
             checkForSpacecraftEvent();
+            recordTrajectories();
         }
+        prefetchEphemeris(nrTimeSteps*deltaT);
     }
     
     /**
@@ -421,9 +1055,18 @@ public class SolarSystem extends ParticleSystem implements Serializable {
      * @param nrTimeSteps number of time steps
      */
     public void advanceSimulationBackward(int nrTimeSteps) {
+        resetDenseOutput();
         for (int i = 0; i < nrTimeSteps; i++) {
             advancePlanetSystems(-deltaT);
-            if (getGeneralRelativityFlag()) {
+            if (adaptiveStepSizeFlag) {
+                // Dormand-Prince with adaptive step size
+                advanceDormandPrince(-deltaT);
+            }
+            else if (useBlockTimeSteps()) {
+                // Hermite with block time steps for Newton Mechanics
+                advanceBlockTimeSteps(-deltaT);
+            }
+            else if (getGeneralRelativityFlag()) {
                 // Runge-Kutta for General Relativity
                 advanceRungeKutta(-deltaT);
             }
@@ -434,7 +1077,39 @@ public class SolarSystem extends ParticleSystem implements Serializable {
             }
             correctDrift();
             updateEarthMoonBarycenter();
-            simulationDateTime.add(Calendar.SECOND, (int) -deltaT);
+            simulationEpoch = simulationEpoch.plusSeconds(-deltaT);
+            recordTrajectories();
+        }
+        prefetchEphemeris(-nrTimeSteps*deltaT);
+    }
+
+    /**
+     * Set recorder to record trajectories of bodies after each time step.
+     * @param recorder recorder or null to stop recording
+     */
+    public void setTrajectoryRecorder(TrajectoryRecorder recorder) {
+        trajectoryRecorder = recorder;
+    }
+
+    /**
+     * Record trajectories of bodies when a recorder is set.
+     */
+    private void recordTrajectories() {
+        if (trajectoryRecorder != null) {
+            trajectoryRecorder.record(simulationEpoch, this);
+        }
+    }
+
+    /**
+     * Request ephemeris files that will be needed when the simulation continues
+     * in the same direction and at the same speed. The files are loaded in the
+     * background, such that the simulation does not wait when they are needed.
+     * @param secondsPerCall seconds advanced per call, negative when backward
+     */
+    private void prefetchEphemeris(double secondsPerCall) {
+        Epoch epoch = simulationEpoch.plusSeconds(NRCALLSPREFETCHEPHEMERIS*secondsPerCall);
+        synchronized (ephemerisLock) {
+            ephemeris.prefetch(epoch.getJulianDateTime());
         }
     }
 
@@ -444,17 +1119,27 @@ public class SolarSystem extends ParticleSystem implements Serializable {
      * @param timeStep time step in seconds
      */
     public void advanceSimulationSingleStep(double timeStep) {
-        // Advance using Runge-Kutta scheme
+        // Advance using Runge-Kutta scheme, Dormand-Prince with adaptive step size,
+        // or Hermite with block time steps
         setValidABM4(false);
+        resetDenseOutput();
         timeStep = Math.min(timeStep,3600.0);
         timeStep = Math.max(timeStep,-3600.0);
         advancePlanetSystems(timeStep);
-        advanceRungeKutta(timeStep);
+        if (adaptiveStepSizeFlag) {
+            advanceDormandPrince(timeStep);
+        }
+        else if (useBlockTimeSteps()) {
+            advanceBlockTimeSteps(timeStep);
+        }
+        else {
+            advanceRungeKutta(timeStep);
+        }
         correctDrift();
         updateEarthMoonBarycenter();
-        int millisecond = (int) Math.floor(1000.0*timeStep);
-        simulationDateTime.add(Calendar.MILLISECOND, millisecond);
+        simulationEpoch = simulationEpoch.plusSeconds(timeStep);
         checkForSpacecraftEvent();
+        recordTrajectories();
     }
     
     /**
@@ -485,19 +1170,46 @@ public class SolarSystem extends ParticleSystem implements Serializable {
      * Note that the corresponding particles are not moved.
      */
     public void moveBodies() {
+        moveBodies(simulationEpoch);
+    }
 
-        // Check whether simulation date/time is valid for ephemeris
-        if (simulationDateTime.before(ephemeris.getFirstValidDate()) ||
-            simulationDateTime.after(ephemeris.getLastValidDate())) {
+    /**
+     * Move all bodies to positions corresponding to given epoch, e.g., an epoch
+     * in between time steps of the simulation.
+     * Bodies are moved when the epoch is valid, i.e., between 3000 BC and AD 3000.
+     * Note that the corresponding particles are not moved.
+     * @param epoch epoch
+     */
+    public void moveBodies(Epoch epoch) {
+        moveBodiesRequired = false;
+
+        // Check whether epoch is valid for ephemeris
+        if (epoch.before(new Epoch(ephemeris.getFirstValidDate())) ||
+                epoch.after(new Epoch(ephemeris.getLastValidDate()))) {
             return;
         }
         
+        // Obtain positions and velocities of planets, moons, and planets of moons at once
+        List<String> names = new ArrayList<>(planets.keySet());
+        names.addAll(moons.keySet());
+        for (String name : moons.keySet()) {
+            if (!names.contains(centerBodies.get(name))) {
+                names.add(centerBodies.get(name));
+            }
+        }
+        double[] positionVelocity = new double[6*names.size()];
+        ephemeris.getBodiesPositionVelocity(names, epoch, positionVelocity);
+        Map<String, Integer> indices = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            indices.put(names.get(i), 6*i);
+        }
+
         // Move each planet to position of simulation date/time
         for (String name : planets.keySet()) {
             SolarSystemBody planet = planets.get(name);
-            Vector3D[] positionAndVelocity = ephemeris.getBodyPositionVelocity(name, simulationDateTime);
-            Vector3D position = positionAndVelocity[0];
-            Vector3D velocity = positionAndVelocity[1];
+            int index = indices.get(name);
+            Vector3D position = new Vector3D(positionVelocity[index], positionVelocity[index+1], positionVelocity[index+2]);
+            Vector3D velocity = new Vector3D(positionVelocity[index+3], positionVelocity[index+4], positionVelocity[index+5]);
             double muSun = this.getParticle("Sun").getMu();
             Vector3D[] orbit = EphemerisUtil.computeOrbit(muSun,position,velocity);
             planet.setPosition(position);
@@ -509,15 +1221,15 @@ public class SolarSystem extends ParticleSystem implements Serializable {
         for (String name : moons.keySet()) {
             // Obtain position and velocity of moon from Ephemeris
             SolarSystemBody moon = moons.get(name);
-            Vector3D[] positionAndVelocityMoon = ephemeris.getBodyPositionVelocity(name, simulationDateTime);
-            Vector3D positionMoon = positionAndVelocityMoon[0];
-            Vector3D velocityMoon = positionAndVelocityMoon[1];
+            int indexMoon = indices.get(name);
+            Vector3D positionMoon = new Vector3D(positionVelocity[indexMoon], positionVelocity[indexMoon+1], positionVelocity[indexMoon+2]);
+            Vector3D velocityMoon = new Vector3D(positionVelocity[indexMoon+3], positionVelocity[indexMoon+4], positionVelocity[indexMoon+5]);
         
             // Obtain position and velocity of planet from Ephemeris
             String planetName = centerBodies.get(name);
-            Vector3D[] positionAndVelocityPlanet = ephemeris.getBodyPositionVelocity(planetName, simulationDateTime);
-            Vector3D positionPlanet = positionAndVelocityPlanet[0];
-            Vector3D velocityPlanet = positionAndVelocityPlanet[1];
+            int indexPlanet = indices.get(planetName);
+            Vector3D positionPlanet = new Vector3D(positionVelocity[indexPlanet], positionVelocity[indexPlanet+1], positionVelocity[indexPlanet+2]);
+            Vector3D velocityPlanet = new Vector3D(positionVelocity[indexPlanet+3], positionVelocity[indexPlanet+4], positionVelocity[indexPlanet+5]);
             
             // Compute orbit of moon relative to planet
             double muPlanet;
@@ -561,7 +1273,7 @@ public class SolarSystem extends ParticleSystem implements Serializable {
 
         // Move each spacecraft to position of simulation date/time
         for (Spacecraft craft : spacecraft.values()) {
-            craft.updateStatus(simulationDateTime);
+            craft.updateStatus(epoch);
         }
     }
 
@@ -570,7 +1282,7 @@ public class SolarSystem extends ParticleSystem implements Serializable {
      * @param planetName
      */
     private void movePlanetParticle(String planetName) {
-        Vector3D[] positionAndVelocity = ephemeris.getBodyPositionVelocity(planetName, simulationDateTime);
+        Vector3D[] positionAndVelocity = ephemeris.getBodyPositionVelocity(planetName, simulationEpoch);
         Vector3D position = positionAndVelocity[0];
         Vector3D velocity = positionAndVelocity[1];
         Particle particle = getParticle(planetName);
@@ -587,7 +1299,7 @@ public class SolarSystem extends ParticleSystem implements Serializable {
     private void moveMoonParticle(String moonName) {
 
         // Obtain position and velocity of moon from Ephemeris
-        Vector3D[] positionAndVelocityMoon = ephemeris.getBodyPositionVelocity(moonName, simulationDateTime);
+        Vector3D[] positionAndVelocityMoon = ephemeris.getBodyPositionVelocity(moonName, simulationEpoch);
         Vector3D positionMoon = positionAndVelocityMoon[0];
         Vector3D velocityMoon = positionAndVelocityMoon[1];
 
@@ -617,7 +1329,7 @@ public class SolarSystem extends ParticleSystem implements Serializable {
      */
     private void moveSpacecraftParticle(String spacecraftName) {
         Spacecraft craft = spacecraft.get(spacecraftName);
-        craft.updateStatus(simulationDateTime);
+        craft.updateStatus(simulationEpoch);
         Vector3D position = craft.getPosition();
         Vector3D velocity = craft.getVelocity();
         try {
@@ -635,8 +1347,7 @@ public class SolarSystem extends ParticleSystem implements Serializable {
     private void moveBodyParticles() {
 
         // Check whether simulation date/time is valid for ephemeris
-        if (simulationDateTime.before(ephemeris.getFirstValidDate()) ||
-            simulationDateTime.after(ephemeris.getLastValidDate())) {
+        if (simulationEpochBeforeEphemeris() || simulationEpochAfterEphemeris()) {
             return;
         }
         
@@ -664,12 +1375,12 @@ public class SolarSystem extends ParticleSystem implements Serializable {
      * @param mass      Mass of the body in kg
      * @param mu        Standard gravitational parameter in m3/s2
      * @param diameter  Diameter of the body in m
-     * @param date      Date to determine position of the moon.
+     * @param epoch     Epoch to determine position of the planet.
      */
-    private void createPlanet(String name, double mass, double mu, double diameter, GregorianCalendar date) {
+    private void createPlanet(String name, double mass, double mu, double diameter, Epoch epoch) {
 
         // Obtain position and velocity from Ephemeris
-        Vector3D[] positionAndVelocity = ephemeris.getBodyPositionVelocity(name, date);
+        Vector3D[] positionAndVelocity = ephemeris.getBodyPositionVelocity(name, epoch);
         Vector3D position = positionAndVelocity[0];
         Vector3D velocity = positionAndVelocity[1];
 
@@ -692,7 +1403,7 @@ public class SolarSystem extends ParticleSystem implements Serializable {
                 if ("Earth".equals(name)) {
                     // Use oblateness to compute acceleration of Earth's Moon and nearby spacecraft
                     OblatePlanet planet =
-                            new OblatePlanet(name, simulationDateTime, mass, mu, position, velocity);
+                            new OblatePlanet(name, getSimulationDateTime(), mass, mu, position, velocity);
                     this.addParticle(name, planet);
                 } else {
                     // Planet is represented as a point-mass
@@ -715,18 +1426,18 @@ public class SolarSystem extends ParticleSystem implements Serializable {
      * @param mass        Mass of the moon in kg
      * @param mu          Standard gravitational parameter in m3/s2
      * @param diameter    Diameter of the moon in m
-     * @param date        Date to determine position of the moon.
+     * @param epoch       Epoch to determine position of the moon.
      */
     private void createMoon(String planetName, String moonName, 
-            double mass, double mu, double diameter, GregorianCalendar date) {
+            double mass, double mu, double diameter, Epoch epoch) {
 
         // Obtain position and velocity of moon from Ephemeris
-        Vector3D[] positionAndVelocityMoon = ephemeris.getBodyPositionVelocity(moonName, date);
+        Vector3D[] positionAndVelocityMoon = ephemeris.getBodyPositionVelocity(moonName, epoch);
         Vector3D positionMoon = positionAndVelocityMoon[0];
         Vector3D velocityMoon = positionAndVelocityMoon[1];
 
         // Obtain position and velocity of planet from Ephemeris
-        Vector3D[] positionAndVelocityPlanet = ephemeris.getBodyPositionVelocity(planetName, date);
+        Vector3D[] positionAndVelocityPlanet = ephemeris.getBodyPositionVelocity(planetName, epoch);
         Vector3D positionPlanet = positionAndVelocityPlanet[0];
         Vector3D velocityPlanet = positionAndVelocityPlanet[1];
         
@@ -768,6 +1479,28 @@ public class SolarSystem extends ParticleSystem implements Serializable {
         orbit = EphemerisUtil.computeOrbit(muPlanet,
                 positionRelativeToPlanet,velocityRelativeToPlanet);
 
+        // Add the new moon to the Solar System
+        addMoon(planetName, moonName, mass, mu, diameter, positionMoon, velocityMoon,
+                orbit, positionRelativeToPlanet, velocityRelativeToPlanet);
+    }
+
+    /**
+     * Add moon as well as corresponding particle to the Solar System.
+     * @param planetName               Name of the planet
+     * @param moonName                 Name of the moon
+     * @param mass                     Mass of the moon in kg
+     * @param mu                       Standard gravitational parameter in m3/s2
+     * @param diameter                 Diameter of the moon in m
+     * @param positionMoon             Position of the moon
+     * @param velocityMoon             Velocity of the moon
+     * @param orbit                    Orbit of the moon, may be null
+     * @param positionRelativeToPlanet Position of the moon relative to the planet
+     * @param velocityRelativeToPlanet Velocity of the moon relative to the planet
+     */
+    private void addMoon(String planetName, String moonName, double mass, double mu, double diameter,
+                         Vector3D positionMoon, Vector3D velocityMoon, Vector3D[] orbit,
+                         Vector3D positionRelativeToPlanet, Vector3D velocityRelativeToPlanet) {
+
         // Add the new moon to the Solar System for computation
         SolarSystemBody planet = this.getBody(planetName);
         this.moons.put(moonName, 
@@ -921,7 +1654,7 @@ public class SolarSystem extends ParticleSystem implements Serializable {
         boolean ready = false;
         while (index < spacecraftEvents.size() && !ready) {
             SpacecraftEvent event = spacecraftEvents.get(index);
-            if (event.getDateTime().after(simulationDateTime)) {
+            if (event.getEpoch().after(simulationEpoch)) {
                 nextEvent = event;
                 ready = true;
             }
@@ -937,52 +1670,54 @@ public class SolarSystem extends ParticleSystem implements Serializable {
      * objects.
      */
     private void checkForSpacecraftEvent() {
-        if (nextEvent != null && !nextEvent.getDateTime().after(simulationDateTime)) {
-            for (String name : nextEvent.getBodyNames()) {
-                if (spacecraft.containsKey(name)) {
-                    // Transfer Cassini to Saturn System at or after Saturn Orbit Insertion (01-Jul-2004 01:12:08)
-                    if ("Cassini".equals(name)) {
-                        if (!simulationDateTime.before(Cassini.getSaturnOrbitInsertion())) {
-                            if (!planetSystems.containsKey("Saturn")) {
-                                try {
-                                    this.createPlanetSystem("Saturn");
-                                } catch (SolarSystemException e) {
-                                    e.printStackTrace();
+        if (nextEvent != null && !nextEvent.getEpoch().after(simulationEpoch)) {
+            synchronized (ephemerisLock) {
+                for (String name : nextEvent.getBodyNames()) {
+                    if (spacecraft.containsKey(name)) {
+                        // Transfer Cassini to Saturn System at or after Saturn Orbit Insertion (01-Jul-2004 01:12:08)
+                        if ("Cassini".equals(name)) {
+                            if (!simulationEpoch.before(new Epoch(Cassini.getSaturnOrbitInsertion()))) {
+                                if (!planetSystems.containsKey("Saturn")) {
+                                    try {
+                                        this.createPlanetSystem("Saturn");
+                                    } catch (SolarSystemException e) {
+                                        e.printStackTrace();
+                                    }
+                                }
+                                if (!"Saturn".equals(centerBodies.get(name))) {
+                                    transferSpacecraftToPlanetSystem("Cassini", "Saturn");
                                 }
-                            }
-                            if (!"Saturn".equals(centerBodies.get(name))) {
-                                transferSpacecraftToPlanetSystem("Cassini", "Saturn");
                             }
                         }
-                    }
-                    // Transfer Galileo to Jupiter System at or after 1 dec 1995 (one week before Jupiter Orbit Insertion)
-                    if ("Galileo".equals(name)) {
-                        if (!simulationDateTime.before(Galileo.getWeekBeforeJupiterOrbitInsertion())) {
-                            if (!planetSystems.containsKey("Jupiter")) {
-                                try {
-                                    this.createPlanetSystem("Jupiter");
-                                } catch (SolarSystemException e) {
-                                    e.printStackTrace();
+                        // Transfer Galileo to Jupiter System at or after 1 dec 1995 (one week before Jupiter Orbit Insertion)
+                        if ("Galileo".equals(name)) {
+                            if (!simulationEpoch.before(new Epoch(Galileo.getWeekBeforeJupiterOrbitInsertion()))) {
+                                if (!planetSystems.containsKey("Jupiter")) {
+                                    try {
+                                        this.createPlanetSystem("Jupiter");
+                                    } catch (SolarSystemException e) {
+                                        e.printStackTrace();
+                                    }
+                                }
+                                if (!"Jupiter".equals(centerBodies.get(name))) {
+                                    transferSpacecraftToPlanetSystem("Galileo", "Jupiter");
                                 }
-                            }
-                            if (!"Jupiter".equals(centerBodies.get(name))) {
-                                transferSpacecraftToPlanetSystem("Galileo", "Jupiter");
                             }
                         }
-                    }
-                    moveSpacecraftParticle(name);
-                } else {
-                    if (planets.containsKey(name)) {
-                        movePlanetParticle(name);
-                    }
-                    else {
-                        if (moons.containsKey(name)) {
-                            moveMoonParticle(name);
+                        moveSpacecraftParticle(name);
+                    } else {
+                        if (planets.containsKey(name)) {
+                            movePlanetParticle(name);
+                        }
+                        else {
+                            if (moons.containsKey(name)) {
+                                moveMoonParticle(name);
+                            }
                         }
                     }
                 }
+                scheduleNextSpacecraftEvent();
             }
-            scheduleNextSpacecraftEvent();
         }
     }
 
@@ -36,6 +36,9 @@ public class SolarSystemBody implements Serializable {
 
     // Default diameter for small objects such as spacecraft
     private static final double MINIMUMDIAMETER = 5.0;
+
+    // Maximum angle between direction of motion and last segment of trajectory [degrees]
+    public static final double MAXANGLETRAJECTORY = 1.0;
     
     private String name;
     private Vector3D position;
@@ -161,21 +164,28 @@ public class SolarSystemBody implements Serializable {
      * Update trajectory.
      */
     public void updateTrajectory(Vector3D currentPosition, Vector3D currentVelocity) {
-        Vector3D trajectoryPosition, trajectoryVelocity;
         if (centerBody != null) {
-            trajectoryPosition = currentPosition.minus(centerBody.getPosition());
-            trajectoryVelocity = currentVelocity.minus(centerBody.getVelocity());
+            updateTrajectory(currentPosition, currentVelocity, centerBody.getPosition(), centerBody.getVelocity());
         }
         else {
-            trajectoryPosition = new Vector3D(currentPosition);
-            trajectoryVelocity = new Vector3D(currentVelocity);
+            updateTrajectory(currentPosition, currentVelocity, new Vector3D(), new Vector3D());
         }
+    }
+
+    /**
+     * Update trajectory using position and velocity of the center body at
+     * the same time, e.g., when both are interpolated within a time step.
+     */
+    public void updateTrajectory(Vector3D currentPosition, Vector3D currentVelocity,
+                                 Vector3D centerBodyPosition, Vector3D centerBodyVelocity) {
+        Vector3D trajectoryPosition = currentPosition.minus(centerBodyPosition);
+        Vector3D trajectoryVelocity = currentVelocity.minus(centerBodyVelocity);
         if (trajectory.isEmpty()) {
             trajectory.add(trajectoryPosition);
         } else {
             Vector3D formerPosition = trajectory.get(trajectory.size() - 1);
             if (formerPosition.euclideanDistance(trajectoryPosition) > 1E06 ||
-                    formerPosition.direction(trajectoryPosition).angleDeg(trajectoryVelocity) > 1.0) {
+                    formerPosition.direction(trajectoryPosition).angleDeg(trajectoryVelocity) > MAXANGLETRAJECTORY) {
                 trajectory.add(trajectoryPosition);
             }
         }
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package solarsystem;
+
+import application.SolarSystemException;
+import ephemeris.Epoch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checkpoints of the simulation state of the Solar System indexed by epoch.
+ * Snapshots of the simulation state are stored in a memory-mapped file at
+ * regular intervals of simulation time. The simulation can be moved to any
+ * epoch by restoring the nearest checkpoint and advancing the simulation
+ * from there, without losing simulated state. The simulation is not moved
+ * when the nearest checkpoint is farther away than the interval between
+ * checkpoints, as advancing the simulation would take longer than
+ * initializing it.
+ * @author Nico Kuijpers
+ */
+public class SolarSystemCheckpoints {
+
+    // Default interval between checkpoints is 30 days [s]
+    private static final double DEFAULTINTERVAL = 30*86400.0;
+
+    // Interval between checkpoints [s]
+    private final double interval;
+
+    // File in which snapshots are stored, null when no checkpoint is stored
+    private FileChannel channel = null;
+
+    // Number of bytes of file in use
+    private long fileSize = 0L;
+
+    // Snapshots mapped into memory indexed by epoch
+    private final TreeMap<Epoch, MappedByteBuffer> checkpoints = new TreeMap<>();
+
+    /**
+     * Constructor. Checkpoints are stored every 30 days of simulation time.
+     * @throws IOException when file to store snapshots cannot be created
+     */
+    public SolarSystemCheckpoints() throws IOException {
+        this(DEFAULTINTERVAL);
+    }
+
+    /**
+     * Constructor. Snapshots are stored in a temporary file that is
+     * deleted when the checkpoints are cleared or closed.
+     * @param interval interval between checkpoints [s]
+     * @throws IOException when file to store snapshots cannot be created
+     */
+    public SolarSystemCheckpoints(double interval) throws IOException {
+        this.interval = interval;
+        openFile();
+    }
+
+    /**
+     * Create temporary file in which snapshots are stored.
+     * @throws IOException when file cannot be created
+     */
+    private void openFile() throws IOException {
+        File file = File.createTempFile("checkpoints", ".sol");
+        file.deleteOnExit();
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        fileSize = 0L;
+    }
+
+    /**
+     * Get number of checkpoints stored.
+     * @return number of checkpoints
+     */
+    public synchronized int getNrCheckpoints() {
+        return checkpoints.size();
+    }
+
+    /**
+     * Store checkpoint of current simulation state, unless a checkpoint
+     * is stored within the interval before or after the simulation epoch.
+     * @param solarSystem the Solar System
+     * @throws IOException when snapshot cannot be stored
+     */
+    public synchronized void record(SolarSystem solarSystem) throws IOException {
+        Epoch epoch = solarSystem.getSimulationEpoch();
+        Epoch before = checkpoints.floorKey(epoch);
+        if (before != null && epoch.secondsSince(before) < interval) {
+            return;
+        }
+        Epoch after = checkpoints.ceilingKey(epoch);
+        if (after != null && after.secondsSince(epoch) < interval) {
+            return;
+        }
+        if (channel == null) {
+            openFile();
+        }
+        int size = solarSystem.getSnapshotSize();
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, fileSize, size);
+        fileSize += size;
+        solarSystem.writeSnapshot(buffer);
+        checkpoints.put(epoch, buffer);
+    }
+
+    /**
+     * Move simulation to given epoch. The checkpoint nearest to the epoch is
+     * restored and the simulation is advanced from there to the given epoch.
+     * Checkpoints are stored while advancing.
+     * @param solarSystem the Solar System
+     * @param epoch       epoch to move simulation to
+     * @return true when simulation is moved, false when no checkpoint is stored
+     * within the interval before or after the epoch
+     * @throws IOException when snapshot cannot be restored
+     * @throws SolarSystemException when epoch of snapshot is not valid
+     */
+    public synchronized boolean seek(SolarSystem solarSystem, Epoch epoch)
+            throws IOException, SolarSystemException {
+        Map.Entry<Epoch, MappedByteBuffer> before = checkpoints.floorEntry(epoch);
+        Map.Entry<Epoch, MappedByteBuffer> after = checkpoints.ceilingEntry(epoch);
+        Map.Entry<Epoch, MappedByteBuffer> nearest;
+        if (before == null) {
+            nearest = after;
+        }
+        else if (after == null) {
+            nearest = before;
+        }
+        else {
+            nearest = epoch.secondsSince(before.getKey()) <= after.getKey().secondsSince(epoch) ? before : after;
+        }
+        if (nearest == null || Math.abs(epoch.secondsSince(nearest.getKey())) > interval) {
+            return false;
+        }
+        ByteBuffer buffer = nearest.getValue().duplicate();
+        buffer.clear();
+        solarSystem.readSnapshot(buffer);
+
+        // Advance whole time steps and store checkpoints on the way
+        double deltaT = solarSystem.getDeltaT();
+        int nrTimeStepsInterval = Math.max(1, (int) (interval/deltaT));
+        int nrTimeSteps = (int) (epoch.secondsSince(solarSystem.getSimulationEpoch())/deltaT);
+        while (nrTimeSteps != 0) {
+            int nrTimeStepsAdvance = Math.min(Math.abs(nrTimeSteps), nrTimeStepsInterval);
+            if (nrTimeSteps > 0) {
+                solarSystem.advanceSimulationForward(nrTimeStepsAdvance);
+                nrTimeSteps -= nrTimeStepsAdvance;
+            }
+            else {
+                solarSystem.advanceSimulationBackward(nrTimeStepsAdvance);
+                nrTimeSteps += nrTimeStepsAdvance;
+            }
+            record(solarSystem);
+        }
+
+        // Advance remaining part of a time step
+        double remainingTime = epoch.secondsSince(solarSystem.getSimulationEpoch());
+        if (remainingTime != 0.0) {
+            solarSystem.advanceSimulationSingleStep(remainingTime);
+        }
+        return true;
+    }
+
+    /**
+     * Remove all checkpoints and delete file in which snapshots are stored.
+     * Checkpoints should be removed when the simulation is initialized or
+     * when simulation settings are changed. Regions of the file mapped into
+     * memory are released when they are no longer referenced; a new file
+     * is created when the next checkpoint is stored.
+     * @throws IOException when file cannot be closed
+     */
+    public synchronized void clear() throws IOException {
+        checkpoints.clear();
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        fileSize = 0L;
+    }
+
+    /**
+     * Remove all checkpoints and delete file in which snapshots are stored.
+     * @throws IOException when file cannot be closed
+     */
+    public synchronized void close() throws IOException {
+        clear();
+    }
+}
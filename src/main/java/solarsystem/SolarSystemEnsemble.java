@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package solarsystem;
+
+import application.SolarSystemException;
+import particlesystem.Particle;
+import particlesystem.ParticleTaskPool;
+import util.Vector3D;
+
+import java.util.GregorianCalendar;
+import java.util.List;
+
+/**
+ * Ensemble of Solar System simulations that are advanced together.
+ * Each scenario starts from the same date/time and is configured by a scenario
+ * variant, e.g., a perturbed initial state of a spacecraft, an adjusted mass,
+ * or Newton Mechanics versus General Relativity. Scenarios are advanced in
+ * parallel, one scenario per thread, and the position and velocity of the
+ * observed bodies are streamed to a sink at regular intervals.
+ * The Solar Systems are created and configured on the calling thread, since
+ * creation reads the ephemeris. While advancing, spacecraft events and prefetching
+ * of ephemeris files read the ephemerides shared by all Solar Systems; these are
+ * handled by one scenario at a time. The sink is always called on the calling
+ * thread in order of scenario, such that results do not depend on the
+ * number of threads.
+ * @author Nico Kuijpers
+ */
+public class SolarSystemEnsemble {
+
+    /**
+     * Variant of a scenario, applied to a newly created Solar System.
+     */
+    public interface Scenario {
+        void configure(SolarSystem solarSystem) throws SolarSystemException;
+    }
+
+    /**
+     * Receives the observables of a scenario. For each observed body, position [m]
+     * and velocity [m/s] are stored as x, y, z, vx, vy, vz at index 6i .. 6i+5.
+     * The array is reused for the next observation and should not be stored.
+     */
+    public interface Sink {
+        void accept(int scenario, GregorianCalendar dateTime, double[] observables);
+    }
+
+    // Solar Systems, one for each scenario
+    private final SolarSystem[] solarSystems;
+
+    // Names of observed bodies
+    private final String[] observedBodies;
+
+    // Observables of each scenario
+    private final double[][] observables;
+
+    // Worker threads, null when scenarios are advanced sequentially
+    private final ParticleTaskPool taskPool;
+
+    /**
+     * Constructor. Create and configure a Solar System for each scenario.
+     * Planet systems of the Solar Systems are not advanced concurrently,
+     * unless a scenario sets the flag, as scenarios are already advanced in parallel.
+     * @param dateTime       initial simulation date/time
+     * @param scenarios      variants of the scenario
+     * @param observedBodies names of bodies to observe
+     * @param nrThreads      number of threads including the calling thread
+     * @throws SolarSystemException when a scenario cannot be configured or
+     *                              an observed body does not exist
+     */
+    public SolarSystemEnsemble(GregorianCalendar dateTime, List<Scenario> scenarios,
+                               String[] observedBodies, int nrThreads) throws SolarSystemException {
+        this.solarSystems = new SolarSystem[scenarios.size()];
+        this.observedBodies = observedBodies.clone();
+        this.observables = new double[scenarios.size()][6*observedBodies.length];
+        for (int i = 0; i < solarSystems.length; i++) {
+            SolarSystem solarSystem = new SolarSystem(dateTime);
+            solarSystem.setConcurrentPlanetSystemsFlag(false);
+            scenarios.get(i).configure(solarSystem);
+            for (String name : observedBodies) {
+                if (solarSystem.getParticle(name) == null) {
+                    throw new SolarSystemException("Body " + name + " does not exist in scenario " + i);
+                }
+            }
+            solarSystems[i] = solarSystem;
+        }
+        int nrThreadsUsed = Math.min(Math.max(nrThreads, 1), Math.max(solarSystems.length, 1));
+        this.taskPool = nrThreadsUsed > 1 ? new ParticleTaskPool(nrThreadsUsed) : null;
+    }
+
+    /**
+     * Get number of scenarios.
+     * @return number of scenarios
+     */
+    public int getNrScenarios() {
+        return solarSystems.length;
+    }
+
+    /**
+     * Get Solar System of given scenario.
+     * @param scenario index of scenario
+     * @return Solar System
+     */
+    public SolarSystem getSolarSystem(int scenario) {
+        return solarSystems[scenario];
+    }
+
+    /**
+     * Advance all scenarios forward in time for given number of simulation time steps.
+     * Observables are sent to the sink after every nrTimeStepsObservation time steps
+     * and after the last time step.
+     * @param nrTimeSteps            number of time steps
+     * @param nrTimeStepsObservation number of time steps between two observations
+     * @param sink                   sink to receive observables, may be null
+     */
+    public void advanceSimulationForward(int nrTimeSteps, int nrTimeStepsObservation, Sink sink) {
+        int remaining = nrTimeSteps;
+        while (remaining > 0) {
+            int nrSteps = Math.min(remaining, Math.max(nrTimeStepsObservation, 1));
+            if (taskPool != null) {
+                taskPool.execute(solarSystems.length, (from, to) -> {
+                    for (int i = from; i < to; i++) {
+                        solarSystems[i].advanceSimulationForward(nrSteps);
+                    }
+                });
+            }
+            else {
+                for (SolarSystem solarSystem : solarSystems) {
+                    solarSystem.advanceSimulationForward(nrSteps);
+                }
+            }
+            remaining -= nrSteps;
+            if (sink != null) {
+                for (int i = 0; i < solarSystems.length; i++) {
+                    observe(i);
+                    sink.accept(i, solarSystems[i].getSimulationDateTime(), observables[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Store position and velocity of the observed bodies of given scenario.
+     * @param scenario index of scenario
+     */
+    private void observe(int scenario) {
+        double[] values = observables[scenario];
+        for (int b = 0; b < observedBodies.length; b++) {
+            Particle particle = solarSystems[scenario].getParticle(observedBodies[b]);
+            Vector3D position = particle.getPosition();
+            Vector3D velocity = particle.getVelocity();
+            values[6*b] = position.getX();
+            values[6*b+1] = position.getY();
+            values[6*b+2] = position.getZ();
+            values[6*b+3] = velocity.getX();
+            values[6*b+4] = velocity.getY();
+            values[6*b+5] = velocity.getZ();
+        }
+    }
+
+    /**
+     * Stop worker threads.
+     */
+    public void shutdown() {
+        if (taskPool != null) {
+            taskPool.shutdown();
+        }
+    }
+}
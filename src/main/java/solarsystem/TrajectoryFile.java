@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package solarsystem;
+
+import ephemeris.Epoch;
+import util.Vector3D;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Trajectories of bodies recorded by TrajectoryRecorder. The chunks of
+ * the file are mapped into memory and each column of a chunk can be
+ * accessed as a buffer of doubles.
+ * @author Nico Kuijpers
+ */
+public class TrajectoryFile {
+
+    // Names of the bodies
+    private final List<String> bodies;
+
+    // Index of each body
+    private final Map<String, Integer> indexMap;
+
+    // Interval between samples [s]
+    private final double interval;
+
+    // Maximum number of samples per chunk
+    private final int chunkSize;
+
+    // Total number of samples
+    private final int nrSamples;
+
+    // Columns of each chunk
+    private final List<DoubleBuffer[]> chunks;
+
+    /**
+     * Constructor. Map chunks of trajectory file into memory.
+     * @param file file written by TrajectoryRecorder
+     * @throws IOException when the file cannot be read or has a wrong format
+     */
+    public TrajectoryFile(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, 65536));
+            if (header.getInt() != TrajectoryRecorder.FILEMAGIC) {
+                throw new IOException("Wrong format of file " + file.getName());
+            }
+            if (header.getInt() != TrajectoryRecorder.FILEVERSION) {
+                throw new IOException("Wrong version of file " + file.getName());
+            }
+            chunkSize = header.getInt();
+            interval = header.getDouble();
+            int nrBodies = header.getInt();
+            bodies = new ArrayList<>();
+            indexMap = new HashMap<>();
+            for (int i = 0; i < nrBodies; i++) {
+                byte[] name = new byte[header.getShort()];
+                header.get(name);
+                bodies.add(new String(name, StandardCharsets.UTF_8));
+                indexMap.put(bodies.get(i), i);
+            }
+
+            // Map each chunk
+            int nrColumns = 2 + 6*nrBodies;
+            chunks = new ArrayList<>();
+            long offset = header.position();
+            int samples = 0;
+            ByteBuffer count = ByteBuffer.allocate(Integer.BYTES);
+            while (offset < size) {
+                count.clear();
+                channel.read(count, offset);
+                int nrSamplesChunk = count.getInt(0);
+                long chunkBytes = (long) nrColumns*nrSamplesChunk*Double.BYTES;
+                if (offset + Integer.BYTES + chunkBytes > size) {
+                    throw new IOException("Unexpected end of file " + file.getName());
+                }
+                DoubleBuffer values = channel.map(FileChannel.MapMode.READ_ONLY,
+                        offset + Integer.BYTES, chunkBytes).asDoubleBuffer();
+                DoubleBuffer[] columns = new DoubleBuffer[nrColumns];
+                for (int c = 0; c < nrColumns; c++) {
+                    values.limit((c + 1)*nrSamplesChunk);
+                    values.position(c*nrSamplesChunk);
+                    columns[c] = values.slice();
+                }
+                chunks.add(columns);
+                samples += nrSamplesChunk;
+                offset += Integer.BYTES + chunkBytes;
+            }
+            nrSamples = samples;
+        }
+    }
+
+    /**
+     * Get names of the bodies.
+     * @return names of the bodies
+     */
+    public List<String> getBodies() {
+        return Collections.unmodifiableList(bodies);
+    }
+
+    /**
+     * Get interval between samples.
+     * @return interval [s]
+     */
+    public double getInterval() {
+        return interval;
+    }
+
+    /**
+     * Get total number of samples.
+     * @return number of samples
+     */
+    public int getNrSamples() {
+        return nrSamples;
+    }
+
+    /**
+     * Get number of chunks.
+     * @return number of chunks
+     */
+    public int getNrChunks() {
+        return chunks.size();
+    }
+
+    /**
+     * Get column of Julian day numbers of chunk.
+     * @param chunk index of chunk
+     * @return Julian day numbers of samples in chunk
+     */
+    public DoubleBuffer getJulianDayNumbers(int chunk) {
+        return chunks.get(chunk)[0].duplicate();
+    }
+
+    /**
+     * Get column of seconds of day of chunk.
+     * @param chunk index of chunk
+     * @return seconds of day of samples in chunk
+     */
+    public DoubleBuffer getSecondsOfDay(int chunk) {
+        return chunks.get(chunk)[1].duplicate();
+    }
+
+    /**
+     * Get column of coordinate of body of chunk.
+     * @param chunk      index of chunk
+     * @param body       name of the body
+     * @param coordinate 0, 1, 2 for x, y, z and 3, 4, 5 for vx, vy, vz
+     * @return coordinate of body of samples in chunk
+     */
+    public DoubleBuffer getColumn(int chunk, String body, int coordinate) {
+        return chunks.get(chunk)[2 + 6*getIndex(body) + coordinate].duplicate();
+    }
+
+    /**
+     * Get epoch of sample.
+     * @param sample index of sample
+     * @return epoch
+     */
+    public Epoch getEpoch(int sample) {
+        DoubleBuffer[] columns = chunks.get(sample / chunkSize);
+        int index = sample % chunkSize;
+        return new Epoch(columns[0].get(index), columns[1].get(index));
+    }
+
+    /**
+     * Get position of body of sample.
+     * @param body   name of the body
+     * @param sample index of sample
+     * @return position [m]
+     */
+    public Vector3D getPosition(String body, int sample) {
+        return getVector(body, sample, 0);
+    }
+
+    /**
+     * Get velocity of body of sample.
+     * @param body   name of the body
+     * @param sample index of sample
+     * @return velocity [m/s]
+     */
+    public Vector3D getVelocity(String body, int sample) {
+        return getVector(body, sample, 3);
+    }
+
+    /**
+     * Get position or velocity of body of sample.
+     * @param body       name of the body
+     * @param sample     index of sample
+     * @param coordinate 0 for position, 3 for velocity
+     * @return position or velocity
+     */
+    private Vector3D getVector(String body, int sample, int coordinate) {
+        DoubleBuffer[] columns = chunks.get(sample / chunkSize);
+        int column = 2 + 6*getIndex(body) + coordinate;
+        int index = sample % chunkSize;
+        return new Vector3D(columns[column].get(index), columns[column + 1].get(index), columns[column + 2].get(index));
+    }
+
+    /**
+     * Get index of body.
+     * @param body name of the body
+     * @return index of body
+     */
+    private int getIndex(String body) {
+        Integer index = indexMap.get(body);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown body " + body + " for trajectory file");
+        }
+        return index;
+    }
+}
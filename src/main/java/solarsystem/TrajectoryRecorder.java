@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package solarsystem;
+
+import ephemeris.Epoch;
+import particlesystem.Particle;
+import particlesystem.ParticleSystem;
+import util.Vector3D;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recorder of position and velocity of selected bodies during simulation.
+ * Samples are taken at a fixed interval of simulation time and written to
+ * a binary file in chunks. Within a chunk, values are stored in columns: one
+ * column for the Julian day number, one for the seconds of day, and one for
+ * each coordinate x, y, z, vx, vy, vz of each body. Chunks are written on a
+ * background thread. The file can be read using TrajectoryFile.
+ * @author Nico Kuijpers
+ */
+public class TrajectoryRecorder implements Closeable {
+
+    // Identification and version of trajectory files
+    static final int FILEMAGIC = 0x5452414A;
+    static final int FILEVERSION = 1;
+
+    // Default number of samples per chunk
+    private static final int DEFAULTCHUNKSIZE = 1024;
+
+    // Names of the bodies to be recorded
+    private final List<String> bodies;
+
+    // Interval between samples [s]
+    private final double interval;
+
+    // Maximum number of samples per chunk
+    private final int chunkSize;
+
+    // Columns of current chunk
+    private final double[][] columns;
+
+    // Number of samples in current chunk
+    private int nrSamples = 0;
+
+    // Epoch of last sample
+    private Epoch lastEpoch = null;
+
+    // File to write chunks to
+    private final FileChannel channel;
+
+    // Background thread to write chunks
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "TrajectoryRecorder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Exception that occurred while writing in the background
+    private volatile IOException writeException = null;
+
+    /**
+     * Constructor. Create file and write header.
+     * @param file     file to write trajectories to
+     * @param bodies   names of the bodies to be recorded
+     * @param interval interval between samples [s]
+     * @throws IOException when the file cannot be written
+     */
+    public TrajectoryRecorder(File file, List<String> bodies, double interval) throws IOException {
+        this(file, bodies, interval, DEFAULTCHUNKSIZE);
+    }
+
+    /**
+     * Constructor. Create file and write header.
+     * @param file      file to write trajectories to
+     * @param bodies    names of the bodies to be recorded
+     * @param interval  interval between samples [s]
+     * @param chunkSize maximum number of samples per chunk
+     * @throws IOException when the file cannot be written
+     */
+    public TrajectoryRecorder(File file, List<String> bodies, double interval, int chunkSize) throws IOException {
+        this.bodies = new ArrayList<>(bodies);
+        this.interval = interval;
+        this.chunkSize = chunkSize;
+        this.columns = new double[2 + 6*bodies.size()][chunkSize];
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        // Header
+        List<byte[]> names = new ArrayList<>();
+        int size = 3*Integer.BYTES + Double.BYTES + Integer.BYTES;
+        for (String name : bodies) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            names.add(bytes);
+            size += Short.BYTES + bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(FILEMAGIC);
+        buffer.putInt(FILEVERSION);
+        buffer.putInt(chunkSize);
+        buffer.putDouble(interval);
+        buffer.putInt(names.size());
+        for (byte[] bytes : names) {
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Record position and velocity of the bodies, unless the last sample
+     * was taken less than the interval before or after given epoch.
+     * @param epoch          simulation epoch
+     * @param particleSystem particle system containing the bodies
+     */
+    public void record(Epoch epoch, ParticleSystem particleSystem) {
+        if (lastEpoch != null && Math.abs(epoch.secondsSince(lastEpoch)) < interval) {
+            return;
+        }
+        lastEpoch = epoch;
+        columns[0][nrSamples] = epoch.getJulianDayNumber();
+        columns[1][nrSamples] = epoch.getSecondsOfDay();
+        for (int i = 0; i < bodies.size(); i++) {
+            Particle particle = particleSystem.getParticle(bodies.get(i));
+            if (particle == null) {
+                throw new IllegalArgumentException("Unknown body " + bodies.get(i) + " for recorder");
+            }
+            Vector3D position = particle.getPosition();
+            Vector3D velocity = particle.getVelocity();
+            columns[2 + 6*i][nrSamples] = position.getX();
+            columns[3 + 6*i][nrSamples] = position.getY();
+            columns[4 + 6*i][nrSamples] = position.getZ();
+            columns[5 + 6*i][nrSamples] = velocity.getX();
+            columns[6 + 6*i][nrSamples] = velocity.getY();
+            columns[7 + 6*i][nrSamples] = velocity.getZ();
+        }
+        nrSamples++;
+        if (nrSamples == chunkSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Write samples of current chunk on background thread.
+     * Only the last chunk may contain less than chunkSize samples.
+     */
+    private void flush() {
+        if (nrSamples == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + columns.length*nrSamples*Double.BYTES);
+        buffer.putInt(nrSamples);
+        for (double[] column : columns) {
+            for (int i = 0; i < nrSamples; i++) {
+                buffer.putDouble(column[i]);
+            }
+        }
+        buffer.flip();
+        nrSamples = 0;
+        executor.execute(() -> {
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException ex) {
+                writeException = ex;
+            }
+        });
+    }
+
+    /**
+     * Write remaining samples, wait until all chunks are written, and close file.
+     * @throws IOException when writing failed
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        executor.shutdown();
+        // Keep waiting when interrupted, such that the file is not closed
+        // while chunks are still being written, and restore the interrupt
+        // status afterwards
+        boolean interrupted = false;
+        try {
+            while (!executor.isTerminated()) {
+                try {
+                    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        channel.close();
+        if (writeException != null) {
+            throw writeException;
+        }
+    }
+}
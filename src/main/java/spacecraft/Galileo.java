@@ -422,11 +422,12 @@ public class Galileo extends Spacecraft implements Serializable {
     }
 
     @Override
-    public void updateStatus(GregorianCalendar dateTime) {
+    public void updateStatus(Epoch epoch) {
         // Obtain position and velocity from Ephemeris of Galileo
         IEphemeris ephemerisGalileo = EphemerisGalileoBSP.getInstance();
-        if (!(dateTime.before(ephemerisGalileo.getFirstValidDate()) || dateTime.after(ephemerisGalileo.getLastValidDate()))) {
-            Vector3D[] positionVelocityGalileo = ephemerisGalileo.getBodyPositionVelocity("Galileo", dateTime);
+        if (!(epoch.before(new Epoch(ephemerisGalileo.getFirstValidDate())) ||
+                epoch.after(new Epoch(ephemerisGalileo.getLastValidDate())))) {
+            Vector3D[] positionVelocityGalileo = ephemerisGalileo.getBodyPositionVelocity("Galileo", epoch);
             Vector3D position = positionVelocityGalileo[0];
             Vector3D velocity = positionVelocityGalileo[1];
             setPosition(position);
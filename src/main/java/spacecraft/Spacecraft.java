@@ -19,13 +19,13 @@
  */
 package spacecraft;
 
+import ephemeris.Epoch;
 import solarsystem.SolarSystem;
 import solarsystem.SolarSystemBody;
 import util.Vector3D;
 
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.List;
 
@@ -58,28 +58,36 @@ public abstract class Spacecraft extends SolarSystemBody implements Serializable
      * @param dateTime
      */
     public void updateStatus(GregorianCalendar dateTime) {
-        SpacecraftTrajectory trajectory = findTrajectory(dateTime);
+        updateStatus(new Epoch(dateTime));
+    }
+
+    /**
+     * Compute position, velocity, and trajectory of
+     * spacecraft at given epoch
+     * @param epoch
+     */
+    public void updateStatus(Epoch epoch) {
+        SpacecraftTrajectory trajectory = findTrajectory(epoch);
         if (trajectory == null) {
             trajectory = trajectories.get(0);
-            dateTime = trajectory.getStartDateTime();
+            epoch = trajectory.getStartEpoch();
         }
-        Vector3D position = trajectory.computePosition(dateTime);
-        Vector3D velocity = trajectory.computeVelocity(dateTime);
-        setPosition(position);
-        setVelocity(velocity);
+        Vector3D[] positionVelocity = trajectory.computePositionVelocity(epoch);
+        setPosition(positionVelocity[0]);
+        setVelocity(positionVelocity[1]);
     }
 
     /**
-     * Find trajectory corresponding to given date/time.
-     * Return trajectory with start date/time before given date/time and
-     * stop date/time after given date/time.
+     * Find trajectory corresponding to given epoch.
+     * Return trajectory with start epoch before given epoch and
+     * stop epoch after given epoch.
      * Return null when no trajectory is found.
-     * @param dateTime date/time for which trajectory should be found
+     * @param epoch epoch for which trajectory should be found
      * @return trajectory
      */
-    private SpacecraftTrajectory findTrajectory(Calendar dateTime) {
+    private SpacecraftTrajectory findTrajectory(Epoch epoch) {
         for (SpacecraftTrajectory t : trajectories) {
-            if (!t.getStartDateTime().after(dateTime) && t.getStopDateTime().after(dateTime)) {
+            if (!t.getStartEpoch().after(epoch) && t.getStopEpoch().after(epoch)) {
                 return t;
             }
         }
@@ -20,6 +20,7 @@
 package spacecraft;
 
 import ephemeris.CalendarUtil;
+import ephemeris.Epoch;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -46,6 +47,9 @@ public class SpacecraftEvent implements Serializable {
     // Date/time of this event
     private GregorianCalendar dateTime;
 
+    // Epoch of this event
+    private transient Epoch epoch;
+
     // Names of bodies to be moved
     private List<String> bodyNames;
 
@@ -93,6 +97,17 @@ public class SpacecraftEvent implements Serializable {
         return dateTime;
     }
 
+    /**
+     * Get epoch of this event.
+     * @return epoch
+     */
+    public Epoch getEpoch() {
+        if (epoch == null) {
+            epoch = new Epoch(dateTime);
+        }
+        return epoch;
+    }
+
     /**
      * Get names of bodies to be updated.
      * @return names of bodies to be updated
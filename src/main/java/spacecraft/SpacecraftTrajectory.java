@@ -25,6 +25,7 @@ import util.Vector3D;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.List;
 
@@ -43,6 +44,10 @@ public class SpacecraftTrajectory implements Serializable {
     // Stop date/time for this trajectory
     private GregorianCalendar stopDateTime;
 
+    // Start and stop epoch for this trajectory
+    private transient Epoch startEpoch;
+    private transient Epoch stopEpoch;
+
     // Name of center body
     private String centerBodyName;
 
@@ -81,6 +86,28 @@ public class SpacecraftTrajectory implements Serializable {
         return stopDateTime;
     }
 
+    /**
+     * Get start epoch of this trajectory.
+     * @return start epoch
+     */
+    public Epoch getStartEpoch() {
+        if (startEpoch == null) {
+            startEpoch = new Epoch(startDateTime);
+        }
+        return startEpoch;
+    }
+
+    /**
+     * Get stop epoch of this trajectory.
+     * @return stop epoch
+     */
+    public Epoch getStopEpoch() {
+        if (stopEpoch == null) {
+            stopEpoch = new Epoch(stopDateTime);
+        }
+        return stopEpoch;
+    }
+
     /**
      * Get name of center body.
      * @return center body name
@@ -96,14 +123,24 @@ public class SpacecraftTrajectory implements Serializable {
      * @return position vector [m]
      */
     public Vector3D computePosition(GregorianCalendar dateTime) {
+        return computePosition(new Epoch(dateTime));
+    }
+
+    /**
+     * Compute position at given epoch relative to the Sun.
+     * It is assumed that the Sun is located at the origin.
+     * @param epoch
+     * @return position vector [m]
+     */
+    public Vector3D computePosition(Epoch epoch) {
 
-        double Teph = JulianDateConverter.convertCalendarToJulianDate(dateTime);
+        double Teph = epoch.getJulianDateTime();
         double[] orbitElements = EphemerisUtil.computeOrbitalElementsFromPerihelionPassage(orbitPars,Teph);
         Vector3D positionSpacecraft = EphemerisUtil.computePosition(orbitElements);
         if ("Sun".equals(centerBodyName)) {
             return positionSpacecraft;
         }
-        Vector3D positionCenterBody = EphemerisSolarSystem.getInstance().getBodyPosition(centerBodyName,dateTime);
+        Vector3D positionCenterBody = EphemerisSolarSystem.getInstance().getBodyPosition(centerBodyName,epoch);
         return positionCenterBody.plus(positionSpacecraft);
     }
 
@@ -114,18 +151,53 @@ public class SpacecraftTrajectory implements Serializable {
      * @return velocity vector [m/s]
      */
     public Vector3D computeVelocity(GregorianCalendar dateTime) {
+        return computeVelocity(new Epoch(dateTime));
+    }
 
-        double Teph = JulianDateConverter.convertCalendarToJulianDate(dateTime);
+    /**
+     * Compute velocity at given epoch relative to the Sun.
+     * It is assumed that the Sun is located at the origin with zero velocity.
+     * @param epoch
+     * @return velocity vector [m/s]
+     */
+    public Vector3D computeVelocity(Epoch epoch) {
+
+        double Teph = epoch.getJulianDateTime();
         double[] orbitElements = EphemerisUtil.computeOrbitalElementsFromPerihelionPassage(orbitPars,Teph);
         double muCenterBody = SolarSystemParameters.getInstance().getMu(centerBodyName);
         Vector3D velocitySpacecraft = EphemerisUtil.computeVelocity(muCenterBody,orbitElements);
         if ("Sun".equals(centerBodyName)) {
             return velocitySpacecraft;
         }
-        Vector3D velocityCenterBody = EphemerisSolarSystem.getInstance().getBodyVelocity(centerBodyName, dateTime);
+        Vector3D velocityCenterBody = EphemerisSolarSystem.getInstance().getBodyVelocity(centerBodyName, epoch);
         return velocityCenterBody.plus(velocitySpacecraft);
     }
 
+    /**
+     * Compute position and velocity at given epoch relative to the Sun.
+     * Position and velocity of the center body are obtained from the
+     * ephemeris at once.
+     * @param epoch
+     * @return position vector [m] and velocity vector [m/s]
+     */
+    public Vector3D[] computePositionVelocity(Epoch epoch) {
+
+        double Teph = epoch.getJulianDateTime();
+        double[] orbitElements = EphemerisUtil.computeOrbitalElementsFromPerihelionPassage(orbitPars,Teph);
+        Vector3D positionSpacecraft = EphemerisUtil.computePosition(orbitElements);
+        double muCenterBody = SolarSystemParameters.getInstance().getMu(centerBodyName);
+        Vector3D velocitySpacecraft = EphemerisUtil.computeVelocity(muCenterBody,orbitElements);
+        if ("Sun".equals(centerBodyName)) {
+            return new Vector3D[]{positionSpacecraft, velocitySpacecraft};
+        }
+        double[] positionVelocity = new double[6];
+        EphemerisSolarSystem.getInstance().getBodiesPositionVelocity(
+                Collections.singletonList(centerBodyName), Teph, positionVelocity);
+        Vector3D positionCenterBody = new Vector3D(positionVelocity[0], positionVelocity[1], positionVelocity[2]);
+        Vector3D velocityCenterBody = new Vector3D(positionVelocity[3], positionVelocity[4], positionVelocity[5]);
+        return new Vector3D[]{positionCenterBody.plus(positionSpacecraft), velocityCenterBody.plus(velocitySpacecraft)};
+    }
+
     /**
      * Compute trajectory relative to the Sun.
      * @return list of (x,y,z) positions [m]
@@ -332,6 +332,77 @@ public class Vector3D implements Serializable {
         this.y += vector.y;
         this.z += vector.z;
     }
+
+    /**
+     * Subtract vector from this vector.
+     * @param vector vector to be subtracted
+     */
+    public void subtractVector(Vector3D vector) {
+        this.x -= vector.x;
+        this.y -= vector.y;
+        this.z -= vector.z;
+    }
+
+    /**
+     * Set (x,y,z) of this vector to given values.
+     * @param x x-value
+     * @param y y-value
+     * @param z z-value
+     */
+    public void set(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * Set (x,y,z) of this vector to (x,y,z) of given vector.
+     * @param v vector to copy (x,y,z) from
+     */
+    public void set(Vector3D v) {
+        this.x = v.x;
+        this.y = v.y;
+        this.z = v.z;
+    }
+
+    /**
+     * Add scalar product of given vector and scalar to this vector.
+     * Same result as addVector(v.scalarProduct(scalar)) without creating a new vector.
+     * @param v      vector
+     * @param scalar scalar
+     */
+    public void addScaled(Vector3D v, double scalar) {
+        this.x += v.x*scalar;
+        this.y += v.y*scalar;
+        this.z += v.z*scalar;
+    }
+
+    /**
+     * Set this vector to scalar product of given vector and scalar.
+     * Same result as v.scalarProduct(scalar) without creating a new vector.
+     * Given vector may be this vector.
+     * @param v      vector
+     * @param scalar scalar
+     */
+    public void setScaled(Vector3D v, double scalar) {
+        this.x = v.x*scalar;
+        this.y = v.y*scalar;
+        this.z = v.z*scalar;
+    }
+
+    /**
+     * Set this vector to u + scalar * v (multiply-add).
+     * Same result as u.plus(v.scalarProduct(scalar)) without creating a new vector.
+     * Given vectors may be this vector.
+     * @param u      vector
+     * @param v      vector to be multiplied by scalar
+     * @param scalar scalar
+     */
+    public void setAddScaled(Vector3D u, Vector3D v, double scalar) {
+        this.x = u.x + v.x*scalar;
+        this.y = u.y + v.y*scalar;
+        this.z = u.z + v.z*scalar;
+    }
     
     @Override
     public String toString() {
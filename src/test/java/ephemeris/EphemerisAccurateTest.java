@@ -8,6 +8,8 @@ package ephemeris;
 import org.junit.*;
 import util.Vector3D;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
@@ -117,4 +119,36 @@ public class EphemerisAccurateTest {
             date.add(Calendar.MINUTE, 60);
         }
     }
+
+    @Test
+    public void testBinaryCoefficientFile() throws IOException {
+        // The text versions of all DE405 ephemeris files are needed to create the binary file
+        Assume.assumeTrue(new File("DE405EphemerisFiles/ascp1620.405").exists());
+
+        // Convert text versions to binary file
+        File binaryFile = File.createTempFile("de405coefficients", ".bin");
+        binaryFile.deleteOnExit();
+        EphemerisAccurate ephemerisText = new EphemerisAccurate(null);
+        ephemerisText.writeBinaryFile(binaryFile);
+        EphemerisAccurate ephemerisBinary = new EphemerisAccurate(binaryFile);
+
+        // Start test at January 1, 1620, end test at January 31, 2200
+        GregorianCalendar date = new GregorianCalendar(1620,0,1);
+        date.setTimeZone(TimeZone.getTimeZone("UTC"));
+        GregorianCalendar endDate = new GregorianCalendar(2200,0,31);
+
+        // Positions and velocities are identical
+        while (date.before(endDate)) {
+            for (String bodyName : majorBodies) {
+                Vector3D[] expected = ephemerisText.getBodyPositionVelocity(bodyName, date);
+                Vector3D[] actual = ephemerisBinary.getBodyPositionVelocity(bodyName, date);
+                for (int i = 0; i < 2; i++) {
+                    assertEquals("Wrong x for " + bodyName, expected[i].getX(), actual[i].getX(), 0.0);
+                    assertEquals("Wrong y for " + bodyName, expected[i].getY(), actual[i].getY(), 0.0);
+                    assertEquals("Wrong z for " + bodyName, expected[i].getZ(), actual[i].getZ(), 0.0);
+                }
+            }
+            date.add(Calendar.HOUR_OF_DAY, 31);
+        }
+    }
 }
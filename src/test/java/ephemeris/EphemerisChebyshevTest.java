@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package ephemeris;
+
+import org.junit.Test;
+import util.Vector3D;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test of EphemerisChebyshev. Files with Chebyshev fits are generated by
+ * ChebyshevFitGenerator for a short interval and compared to the analytic
+ * theories from which they were generated.
+ * @author Nico Kuijpers
+ */
+public class EphemerisChebyshevTest {
+
+    // Number of Chebyshev coefficients per coordinate
+    private static final int nrCoefficients = 13;
+
+    // Tolerance for position [m] and velocity [m/s]
+    private static final double tolerancePosition = 10.0;
+    private static final double toleranceVelocity = 1.0E-3;
+
+    // Interval of fits, starting at January 1, 2017
+    private static final double firstJulianDateTime = 2457754.5;
+    private static final double lastJulianDateTime = firstJulianDateTime + 30.0;
+
+    /**
+     * Generate file with Chebyshev fits of analytic theory.
+     */
+    private EphemerisChebyshev generate(IEphemeris theory) throws IOException {
+        File file = File.createTempFile("chebyshev", ".cheb");
+        file.deleteOnExit();
+        ChebyshevFitGenerator generator = new ChebyshevFitGenerator(theory,
+                nrCoefficients, tolerancePosition, toleranceVelocity);
+        generator.writeFile(file, firstJulianDateTime, lastJulianDateTime, 8.0);
+        return new EphemerisChebyshev(file);
+    }
+
+    /**
+     * Check that fitted ephemeris is within tolerance of analytic theory
+     * at random Julian date/times.
+     */
+    private void checkWithinTolerance(IEphemeris theory) throws IOException {
+        EphemerisChebyshev ephemeris = generate(theory);
+        assertEquals(theory.getBodies(), ephemeris.getBodies());
+        List<String> bodies = theory.getBodies();
+        double[] expected = new double[6*bodies.size()];
+        double[] actual = new double[6*bodies.size()];
+        Random random = new Random(18L);
+        for (int i = 0; i < 2000; i++) {
+            double julianDateTime = firstJulianDateTime + random.nextDouble()*(lastJulianDateTime - firstJulianDateTime);
+            theory.getBodiesPositionVelocity(bodies, julianDateTime, expected);
+            ephemeris.getBodiesPositionVelocity(bodies, julianDateTime, actual);
+            for (int j = 0; j < expected.length; j++) {
+                assertEquals(expected[j], actual[j], j % 6 < 3 ? tolerancePosition : toleranceVelocity);
+            }
+        }
+    }
+
+    /**
+     * Test of getBodiesPositionVelocity method, of class EphemerisChebyshev.
+     * Fits of the Galilean moons.
+     */
+    @Test
+    public void testGalileanMoons() throws IOException {
+        System.out.println("Chebyshev fits of Galilean moons");
+        checkWithinTolerance(EphemerisGalileanMoons.getInstance());
+    }
+
+    /**
+     * Test of getBodiesPositionVelocity method, of class EphemerisChebyshev.
+     * Fits of the moons of Saturn.
+     */
+    @Test
+    public void testSaturnMoons() throws IOException {
+        System.out.println("Chebyshev fits of Saturn moons");
+        checkWithinTolerance(EphemerisSaturnMoons.getInstance());
+    }
+
+    /**
+     * Test of getBodiesPositionVelocity method, of class EphemerisChebyshev.
+     * Fits of the moons of Uranus.
+     */
+    @Test
+    public void testUranusMoons() throws IOException {
+        System.out.println("Chebyshev fits of Uranus moons");
+        checkWithinTolerance(EphemerisUranusMoons.getInstance());
+    }
+
+    /**
+     * Test of getBodiesPositionVelocity method, of class EphemerisChebyshev.
+     * Fits of Triton.
+     */
+    @Test
+    public void testTriton() throws IOException {
+        System.out.println("Chebyshev fits of Triton");
+        checkWithinTolerance(EphemerisTriton.getInstance());
+    }
+
+    /**
+     * Test of getBodyPositionVelocity method, of class EphemerisChebyshev.
+     * Calendar date and epoch give the same result as the Julian date/time.
+     */
+    @Test
+    public void testGetBodyPositionVelocity() throws IOException {
+        System.out.println("getBodyPositionVelocity");
+        EphemerisChebyshev ephemeris = generate(EphemerisTriton.getInstance());
+        GregorianCalendar date = CalendarUtil.createGregorianCalendar(2017, 1, 12, 7, 30, 0);
+        double[] expected = new double[6];
+        ephemeris.getBodiesPositionVelocity(Collections.singletonList("Triton"),
+                JulianDateConverter.convertCalendarToJulianDate(date), expected);
+        Vector3D[] fromDate = ephemeris.getBodyPositionVelocity("Triton", date);
+        Vector3D[] fromEpoch = ephemeris.getBodyPositionVelocity("Triton", new Epoch(date));
+        for (Vector3D[] actual : new Vector3D[][]{fromDate, fromEpoch}) {
+            assertEquals(expected[0], actual[0].getX(), 0.0);
+            assertEquals(expected[1], actual[0].getY(), 0.0);
+            assertEquals(expected[2], actual[0].getZ(), 0.0);
+            assertEquals(expected[3], actual[1].getX(), 0.0);
+            assertEquals(expected[4], actual[1].getY(), 0.0);
+            assertEquals(expected[5], actual[1].getZ(), 0.0);
+        }
+
+        // Valid dates
+        assertTrue(ephemeris.getFirstValidDate().before(date));
+        assertTrue(ephemeris.getLastValidDate().after(date));
+    }
+
+    /**
+     * Body that is not in the file is not valid.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownBody() throws IOException {
+        System.out.println("unknown body");
+        EphemerisChebyshev ephemeris = generate(EphemerisTriton.getInstance());
+        ephemeris.getBodyPosition("Nereid", CalendarUtil.createGregorianCalendar(2017, 1, 12, 0, 0, 0));
+    }
+
+    /**
+     * Dates outside the fitted interval are not valid.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDateNotValid() throws IOException {
+        System.out.println("date not valid");
+        EphemerisChebyshev ephemeris = generate(EphemerisTriton.getInstance());
+        ephemeris.getBodyPosition("Triton", CalendarUtil.createGregorianCalendar(2017, 3, 1, 0, 0, 0));
+    }
+}
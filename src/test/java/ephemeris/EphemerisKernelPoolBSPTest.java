@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2022 Nico Kuijpers and Marco Brassé
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package ephemeris;
+
+import org.junit.Before;
+import org.junit.Test;
+import util.Vector3D;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test of EphemerisKernelPoolBSP. Chains of segments resolved by the kernel
+ * pool are compared to the same chains composed using SPK directly.
+ * Segments of the Earth and the Sun are found in both BSP files, but
+ * for different intervals.
+ * @author Nico Kuijpers
+ */
+public class EphemerisKernelPoolBSPTest {
+
+    // BSP file with trajectory of Galileo during cruise and planets
+    private static final String BSPfilenameCruise = "EphemerisFilesBSP/s970311a.bsp";
+
+    // BSP file with Galilean moons during probe descent
+    private static final String BSPfilenameMoons = "EphemerisFilesBSP/s960730a.bsp";
+
+    // Codes
+    private static final int idGalileo = -77;
+    private static final int idProbe = -344;
+    private static final int idSolarSystemBarycenter = 0;
+    private static final int idEarthMoonBarycenter = 3;
+    private static final int idJupiterBarycenter = 5;
+    private static final int idSun = 10;
+    private static final int idEarth = 399;
+    private static final int idIo = 501;
+
+    // Interval covered by segments of the Galilean moons [s past J2000]
+    private static final double etBeginMoons = -136814338.0;
+    private static final double etEndMoons = -128353981.0;
+
+    // Epoch of last position of the probe relative to the Sun [s past J2000]
+    private static final double etChangeObserverProbe = -1.356804056364386E8;
+
+    // Interval covered by segments of the Earth in cruise file [s past J2000]
+    private static final double etBeginCruise = -321964226.0;
+    private static final double etEndCruise = -291988743.0;
+
+    // Interval covered by segments of Galileo relative to the Sun [s past J2000]
+    private static final double etBeginGalileo = -257692598.0;
+    private static final double etEndGalileo = -223300741.0;
+
+    // Interval of Galileo relative to the Earth during launch [s past J2000]
+    private static final double etBeginLaunch = -321964226.0;
+    private static final double etEndLaunch = -321357872.0;
+
+    // Number of epochs
+    private static final int nrEpochs = 1000;
+
+    // Kernels
+    private SPK spkCruise;
+    private SPK spkMoons;
+
+    // Kernel pool
+    private EphemerisKernelPoolBSP kernelPool;
+
+    @Before
+    public void setUp() {
+        spkCruise = new SPK(BSPfilenameCruise);
+        spkMoons = new SPK(BSPfilenameMoons);
+        Map<String, Integer> targets = new HashMap<>();
+        targets.put("Io", idIo);
+        targets.put("Earth", idEarth);
+        targets.put("Galileo", idGalileo);
+        GregorianCalendar firstValidDate = new GregorianCalendar(1995, 8, 1);
+        firstValidDate.setTimeZone(TimeZone.getTimeZone("UTC"));
+        GregorianCalendar lastValidDate = new GregorianCalendar(1995, 11, 1);
+        lastValidDate.setTimeZone(TimeZone.getTimeZone("UTC"));
+        kernelPool = new EphemerisKernelPoolBSP(Arrays.asList(BSPfilenameMoons, BSPfilenameCruise),
+                targets, idSun, firstValidDate, lastValidDate);
+    }
+
+    /**
+     * Check that position and velocity are equal.
+     * @param expected expected position and velocity
+     * @param actual   actual position and velocity
+     */
+    private void assertPositionVelocity(Vector3D[] expected, Vector3D[] actual) {
+        for (int j = 0; j < 2; j++) {
+            assertEquals(expected[j].getX(), actual[j].getX(), 0.0);
+            assertEquals(expected[j].getY(), actual[j].getY(), 0.0);
+            assertEquals(expected[j].getZ(), actual[j].getZ(), 0.0);
+        }
+    }
+
+    /**
+     * Test of getNrSegments method, of class EphemerisKernelPoolBSP.
+     */
+    @Test
+    public void testGetNrSegments() {
+        System.out.println("getNrSegments");
+        assertEquals(spkCruise.getNrSegments() + spkMoons.getNrSegments(), kernelPool.getNrSegments());
+    }
+
+    /**
+     * Test of getPositionVelocity method, of class EphemerisKernelPoolBSP.
+     * Position of Io relative to Jupiter Barycenter is found in one segment.
+     */
+    @Test
+    public void testGetPositionVelocitySingleSegment() {
+        System.out.println("getPositionVelocity single segment");
+        for (int i = 0; i < nrEpochs; i++) {
+            double et = etBeginMoons + i*(etEndMoons - etBeginMoons)/(nrEpochs - 1);
+            Vector3D[] expected = spkMoons.getPositionVelocity(et, idIo, idJupiterBarycenter);
+            Vector3D[] actual = kernelPool.getPositionVelocity(et, idIo, idJupiterBarycenter);
+            assertPositionVelocity(expected, actual);
+        }
+    }
+
+    /**
+     * Position and velocity of the Earth relative to the Sun composed from
+     * segments of given kernel.
+     * @param spk kernel
+     * @param et  Number of seconds since J2000
+     * @return position and velocity
+     */
+    private Vector3D[] earthSun(SPK spk, double et) {
+        Vector3D[] earth = spk.getPositionVelocity(et, idEarth, idEarthMoonBarycenter);
+        Vector3D[] barycenter = spk.getPositionVelocity(et, idEarthMoonBarycenter, idSolarSystemBarycenter);
+        Vector3D[] sun = spk.getPositionVelocity(et, idSun, idSolarSystemBarycenter);
+        return new Vector3D[]{earth[0].plus(barycenter[0]).minus(sun[0]), earth[1].plus(barycenter[1]).minus(sun[1])};
+    }
+
+    /**
+     * Test of getPositionVelocity method, of class EphemerisKernelPoolBSP.
+     * Position of the Earth relative to the Sun is found via Earth-Moon
+     * Barycenter and Solar System Barycenter.
+     */
+    @Test
+    public void testGetPositionVelocityChain() {
+        System.out.println("getPositionVelocity chain");
+        for (int i = 0; i < nrEpochs; i++) {
+            double et = etBeginMoons + i*(etEndMoons - etBeginMoons)/(nrEpochs - 1);
+            assertPositionVelocity(earthSun(spkMoons, et), kernelPool.getPositionVelocity(et, idEarth, idSun));
+        }
+    }
+
+    /**
+     * Test of getPositionVelocity method, of class EphemerisKernelPoolBSP.
+     * Position of the Earth relative to the Sun is found in the BSP file
+     * covering the epoch.
+     */
+    @Test
+    public void testGetPositionVelocityMultipleKernels() {
+        System.out.println("getPositionVelocity multiple kernels");
+        for (int i = 0; i < nrEpochs; i++) {
+            double et = etBeginCruise + i*(etEndCruise - etBeginCruise)/(nrEpochs - 1);
+            assertPositionVelocity(earthSun(spkCruise, et), kernelPool.getPositionVelocity(et, idEarth, idSun));
+            et = etBeginMoons + i*(etEndMoons - etBeginMoons)/(nrEpochs - 1);
+            assertPositionVelocity(earthSun(spkMoons, et), kernelPool.getPositionVelocity(et, idEarth, idSun));
+        }
+    }
+
+    /**
+     * Test of getPositionVelocity method, of class EphemerisKernelPoolBSP.
+     * The observer of the Galileo probe changes from the Sun to Jupiter
+     * Barycenter during approach. The chain is resolved again after
+     * the change of observer.
+     */
+    @Test
+    public void testGetPositionVelocityChangeObserver() {
+        System.out.println("getPositionVelocity change observer");
+        for (int i = 0; i < nrEpochs; i++) {
+            double et = etBeginMoons + i*(etEndMoons - etBeginMoons)/(nrEpochs - 1);
+            int observer = et <= etChangeObserverProbe ? idSun : idJupiterBarycenter;
+            Vector3D[] probe = spkMoons.getPositionVelocity(et, idProbe, observer);
+            Vector3D[] center = spkMoons.getPositionVelocity(et, observer, idSolarSystemBarycenter);
+            Vector3D[] earth = spkMoons.getPositionVelocity(et, idEarth, idEarthMoonBarycenter);
+            Vector3D[] barycenter = spkMoons.getPositionVelocity(et, idEarthMoonBarycenter, idSolarSystemBarycenter);
+            Vector3D[] expected = new Vector3D[2];
+            for (int j = 0; j < 2; j++) {
+                expected[j] = probe[j].plus(center[j]).minus(earth[j]).minus(barycenter[j]);
+            }
+            assertPositionVelocity(expected, kernelPool.getPositionVelocity(et, idProbe, idEarth));
+        }
+    }
+
+    /**
+     * Test of getPositionVelocity method, of class EphemerisKernelPoolBSP.
+     * Galileo is relative to the Sun in many subsequent segments. Chains
+     * are reused within a segment and resolved again in the next segment.
+     */
+    @Test
+    public void testGetPositionVelocityChainCache() {
+        System.out.println("getPositionVelocity chain cache");
+        for (int i = 0; i < nrEpochs; i++) {
+            double et = etBeginGalileo + i*(etEndGalileo - etBeginGalileo)/(nrEpochs - 1);
+            Vector3D[] expected = spkCruise.getPositionVelocity(et, idGalileo, idSun);
+            assertPositionVelocity(expected, kernelPool.getPositionVelocity(et, idGalileo, idSun));
+        }
+        for (int i = nrEpochs - 1; i >= 0; i--) {
+            double et = etBeginGalileo + i*(etEndGalileo - etBeginGalileo)/(nrEpochs - 1);
+            Vector3D[] expected = spkCruise.getPositionVelocity(et, idGalileo, idSun);
+            assertPositionVelocity(expected, kernelPool.getPositionVelocity(et, idGalileo, idSun));
+        }
+    }
+
+    /**
+     * Test of getPositionVelocity method, of class EphemerisKernelPoolBSP.
+     * During launch Galileo is relative to the Earth. Position of Galileo
+     * relative to the Sun is found via the Earth, Earth-Moon Barycenter,
+     * and Solar System Barycenter as in EphemerisGalileoCruiseBSP.
+     */
+    @Test
+    public void testGetPositionVelocityGalileoLaunch() {
+        System.out.println("getPositionVelocity Galileo launch");
+        for (int i = 0; i < nrEpochs; i++) {
+            double et = etBeginLaunch + i*(etEndLaunch - etBeginLaunch)/(nrEpochs - 1);
+            Vector3D[] galileo = spkCruise.getPositionVelocity(et, idGalileo, idEarth);
+            Vector3D[] earth = spkCruise.getPositionVelocity(et, idEarth, idEarthMoonBarycenter);
+            Vector3D[] barycenter = spkCruise.getPositionVelocity(et, idEarthMoonBarycenter, idSolarSystemBarycenter);
+            Vector3D[] sun = spkCruise.getPositionVelocity(et, idSun, idSolarSystemBarycenter);
+            Vector3D[] expected = new Vector3D[2];
+            for (int j = 0; j < 2; j++) {
+                expected[j] = galileo[j].plus(earth[j]).plus(barycenter[j]).minus(sun[j]);
+            }
+            assertPositionVelocity(expected, kernelPool.getPositionVelocity(et, idGalileo, idSun));
+        }
+    }
+
+    /**
+     * Test of getBodyPositionVelocity method, of class EphemerisKernelPoolBSP.
+     * Position and velocity relative to the Sun are transformed from J2000 frame.
+     */
+    @Test
+    public void testGetBodyPositionVelocity() {
+        System.out.println("getBodyPositionVelocity");
+        GregorianCalendar date = new GregorianCalendar(1995, 10, 1);
+        date.setTimeZone(TimeZone.getTimeZone("UTC"));
+        double et = EphemerisUtil.computeNrSecondsPastJ2000(date);
+        Vector3D[] expected = kernelPool.getPositionVelocity(et, idIo, idSun);
+        Vector3D[] actual = kernelPool.getBodyPositionVelocity("Io", date);
+        assertPositionVelocity(new Vector3D[]{EphemerisUtil.inverseTransformJ2000(expected[0]),
+                EphemerisUtil.inverseTransformJ2000(expected[1])}, actual);
+        expected = kernelPool.getPositionVelocity(et, idIo, idSolarSystemBarycenter);
+        actual = kernelPool.getBodyPositionVelocityBarycenter("Io", date);
+        assertPositionVelocity(new Vector3D[]{EphemerisUtil.inverseTransformJ2000(expected[0]),
+                EphemerisUtil.inverseTransformJ2000(expected[1])}, actual);
+    }
+
+    /**
+     * Test of getBodiesPositionVelocity method, of class EphemerisKernelPoolBSP.
+     * Positions and velocities of all bodies at once are equal to positions
+     * and velocities of each body.
+     */
+    @Test
+    public void testGetBodiesPositionVelocity() {
+        System.out.println("getBodiesPositionVelocity");
+        GregorianCalendar date = new GregorianCalendar(1995, 10, 1);
+        date.setTimeZone(TimeZone.getTimeZone("UTC"));
+        List<String> names = Arrays.asList("Io", "Earth");
+        double[] positionVelocity = new double[6*names.size()];
+        kernelPool.getBodiesPositionVelocity(names, date, positionVelocity);
+        for (int i = 0; i < names.size(); i++) {
+            Vector3D[] expected = kernelPool.getBodyPositionVelocity(names.get(i), date);
+            Vector3D[] actual = new Vector3D[]{
+                    new Vector3D(positionVelocity[6*i], positionVelocity[6*i+1], positionVelocity[6*i+2]),
+                    new Vector3D(positionVelocity[6*i+3], positionVelocity[6*i+4], positionVelocity[6*i+5])};
+            assertPositionVelocity(expected, actual);
+        }
+    }
+
+    /**
+     * Test of getBodyPositionVelocity method, of class EphemerisKernelPoolBSP.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetBodyPositionVelocityUnknownBody() {
+        System.out.println("getBodyPositionVelocity unknown body");
+        GregorianCalendar date = new GregorianCalendar(1995, 10, 1);
+        date.setTimeZone(TimeZone.getTimeZone("UTC"));
+        kernelPool.getBodyPositionVelocity("Europa", date);
+    }
+}
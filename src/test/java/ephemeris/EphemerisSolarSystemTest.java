@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package ephemeris;
+
+import org.junit.Test;
+import util.Vector3D;
+
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test of EphemerisSolarSystem. Position and velocity of bodies are kept
+ * for the current and previous Julian date/time and are compared to
+ * position and velocity computed again after they have been discarded.
+ * @author Nico Kuijpers
+ */
+public class EphemerisSolarSystemTest {
+
+    /**
+     * Check that position and velocity are equal to array x, y, z, vx, vy, vz.
+     */
+    private void assertPositionVelocity(double[] expected, int offset, Vector3D[] actual) {
+        assertEquals(expected[offset], actual[0].getX(), 0.0);
+        assertEquals(expected[offset+1], actual[0].getY(), 0.0);
+        assertEquals(expected[offset+2], actual[0].getZ(), 0.0);
+        assertEquals(expected[offset+3], actual[1].getX(), 0.0);
+        assertEquals(expected[offset+4], actual[1].getY(), 0.0);
+        assertEquals(expected[offset+5], actual[1].getZ(), 0.0);
+    }
+
+    /**
+     * Test of getBodyPositionVelocity method, of class EphemerisSolarSystem.
+     */
+    @Test
+    public void testGetBodyPositionVelocity() {
+        System.out.println("getBodyPositionVelocity");
+        IEphemeris ephemeris = EphemerisSolarSystem.getInstance();
+        List<String> bodies = ephemeris.getBodies();
+        GregorianCalendar[] dates = {
+                CalendarUtil.createGregorianCalendar(2210, 3, 14, 6, 0, 0),
+                CalendarUtil.createGregorianCalendar(2210, 3, 14, 7, 0, 0),
+                CalendarUtil.createGregorianCalendar(2210, 3, 14, 8, 0, 0)};
+
+        // Position and velocity of all bodies at first date
+        double[] expected = new double[6*bodies.size()];
+        for (int i = 0; i < bodies.size(); i++) {
+            Vector3D[] positionVelocity = ephemeris.getBodyPositionVelocity(bodies.get(i), dates[0]);
+            expected[6*i] = positionVelocity[0].getX();
+            expected[6*i+1] = positionVelocity[0].getY();
+            expected[6*i+2] = positionVelocity[0].getZ();
+            expected[6*i+3] = positionVelocity[1].getX();
+            expected[6*i+4] = positionVelocity[1].getY();
+            expected[6*i+5] = positionVelocity[1].getZ();
+        }
+
+        // Position and velocity at first date are discarded after the third date
+        for (GregorianCalendar date : dates) {
+            double[] positionVelocity = new double[6*bodies.size()];
+            ephemeris.getBodiesPositionVelocity(bodies, date, positionVelocity);
+            for (int i = 0; i < bodies.size(); i++) {
+                Vector3D[] actual = ephemeris.getBodyPositionVelocity(bodies.get(i), date);
+                assertPositionVelocity(positionVelocity, 6*i, actual);
+                assertPositionVelocity(positionVelocity, 6*i, new Vector3D[]{
+                        ephemeris.getBodyPosition(bodies.get(i), date),
+                        ephemeris.getBodyVelocity(bodies.get(i), date)});
+            }
+        }
+
+        // Position and velocity are computed again for first date
+        for (int i = 0; i < bodies.size(); i++) {
+            assertPositionVelocity(expected, 6*i, ephemeris.getBodyPositionVelocity(bodies.get(i), dates[0]));
+        }
+    }
+
+    /**
+     * Test of getBodiesPositionVelocity method, of class EphemerisSolarSystem.
+     * Position and velocity of bodies for a Julian date/time are equal to
+     * position and velocity for the corresponding date/time.
+     */
+    @Test
+    public void testGetBodiesPositionVelocityJulianDateTime() {
+        System.out.println("getBodiesPositionVelocity Julian date/time");
+        IEphemeris ephemeris = EphemerisSolarSystem.getInstance();
+        List<String> bodies = ephemeris.getBodies();
+        GregorianCalendar date = CalendarUtil.createGregorianCalendar(2210, 5, 21, 12, 0, 0);
+        double julianDateTime = JulianDateConverter.convertCalendarToJulianDate(date);
+        double[] positionVelocity = new double[6*bodies.size()];
+        ephemeris.getBodiesPositionVelocity(bodies, julianDateTime, positionVelocity);
+        for (int i = 0; i < bodies.size(); i++) {
+            assertPositionVelocity(positionVelocity, 6*i, ephemeris.getBodyPositionVelocity(bodies.get(i), date));
+        }
+    }
+
+    /**
+     * Test of getBodyPositionVelocity method, of class EphemerisSolarSystem.
+     * Position and velocity of bodies for an epoch are equal to position
+     * and velocity for the Julian date/time of the epoch.
+     */
+    @Test
+    public void testGetBodyPositionVelocityEpoch() {
+        System.out.println("getBodyPositionVelocity epoch");
+        IEphemeris ephemeris = EphemerisSolarSystem.getInstance();
+        List<String> bodies = ephemeris.getBodies();
+        Epoch epoch = new Epoch(CalendarUtil.createGregorianCalendar(2210, 8, 3, 18, 0, 0));
+        double[] positionVelocity = new double[6*bodies.size()];
+        ephemeris.getBodiesPositionVelocity(bodies, epoch.getJulianDateTime(), positionVelocity);
+        for (int i = 0; i < bodies.size(); i++) {
+            assertPositionVelocity(positionVelocity, 6*i, ephemeris.getBodyPositionVelocity(bodies.get(i), epoch));
+            assertPositionVelocity(positionVelocity, 6*i, new Vector3D[]{
+                    ephemeris.getBodyPosition(bodies.get(i), epoch),
+                    ephemeris.getBodyVelocity(bodies.get(i), epoch)});
+        }
+        double[] positionVelocityEpoch = new double[6*bodies.size()];
+        ephemeris.getBodiesPositionVelocity(bodies, epoch, positionVelocityEpoch);
+        for (int i = 0; i < positionVelocity.length; i++) {
+            assertEquals(positionVelocity[i], positionVelocityEpoch[i], 0.0);
+        }
+    }
+
+    /**
+     * Test of getBodiesPositionVelocity method, of class EphemerisSolarSystem.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetBodiesPositionVelocityJulianDateTimeNotValid() {
+        System.out.println("getBodiesPositionVelocity Julian date/time not valid");
+        IEphemeris ephemeris = EphemerisSolarSystem.getInstance();
+        GregorianCalendar date = CalendarUtil.createGregorianCalendar(3001, 0, 1, 0, 0, 0);
+        double julianDateTime = JulianDateConverter.convertCalendarToJulianDate(date);
+        ephemeris.getBodiesPositionVelocity(Collections.singletonList("Earth"), julianDateTime, new double[6]);
+    }
+}
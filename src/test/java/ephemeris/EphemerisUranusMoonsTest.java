@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package ephemeris;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test of EphemerisUranusMoons.
+ * @author Nico Kuijpers
+ */
+public class EphemerisUranusMoonsTest {
+
+    /**
+     * Test of KEPLKH method, of class EphemerisUranusMoons.
+     * The eccentric longitude F should satisfy Kepler's equation
+     * F - k sin(F) + h cos(F) = L, also when L is close to zero.
+     */
+    @Test
+    public void testKEPLKH() {
+        System.out.println("KEPLKH");
+        EphemerisUranusMoons ephemeris = (EphemerisUranusMoons) EphemerisUranusMoons.getInstance();
+        double RK = 1.3E-3;
+        double RH = -1.1E-3;
+        double[] meanLongitudes = {1.0E-6, -1.0E-6, 1.0E-3, 0.5, 3.0};
+        for (double RL : meanLongitudes) {
+            double F = ephemeris.KEPLKH(RL, RK, RH);
+            assertEquals("L = " + RL, RL, F - RK*Math.sin(F) + RH*Math.cos(F), 1.0E-15);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package ephemeris;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test of Epoch.
+ * @author Nico Kuijpers
+ */
+public class EpochTest {
+
+    /**
+     * Create date/time in UTC.
+     */
+    private GregorianCalendar createDateTime(int era, int year, int month, int day,
+                                             int hour, int minute, int second, int millisecond) {
+        GregorianCalendar dateTime = new GregorianCalendar(TimeZone.getTimeZone("UTC"));
+        dateTime.clear();
+        dateTime.set(Calendar.ERA, era);
+        dateTime.set(year, month, day, hour, minute, second);
+        dateTime.set(Calendar.MILLISECOND, millisecond);
+        return dateTime;
+    }
+
+    /**
+     * Check that date/time fields are equal.
+     */
+    private void assertDateTime(GregorianCalendar expected, GregorianCalendar actual) {
+        assertEquals(expected.get(Calendar.ERA), actual.get(Calendar.ERA));
+        assertEquals(expected.get(Calendar.YEAR), actual.get(Calendar.YEAR));
+        assertEquals(expected.get(Calendar.MONTH), actual.get(Calendar.MONTH));
+        assertEquals(expected.get(Calendar.DAY_OF_MONTH), actual.get(Calendar.DAY_OF_MONTH));
+        assertEquals(expected.get(Calendar.HOUR_OF_DAY), actual.get(Calendar.HOUR_OF_DAY));
+        assertEquals(expected.get(Calendar.MINUTE), actual.get(Calendar.MINUTE));
+        assertEquals(expected.get(Calendar.SECOND), actual.get(Calendar.SECOND));
+        assertEquals(expected.get(Calendar.MILLISECOND), actual.get(Calendar.MILLISECOND));
+    }
+
+    /**
+     * Test of getJulianDateTime method, of class Epoch.
+     * Julian date/time equals Julian date/time of the calendar date.
+     */
+    @Test
+    public void testGetJulianDateTime() {
+        System.out.println("getJulianDateTime");
+        GregorianCalendar dateTime = createDateTime(GregorianCalendar.AD, 1582, 9, 15, 0, 0, 0, 0);
+        for (int i = 0; i < 20000; i++) {
+            double expected = JulianDateConverter.convertCalendarToJulianDate(dateTime);
+            assertEquals(expected, new Epoch(dateTime).getJulianDateTime(), 0.0);
+            dateTime.add(Calendar.MILLISECOND, 1357913579);
+        }
+
+        // J2000
+        GregorianCalendar j2000 = createDateTime(GregorianCalendar.AD, 2000, 0, 1, 12, 0, 0, 0);
+        assertEquals(2451545.0, new Epoch(j2000).getJulianDateTime(), 0.0);
+    }
+
+    /**
+     * Test of plusSeconds method, of class Epoch.
+     * Advancing by whole seconds is equivalent to advancing the calendar date.
+     */
+    @Test
+    public void testPlusSeconds() {
+        System.out.println("plusSeconds");
+        GregorianCalendar dateTime = createDateTime(GregorianCalendar.AD, 2017, 2, 1, 0, 0, 0, 0);
+        Epoch epoch = new Epoch(dateTime);
+        for (int i = 0; i < 5000; i++) {
+            dateTime.add(Calendar.SECOND, 3600);
+            epoch = epoch.plusSeconds(3600.0);
+            assertEquals(JulianDateConverter.convertCalendarToJulianDate(dateTime), epoch.getJulianDateTime(), 0.0);
+        }
+        for (int i = 0; i < 5000; i++) {
+            dateTime.add(Calendar.SECOND, -1800);
+            epoch = epoch.plusSeconds(-1800.0);
+            assertEquals(JulianDateConverter.convertCalendarToJulianDate(dateTime), epoch.getJulianDateTime(), 0.0);
+        }
+        assertDateTime(dateTime, epoch.toCalendar());
+
+        // Fractions of a millisecond are not lost
+        Epoch start = new Epoch(dateTime);
+        epoch = start;
+        for (int i = 0; i < 1000; i++) {
+            epoch = epoch.plusSeconds(0.0004);
+        }
+        assertEquals(0.4, epoch.secondsSince(start), 1.0E-9);
+    }
+
+    /**
+     * Test of toCalendar method, of class Epoch.
+     * Dates before October 15, 1582 are in the Julian Calendar.
+     */
+    @Test
+    public void testToCalendar() {
+        System.out.println("toCalendar");
+        GregorianCalendar[] dateTimes = {
+                createDateTime(GregorianCalendar.AD, 2019, 11, 31, 23, 59, 59, 999),
+                createDateTime(GregorianCalendar.AD, 1582, 9, 15, 0, 0, 0, 0),
+                createDateTime(GregorianCalendar.AD, 1582, 9, 4, 23, 0, 0, 0),
+                createDateTime(GregorianCalendar.AD, 1, 0, 1, 12, 30, 0, 0),
+                createDateTime(GregorianCalendar.BC, 3000, 1, 28, 6, 0, 0, 0)};
+        for (GregorianCalendar dateTime : dateTimes) {
+            Epoch epoch = new Epoch(dateTime);
+            assertDateTime(dateTime, epoch.toCalendar());
+            assertEquals(epoch, new Epoch(epoch.toCalendar()));
+        }
+
+        // October 4, 1582 (Julian) is followed by October 15, 1582 (Gregorian)
+        Epoch epoch = new Epoch(dateTimes[2]).plusSeconds(3600.0);
+        assertEquals(new Epoch(dateTimes[1]), epoch);
+    }
+
+    /**
+     * Test of compareTo and secondsSince methods, of class Epoch.
+     */
+    @Test
+    public void testCompare() {
+        System.out.println("compare");
+        GregorianCalendar dateTime = createDateTime(GregorianCalendar.AD, 1969, 6, 20, 20, 17, 40, 0);
+        Epoch epoch = new Epoch(dateTime);
+        Epoch later = epoch.plusSeconds(86400.0*365.0 + 0.5);
+        assertTrue(epoch.before(later));
+        assertTrue(later.after(epoch));
+        assertEquals(0, epoch.compareTo(new Epoch(dateTime)));
+        assertEquals(86400.0*365.0 + 0.5, later.secondsSince(epoch), 0.0);
+        assertEquals(-86400.0*365.0 - 0.5, epoch.secondsSince(later), 0.0);
+    }
+}
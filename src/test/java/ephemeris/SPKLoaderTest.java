@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package ephemeris;
+
+import org.junit.Test;
+import util.Vector3D;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test of SPKLoader. An SPK instance loaded in the background gives the
+ * same result as an SPK instance opened directly.
+ * @author Nico Kuijpers
+ */
+public class SPKLoaderTest {
+
+    // BSP file with trajectory of Galileo during cruise (Type I)
+    private static final String BSPfilename = "EphemerisFilesBSP/s970311a.bsp";
+
+    // BSP file with Galilean moons during probe descent (Type II)
+    private static final String BSPfilenameMoons = "EphemerisFilesBSP/s960730a.bsp";
+
+    // Target and observer codes
+    private static final int idGalileo = -77;
+    private static final int idSun = 10;
+    private static final int idJupiterBarycenter = 5;
+    private static final int idIo = 501;
+
+    // Interval covered by segments with the Sun as observer [s past J2000]
+    private static final double etBegin = -257692598.0;
+    private static final double etEnd = -223300741.0;
+
+    // Interval covered by segments of the Galilean moons [s past J2000]
+    private static final double etBeginMoons = -136814338.0;
+    private static final double etEndMoons = -128353981.0;
+
+    /**
+     * Check that SPK instances give the same position and velocity.
+     */
+    private void assertSameResult(SPK expected, SPK actual, int target, int observer, double begin, double end) {
+        for (int k = 0; k <= 1000; k++) {
+            double et = begin + k*(end - begin)/1000;
+            Vector3D[] expectedPosVel = expected.getPositionVelocity(et, target, observer);
+            Vector3D[] actualPosVel = actual.getPositionVelocity(et, target, observer);
+            for (int i = 0; i < 2; i++) {
+                assertEquals(expectedPosVel[i].getX(), actualPosVel[i].getX(), 0.0);
+                assertEquals(expectedPosVel[i].getY(), actualPosVel[i].getY(), 0.0);
+                assertEquals(expectedPosVel[i].getZ(), actualPosVel[i].getZ(), 0.0);
+            }
+        }
+    }
+
+    /**
+     * Test of prefetch method, of class SPKLoader.
+     */
+    @Test
+    public void testPrefetch() {
+        System.out.println("prefetch");
+        double et = 0.5*(etBeginMoons + etEndMoons);
+        SPKLoader.prefetch(BSPfilenameMoons, et);
+        SPKLoader.prefetch(BSPfilenameMoons, et);
+        SPK spk = SPKLoader.load(BSPfilenameMoons);
+        assertSame(spk, SPKLoader.load(BSPfilenameMoons));
+        assertSameResult(new SPK(BSPfilenameMoons), spk, idIo, idJupiterBarycenter, etBeginMoons, etEndMoons);
+    }
+
+    /**
+     * Test of load method, of class SPKLoader.
+     * A file that is not requested in advance is opened only once.
+     */
+    @Test
+    public void testLoad() {
+        System.out.println("load");
+        SPK spk = SPKLoader.load(BSPfilename);
+        assertSame(spk, SPKLoader.load(BSPfilename));
+        SPKLoader.prefetch(BSPfilename, etBegin);
+        assertSame(spk, SPKLoader.load(BSPfilename));
+        assertSameResult(new SPK(BSPfilename), spk, idGalileo, idSun, etBegin, etEnd);
+    }
+
+    /**
+     * Test of load method, of class SPKLoader.
+     * A thread that is interrupted while waiting for a file requested in
+     * advance obtains the instance loaded in the background and remains
+     * interrupted.
+     */
+    @Test
+    public void testLoadInterrupted() {
+        System.out.println("load interrupted");
+        String path = "EphemerisFilesBSP/./s960730a.bsp";
+        SPKLoader.prefetch(path, 0.5*(etBeginMoons + etEndMoons));
+        Thread.currentThread().interrupt();
+        SPK spk = SPKLoader.load(path);
+        assertTrue(Thread.interrupted());
+        assertSame(spk, SPKLoader.load(path));
+    }
+}
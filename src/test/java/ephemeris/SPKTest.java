@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package ephemeris;
+
+import org.junit.Test;
+import util.Vector3D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test of segment lookup of SPK and test that one SPK instance can be shared
+ * by multiple threads.
+ * @author Nico Kuijpers
+ */
+public class SPKTest {
+
+    // BSP file with trajectory of Galileo during cruise (Type I)
+    private static final String BSPfilename = "EphemerisFilesBSP/s970311a.bsp";
+
+    // BSP file with Galilean moons during probe descent (Type II)
+    private static final String BSPfilenameMoons = "EphemerisFilesBSP/s960730a.bsp";
+
+    // Target and observer codes
+    private static final int idGalileo = -77;
+    private static final int idSun = 10;
+    private static final int idJupiterBarycenter = 5;
+    private static final int idIo = 501;
+    private static final int idCallisto = 504;
+
+    // Interval covered by segments with the Sun as observer [s past J2000]
+    private static final double etBegin = -257692598.0;
+    private static final double etEnd = -223300741.0;
+
+    // Interval covered by segments of the Galilean moons [s past J2000]
+    private static final double etBeginMoons = -136814338.0;
+    private static final double etEndMoons = -128353981.0;
+
+    // Number of epochs, threads, and repetitions per thread
+    private static final int nrEpochs = 2000;
+    private static final int nrThreads = 8;
+    private static final int nrRepetitions = 5;
+
+    /**
+     * Compute position and velocity for all epochs, starting at given epoch.
+     * @param spk SPK instance
+     * @param first index of first epoch
+     * @param target code for target object
+     * @param observer code for observer object
+     * @param begin first epoch
+     * @param end last epoch
+     * @return position and velocity for each epoch
+     */
+    private Vector3D[][] compute(SPK spk, int first, int target, int observer, double begin, double end) {
+        Vector3D[][] result = new Vector3D[nrEpochs][];
+        for (int k = 0; k < nrEpochs; k++) {
+            int i = (first + k) % nrEpochs;
+            double et = begin + i*(end - begin)/(nrEpochs - 1);
+            result[i] = spk.getPositionVelocity(et, target, observer);
+        }
+        return result;
+    }
+
+    /**
+     * Find first segment in file order for target and observer covering given epoch
+     * by linear search over all segments, as SPK did before segments were indexed.
+     * @param spk SPK instance
+     * @param et epoch
+     * @param target code for target object
+     * @param observer code for observer object
+     * @return segment number or -1 when not found
+     */
+    private int linearSearch(SPK spk, double et, int target, int observer) {
+        for (int m = 0; m < spk.getNrSegments(); m++) {
+            if (spk.getSegmentTarget(m) == target && spk.getSegmentObserver(m) == observer &&
+                    spk.getSegmentBegin(m) <= et && et <= spk.getSegmentEnd(m)) {
+                return m;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Epochs at, just before, and just after the begin and end epochs of given
+     * segments, halfway between subsequent epochs, and outside all segments.
+     * @param etbeg begin epochs of segments
+     * @param etend end epochs of segments
+     * @return epochs
+     */
+    private List<Double> boundaryEpochs(double[] etbeg, double[] etend) {
+        double[] boundaries = new double[2*etbeg.length];
+        for (int m = 0; m < etbeg.length; m++) {
+            boundaries[2*m] = etbeg[m];
+            boundaries[2*m + 1] = etend[m];
+        }
+        boundaries = Arrays.stream(boundaries).filter(value -> !Double.isNaN(value)).sorted().distinct().toArray();
+        List<Double> epochs = new ArrayList<>();
+        for (int b = 0; b < boundaries.length; b++) {
+            epochs.add(boundaries[b]);
+            epochs.add(Math.nextDown(boundaries[b]));
+            epochs.add(Math.nextUp(boundaries[b]));
+            if (b > 0) {
+                epochs.add(0.5*(boundaries[b - 1] + boundaries[b]));
+            }
+        }
+        epochs.add(-1.0E12);
+        epochs.add(1.0E12);
+        return epochs;
+    }
+
+    /**
+     * Compare results computed by multiple threads sharing one SPK instance
+     * to results computed by a single thread.
+     * @param spk SPK instance
+     * @param target code for target object
+     * @param observer code for observer object
+     * @param begin first epoch
+     * @param end last epoch
+     */
+    private void compareMultithreaded(SPK spk, int target, int observer, double begin, double end) throws Exception {
+        Vector3D[][] expected = compute(spk, 0, target, observer, begin, end);
+        assertTrue("Position not found", expected[0][0].magnitude() > 0.0);
+        ExecutorService executor = Executors.newFixedThreadPool(nrThreads);
+        try {
+            List<Future<List<Vector3D[][]>>> futures = new ArrayList<>();
+            for (int t = 0; t < nrThreads; t++) {
+                int first = t*nrEpochs/nrThreads;
+                Callable<List<Vector3D[][]>> task = () -> {
+                    List<Vector3D[][]> results = new ArrayList<>();
+                    for (int r = 0; r < nrRepetitions; r++) {
+                        results.add(compute(spk, first, target, observer, begin, end));
+                    }
+                    return results;
+                };
+                futures.add(executor.submit(task));
+            }
+            for (Future<List<Vector3D[][]>> future : futures) {
+                for (Vector3D[][] actual : future.get()) {
+                    for (int i = 0; i < nrEpochs; i++) {
+                        for (int j = 0; j < 2; j++) {
+                            assertEquals(expected[i][j].getX(), actual[i][j].getX(), 0.0);
+                            assertEquals(expected[i][j].getY(), actual[i][j].getY(), 0.0);
+                            assertEquals(expected[i][j].getZ(), actual[i][j].getZ(), 0.0);
+                        }
+                    }
+                }
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test of getNrSegments method, of class SPK.
+     */
+    @Test
+    public void testGetNrSegments() {
+        System.out.println("getNrSegments");
+        SPK spk = new SPK(BSPfilename);
+        assertEquals(76, spk.getNrSegments());
+        assertEquals(28, spk.getNrSegments(idGalileo, idSun));
+        assertEquals(0, spk.getNrSegments(idSun, idGalileo));
+    }
+
+    /**
+     * Test of getPositionVelocity method, of class SPK.
+     * Segments are found at the begin and end epoch of the interval and
+     * not found outside the interval.
+     */
+    @Test
+    public void testGetPositionVelocitySegmentBoundaries() {
+        System.out.println("getPositionVelocity segment boundaries");
+        SPK spk = new SPK(BSPfilename);
+        assertTrue(spk.getPositionVelocity(etBegin, idGalileo, idSun)[0].magnitude() > 0.0);
+        assertTrue(spk.getPositionVelocity(etEnd, idGalileo, idSun)[0].magnitude() > 0.0);
+        assertEquals(0.0, spk.getPositionVelocity(1.0E10, idGalileo, idSun)[0].magnitude(), 0.0);
+        assertEquals(0.0, spk.getPositionVelocity(etBegin, idSun, idGalileo)[0].magnitude(), 0.0);
+    }
+
+    /**
+     * Test of search method, of class SPK.SegmentIndex.
+     * Segments overlap, share boundaries, leave gaps, and include an empty,
+     * a reversed, and an undefined segment. At and next to every boundary and
+     * halfway between subsequent boundaries, the index returns the same segment
+     * as a linear search in given order.
+     */
+    @Test
+    public void testSegmentIndexSearch() {
+        System.out.println("SegmentIndex search");
+        double[] etbeg = {0.0, 100.0, 50.0, 300.0, 200.0, 400.0, 600.0, 500.0, 700.0, Double.NaN, -0.0};
+        double[] etend = {100.0, 200.0, 150.0, 400.0, 250.0, 400.0, 550.0, 650.0, 800.0, 900.0, 10.0};
+        List<Integer> indices = new ArrayList<>();
+        for (int m = etbeg.length - 1; m >= 0; m -= 2) {
+            indices.add(m);
+        }
+        for (int m = etbeg.length - 2; m >= 0; m -= 2) {
+            indices.add(m);
+        }
+        SPK.SegmentIndex index = new SPK.SegmentIndex(etbeg, etend, indices);
+        assertEquals(etbeg.length, index.getNrRecords());
+        for (double et : boundaryEpochs(etbeg, etend)) {
+            int expected = -1;
+            for (int m : indices) {
+                if (etbeg[m] <= et && et <= etend[m]) {
+                    expected = m;
+                    break;
+                }
+            }
+            assertEquals("et = " + et, expected, index.search(et));
+        }
+    }
+
+    /**
+     * Test of getPositionVelocity method, of class SPK.
+     * At and next to the begin and end epoch of every segment and halfway
+     * between segments, the segment found is the same as the segment found
+     * by linear search, and position and velocity are computed from it.
+     */
+    @Test
+    public void testGetPositionVelocityLinearSearch() {
+        System.out.println("getPositionVelocity linear search");
+        SPK spk = new SPK(BSPfilename);
+        int nrSegments = spk.getNrSegments();
+        double[] etbeg = new double[nrSegments];
+        double[] etend = new double[nrSegments];
+        for (int m = 0; m < nrSegments; m++) {
+            etbeg[m] = spk.getSegmentBegin(m);
+            etend[m] = spk.getSegmentEnd(m);
+        }
+        int nrNotFound = 0;
+        for (double et : boundaryEpochs(etbeg, etend)) {
+            int segment = linearSearch(spk, et, idGalileo, idSun);
+            Vector3D[] actual = spk.getPositionVelocity(et, idGalileo, idSun);
+            Vector3D[] expected = segment < 0 ? new Vector3D[]{new Vector3D(), new Vector3D()} :
+                    spk.computePositionVelocity(segment, et);
+            nrNotFound += segment < 0 ? 1 : 0;
+            for (int j = 0; j < 2; j++) {
+                assertEquals(expected[j].getX(), actual[j].getX(), 0.0);
+                assertEquals(expected[j].getY(), actual[j].getY(), 0.0);
+                assertEquals(expected[j].getZ(), actual[j].getZ(), 0.0);
+            }
+        }
+        assertTrue(nrNotFound > 0);
+    }
+
+    /**
+     * Test of getPositionVelocity method, of class SPK.
+     * Each thread starts at a different epoch, such that records of
+     * different segments are read at the same time.
+     */
+    @Test
+    public void testGetPositionVelocityMultithreaded() throws Exception {
+        System.out.println("getPositionVelocity multithreaded");
+        SPK spk = new SPK(BSPfilename);
+        compareMultithreaded(spk, idGalileo, idSun, etBegin, etEnd);
+    }
+
+    /**
+     * Test of getPositionVelocity method, of class SPK.
+     * Records of Type II segments are cached. Threads share the cache of the
+     * segment of Io and of Callisto.
+     */
+    @Test
+    public void testGetPositionVelocityMultithreadedCachedRecords() throws Exception {
+        System.out.println("getPositionVelocity multithreaded cached records");
+        SPK spk = new SPK(BSPfilenameMoons);
+        compareMultithreaded(spk, idIo, idJupiterBarycenter, etBeginMoons, etEndMoons);
+        compareMultithreaded(spk, idCallisto, idJupiterBarycenter, etBeginMoons, etEndMoons);
+    }
+
+    /**
+     * Test of getPositionVelocity method, of class SPK.
+     * Position and velocity computed from cached records are equal to
+     * position and velocity computed from records read from the file.
+     * Epochs are visited twice, starting at different epochs, such that
+     * records are taken from the cache as well as decoded again.
+     */
+    @Test
+    public void testGetPositionVelocityCachedRecords() {
+        System.out.println("getPositionVelocity cached records");
+        SPK spk = new SPK(BSPfilenameMoons);
+        for (int target : new int[]{idIo, idCallisto}) {
+            Vector3D[][] first = compute(spk, 0, target, idJupiterBarycenter, etBeginMoons, etEndMoons);
+            Vector3D[][] second = compute(spk, nrEpochs/2, target, idJupiterBarycenter, etBeginMoons, etEndMoons);
+            for (int i = 0; i < nrEpochs; i++) {
+                double et = etBeginMoons + i*(etEndMoons - etBeginMoons)/(nrEpochs - 1);
+                int segment = linearSearch(spk, et, target, idJupiterBarycenter);
+                Vector3D[] expected = spk.computePositionVelocityWithoutCache(segment, et);
+                assertTrue(expected[0].magnitude() > 0.0);
+                for (int j = 0; j < 2; j++) {
+                    assertEquals(expected[j].getX(), first[i][j].getX(), 0.0);
+                    assertEquals(expected[j].getY(), first[i][j].getY(), 0.0);
+                    assertEquals(expected[j].getZ(), first[i][j].getZ(), 0.0);
+                    assertEquals(expected[j].getX(), second[i][j].getX(), 0.0);
+                    assertEquals(expected[j].getY(), second[i][j].getY(), 0.0);
+                    assertEquals(expected[j].getZ(), second[i][j].getZ(), 0.0);
+                }
+            }
+        }
+    }
+}
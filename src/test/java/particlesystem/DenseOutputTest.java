@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package particlesystem;
+
+import ephemeris.SolarSystemParameters;
+import org.junit.Test;
+import util.Vector3D;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for class DenseOutput. Positions and velocities interpolated
+ * within large time steps are compared to simulation using small time steps.
+ * @author Nico Kuijpers
+ */
+public class DenseOutputTest {
+
+    /**
+     * Create particle system with the Sun and a spacecraft in an eccentric orbit.
+     * @return particle system
+     */
+    private ParticleSystem createParticleSystem() {
+        SolarSystemParameters parameters = SolarSystemParameters.getInstance();
+        double mu = parameters.getMu("Sun");
+        double distance = 2.0E10;
+        double speed = Math.sqrt(1.8*mu/distance);
+        ParticleSystem particleSystem = new ParticleSystem();
+        particleSystem.addParticle("Sun", parameters.getMass("Sun"), mu,
+                new Vector3D(), new Vector3D(0.0, 0.0, 1000.0));
+        particleSystem.addParticleWithoutMass("Spacecraft", new Particle(1.0,
+                new Vector3D(distance, 0.0, 0.0), new Vector3D(0.0, speed, 0.0)));
+        return particleSystem;
+    }
+
+    /**
+     * Check that vectors are equal within tolerance.
+     */
+    private void assertVector(Vector3D expected, Vector3D actual, double delta) {
+        assertEquals(expected.getX(), actual.getX(), delta);
+        assertEquals(expected.getY(), actual.getY(), delta);
+        assertEquals(expected.getZ(), actual.getZ(), delta);
+    }
+
+    /**
+     * Positions and velocities interpolated within time steps of 1 hour
+     * near perihelion are compared to simulation with time steps of 1 minute.
+     */
+    @Test
+    public void testInterpolation() {
+        System.out.println("interpolation");
+        ParticleSystem particleSystem = createParticleSystem();
+        particleSystem.setDenseOutputFlag(true);
+        for (int i = 0; i < 24; i++) {
+            particleSystem.advanceRungeKutta(3600.0);
+        }
+        DenseOutput denseOutput = particleSystem.getDenseOutput();
+        assertEquals(25, denseOutput.getNrKnots());
+        assertEquals(0.0, denseOutput.getStartTime(), 0.0);
+        assertEquals(24*3600.0, denseOutput.getEndTime(), 0.0);
+
+        // Position at the end of the last time step is exact
+        Particle spacecraft = particleSystem.getParticle("Spacecraft");
+        assertVector(spacecraft.getPosition(), denseOutput.getPosition("Spacecraft", 24*3600.0), 0.0);
+        assertVector(spacecraft.getVelocity(), denseOutput.getVelocity("Spacecraft", 24*3600.0), 0.0);
+
+        // Compare to simulation with small time steps; tolerance includes
+        // the integration error of the large time steps
+        ParticleSystem reference = createParticleSystem();
+        for (int minute = 1; minute < 24*60; minute++) {
+            reference.advanceRungeKutta(60.0);
+            if (minute % 60 == 20 || minute % 60 == 30) {
+                Particle particle = reference.getParticle("Spacecraft");
+                assertVector(particle.getPosition(), denseOutput.getPosition("Spacecraft", 60.0*minute), 20.0);
+            }
+        }
+    }
+
+    /**
+     * Storing dense output does not change the result of the simulation.
+     */
+    @Test
+    public void testSimulationUnchanged() {
+        System.out.println("simulation unchanged");
+        ParticleSystem particleSystem = createParticleSystem();
+        ParticleSystem reference = createParticleSystem();
+        particleSystem.setDenseOutputFlag(true);
+        for (int i = 0; i < 100; i++) {
+            particleSystem.advanceABM4(1800.0);
+            particleSystem.correctDrift();
+            reference.advanceABM4(1800.0);
+            reference.correctDrift();
+        }
+        for (String name : new String[]{"Sun", "Spacecraft"}) {
+            assertVector(reference.getParticle(name).getPosition(), particleSystem.getParticle(name).getPosition(), 0.0);
+            assertVector(reference.getParticle(name).getVelocity(), particleSystem.getParticle(name).getVelocity(), 0.0);
+        }
+    }
+
+    /**
+     * Dense output is corrected for drift. After each time step the center of mass
+     * is moved to the origin. Interpolated positions are in the frame of the last
+     * correction, in which the center of mass is at rest at the origin.
+     */
+    @Test
+    public void testCorrectDrift() {
+        System.out.println("correctDrift");
+        ParticleSystem particleSystem = createParticleSystem();
+        particleSystem.setDenseOutputFlag(true);
+        for (int i = 0; i < 24; i++) {
+            particleSystem.advanceRungeKutta(3600.0);
+            particleSystem.correctDrift();
+        }
+        DenseOutput denseOutput = particleSystem.getDenseOutput();
+        assertEquals(25, denseOutput.getNrKnots());
+        for (int i = 0; i < 24; i++) {
+            double time = (i + 0.5)*3600.0;
+            Vector3D centerOfMass = denseOutput.getPosition("Sun", time);
+            Vector3D velocityCenterOfMass = denseOutput.getVelocity("Sun", time);
+            assertTrue(centerOfMass.magnitude() < 1.0);
+            assertTrue(velocityCenterOfMass.magnitude() < 1.0E-6);
+        }
+    }
+
+    /**
+     * Change of velocity in between time steps is a discontinuity.
+     */
+    @Test
+    public void testDiscontinuity() {
+        System.out.println("discontinuity");
+        ParticleSystem particleSystem = createParticleSystem();
+        particleSystem.setDenseOutputFlag(true);
+        particleSystem.advanceRungeKutta(3600.0);
+        Particle spacecraft = particleSystem.getParticle("Spacecraft");
+        Vector3D velocityBefore = new Vector3D(spacecraft.getVelocity());
+        spacecraft.getVelocity().addVector(new Vector3D(100.0, 0.0, 0.0));
+        Vector3D velocityAfter = new Vector3D(spacecraft.getVelocity());
+        particleSystem.advanceRungeKutta(3600.0);
+        DenseOutput denseOutput = particleSystem.getDenseOutput();
+        assertEquals(4, denseOutput.getNrKnots());
+        assertVector(velocityAfter, denseOutput.getVelocity("Spacecraft", 3600.0), 0.0);
+        assertVector(velocityBefore, denseOutput.getVelocity("Spacecraft", 3600.0 - 1.0E-3), 1.0E-3);
+    }
+
+    /**
+     * Dense output covers the time steps since the last reset.
+     */
+    @Test
+    public void testReset() {
+        System.out.println("reset");
+        ParticleSystem particleSystem = createParticleSystem();
+        particleSystem.setDenseOutputFlag(true);
+        particleSystem.advanceRungeKutta(3600.0);
+        particleSystem.resetDenseOutput();
+        particleSystem.advanceRungeKutta(-3600.0);
+        DenseOutput denseOutput = particleSystem.getDenseOutput();
+        assertEquals(2, denseOutput.getNrKnots());
+        assertTrue(denseOutput.contains(1800.0));
+        assertTrue(!denseOutput.contains(5400.0));
+        assertTrue(denseOutput.contains("Spacecraft"));
+        assertTrue(!denseOutput.contains("Earth"));
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package particlesystem;
+
+import ephemeris.SolarSystemParameters;
+import org.junit.Test;
+import util.Vector3D;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Unit test for class EventDetector. Times of events found using large time
+ * steps are compared to analytical solutions.
+ * @author Nico Kuijpers
+ */
+public class EventDetectorTest {
+
+    // Semi-major axis [m] and eccentricity of orbit of spacecraft
+    private static final double SEMIMAJORAXIS = 1.5E11;
+    private static final double ECCENTRICITY = 0.2;
+
+    // Inclination of orbit of spacecraft [rad]
+    private static final double INCLINATION = 0.1;
+
+    /**
+     * Create particle system with the Sun and a spacecraft at perihelion
+     * of an inclined orbit. The line of nodes is the x-axis.
+     * @return particle system
+     */
+    private ParticleSystem createParticleSystem() {
+        SolarSystemParameters parameters = SolarSystemParameters.getInstance();
+        double mu = parameters.getMu("Sun");
+        double distance = SEMIMAJORAXIS*(1.0 - ECCENTRICITY);
+        double speed = Math.sqrt(mu*(1.0 + ECCENTRICITY)/distance);
+        ParticleSystem particleSystem = new ParticleSystem();
+        particleSystem.addParticle("Sun", parameters.getMass("Sun"), mu, new Vector3D(), new Vector3D());
+        particleSystem.addParticleWithoutMass("Spacecraft", new Particle(1.0, new Vector3D(distance, 0.0, 0.0),
+                new Vector3D(0.0, speed*Math.cos(INCLINATION), speed*Math.sin(INCLINATION))));
+        return particleSystem;
+    }
+
+    /**
+     * Orbital period of spacecraft.
+     * @return orbital period [s]
+     */
+    private double orbitalPeriod() {
+        double mu = SolarSystemParameters.getInstance().getMu("Sun");
+        return 2.0*Math.PI*Math.sqrt(SEMIMAJORAXIS*SEMIMAJORAXIS*SEMIMAJORAXIS/mu);
+    }
+
+    /**
+     * Closest approach of two particles moving along straight lines
+     * is found exactly.
+     */
+    @Test
+    public void testClosestApproachLinearMotion() {
+        System.out.println("closestApproach linear motion");
+        ParticleSystem particleSystem = new ParticleSystem();
+        particleSystem.addParticleWithoutMass("A", new Particle(1.0, new Vector3D(), new Vector3D()));
+        particleSystem.addParticleWithoutMass("B", new Particle(1.0,
+                new Vector3D(-1.0E07, 1.0E05, 0.0), new Vector3D(1000.0, 0.0, 0.0)));
+        EventDetector detector = EventDetector.closestApproach("A", "B");
+        particleSystem.addEventDetector(detector);
+        for (int i = 0; i < 10; i++) {
+            particleSystem.advanceRungeKutta(3600.0);
+        }
+        List<EventDetector.Event> events = detector.getEvents();
+        assertEquals(1, events.size());
+        assertEquals(10000.0, events.get(0).getTime(), 1.0E-3);
+        assertEquals(1.0E05, events.get(0).getPosition(0).euclideanDistance(events.get(0).getPosition(1)), 1.0E-3);
+    }
+
+    /**
+     * Events are not detected and dense output is not stored for time steps
+     * of the leapfrog algorithm, as its velocity is half a time step behind.
+     */
+    @Test
+    public void testLeapfrogNoEvents() {
+        ParticleSystem particleSystem = new ParticleSystem();
+        particleSystem.addParticleWithoutMass("A", new Particle(1.0, new Vector3D(), new Vector3D()));
+        particleSystem.addParticleWithoutMass("B", new Particle(1.0,
+                new Vector3D(-1.0E07, 1.0E05, 0.0), new Vector3D(1000.0, 0.0, 0.0)));
+        particleSystem.setDenseOutputFlag(true);
+        EventDetector detector = EventDetector.closestApproach("A", "B");
+        particleSystem.addEventDetector(detector);
+        particleSystem.advanceRungeKutta(3600.0);
+        particleSystem.initLeapfrog(3600.0);
+        for (int i = 0; i < 9; i++) {
+            particleSystem.advanceLeapfrog(3600.0);
+        }
+        assertEquals(36000.0, particleSystem.getElapsedTime(), 0.0);
+        assertEquals(0, detector.getEvents().size());
+        assertEquals(0, particleSystem.getDenseOutput().getNrKnots());
+        assertFalse(particleSystem.getDenseOutput().contains(1800.0));
+    }
+
+    /**
+     * Perihelion, aphelion, crossings of the ecliptic, and crossing of the mean
+     * distance are found for an elliptic orbit using time steps of 6 hours.
+     */
+    @Test
+    public void testKeplerOrbit() {
+        System.out.println("events Kepler orbit");
+        ParticleSystem particleSystem = createParticleSystem();
+        EventDetector perihelion = EventDetector.closestApproach("Spacecraft", "Sun");
+        EventDetector aphelion = new EventDetector(new String[]{"Spacecraft", "Sun"},
+                (positions, velocities) -> positions[0].minus(positions[1]).dotProduct(velocities[0].minus(velocities[1])),
+                EventDetector.Direction.DECREASING);
+        EventDetector ecliptic = EventDetector.planeCrossing("Spacecraft", "Sun", new Vector3D(0.0, 0.0, 1.0));
+        EventDetector meanDistance = EventDetector.distanceCrossing("Spacecraft", "Sun",
+                SEMIMAJORAXIS, EventDetector.Direction.INCREASING);
+        particleSystem.addEventDetector(perihelion);
+        particleSystem.addEventDetector(aphelion);
+        particleSystem.addEventDetector(ecliptic);
+        particleSystem.addEventDetector(meanDistance);
+        double period = orbitalPeriod();
+        double deltaT = 6*3600.0;
+        while (particleSystem.getElapsedTime() < period + 10*deltaT) {
+            particleSystem.advanceABM4(deltaT);
+        }
+
+        // Perihelion at start is not detected, next one after one orbital period
+        assertEquals(1, perihelion.getEvents().size());
+        assertEquals(period, perihelion.getEvents().get(0).getTime(), 1.0);
+        assertEquals(1, aphelion.getEvents().size());
+        assertEquals(0.5*period, aphelion.getEvents().get(0).getTime(), 1.0);
+        Vector3D position = aphelion.getEvents().get(0).getPosition(0);
+        assertEquals(SEMIMAJORAXIS*(1.0 + ECCENTRICITY), position.magnitude(), 1.0E03);
+
+        // Crossing of the ecliptic at aphelion and perihelion
+        assertEquals(2, ecliptic.getEvents().size());
+        assertEquals(0.5*period, ecliptic.getEvents().get(0).getTime(), 1.0);
+        assertEquals(period, ecliptic.getEvents().get(1).getTime(), 1.0);
+
+        // Distance equals semi-major axis when eccentric anomaly is 90 degrees
+        double meanAnomaly = 0.5*Math.PI - ECCENTRICITY;
+        assertEquals(1, meanDistance.getEvents().size());
+        assertEquals(meanAnomaly*period/(2.0*Math.PI), meanDistance.getEvents().get(0).getTime(), 1.0);
+    }
+
+    /**
+     * Events are found when simulating backward in time.
+     */
+    @Test
+    public void testBackward() {
+        System.out.println("events backward");
+        ParticleSystem particleSystem = createParticleSystem();
+        EventDetector perihelion = EventDetector.closestApproach("Spacecraft", "Sun");
+        EventDetector aphelion = new EventDetector(new String[]{"Spacecraft", "Sun"},
+                (positions, velocities) -> positions[0].minus(positions[1]).dotProduct(velocities[0].minus(velocities[1])),
+                EventDetector.Direction.DECREASING);
+        particleSystem.addEventDetector(perihelion);
+        particleSystem.addEventDetector(aphelion);
+        double period = orbitalPeriod();
+        double deltaT = 3600.0;
+        while (particleSystem.getElapsedTime() > -0.75*period) {
+            particleSystem.advanceRungeKutta(-deltaT);
+        }
+        assertEquals(0, perihelion.getEvents().size());
+        assertEquals(1, aphelion.getEvents().size());
+        assertEquals(-0.5*period, aphelion.getEvents().get(0).getTime(), 1.0);
+    }
+}
@@ -0,0 +1,682 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package particlesystem;
+
+import ephemeris.SolarSystemParameters;
+import org.junit.*;
+import solarsystem.OblatePlanet;
+import util.Vector3D;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.GregorianCalendar;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test for class ParticleSystem.
+ * @author Nico Kuijpers
+ */
+public class ParticleSystemTest {
+
+    // Names of the particles
+    private static final String[] names = {"Sun", "Earth", "Moon", "Jupiter", "Spacecraft"};
+
+    public ParticleSystemTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+    }
+
+    @After
+    public void tearDown() {
+    }
+
+    /**
+     * Create particle system with the Sun, the Earth as oblate planet,
+     * the Moon, Jupiter, and a spacecraft without mass.
+     * @return particle system
+     */
+    private ParticleSystem createParticleSystem() {
+        return createParticleSystem(new ParticleSystem());
+    }
+
+    /**
+     * Add the Sun, the Earth as oblate planet, the Moon, Jupiter,
+     * and a spacecraft without mass to given particle system.
+     * @param particleSystem empty particle system
+     * @return particle system
+     */
+    private ParticleSystem createParticleSystem(ParticleSystem particleSystem) {
+        SolarSystemParameters parameters = SolarSystemParameters.getInstance();
+        GregorianCalendar dateTime = new GregorianCalendar(2000,0,1);
+        dateTime.setTimeZone(TimeZone.getTimeZone("UTC"));
+        particleSystem.addParticle("Sun", parameters.getMass("Sun"), parameters.getMu("Sun"),
+                new Vector3D(), new Vector3D());
+        particleSystem.addParticle("Earth", new OblatePlanet("Earth", dateTime,
+                parameters.getMass("Earth"), parameters.getMu("Earth"),
+                new Vector3D(1.496E11, 0.0, 0.0), new Vector3D(0.0, 29780.0, 0.0)));
+        particleSystem.addParticle("Moon", parameters.getMass("Moon"), parameters.getMu("Moon"),
+                new Vector3D(1.496E11, 3.844E08, 1.0E07), new Vector3D(-1022.0, 29780.0, 50.0));
+        particleSystem.addParticle("Jupiter", parameters.getMass("Jupiter"), parameters.getMu("Jupiter"),
+                new Vector3D(0.0, 7.785E11, 1.0E09), new Vector3D(-13070.0, 0.0, 0.0));
+        particleSystem.addParticleWithoutMass("Spacecraft", new Particle(1.0,
+                new Vector3D(1.496E11, -4.0E07, 2.0E06), new Vector3D(3000.0, 29780.0, 100.0)));
+        return particleSystem;
+    }
+
+    /**
+     * Assert that position and velocity of all particles are the same.
+     * @param expected expected particle system
+     * @param actual   actual particle system
+     * @param names    names of particles to compare
+     * @param delta    relative difference allowed
+     */
+    private void assertSameState(ParticleSystem expected, ParticleSystem actual, String[] names, double delta) {
+        for (String name : names) {
+            Vector3D expectedPosition = expected.getParticle(name).getPosition();
+            Vector3D actualPosition = actual.getParticle(name).getPosition();
+            Vector3D expectedVelocity = expected.getParticle(name).getVelocity();
+            Vector3D actualVelocity = actual.getParticle(name).getVelocity();
+            double deltaPosition = delta * expectedPosition.magnitude();
+            double deltaVelocity = delta * expectedVelocity.magnitude();
+            assertEquals("Wrong x-position " + name, expectedPosition.getX(), actualPosition.getX(), deltaPosition);
+            assertEquals("Wrong y-position " + name, expectedPosition.getY(), actualPosition.getY(), deltaPosition);
+            assertEquals("Wrong z-position " + name, expectedPosition.getZ(), actualPosition.getZ(), deltaPosition);
+            assertEquals("Wrong x-velocity " + name, expectedVelocity.getX(), actualVelocity.getX(), deltaVelocity);
+            assertEquals("Wrong y-velocity " + name, expectedVelocity.getY(), actualVelocity.getY(), deltaVelocity);
+            assertEquals("Wrong z-velocity " + name, expectedVelocity.getZ(), actualVelocity.getZ(), deltaVelocity);
+        }
+    }
+
+    /**
+     * Test of method advanceRungeKutta with array engine.
+     */
+    @Test
+    public void testAdvanceRungeKuttaArrayEngine() {
+        ParticleSystem expected = createParticleSystem();
+        ParticleSystem actual = createParticleSystem();
+        actual.setArrayEngineFlag(true);
+        for (int i = 0; i < 100; i++) {
+            expected.advanceRungeKutta(3600.0);
+            actual.advanceRungeKutta(3600.0);
+        }
+        assertSameState(expected, actual, names, 0.0);
+    }
+
+    /**
+     * Test of method advanceABM4 with array engine.
+     */
+    @Test
+    public void testAdvanceABM4ArrayEngine() {
+        ParticleSystem expected = createParticleSystem();
+        ParticleSystem actual = createParticleSystem();
+        actual.setArrayEngineFlag(true);
+        for (int i = 0; i < 100; i++) {
+            expected.advanceABM4(1800.0);
+            actual.advanceABM4(1800.0);
+            expected.correctDrift();
+            actual.correctDrift();
+        }
+        assertSameState(expected, actual, names, 0.0);
+    }
+
+    /**
+     * Test of method advanceABM4 with array engine when particle is removed.
+     */
+    @Test
+    public void testAdvanceABM4ArrayEngineRemoveParticle() {
+        ParticleSystem expected = createParticleSystem();
+        ParticleSystem actual = createParticleSystem();
+        actual.setArrayEngineFlag(true);
+        for (int i = 0; i < 10; i++) {
+            expected.advanceABM4(1800.0);
+            actual.advanceABM4(1800.0);
+        }
+        expected.removeParticle("Spacecraft");
+        actual.removeParticle("Spacecraft");
+        for (int i = 0; i < 10; i++) {
+            expected.advanceABM4(1800.0);
+            actual.advanceABM4(1800.0);
+        }
+        // Adams-Bashforth-Moulton is restarted by the array engine
+        assertSameState(expected, actual, new String[]{"Sun", "Earth", "Moon", "Jupiter"}, 1.0E-09);
+    }
+
+    /**
+     * Test that advancing particles that are point masses does not allocate memory.
+     * Runge-Kutta and Adams-Bashforth-Moulton are tested on the particles and on
+     * the array engine. Memory allocated by the current thread is measured.
+     */
+    @Test
+    public void testAdvanceWithoutAllocation() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        for (boolean arrayEngineFlag : new boolean[]{false, true}) {
+            for (boolean abm4Flag : new boolean[]{false, true}) {
+                ParticleSystem particleSystem = createParticleSystemPointMasses();
+                particleSystem.setArrayEngineFlag(arrayEngineFlag);
+                advance(particleSystem, abm4Flag, 100);
+                threadBean.getThreadAllocatedBytes(threadId);
+                long bytesStart = threadBean.getThreadAllocatedBytes(threadId);
+                advance(particleSystem, abm4Flag, 1000);
+                long bytesEnd = threadBean.getThreadAllocatedBytes(threadId);
+                assertEquals("Memory allocated " + (abm4Flag ? "ABM4" : "Runge-Kutta") +
+                        (arrayEngineFlag ? " array engine" : " particles"), 0L, bytesEnd - bytesStart);
+            }
+        }
+    }
+
+    /**
+     * Advance particle system using Runge-Kutta or Adams-Bashforth-Moulton
+     * and correct drift after each time step.
+     * @param particleSystem particle system
+     * @param abm4Flag       true for Adams-Bashforth-Moulton, false for Runge-Kutta
+     * @param nrSteps        number of time steps
+     */
+    private void advance(ParticleSystem particleSystem, boolean abm4Flag, int nrSteps) {
+        for (int i = 0; i < nrSteps; i++) {
+            if (abm4Flag) {
+                particleSystem.advanceABM4(3600.0);
+            }
+            else {
+                particleSystem.advanceRungeKutta(3600.0);
+            }
+            particleSystem.correctDrift();
+        }
+    }
+
+    /**
+     * Test of method computeAccelerationNewtonMechanics.
+     * Acceleration and potential energy computed by visiting each pair of particles
+     * once should be the same as computed for each particle separately.
+     */
+    @Test
+    public void testComputeAccelerationNewtonMechanics() {
+        ParticleSystem expected = createParticleSystem(new ParticleSystem() {
+            @Override
+            protected void computeAcceleration() {
+                for (Particle p : particles.values()) {
+                    p.computeAccelerationNewtonMechanics(particlesWithMass.values());
+                }
+            }
+        });
+        ParticleSystem actual = createParticleSystem();
+        for (int i = 0; i < 100; i++) {
+            expected.advanceRungeKutta(3600.0);
+            actual.advanceRungeKutta(3600.0);
+        }
+        assertSameState(expected, actual, names, 0.0);
+        for (String name : names) {
+            assertEquals("Wrong potential energy " + name, expected.getParticle(name).getPotentialEnergy(),
+                    actual.getParticle(name).getPotentialEnergy(), 0.0);
+        }
+    }
+
+    /**
+     * Test of method computeAcceleration with General Relativity.
+     * The correction to the Newtonian acceleration should be the same as
+     * computed by the original O(N^3) implementation of Equation (27).
+     */
+    @Test
+    public void testComputeAccelerationGeneralRelativity() {
+        ParticleSystem particleSystem = createParticleSystem();
+        particleSystem.setGeneralRelativityFlag(true);
+        Collection<Particle> sources = particleSystem.particlesWithMass.values();
+        Map<Particle, Vector3D> accelerationNewton = computeAccelerationNewtonMechanicsReference(particleSystem);
+        particleSystem.computeAcceleration();
+        for (String name : names) {
+            Particle particle = particleSystem.getParticle(name);
+            Vector3D expected = accelerationGeneralRelativityReference(particle, sources, accelerationNewton);
+            Vector3D expectedCorrection = expected.minus(accelerationNewton.get(particle));
+            Vector3D actualCorrection = particle.getAcceleration().minus(accelerationNewton.get(particle));
+            double delta = 1.0E-09 * expectedCorrection.magnitude();
+            assertTrue("No correction " + name, expectedCorrection.magnitude() > 0.0);
+            assertEquals("Wrong x-correction " + name, expectedCorrection.getX(), actualCorrection.getX(), delta);
+            assertEquals("Wrong y-correction " + name, expectedCorrection.getY(), actualCorrection.getY(), delta);
+            assertEquals("Wrong z-correction " + name, expectedCorrection.getZ(), actualCorrection.getZ(), delta);
+        }
+    }
+
+    /**
+     * Test of method advanceRungeKutta with General Relativity.
+     * Reference is Runge-Kutta with acceleration computed by the original
+     * O(N^3) implementation of Equation (27).
+     */
+    @Test
+    public void testAdvanceRungeKuttaGeneralRelativity() {
+        ParticleSystem expected = createParticleSystem(new ParticleSystem() {
+            @Override
+            protected void computeAcceleration() {
+                Collection<Particle> sources = particlesWithMass.values();
+                Map<Particle, Vector3D> accelerationNewton = computeAccelerationNewtonMechanicsReference(this);
+                for (Particle p : particles.values()) {
+                    p.getAcceleration().set(accelerationGeneralRelativityReference(p, sources, accelerationNewton));
+                }
+            }
+        });
+        ParticleSystem actual = createParticleSystem();
+        expected.setGeneralRelativityFlag(true);
+        actual.setGeneralRelativityFlag(true);
+        for (int i = 0; i < 100; i++) {
+            expected.advanceRungeKutta(3600.0);
+            actual.advanceRungeKutta(3600.0);
+        }
+        assertSameState(expected, actual, names, 1.0E-14);
+    }
+
+    /**
+     * Compute acceleration using Newton Mechanics for each particle separately.
+     * @param particleSystem particle system
+     * @return acceleration of each particle
+     */
+    private static Map<Particle, Vector3D> computeAccelerationNewtonMechanicsReference(ParticleSystem particleSystem) {
+        Map<Particle, Vector3D> accelerationNewton = new IdentityHashMap<>();
+        for (Particle p : particleSystem.particles.values()) {
+            p.computeAccelerationNewtonMechanics(particleSystem.particlesWithMass.values());
+            accelerationNewton.put(p, new Vector3D(p.getAcceleration()));
+        }
+        return accelerationNewton;
+    }
+
+    /**
+     * Original implementation of Equation (27) from W.M. Folkner et al.,
+     * The Planetary and Lunar Ephemerides DE430 and DE431, in which the sums
+     * over C are computed again for each pair of particles A and B.
+     * @param a                  particle A
+     * @param particles          particles applying force
+     * @param accelerationNewton acceleration computed using Newton Mechanics
+     * @return acceleration of particle A
+     */
+    private static Vector3D accelerationGeneralRelativityReference(Particle a, Collection<Particle> particles,
+                                                                   Map<Particle, Vector3D> accelerationNewton) {
+        double beta = 1.0;
+        double gamma = 1.0;
+        double c = Particle.LIGHTSPEED;
+        Vector3D positionA = a.getPosition();
+        Vector3D velocityA = a.getVelocity();
+
+        // First term
+        Vector3D firstTermVector = new Vector3D();
+        for (Particle b : particles) {
+            if (b != a) {
+                double distAB = positionA.euclideanDistance(b.getPosition());
+                Vector3D accelerationFromParticle = new Vector3D(b.accelerationNewtonMechanics(a));
+                double sumCnotA = 0.0;
+                for (Particle q : particles) {
+                    if (q != a) {
+                        sumCnotA = sumCnotA + q.getMu()/positionA.euclideanDistance(q.getPosition());
+                    }
+                }
+                double sumCnotB = 0.0;
+                for (Particle q : particles) {
+                    if (q != b) {
+                        sumCnotB = sumCnotB + q.getMu()/b.getPosition().euclideanDistance(q.getPosition());
+                    }
+                }
+                double vAdivc = velocityA.magnitude()/c;
+                double vBdivc = b.getVelocity().magnitude()/c;
+                double vAdotvB = velocityA.dotProduct(b.getVelocity());
+                Vector3D diffPositionAB = positionA.minus(b.getPosition());
+                Vector3D diffPositionBA = b.getPosition().minus(positionA);
+                double rAminrBdotvBdivrAB = diffPositionAB.dotProduct(b.getVelocity()) / distAB;
+                double rBminrAdotaB = diffPositionBA.dotProduct(accelerationNewton.get(b));
+                double factorCurlyBraces =
+                        1.0 -
+                                (2*(beta + gamma)*sumCnotA)/(c*c) -
+                                ((2*beta - 1.0)*sumCnotB)/(c*c) +
+                                gamma*vAdivc*vAdivc +
+                                (1.0 + gamma)*vBdivc*vBdivc -
+                                (2.0*(1.0 + gamma)*vAdotvB)/(c*c) -
+                                (3.0/(2.0*c*c))*rAminrBdotvBdivrAB*rAminrBdotvBdivrAB +
+                                (1.0/(2.0*c*c))*rBminrAdotaB;
+                firstTermVector.addVector(accelerationFromParticle.scalarProduct(factorCurlyBraces));
+            }
+        }
+
+        // Second term
+        Vector3D secondTermVector = new Vector3D();
+        for (Particle b : particles) {
+            if (b != a) {
+                double distAB = positionA.euclideanDistance(b.getPosition());
+                double factor = b.getMu()/(distAB*distAB*distAB);
+                Vector3D diffPositionAB = positionA.minus(b.getPosition());
+                Vector3D vAgammaminusvBgamma = velocityA.scalarProduct(2.0 + 2.0*gamma)
+                        .minus(b.getVelocity().scalarProduct(1.0 + 2.0*gamma));
+                double dotProduct = diffPositionAB.dotProduct(vAgammaminusvBgamma);
+                Vector3D diffVelocityAB = velocityA.minus(b.getVelocity());
+                secondTermVector.addVector(diffVelocityAB.scalarProduct(factor*dotProduct));
+            }
+        }
+        secondTermVector = secondTermVector.scalarProduct(1.0/(c*c));
+
+        // Third term
+        Vector3D thirdTermVector = new Vector3D();
+        for (Particle b : particles) {
+            if (b != a) {
+                double distAB = positionA.euclideanDistance(b.getPosition());
+                thirdTermVector.addVector(accelerationNewton.get(b).scalarProduct(b.getMu()/distAB));
+            }
+        }
+        thirdTermVector = thirdTermVector.scalarProduct((3.0 + 4.0*gamma) / (2*c*c));
+
+        Vector3D acceleration = new Vector3D();
+        acceleration.addVector(firstTermVector);
+        acceleration.addVector(secondTermVector);
+        acceleration.addVector(thirdTermVector);
+        return acceleration;
+    }
+
+    /**
+     * Test of method setNrThreads.
+     * Results should not depend on the number of threads.
+     */
+    @Test
+    public void testSetNrThreads() {
+        for (boolean arrayEngineFlag : new boolean[]{false, true}) {
+            for (boolean generalRelativityFlag : new boolean[]{false, true}) {
+                ParticleSystem expected = createParticleSystem();
+                ParticleSystem actual = createParticleSystem();
+                expected.setArrayEngineFlag(arrayEngineFlag);
+                actual.setArrayEngineFlag(arrayEngineFlag);
+                expected.setGeneralRelativityFlag(generalRelativityFlag);
+                actual.setGeneralRelativityFlag(generalRelativityFlag);
+                actual.setNrThreads(3);
+                assertEquals("Wrong number of threads", 3, actual.getNrThreads());
+                for (int i = 0; i < 50; i++) {
+                    expected.advanceABM4(1800.0);
+                    actual.advanceABM4(1800.0);
+                    expected.advanceRungeKutta(3600.0);
+                    actual.advanceRungeKutta(3600.0);
+                }
+                assertSameState(expected, actual, names, 0.0);
+                for (String name : names) {
+                    assertEquals("Wrong potential energy " + name, expected.getParticle(name).getPotentialEnergy(),
+                            actual.getParticle(name).getPotentialEnergy(), 0.0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of method setNrThreads for a particle system that is large enough
+     * to divide the pairs of particles into blocks processed in parallel.
+     * Acceleration and potential energy should not depend on the number of
+     * threads, also when the number of particles is not a multiple of the
+     * number of blocks.
+     */
+    @Test
+    public void testSetNrThreadsBlocks() {
+        for (int nrParticles : new int[]{128, 1001}) {
+            ParticleSystem expected = createRandomParticleSystem(nrParticles);
+            expected.computeAcceleration();
+            for (int nrThreads : new int[]{2, 3, 8}) {
+                ParticleSystem actual = createRandomParticleSystem(nrParticles);
+                actual.setNrThreads(nrThreads);
+                actual.computeAcceleration();
+                for (int i = 0; i < nrParticles + 3; i++) {
+                    String name = "Particle " + i;
+                    Vector3D expectedAcceleration = expected.getParticle(name).getAcceleration();
+                    Vector3D actualAcceleration = actual.getParticle(name).getAcceleration();
+                    String message = name + " with " + nrThreads + " threads";
+                    assertEquals(message, expectedAcceleration.getX(), actualAcceleration.getX(), 0.0);
+                    assertEquals(message, expectedAcceleration.getY(), actualAcceleration.getY(), 0.0);
+                    assertEquals(message, expectedAcceleration.getZ(), actualAcceleration.getZ(), 0.0);
+                    assertEquals(message, expected.getParticle(name).getPotentialEnergy(),
+                            actual.getParticle(name).getPotentialEnergy(), 0.0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Create particle system with given number of particles with mass at random
+     * positions and three particles without mass. The positions are the same
+     * for each call.
+     * @param nrParticles number of particles with mass
+     * @return particle system
+     */
+    private ParticleSystem createRandomParticleSystem(int nrParticles) {
+        Random random = new Random(12345L);
+        ParticleSystem particleSystem = new ParticleSystem();
+        for (int i = 0; i < nrParticles + 3; i++) {
+            Vector3D position = new Vector3D(random.nextDouble()*1.0E12, random.nextDouble()*1.0E12,
+                    random.nextDouble()*1.0E11);
+            double mass = i < nrParticles ? 1.0E20 + random.nextDouble()*1.0E24 : 0.0;
+            if (mass > 0.0) {
+                particleSystem.addParticle("Particle " + i, mass, mass*6.6743E-11, position, new Vector3D());
+            }
+            else {
+                particleSystem.addParticleWithoutMass("Particle " + i, new Particle(1.0, position, new Vector3D()));
+            }
+        }
+        return particleSystem;
+    }
+
+    /**
+     * Test of method advanceDormandPrince.
+     * Reference is Runge-Kutta with a time step of 60 s.
+     */
+    @Test
+    public void testAdvanceDormandPrince() {
+        ParticleSystem expected = createParticleSystem();
+        ParticleSystem actual = createParticleSystem();
+        for (int i = 0; i < 10*1440; i++) {
+            expected.advanceRungeKutta(60.0);
+        }
+        for (int i = 0; i < 10; i++) {
+            actual.advanceDormandPrince(86400.0);
+        }
+        assertSameState(expected, actual, names, 1.0E-7);
+    }
+
+    /**
+     * Test of method advanceDormandPrince for two coinciding particles.
+     * The error is not a number, so steps should be rejected until the
+     * minimum step size is reached and then the method should fail
+     * without changing the state of the particles.
+     */
+    @Test
+    public void testAdvanceDormandPrinceCoincidingParticles() {
+        ParticleSystem particleSystem = new ParticleSystem();
+        Vector3D position = new Vector3D(1.0E11, 0.0, 0.0);
+        particleSystem.addParticle("A", 1.0E24, 6.6743E13, position, new Vector3D());
+        particleSystem.addParticle("B", 1.0E24, 6.6743E13, position, new Vector3D(0.0, 1.0E3, 0.0));
+        try {
+            particleSystem.advanceDormandPrince(3600.0);
+            Assert.fail("IllegalStateException expected");
+        }
+        catch (IllegalStateException ex) {
+            // Expected
+        }
+        assertEquals(0.0, particleSystem.getParticle("B").getPosition().euclideanDistance(position), 0.0);
+        assertEquals(0.0, particleSystem.getElapsedTime(), 0.0);
+    }
+
+    /**
+     * Test of method advanceDormandPrince forward and backward in time.
+     */
+    @Test
+    public void testAdvanceDormandPrinceForwardBackward() {
+        ParticleSystem expected = createParticleSystem();
+        ParticleSystem actual = createParticleSystem();
+        actual.setToleranceDormandPrince(1.0E-13);
+        assertEquals("Wrong tolerance", 1.0E-13, actual.getToleranceDormandPrince(), 0.0);
+        actual.advanceDormandPrince(10*86400.0);
+        actual.advanceDormandPrince(-10*86400.0);
+        // The Sun starts at the origin at rest
+        String[] namesMoving = {"Earth", "Moon", "Jupiter", "Spacecraft"};
+        assertSameState(expected, actual, namesMoving, 1.0E-8);
+    }
+
+    /**
+     * Test of method advanceBlockTimeSteps.
+     * Reference is Runge-Kutta with a time step of 60 s.
+     */
+    @Test
+    public void testAdvanceBlockTimeSteps() {
+        ParticleSystem expected = createParticleSystem();
+        ParticleSystem actual = createParticleSystem();
+        for (int i = 0; i < 10*1440; i++) {
+            expected.advanceRungeKutta(60.0);
+        }
+        for (int i = 0; i < 10*24; i++) {
+            actual.advanceBlockTimeSteps(3600.0);
+        }
+        assertSameState(expected, actual, names, 1.0E-6);
+
+        // Acceleration is computed less often than by Runge-Kutta with a time step of 60 s
+        long nrEvaluationsRungeKutta = 4L * names.length * 10*1440;
+        assertTrue("Too many evaluations", actual.getNrEvaluationsBlockTimeSteps() < nrEvaluationsRungeKutta);
+    }
+
+    /**
+     * Create particle system with the Sun, Jupiter, and Saturn as point masses,
+     * and an asteroid in an eccentric orbit and a comet in a hyperbolic orbit
+     * without mass. Mass is derived from the standard gravitational parameter.
+     * @return particle system
+     */
+    private ParticleSystem createParticleSystemPointMasses() {
+        SolarSystemParameters parameters = SolarSystemParameters.getInstance();
+        ParticleSystem particleSystem = new ParticleSystem();
+        for (String name : new String[]{"Sun", "Jupiter", "Saturn"}) {
+            double mu = parameters.getMu(name);
+            particleSystem.addParticle(name, mu/Particle.GRAVITATIONALCONSTANT, mu, new Vector3D(), new Vector3D());
+        }
+        particleSystem.getParticle("Jupiter").setPosition(new Vector3D(0.0, 7.785E11, 1.0E09));
+        particleSystem.getParticle("Jupiter").setVelocity(new Vector3D(-13070.0, 0.0, 0.0));
+        particleSystem.getParticle("Saturn").setPosition(new Vector3D(-1.434E12, 0.0, -2.0E10));
+        particleSystem.getParticle("Saturn").setVelocity(new Vector3D(0.0, -9680.0, 300.0));
+        particleSystem.addParticleWithoutMass("Asteroid", new Particle(1.0,
+                new Vector3D(3.0E11, 1.0E11, 0.0), new Vector3D(-5000.0, 25000.0, 2000.0)));
+        particleSystem.addParticleWithoutMass("Comet", new Particle(1.0,
+                new Vector3D(-2.0E11, 0.0, 5.0E10), new Vector3D(0.0, -40000.0, 0.0)));
+        return particleSystem;
+    }
+
+    /**
+     * Test of method advanceWisdomHolman.
+     * Reference is Runge-Kutta with a time step of 60 s.
+     */
+    @Test
+    public void testAdvanceWisdomHolman() {
+        ParticleSystem expected = createParticleSystemPointMasses();
+        ParticleSystem actual = createParticleSystemPointMasses();
+        for (int i = 0; i < 100*1440; i++) {
+            expected.advanceRungeKutta(60.0);
+        }
+        for (int i = 0; i < 100*24; i++) {
+            actual.advanceWisdomHolman(3600.0);
+        }
+        String[] namesPointMasses = {"Sun", "Jupiter", "Saturn", "Asteroid", "Comet"};
+        assertSameState(expected, actual, namesPointMasses, 1.0E-9);
+    }
+
+    /**
+     * Test of method advanceWisdomHolman.
+     * Error in total energy remains bounded for time steps of days.
+     */
+    @Test
+    public void testAdvanceWisdomHolmanEnergy() {
+        ParticleSystem particleSystem = createParticleSystemPointMasses();
+        particleSystem.advanceWisdomHolman(0.0);
+        double initialEnergy = particleSystem.computeKineticEnergy() + particleSystem.computePotentialEnergy();
+        for (int i = 0; i < 100*365; i++) {
+            particleSystem.advanceWisdomHolman(10*86400.0);
+            double energy = particleSystem.computeKineticEnergy() + particleSystem.computePotentialEnergy();
+            assertEquals("Energy not conserved", initialEnergy, energy, 1.0E-7*Math.abs(initialEnergy));
+        }
+    }
+
+    /**
+     * Test of method advanceWisdomHolman.
+     * Runge-Kutta method is used when a particle applying force is not a point mass.
+     */
+    @Test
+    public void testAdvanceWisdomHolmanOblatePlanet() {
+        ParticleSystem expected = createParticleSystem();
+        ParticleSystem actual = createParticleSystem();
+        for (int i = 0; i < 100; i++) {
+            expected.advanceRungeKutta(60.0);
+            actual.advanceWisdomHolman(60.0);
+        }
+        assertSameState(expected, actual, names, 0.0);
+    }
+
+    /**
+     * Test of methods writeState and readState.
+     * Four-step Adams-Bashforth-Moulton method continues with the same
+     * results after the state has been read into another particle system.
+     */
+    @Test
+    public void testWriteReadState() throws IOException {
+        ParticleSystem expected = createParticleSystem();
+        for (int i = 0; i < 10; i++) {
+            expected.advanceABM4(1800.0);
+            expected.correctDrift();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(expected.getStateSize());
+        expected.writeState(buffer);
+        assertEquals(0, buffer.remaining());
+        buffer.flip();
+        ParticleSystem actual = createParticleSystem();
+        actual.readState(buffer);
+        assertEquals(0, buffer.remaining());
+        assertSameState(expected, actual, names, 0.0);
+        for (int i = 0; i < 100; i++) {
+            expected.advanceABM4(1800.0);
+            actual.advanceABM4(1800.0);
+            expected.correctDrift();
+            actual.correctDrift();
+        }
+        assertSameState(expected, actual, names, 0.0);
+    }
+
+    /**
+     * Test of method readState when particles do not correspond.
+     */
+    @Test(expected = IOException.class)
+    public void testReadStateRemovedParticle() throws IOException {
+        ParticleSystem expected = createParticleSystem();
+        ByteBuffer buffer = ByteBuffer.allocate(expected.getStateSize());
+        expected.writeState(buffer);
+        buffer.flip();
+        ParticleSystem actual = createParticleSystem();
+        actual.removeParticle("Spacecraft");
+        actual.readState(buffer);
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package solarsystem;
+
+import application.SolarSystemException;
+import ephemeris.Epoch;
+import org.junit.Test;
+import particlesystem.Particle;
+import util.Vector3D;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test of SolarSystemCheckpoints.
+ * @author Nico Kuijpers
+ */
+public class SolarSystemCheckpointsTest {
+
+    // Interval between checkpoints is 10 days [s]
+    private static final double INTERVAL = 10*86400.0;
+
+    // Bodies to compare
+    private static final List<String> names = Arrays.asList("Sun", "Mercury", "Earth", "Moon", "Jupiter");
+
+    /**
+     * Test of record and seek methods, of class SolarSystemCheckpoints.
+     * Moving the simulation back to an epoch that was simulated before
+     * should result in the same state as simulated at that epoch.
+     */
+    @Test
+    public void testRecordSeek() throws SolarSystemException, IOException {
+        System.out.println("record and seek");
+        SolarSystem solarSystem = new SolarSystem(new GregorianCalendar(2020, 0, 1));
+        SolarSystemTest.setCircularOrbits(solarSystem, new ArrayList<>());
+        SolarSystemCheckpoints checkpoints = new SolarSystemCheckpoints(INTERVAL);
+        checkpoints.record(solarSystem);
+
+        // Simulate 40 days and store state after 25 days
+        Map<String, Vector3D> expectedPositions = new HashMap<>();
+        Map<String, Vector3D> expectedVelocities = new HashMap<>();
+        Epoch epoch = null;
+        for (int day = 1; day <= 40; day++) {
+            solarSystem.advanceSimulationForward(24);
+            checkpoints.record(solarSystem);
+            if (day == 25) {
+                epoch = solarSystem.getSimulationEpoch();
+                for (String name : names) {
+                    Particle particle = solarSystem.getParticle(name);
+                    expectedPositions.put(name, new Vector3D(particle.getPosition()));
+                    expectedVelocities.put(name, new Vector3D(particle.getVelocity()));
+                }
+            }
+        }
+        assertEquals(5, checkpoints.getNrCheckpoints());
+
+        // Move simulation back to state after 25 days
+        assertTrue(checkpoints.seek(solarSystem, epoch));
+        assertEquals(epoch.getJulianDateTime(), solarSystem.getSimulationEpoch().getJulianDateTime(), 0.0);
+        for (String name : names) {
+            Particle actual = solarSystem.getParticle(name);
+            assertEquals(name, 0.0, expectedPositions.get(name).euclideanDistance(actual.getPosition()), 0.0);
+            assertEquals(name, 0.0, expectedVelocities.get(name).euclideanDistance(actual.getVelocity()), 0.0);
+        }
+        checkpoints.close();
+    }
+
+    /**
+     * Test of seek method, of class SolarSystemCheckpoints.
+     * The simulation should not be moved when no checkpoint is stored
+     * within the interval before or after the epoch.
+     */
+    @Test
+    public void testSeekTooFar() throws SolarSystemException, IOException {
+        System.out.println("seek too far");
+        SolarSystem solarSystem = new SolarSystem(new GregorianCalendar(2020, 0, 1));
+        SolarSystemTest.setCircularOrbits(solarSystem, new ArrayList<>());
+        SolarSystemCheckpoints checkpoints = new SolarSystemCheckpoints(INTERVAL);
+        checkpoints.record(solarSystem);
+        Epoch epoch = solarSystem.getSimulationEpoch();
+        assertFalse(checkpoints.seek(solarSystem, epoch.plusSeconds(11*86400.0)));
+        assertEquals(epoch.getJulianDateTime(), solarSystem.getSimulationEpoch().getJulianDateTime(), 0.0);
+        checkpoints.clear();
+        assertEquals(0, checkpoints.getNrCheckpoints());
+        assertFalse(checkpoints.seek(solarSystem, epoch));
+        checkpoints.close();
+    }
+}
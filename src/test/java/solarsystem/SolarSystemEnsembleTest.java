@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package solarsystem;
+
+import application.SolarSystemException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Test of SolarSystemEnsemble. Scenarios advanced as ensemble on one or
+ * more threads are compared to scenarios advanced one by one.
+ * @author Nico Kuijpers
+ */
+public class SolarSystemEnsembleTest {
+
+    // Start date
+    private static final GregorianCalendar startDate = new GregorianCalendar(2000, 0, 1);
+
+    // Observed bodies
+    private static final String[] observedBodies = {"Mercury", "Earth", "Io"};
+
+    // Planet systems
+    private static final List<String> planetSystems = Collections.singletonList("Jupiter");
+
+    // Number of time steps of one hour and number of time steps between observations
+    private static final int nrTimeSteps = 48;
+    private static final int nrTimeStepsObservation = 12;
+
+    /**
+     * Create scenarios with Newton Mechanics, General Relativity,
+     * and adjusted mass of Jupiter.
+     * @return scenarios
+     */
+    private List<SolarSystemEnsemble.Scenario> createScenarios() {
+        List<SolarSystemEnsemble.Scenario> scenarios = new ArrayList<>();
+        scenarios.add(solarSystem -> {});
+        scenarios.add(solarSystem -> solarSystem.setGeneralRelativityFlag(true));
+        for (int k = 1; k <= 3; k++) {
+            double factor = 1.0 + 1.0E-3*k;
+            scenarios.add(solarSystem -> solarSystem.setMass("Jupiter", factor*solarSystem.getMass("Jupiter")));
+        }
+        List<SolarSystemEnsemble.Scenario> result = new ArrayList<>();
+        for (SolarSystemEnsemble.Scenario scenario : scenarios) {
+            result.add(solarSystem -> {
+                for (String planetName : planetSystems) {
+                    solarSystem.createPlanetSystem(planetName);
+                }
+                SolarSystemTest.setCircularOrbits(solarSystem, planetSystems);
+                scenario.configure(solarSystem);
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Simulate scenarios as ensemble and store all observations.
+     * @param scenarios scenarios
+     * @param nrThreads number of threads
+     * @return observations of each scenario, one after another
+     */
+    private List<List<double[]>> simulate(List<SolarSystemEnsemble.Scenario> scenarios, int nrThreads)
+            throws SolarSystemException {
+        SolarSystemEnsemble ensemble = new SolarSystemEnsemble(startDate, scenarios, observedBodies, nrThreads);
+        List<List<double[]>> observations = new ArrayList<>();
+        for (int i = 0; i < scenarios.size(); i++) {
+            observations.add(new ArrayList<>());
+        }
+        ensemble.advanceSimulationForward(nrTimeSteps, nrTimeStepsObservation,
+                (scenario, dateTime, values) -> observations.get(scenario).add(values.clone()));
+        ensemble.shutdown();
+        return observations;
+    }
+
+    /**
+     * Test of advanceSimulationForward method, of class SolarSystemEnsemble.
+     * Observations should be identical to scenarios advanced one by one
+     * for any number of threads.
+     */
+    @Test
+    public void testAdvanceSimulationForward() throws SolarSystemException {
+        System.out.println("advanceSimulationForward");
+        List<SolarSystemEnsemble.Scenario> scenarios = createScenarios();
+        List<List<double[]>> expected = new ArrayList<>();
+        for (int i = 0; i < scenarios.size(); i++) {
+            expected.addAll(simulate(scenarios.subList(i, i + 1), 1));
+        }
+        for (int nrThreads : Arrays.asList(1, 2, 4)) {
+            List<List<double[]>> actual = simulate(scenarios, nrThreads);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(nrTimeSteps/nrTimeStepsObservation, actual.get(i).size());
+                for (int k = 0; k < expected.get(i).size(); k++) {
+                    double[] expectedValues = expected.get(i).get(k);
+                    double[] actualValues = actual.get(i).get(k);
+                    for (int c = 0; c < expectedValues.length; c++) {
+                        assertFalse(Double.isNaN(expectedValues[c]));
+                        assertEquals(expectedValues[c], actualValues[c], 0.0);
+                    }
+                }
+            }
+        }
+
+        // Scenarios should differ from each other
+        double[] newtonMechanics = expected.get(0).get(expected.get(0).size() - 1);
+        double[] generalRelativity = expected.get(1).get(expected.get(1).size() - 1);
+        assertFalse(newtonMechanics[6] == generalRelativity[6]);
+    }
+}
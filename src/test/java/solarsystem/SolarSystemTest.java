@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package solarsystem;
+
+import application.SolarSystemException;
+import ephemeris.Epoch;
+import ephemeris.SolarSystemParameters;
+import org.junit.Test;
+import particlesystem.Particle;
+import util.Vector3D;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.GregorianCalendar;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test of SolarSystem.
+ * @author Nico Kuijpers
+ */
+public class SolarSystemTest {
+
+    // Planet systems
+    private static final List<String> planetSystems = Arrays.asList("Mars", "Jupiter", "Saturn", "Uranus", "Neptune");
+
+    /**
+     * Create Solar System with planet systems.
+     * @param concurrentFlag flag to advance planet systems concurrently
+     * @return Solar System
+     */
+    private SolarSystem createSolarSystem(boolean concurrentFlag) throws SolarSystemException {
+        SolarSystem solarSystem = new SolarSystem(new GregorianCalendar(2020, 0, 1));
+        solarSystem.setConcurrentPlanetSystemsFlag(concurrentFlag);
+        for (String planetName : planetSystems) {
+            solarSystem.createPlanetSystem(planetName);
+        }
+        setCircularOrbits(solarSystem, planetSystems);
+        return solarSystem;
+    }
+
+    /**
+     * Set planets and moons of given planet systems in circular orbits,
+     * such that tests do not depend on ephemeris files.
+     * @param solarSystem   Solar System
+     * @param planetSystems planet systems of the Solar System
+     */
+    static void setCircularOrbits(SolarSystem solarSystem, List<String> planetSystems)
+            throws SolarSystemException {
+        SolarSystemParameters parameters = SolarSystemParameters.getInstance();
+        List<String> planets = new ArrayList<>(parameters.getPlanets());
+        planets.add("Moon");
+        planets.remove("EarthMoonBarycenter");
+        for (int k = 0; k < planets.size(); k++) {
+            String planetName = planets.get(k);
+            if (solarSystem.getParticle(planetName) == null) {
+                continue;
+            }
+            double radius = (k + 2) * 1.0E11;
+            setCircularOrbit(solarSystem, planetName, new Vector3D(), new Vector3D(),
+                    parameters.getMu("Sun"), radius, k);
+            if (!planetSystems.contains(planetName)) {
+                continue;
+            }
+            Particle planet = solarSystem.getParticle(planetName);
+            List<String> moons = parameters.getMoonsOfPlanet(planetName);
+            for (int m = 0; m < moons.size(); m++) {
+                setCircularOrbit(solarSystem, moons.get(m), planet.getPosition(), planet.getVelocity(),
+                        parameters.getMu(planetName), (m + 2) * 2.0E8, m);
+            }
+        }
+    }
+
+    /**
+     * Set position and velocity of body in circular orbit around center body.
+     */
+    private static void setCircularOrbit(SolarSystem solarSystem, String name, Vector3D centerPosition,
+                                         Vector3D centerVelocity, double mu, double radius, double angle)
+            throws SolarSystemException {
+        double speed = Math.sqrt(mu/radius);
+        Vector3D position = new Vector3D(radius*Math.cos(angle), radius*Math.sin(angle), 0.0);
+        Vector3D velocity = new Vector3D(-speed*Math.sin(angle), speed*Math.cos(angle), 0.0);
+        solarSystem.setPositionVelocity(name, centerPosition.plus(position), centerVelocity.plus(velocity));
+    }
+
+    /**
+     * Test of advanceSimulationForward method, of class SolarSystem.
+     * Planet systems advanced concurrently and sequentially from the same
+     * state should result in identical states of the moons.
+     */
+    @Test
+    public void testAdvanceSimulationForwardConcurrentPlanetSystems() throws SolarSystemException {
+        System.out.println("advanceSimulationForward concurrent planet systems");
+        SolarSystem sequential = createSolarSystem(false);
+        SolarSystem concurrent = createSolarSystem(true);
+        sequential.advanceSimulationForward(24);
+        concurrent.advanceSimulationForward(24);
+        SolarSystemParameters parameters = SolarSystemParameters.getInstance();
+        List<String> names = new ArrayList<>();
+        for (String planetName : planetSystems) {
+            names.add(planetName);
+            names.addAll(parameters.getMoonsOfPlanet(planetName));
+        }
+        for (String name : names) {
+            Particle expected = sequential.getParticle(name);
+            Particle actual = concurrent.getParticle(name);
+            assertNotNull(name, expected);
+            assertFalse(name, Double.isNaN(expected.getPosition().getX()));
+            assertVector(name, expected.getPosition(), actual.getPosition());
+            assertVector(name, expected.getVelocity(), actual.getVelocity());
+        }
+    }
+
+    /**
+     * Test of getInterpolatedPositionVelocity method, of class SolarSystem.
+     * Positions of planets and moons interpolated in between time steps should
+     * correspond to positions simulated up to that epoch.
+     */
+    @Test
+    public void testGetInterpolatedPositionVelocity() throws SolarSystemException {
+        System.out.println("getInterpolatedPositionVelocity");
+        SolarSystem interpolated = createSolarSystem(false);
+        SolarSystem simulated = createSolarSystem(false);
+        interpolated.setDenseOutputFlag(true);
+        Epoch epoch = interpolated.getSimulationEpoch().plusSeconds(1800.0);
+        assertFalse(interpolated.denseOutputContains(epoch));
+        assertNull(interpolated.getInterpolatedPositionVelocity("Earth", epoch));
+        interpolated.advanceSimulationForward(1);
+        simulated.advanceSimulationSingleStep(1800.0);
+        assertTrue(interpolated.denseOutputContains(epoch));
+        for (String name : Arrays.asList("Earth", "Moon", "Jupiter", "Io", "Callisto")) {
+            Vector3D[] positionVelocity = interpolated.getInterpolatedPositionVelocity(name, epoch);
+            Particle particle = simulated.getParticle(name);
+            assertEquals(name, 0.0, positionVelocity[0].euclideanDistance(particle.getPosition()), 1.0E03);
+            assertEquals(name, 0.0, positionVelocity[1].euclideanDistance(particle.getVelocity()), 1.0E-01);
+
+            // Interpolated state at the end of the time step is the state of the particle
+            positionVelocity = interpolated.getInterpolatedPositionVelocity(name, interpolated.getSimulationEpoch());
+            assertVector(name, interpolated.getParticle(name).getPosition(), positionVelocity[0]);
+        }
+    }
+
+    /**
+     * Test of writeSnapshot and readSnapshot methods, of class SolarSystem.
+     * A snapshot read into a Solar System without planet systems should
+     * result in the state of the Solar System from which it was written.
+     */
+    @Test
+    public void testReadSnapshot() throws SolarSystemException, IOException {
+        System.out.println("readSnapshot");
+        SolarSystem expected = createSolarSystem(false);
+        expected.advanceSimulationForward(24);
+        ByteBuffer buffer = ByteBuffer.allocate(expected.getSnapshotSize());
+        expected.writeSnapshot(buffer);
+        buffer.flip();
+        SolarSystem actual = new SolarSystem(new GregorianCalendar(2021, 0, 1));
+        actual.readSnapshot(buffer);
+        assertTrue(actual.isMoveBodiesRequired());
+        assertEquals(expected.getSimulationEpoch().getJulianDateTime(),
+                actual.getSimulationEpoch().getJulianDateTime(), 0.0);
+        SolarSystemParameters parameters = SolarSystemParameters.getInstance();
+        List<String> names = new ArrayList<>(Arrays.asList("Sun", "Earth", "Moon"));
+        for (String planetName : planetSystems) {
+            names.add(planetName);
+            names.addAll(parameters.getMoonsOfPlanet(planetName));
+        }
+        for (String name : names) {
+            assertNotNull(name, actual.getParticle(name));
+            assertVector(name, expected.getParticle(name).getPosition(), actual.getParticle(name).getPosition());
+            assertVector(name, expected.getParticle(name).getVelocity(), actual.getParticle(name).getVelocity());
+        }
+    }
+
+    /**
+     * Test of readSnapshot method, of class SolarSystem.
+     * A snapshot of which the particles do not correspond should not
+     * change the state of the Solar System.
+     */
+    @Test
+    public void testReadSnapshotParticlesNotCorresponding() throws SolarSystemException {
+        System.out.println("readSnapshot particles not corresponding");
+        SolarSystem source = new SolarSystem(new GregorianCalendar(2020, 0, 1));
+        source.createPlanetSystem("Mars");
+        ByteBuffer buffer = ByteBuffer.allocate(source.getSnapshotSize());
+        source.writeSnapshot(buffer);
+
+        // Rename moon Phobos in the state of the Mars system
+        byte[] bytes = buffer.array();
+        byte[] phobos = "Phobos".getBytes(StandardCharsets.UTF_8);
+        int index = bytes.length - phobos.length;
+        while (!Arrays.equals(phobos, Arrays.copyOfRange(bytes, index, index + phobos.length))) {
+            index--;
+        }
+        bytes[index + phobos.length - 1] = 'x';
+
+        SolarSystem actual = new SolarSystem(new GregorianCalendar(2021, 0, 1));
+        setCircularOrbits(actual, new ArrayList<>());
+        double julianDateTime = actual.getSimulationEpoch().getJulianDateTime();
+        Vector3D position = new Vector3D(actual.getParticle("Earth").getPosition());
+        try {
+            actual.readSnapshot(ByteBuffer.wrap(bytes));
+            fail("IOException expected");
+        }
+        catch (IOException ex) {
+            // Expected
+        }
+        assertNull(actual.getParticle("Phobos"));
+        assertEquals(julianDateTime, actual.getSimulationEpoch().getJulianDateTime(), 0.0);
+        assertVector("Earth", position, actual.getParticle("Earth").getPosition());
+    }
+
+    /**
+     * Check that vectors are identical.
+     */
+    private void assertVector(String name, Vector3D expected, Vector3D actual) {
+        assertEquals(name, expected.getX(), actual.getX(), 0.0);
+        assertEquals(name, expected.getY(), actual.getY(), 0.0);
+        assertEquals(name, expected.getZ(), actual.getZ(), 0.0);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2019 Nico Kuijpers
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is furnished
+ * to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR I
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR
+ * IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package solarsystem;
+
+import ephemeris.Epoch;
+import ephemeris.SolarSystemParameters;
+import org.junit.Test;
+import particlesystem.Particle;
+import particlesystem.ParticleSystem;
+import util.Vector3D;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test of TrajectoryRecorder and TrajectoryFile. Trajectories recorded
+ * during simulation are compared to the trajectories read from file.
+ * @author Nico Kuijpers
+ */
+public class TrajectoryRecorderTest {
+
+    // Names of the bodies
+    private static final List<String> bodies = Arrays.asList("Sun", "Earth", "Spacecraft");
+
+    /**
+     * Create particle system with the Sun, the Earth, and a spacecraft.
+     * @return particle system
+     */
+    private ParticleSystem createParticleSystem() {
+        SolarSystemParameters parameters = SolarSystemParameters.getInstance();
+        ParticleSystem particleSystem = new ParticleSystem();
+        particleSystem.addParticle("Sun", parameters.getMass("Sun"), parameters.getMu("Sun"),
+                new Vector3D(), new Vector3D());
+        particleSystem.addParticle("Earth", parameters.getMass("Earth"), parameters.getMu("Earth"),
+                new Vector3D(1.496E11, 0.0, 0.0), new Vector3D(0.0, 29780.0, 0.0));
+        particleSystem.addParticleWithoutMass("Spacecraft", new Particle(1.0,
+                new Vector3D(1.496E11, -4.0E07, 2.0E06), new Vector3D(3000.0, 29780.0, 100.0)));
+        return particleSystem;
+    }
+
+    /**
+     * Check that vector is equal to x, y, and z.
+     */
+    private void assertVector(double[] expected, int offset, Vector3D actual) {
+        assertEquals(expected[offset], actual.getX(), 0.0);
+        assertEquals(expected[offset + 1], actual.getY(), 0.0);
+        assertEquals(expected[offset + 2], actual.getZ(), 0.0);
+    }
+
+    /**
+     * Test of record method, of class TrajectoryRecorder.
+     * Samples are taken every three time steps and stored in chunks of seven samples.
+     */
+    @Test
+    public void testRecord() throws IOException {
+        System.out.println("record");
+        File file = File.createTempFile("trajectory", ".traj");
+        file.deleteOnExit();
+        ParticleSystem particleSystem = createParticleSystem();
+        Epoch epoch = new Epoch(2451545.0, 0.0);
+        List<Epoch> expectedEpochs = new ArrayList<>();
+        List<double[]> expectedStates = new ArrayList<>();
+        try (TrajectoryRecorder recorder = new TrajectoryRecorder(file, bodies, 3*3600.0, 7)) {
+            for (int step = 0; step <= 100; step++) {
+                if (step % 3 == 0) {
+                    double[] state = new double[6*bodies.size()];
+                    for (int i = 0; i < bodies.size(); i++) {
+                        Particle particle = particleSystem.getParticle(bodies.get(i));
+                        state[6*i] = particle.getPosition().getX();
+                        state[6*i + 1] = particle.getPosition().getY();
+                        state[6*i + 2] = particle.getPosition().getZ();
+                        state[6*i + 3] = particle.getVelocity().getX();
+                        state[6*i + 4] = particle.getVelocity().getY();
+                        state[6*i + 5] = particle.getVelocity().getZ();
+                    }
+                    expectedEpochs.add(epoch);
+                    expectedStates.add(state);
+                }
+                recorder.record(epoch, particleSystem);
+                particleSystem.advanceRungeKutta(3600.0);
+                epoch = epoch.plusSeconds(3600.0);
+            }
+        }
+
+        TrajectoryFile trajectories = new TrajectoryFile(file);
+        assertEquals(bodies, trajectories.getBodies());
+        assertEquals(3*3600.0, trajectories.getInterval(), 0.0);
+        assertEquals(34, trajectories.getNrSamples());
+        assertEquals(5, trajectories.getNrChunks());
+        for (int sample = 0; sample < trajectories.getNrSamples(); sample++) {
+            assertEquals(expectedEpochs.get(sample), trajectories.getEpoch(sample));
+            for (int i = 0; i < bodies.size(); i++) {
+                assertVector(expectedStates.get(sample), 6*i, trajectories.getPosition(bodies.get(i), sample));
+                assertVector(expectedStates.get(sample), 6*i + 3, trajectories.getVelocity(bodies.get(i), sample));
+            }
+        }
+
+        // Columns of last chunk
+        DoubleBuffer julianDayNumbers = trajectories.getJulianDayNumbers(4);
+        DoubleBuffer velocityZ = trajectories.getColumn(4, "Earth", 5);
+        assertEquals(6, julianDayNumbers.remaining());
+        assertEquals(6, velocityZ.remaining());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(expectedEpochs.get(28 + i).getJulianDayNumber(), julianDayNumbers.get(i), 0.0);
+            assertEquals(expectedStates.get(28 + i)[11], velocityZ.get(i), 0.0);
+        }
+    }
+
+    /**
+     * Test of close method, of class TrajectoryRecorder.
+     * When the thread is interrupted, all chunks should still be written
+     * and the interrupt status should be restored.
+     */
+    @Test
+    public void testCloseInterrupted() throws IOException {
+        System.out.println("close interrupted");
+        File file = File.createTempFile("trajectory", ".traj");
+        file.deleteOnExit();
+        ParticleSystem particleSystem = createParticleSystem();
+        Epoch epoch = new Epoch(2451545.0, 0.0);
+        TrajectoryRecorder recorder = new TrajectoryRecorder(file, bodies, 3600.0, 1);
+        for (int step = 0; step < 100; step++) {
+            recorder.record(epoch, particleSystem);
+            particleSystem.advanceRungeKutta(3600.0);
+            epoch = epoch.plusSeconds(3600.0);
+        }
+        Thread.currentThread().interrupt();
+        try {
+            recorder.close();
+        } finally {
+            assertTrue(Thread.interrupted());
+        }
+
+        TrajectoryFile trajectories = new TrajectoryFile(file);
+        assertEquals(100, trajectories.getNrSamples());
+        assertEquals(100, trajectories.getNrChunks());
+    }
+
+    /**
+     * Body that is not in the particle system cannot be recorded.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRecordUnknownBody() throws IOException {
+        System.out.println("record unknown body");
+        File file = File.createTempFile("trajectory", ".traj");
+        file.deleteOnExit();
+        try (TrajectoryRecorder recorder = new TrajectoryRecorder(file, Arrays.asList("Sun", "Mars"), 3600.0)) {
+            recorder.record(new Epoch(2451545.0, 0.0), createParticleSystem());
+        }
+    }
+}
@@ -317,7 +317,55 @@ public class Vector3DTest {
         v.addVector(u);
         assertEquals(true,equalVectors(expected,v));
     }
-    
+
+    @Test
+    public void testSubtractVector() {
+        Vector3D v = new Vector3D(1.0,2.0,3.0);
+        Vector3D u = new Vector3D(4.0,5.0,6.0);
+        Vector3D expected = new Vector3D(-3.0,-3.0,-3.0);
+        v.subtractVector(u);
+        assertEquals(true,equalVectors(expected,v));
+    }
+
+    @Test
+    public void testSet() {
+        Vector3D v = new Vector3D(1.0,2.0,3.0);
+        Vector3D u = new Vector3D(4.0,5.0,6.0);
+        v.set(u);
+        assertEquals(true,equalVectors(u,v));
+        v.set(7.0,8.0,9.0);
+        assertEquals(true,equalVectors(new Vector3D(7.0,8.0,9.0),v));
+    }
+
+    @Test
+    public void testAddScaled() {
+        Vector3D v = new Vector3D(1.0,2.0,3.0);
+        Vector3D u = new Vector3D(4.0,5.0,6.0);
+        Vector3D expected = v.plus(u.scalarProduct(0.5));
+        v.addScaled(u,0.5);
+        assertEquals(true,equalVectors(expected,v));
+    }
+
+    @Test
+    public void testSetScaled() {
+        Vector3D v = new Vector3D(1.0,2.0,3.0);
+        Vector3D expected = v.scalarProduct(3.0);
+        v.setScaled(v,3.0);
+        assertEquals(true,equalVectors(expected,v));
+    }
+
+    @Test
+    public void testSetAddScaled() {
+        Vector3D v = new Vector3D(1.0,2.0,3.0);
+        Vector3D u = new Vector3D(4.0,5.0,6.0);
+        Vector3D w = new Vector3D();
+        Vector3D expected = u.plus(v.scalarProduct(-2.0));
+        w.setAddScaled(u,v,-2.0);
+        assertEquals(true,equalVectors(expected,w));
+        v.setAddScaled(u,v,-2.0);
+        assertEquals(true,equalVectors(expected,v));
+    }
+
     @Test
     public void testToString() {
         Vector3D v = new Vector3D(1.0,2.0,3.0);